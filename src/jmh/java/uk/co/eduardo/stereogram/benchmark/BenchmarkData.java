@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import uk.co.eduardo.stereogram.StreamSource;
+import uk.co.eduardo.stereogram.map.HeightMap;
+import uk.co.eduardo.stereogram.map.MaximumDepthHeightMapTransformer;
+import uk.co.eduardo.stereogram.texture.ArrayTexture1DFactory;
+import uk.co.eduardo.stereogram.texture.LinkedTexture1DFactory;
+import uk.co.eduardo.stereogram.texture.Texture1DFactory;
+
+/**
+ * Deterministic synthetic inputs shared by the benchmarks.
+ *
+ * @author erodri02
+ */
+@SuppressWarnings( "nls" )
+final class BenchmarkData
+{
+   /** The maximum depth used when a benchmark needs a rescaled height map. */
+   static final int DEPTH = 30;
+
+   private static final long SEED = 42L;
+
+   private BenchmarkData()
+   {
+      // Prevent instantiation
+      throw new IllegalStateException();
+   }
+
+   /**
+    * Creates a square 8-bit greyscale image containing a dome with a raised block in front of it.
+    *
+    * @param size the width and height of the image.
+    * @return the image.
+    */
+   static BufferedImage createHeightMapImage( final int size )
+   {
+      final BufferedImage image = new BufferedImage( size, size, BufferedImage.TYPE_BYTE_GRAY );
+      final double centre = size / 2.0;
+      final double radius = size / 2.5;
+      for( int y = 0; y < size; y++ )
+      {
+         for( int x = 0; x < size; x++ )
+         {
+            final double distance = Math.hypot( x - centre, y - centre );
+            int value = distance < radius ? (int) ( 200 * Math.sqrt( 1 - ( ( distance * distance ) / ( radius * radius ) ) ) ) : 0;
+            if( ( x > ( size / 8 ) ) && ( x < ( size / 3 ) ) && ( y > ( size / 2 ) ) && ( y < ( ( 7 * size ) / 8 ) ) )
+            {
+               value = 255;
+            }
+            image.getRaster().setSample( x, y, 0, value );
+         }
+      }
+      return image;
+   }
+
+   /**
+    * Creates a square height map with values between 0 and 255.
+    *
+    * @param size the width and height of the map.
+    * @return the height map.
+    */
+   static HeightMap createHeightMap( final int size )
+   {
+      final BufferedImage image = createHeightMapImage( size );
+      final short[] data = new short[ size * size ];
+      for( int y = 0; y < size; y++ )
+      {
+         for( int x = 0; x < size; x++ )
+         {
+            data[ ( y * size ) + x ] = (short) image.getRaster().getSample( x, y, 0 );
+         }
+      }
+      return new HeightMap( data, size, size );
+   }
+
+   /**
+    * Creates a square height map rescaled to {@link #DEPTH}, as fed to the processor by the pipeline.
+    *
+    * @param size the width and height of the map.
+    * @return the rescaled height map.
+    */
+   static HeightMap createRescaledHeightMap( final int size )
+   {
+      return new MaximumDepthHeightMapTransformer( DEPTH ).transform( createHeightMap( size ) );
+   }
+
+   /**
+    * Creates a square texture of random opaque pixels.
+    *
+    * @param width the width and height of the texture.
+    * @return the texture rows.
+    */
+   static int[][] createTexture( final int width )
+   {
+      final Random random = new Random( SEED );
+      final int[][] texture = new int[ width ][ width ];
+      for( final int[] row : texture )
+      {
+         for( int x = 0; x < width; x++ )
+         {
+            row[ x ] = 0xFF000000 | random.nextInt( 0x1000000 );
+         }
+      }
+      return texture;
+   }
+
+   /**
+    * Tiles texture rows vertically to cover the given number of rows, as the pipeline does.
+    *
+    * @param texture the texture rows.
+    * @param height the number of rows required.
+    * @return the tiled rows.
+    */
+   static int[][] tile( final int[][] texture, final int height )
+   {
+      final int[][] tiled = new int[ height ][];
+      for( int y = 0; y < height; y++ )
+      {
+         tiled[ y ] = texture[ y % texture.length ];
+      }
+      return tiled;
+   }
+
+   /**
+    * Gets the 1D texture factory for the named engine.
+    *
+    * @param engine either <code>ARRAY</code> or <code>LINKED</code>.
+    * @return the factory.
+    */
+   static Texture1DFactory getTexture1DFactory( final String engine )
+   {
+      switch( engine )
+      {
+         case "ARRAY":
+            return new ArrayTexture1DFactory();
+         case "LINKED":
+            return new LinkedTexture1DFactory();
+         default:
+            throw new IllegalArgumentException( engine );
+      }
+   }
+
+   /**
+    * Creates a stream source that serves a synthetic height map encoded as a PNG.
+    *
+    * @param size the width and height of the map.
+    * @return the stream source.
+    */
+   static StreamSource createHeightMapSource( final int size )
+   {
+      final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+      try
+      {
+         ImageIO.write( createHeightMapImage( size ), "png", stream );
+      }
+      catch( final IOException exception )
+      {
+         throw new UncheckedIOException( exception );
+      }
+      final byte[] bytes = stream.toByteArray();
+      return new StreamSource()
+      {
+         @Override
+         public InputStream getStream()
+         {
+            return new ByteArrayInputStream( bytes );
+         }
+
+         @Override
+         public String toString()
+         {
+            return "synthetic-" + size + ".png";
+         }
+      };
+   }
+}
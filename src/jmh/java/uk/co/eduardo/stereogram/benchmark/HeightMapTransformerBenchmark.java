@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.co.eduardo.stereogram.map.HeightMap;
+import uk.co.eduardo.stereogram.map.LazyMaximumDepthHeightMapTransformer;
+import uk.co.eduardo.stereogram.map.MaximumDepthHeightMapTransformer;
+import uk.co.eduardo.stereogram.map.ScaleHeightMapTransformer;
+
+/**
+ * Measures the height map transformers.
+ *
+ * @author erodri02
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Fork( 1 )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@State( Scope.Thread )
+public class HeightMapTransformerBenchmark
+{
+   /** Width and height of the height map. */
+   @Param( { "512", "2048" } )
+   public int mapSize;
+
+   private HeightMap heightMap;
+
+   private HeightMap destination;
+
+   private short[] row;
+
+   private final MaximumDepthHeightMapTransformer maximumDepth = new MaximumDepthHeightMapTransformer( BenchmarkData.DEPTH );
+
+   private final LazyMaximumDepthHeightMapTransformer lazyMaximumDepth = new LazyMaximumDepthHeightMapTransformer( BenchmarkData.DEPTH );
+
+   private final ScaleHeightMapTransformer scale = new ScaleHeightMapTransformer( 0.5f );
+
+   /**
+    * Creates the inputs.
+    */
+   @Setup( Level.Trial )
+   public void setUp()
+   {
+      this.heightMap = BenchmarkData.createHeightMap( this.mapSize );
+      this.destination = this.heightMap.copy();
+      this.row = new short[ this.mapSize ];
+   }
+
+   /**
+    * Rescales to the maximum depth into a new map.
+    *
+    * @return the rescaled map.
+    */
+   @Benchmark
+   public HeightMap maximumDepth()
+   {
+      return this.maximumDepth.transform( this.heightMap );
+   }
+
+   /**
+    * Rescales to the maximum depth into a reused map.
+    *
+    * @return the rescaled map.
+    */
+   @Benchmark
+   public HeightMap maximumDepthIntoDestination()
+   {
+      return this.maximumDepth.transform( this.heightMap, this.destination );
+   }
+
+   /**
+    * Scales by a constant factor into a new map.
+    *
+    * @return the scaled map.
+    */
+   @Benchmark
+   public HeightMap scale()
+   {
+      return this.scale.transform( this.heightMap );
+   }
+
+   /**
+    * Creates a lazily rescaled view.
+    *
+    * @return the view.
+    */
+   @Benchmark
+   public HeightMap lazyMaximumDepth()
+   {
+      return this.lazyMaximumDepth.transform( this.heightMap );
+   }
+
+   /**
+    * Creates a lazily rescaled view and reads every row of it, as a render would.
+    *
+    * @return the last row read.
+    */
+   @Benchmark
+   public short[] lazyMaximumDepthRead()
+   {
+      final HeightMap view = this.lazyMaximumDepth.transform( this.heightMap );
+      for( int y = 0; y < view.getHeight(); y++ )
+      {
+         view.getRow( y, this.row );
+      }
+      return this.row;
+   }
+
+   /**
+    * Scans an uncached map for its maximum value.
+    *
+    * @return the maximum value.
+    */
+   @Benchmark
+   public int maximumValue()
+   {
+      return this.heightMap.copy().getMaximumValue();
+   }
+}
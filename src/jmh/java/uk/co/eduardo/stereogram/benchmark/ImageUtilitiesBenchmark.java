@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.co.eduardo.stereogram.ImageUtilities;
+
+/**
+ * Measures the raster conversions in {@link ImageUtilities}.
+ *
+ * @author erodri02
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Fork( 1 )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@State( Scope.Thread )
+public class ImageUtilitiesBenchmark
+{
+   /** Width and height of the image. */
+   @Param( { "512", "2048" } )
+   public int mapSize;
+
+   private BufferedImage greyImage;
+
+   private BufferedImage argbImage;
+
+   /**
+    * Creates the inputs.
+    */
+   @Setup( Level.Trial )
+   public void setUp()
+   {
+      this.greyImage = BenchmarkData.createHeightMapImage( this.mapSize );
+      this.argbImage = new BufferedImage( this.mapSize, this.mapSize, BufferedImage.TYPE_INT_ARGB );
+      this.argbImage.createGraphics().drawImage( this.greyImage, 0, 0, null );
+   }
+
+   /**
+    * Converts a greyscale image to a jagged array.
+    *
+    * @return the values.
+    */
+   @Benchmark
+   public short[][] getRasterAsShorts()
+   {
+      return ImageUtilities.getRasterAsShorts( this.greyImage );
+   }
+
+   /**
+    * Converts a greyscale image to a flat array.
+    *
+    * @return the values.
+    */
+   @Benchmark
+   public short[] getRasterAsShortArray()
+   {
+      return ImageUtilities.getRasterAsShortArray( this.greyImage );
+   }
+
+   /**
+    * Converts an ARGB image to a jagged array.
+    *
+    * @return the values.
+    */
+   @Benchmark
+   public int[][] getRasterAsInts()
+   {
+      return ImageUtilities.getRasterAsInts( this.argbImage );
+   }
+}
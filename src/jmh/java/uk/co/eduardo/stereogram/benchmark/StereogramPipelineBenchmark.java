@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.co.eduardo.stereogram.StreamSource;
+import uk.co.eduardo.stereogram.TextureResources;
+import uk.co.eduardo.stereogram.pipeline.StereogramPipeline;
+import uk.co.eduardo.stereogram.texture.CentreAlignTextureOffsetFactory;
+import uk.co.eduardo.stereogram.texture.TextureOffsetFactory;
+import uk.co.eduardo.stereogram.texture.ZeroTextureOffsetFactory;
+
+/**
+ * Measures {@link StereogramPipeline#getOutput()} after invalidating different parts of the pipeline.
+ * <p>
+ * These are the scenarios once timed by hand with <code>StereogramPeformanceTest</code>, which these benchmarks replace. Each
+ * invocation changes one parameter (or resets it to the same value, which still gives it a new generation and so invalidates it)
+ * and renders.
+ * </p>
+ * <p>
+ * The {@link StereogramPipeline#getResultCache() result cache} is disabled, as otherwise alternating between two values, or
+ * resetting one, would take the earlier output from the cache rather than render. {@link StereogramPipelineCacheBenchmark}
+ * measures those cache hits.
+ * </p>
+ *
+ * @author erodri02
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Fork( 1 )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@State( Scope.Thread )
+public class StereogramPipelineBenchmark
+{
+   private static final TextureOffsetFactory ZERO_OFFSET_FACTORY = new ZeroTextureOffsetFactory();
+
+   private static final TextureOffsetFactory CENTRE_ALIGN_FACTORY = new CentreAlignTextureOffsetFactory();
+
+   /** Width and height of the height map. */
+   @Param( { "512", "2048" } )
+   public int mapSize;
+
+   /** Width of the texture. */
+   @Param( { "72", "128", "256" } )
+   public int textureWidth;
+
+   private StereogramPipeline pipeline;
+
+   private StreamSource heightMapSource;
+
+   private int iteration;
+
+   /**
+    * Creates the pipeline, without a result cache, and renders once.
+    */
+   @Setup( Level.Trial )
+   public void setUp()
+   {
+      this.heightMapSource = BenchmarkData.createHeightMapSource( this.mapSize );
+      this.pipeline = new StereogramPipeline();
+      this.pipeline.getResultCache().setMaximumWeight( 0 );
+      this.pipeline.setHeightMapSource( this.heightMapSource );
+      this.pipeline.setTextureSouce( TextureResources.TEXTURE_13 );
+      this.pipeline.setTextureSize( this.textureWidth );
+      this.pipeline.setTextureOffsetFactory( ZERO_OFFSET_FACTORY );
+      this.pipeline.setMaximumDepth( BenchmarkData.DEPTH );
+      this.pipeline.getOutput();
+   }
+
+   /**
+    * Alternates the maximum depth.
+    *
+    * @return the stereogram.
+    */
+   @Benchmark
+   public BufferedImage changeDepth()
+   {
+      this.pipeline.setMaximumDepth( ( this.iteration++ & 1 ) == 0 ? BenchmarkData.DEPTH : BenchmarkData.DEPTH / 2 );
+      return this.pipeline.getOutput();
+   }
+
+   /**
+    * Resets the zero texture offsets.
+    *
+    * @return the stereogram.
+    */
+   @Benchmark
+   public BufferedImage changeOffsetZero()
+   {
+      this.pipeline.setTextureOffsetFactory( ZERO_OFFSET_FACTORY );
+      return this.pipeline.getOutput();
+   }
+
+   /**
+    * Resets the centre aligned texture offsets.
+    *
+    * @return the stereogram.
+    */
+   @Benchmark
+   public BufferedImage changeOffsetCentre()
+   {
+      this.pipeline.setTextureOffsetFactory( CENTRE_ALIGN_FACTORY );
+      return this.pipeline.getOutput();
+   }
+
+   /**
+    * Resets the texture source.
+    *
+    * @return the stereogram.
+    */
+   @Benchmark
+   public BufferedImage changeTexture()
+   {
+      this.pipeline.setTextureSouce( TextureResources.TEXTURE_13 );
+      return this.pipeline.getOutput();
+   }
+
+   /**
+    * Toggles the depth inversion.
+    *
+    * @return the stereogram.
+    */
+   @Benchmark
+   public BufferedImage changeInvert()
+   {
+      this.pipeline.setInvertDepth( ( this.iteration++ & 1 ) == 0 );
+      return this.pipeline.getOutput();
+   }
+
+   /**
+    * Resets the height map source.
+    *
+    * @return the stereogram.
+    */
+   @Benchmark
+   public BufferedImage changeHeightMap()
+   {
+      this.pipeline.setHeightMapSource( this.heightMapSource );
+      return this.pipeline.getOutput();
+   }
+
+   /**
+    * Renders without changing anything.
+    *
+    * @return the stereogram.
+    */
+   @Benchmark
+   public BufferedImage unchanged()
+   {
+      return this.pipeline.getOutput();
+   }
+}
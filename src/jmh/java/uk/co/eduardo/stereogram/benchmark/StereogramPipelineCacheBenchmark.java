@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.co.eduardo.stereogram.TextureResources;
+import uk.co.eduardo.stereogram.pipeline.StereogramPipeline;
+import uk.co.eduardo.stereogram.texture.CentreAlignTextureOffsetFactory;
+import uk.co.eduardo.stereogram.texture.TextureOffsetFactory;
+import uk.co.eduardo.stereogram.texture.ZeroTextureOffsetFactory;
+
+/**
+ * Measures {@link StereogramPipeline#getOutput()} when a parameter returns to a value it had before, so that the output is taken
+ * from the {@link StereogramPipeline#getResultCache() result cache}.
+ * <p>
+ * Each invocation alternates one parameter between two values and renders. Both values are rendered by the first two invocations
+ * of the warm up, so every measured invocation is a cache hit. Compare with the same scenarios in {@link StereogramPipelineBenchmark}, which has no result cache.
+ * </p>
+ *
+ * @author erodri02
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Fork( 1 )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@State( Scope.Thread )
+public class StereogramPipelineCacheBenchmark
+{
+   private static final TextureOffsetFactory ZERO_OFFSET_FACTORY = new ZeroTextureOffsetFactory();
+
+   private static final TextureOffsetFactory CENTRE_ALIGN_FACTORY = new CentreAlignTextureOffsetFactory();
+
+   /** Width and height of the height map. */
+   @Param( { "512", "2048" } )
+   public int mapSize;
+
+   /** Width of the texture. */
+   @Param( { "72", "128", "256" } )
+   public int textureWidth;
+
+   private StereogramPipeline pipeline;
+
+   private int iteration;
+
+   /**
+    * Creates the pipeline and renders once.
+    */
+   @Setup( Level.Trial )
+   public void setUp()
+   {
+      this.pipeline = new StereogramPipeline();
+      this.pipeline.setHeightMapSource( BenchmarkData.createHeightMapSource( this.mapSize ) );
+      this.pipeline.setTextureSouce( TextureResources.TEXTURE_13 );
+      this.pipeline.setTextureSize( this.textureWidth );
+      this.pipeline.setTextureOffsetFactory( ZERO_OFFSET_FACTORY );
+      this.pipeline.setMaximumDepth( BenchmarkData.DEPTH );
+      this.pipeline.getOutput();
+   }
+
+   /**
+    * Alternates the maximum depth.
+    *
+    * @return the stereogram.
+    */
+   @Benchmark
+   public BufferedImage changeDepth()
+   {
+      this.pipeline.setMaximumDepth( ( this.iteration++ & 1 ) == 0 ? BenchmarkData.DEPTH / 2 : BenchmarkData.DEPTH );
+      return this.pipeline.getOutput();
+   }
+
+   /**
+    * Alternates between zero and centre aligned texture offsets.
+    *
+    * @return the stereogram.
+    */
+   @Benchmark
+   public BufferedImage changeOffset()
+   {
+      this.pipeline.setTextureOffsetFactory( ( this.iteration++ & 1 ) == 0 ? CENTRE_ALIGN_FACTORY : ZERO_OFFSET_FACTORY );
+      return this.pipeline.getOutput();
+   }
+
+   /**
+    * Alternates between two textures.
+    *
+    * @return the stereogram.
+    */
+   @Benchmark
+   public BufferedImage changeTexture()
+   {
+      this.pipeline.setTextureSouce( ( this.iteration++ & 1 ) == 0 ? TextureResources.TEXTURE_1 : TextureResources.TEXTURE_13 );
+      return this.pipeline.getOutput();
+   }
+
+   /**
+    * Toggles the depth inversion.
+    *
+    * @return the stereogram.
+    */
+   @Benchmark
+   public BufferedImage changeInvert()
+   {
+      this.pipeline.setInvertDepth( ( this.iteration++ & 1 ) == 0 );
+      return this.pipeline.getOutput();
+   }
+}
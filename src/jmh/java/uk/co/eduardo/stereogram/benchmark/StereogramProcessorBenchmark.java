@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.co.eduardo.stereogram.map.HeightMap;
+import uk.co.eduardo.stereogram.map.StereogramProcessor;
+import uk.co.eduardo.stereogram.texture.Texture1DFactory;
+import uk.co.eduardo.stereogram.texture.Texture2D;
+
+/**
+ * Measures {@link StereogramProcessor#process(HeightMap, Texture2D, BufferedImage)}.
+ * <p>
+ * Rendering consumes the texture so a fresh {@link Texture2D} is created, outside of the measurement, for every invocation.
+ * </p>
+ *
+ * @author erodri02
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Fork( 1 )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@State( Scope.Thread )
+public class StereogramProcessorBenchmark
+{
+   /** Width and height of the height map. */
+   @Param( { "512", "2048" } )
+   public int mapSize;
+
+   /** Width and height of the texture. */
+   @Param( { "72", "128", "256" } )
+   public int textureWidth;
+
+   /** The 1D texture implementation. */
+   @Param( { "ARRAY", "LINKED" } )
+   public String engine;
+
+   /** Whether rows are rendered in parallel on the common pool. */
+   @Param( { "false", "true" } )
+   public boolean parallel;
+
+   private HeightMap heightMap;
+
+   private int[][] textureRows;
+
+   private Texture1DFactory factory;
+
+   private StereogramProcessor processor;
+
+   private BufferedImage image;
+
+   private Texture2D texture;
+
+   /**
+    * Creates the inputs.
+    */
+   @Setup( Level.Trial )
+   public void setUp()
+   {
+      this.heightMap = BenchmarkData.createRescaledHeightMap( this.mapSize );
+      this.textureRows = BenchmarkData.tile( BenchmarkData.createTexture( this.textureWidth ), this.mapSize );
+      this.factory = BenchmarkData.getTexture1DFactory( this.engine );
+      this.processor = this.parallel ? new StereogramProcessor( ForkJoinPool.commonPool() ) : new StereogramProcessor();
+      this.image = new BufferedImage( this.mapSize, this.mapSize, BufferedImage.TYPE_INT_ARGB );
+      // Rendering does not modify the texture, so one texture serves every invocation.
+      this.texture = new Texture2D( this.textureRows, false, this.factory );
+   }
+
+   /**
+    * Renders the stereogram.
+    *
+    * @return the rendered image.
+    */
+   @Benchmark
+   public BufferedImage process()
+   {
+      this.processor.process( this.heightMap, this.texture, this.image );
+      return this.image;
+   }
+}
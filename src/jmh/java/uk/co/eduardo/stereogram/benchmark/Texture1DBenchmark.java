@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import uk.co.eduardo.stereogram.map.HeightMap;
+import uk.co.eduardo.stereogram.texture.Texture1D;
+import uk.co.eduardo.stereogram.texture.Texture1DFactory;
+
+/**
+ * Measures a single {@link Texture1D} rendering one row, including its depth changes.
+ * <p>
+ * The texture is consumed by rendering so each invocation creates a new one. {@link #create()} measures that creation alone so it
+ * can be subtracted from {@link #renderRow(Blackhole)}.
+ * </p>
+ *
+ * @author erodri02
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Fork( 1 )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@State( Scope.Thread )
+public class Texture1DBenchmark
+{
+   /** Width of the height map row. */
+   @Param( { "512", "2048" } )
+   public int mapSize;
+
+   /** Width of the texture. */
+   @Param( { "72", "128", "256" } )
+   public int textureWidth;
+
+   /** The 1D texture implementation. */
+   @Param( { "ARRAY", "LINKED" } )
+   public String engine;
+
+   private int[] textureRow;
+
+   private short[] heightRow;
+
+   private Texture1DFactory factory;
+
+   /**
+    * Creates the inputs. Uses the middle row of the synthetic map, which crosses both the dome and the raised block.
+    */
+   @Setup( Level.Trial )
+   public void setUp()
+   {
+      final HeightMap map = BenchmarkData.createRescaledHeightMap( this.mapSize );
+      this.heightRow = map.getRow( ( 5 * this.mapSize ) / 8, null );
+      this.textureRow = BenchmarkData.createTexture( this.textureWidth )[ 0 ];
+      this.factory = BenchmarkData.getTexture1DFactory( this.engine );
+   }
+
+   /**
+    * Creates a texture.
+    *
+    * @return the texture.
+    */
+   @Benchmark
+   public Texture1D create()
+   {
+      return this.factory.createTexture1D( this.textureRow, false );
+   }
+
+   /**
+    * Creates a texture and renders a row of the height map with it.
+    *
+    * @param blackhole consumes the pixels.
+    */
+   @Benchmark
+   public void renderRow( final Blackhole blackhole )
+   {
+      final Texture1D texture = this.factory.createTexture1D( this.textureRow, false );
+      int last = this.heightRow[ 0 ];
+      for( final short current : this.heightRow )
+      {
+         final int delta = current - last;
+         if( delta != 0 )
+         {
+            texture.setLevelDelta( delta );
+            last = current;
+         }
+         blackhole.consume( texture.getAndIncrement() );
+      }
+   }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.co.eduardo.stereogram.map.HeightMap;
+import uk.co.eduardo.stereogram.texture.CentreAlignTextureOffsetFactory;
+import uk.co.eduardo.stereogram.texture.Texture2D;
+import uk.co.eduardo.stereogram.texture.TextureOffsetFactory;
+import uk.co.eduardo.stereogram.texture.ZeroTextureOffsetFactory;
+
+/**
+ * Measures the {@link TextureOffsetFactory} implementations.
+ *
+ * @author erodri02
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Fork( 1 )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@State( Scope.Thread )
+public class TextureOffsetFactoryBenchmark
+{
+   /** Width and height of the height map. */
+   @Param( { "512", "2048" } )
+   public int mapSize;
+
+   /** Width and height of the texture. */
+   @Param( { "72", "128", "256" } )
+   public int textureWidth;
+
+   private HeightMap heightMap;
+
+   private Texture2D texture;
+
+   private final TextureOffsetFactory zero = new ZeroTextureOffsetFactory();
+
+   private final TextureOffsetFactory centre = new CentreAlignTextureOffsetFactory();
+
+   /**
+    * Creates the inputs.
+    */
+   @Setup( Level.Trial )
+   public void setUp()
+   {
+      this.heightMap = BenchmarkData.createRescaledHeightMap( this.mapSize );
+      this.texture = new Texture2D( BenchmarkData.tile( BenchmarkData.createTexture( this.textureWidth ), this.mapSize ), false );
+   }
+
+   /**
+    * Computes zero offsets.
+    *
+    * @return the offsets.
+    */
+   @Benchmark
+   public int[] zero()
+   {
+      return this.zero.getOffsets( this.heightMap, this.texture );
+   }
+
+   /**
+    * Computes centre aligned offsets.
+    *
+    * @return the offsets.
+    */
+   @Benchmark
+   public int[] centreAlign()
+   {
+      return this.centre.getOffsets( this.heightMap, this.texture );
+   }
+}
@@ -0,0 +1,500 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+
+import uk.co.eduardo.stereogram.io.PngRowWriter;
+import uk.co.eduardo.stereogram.map.MaximumDepthHeightMapTransformer;
+import uk.co.eduardo.stereogram.pipeline.RenderRequest;
+import uk.co.eduardo.stereogram.pipeline.StereogramRenderer;
+import uk.co.eduardo.stereogram.texture.CentreAlignTextureOffsetFactory;
+import uk.co.eduardo.stereogram.texture.TextureOffsetFactory;
+import uk.co.eduardo.stereogram.texture.ZeroTextureOffsetFactory;
+
+/**
+ * Renders every combination of a set of height maps, textures and parameters to PNG files without a user interface.
+ * <p>
+ * The combinations are read from a manifest, a properties file with the following keys. Every key except <code>maps</code> and
+ * <code>textures</code> is optional and all of them take a comma separated list.
+ * </p>
+ * <ul>
+ * <li><code>maps</code> - the height maps. Either the name of a {@link MapResources} constant or the path of an image, relative
+ * to the manifest.</li>
+ * <li><code>textures</code> - the textures. Either the name of a {@link TextureResources} constant or the path of an image,
+ * relative to the manifest.</li>
+ * <li><code>depths</code> - the maximum depths. Defaults to {@value MaximumDepthHeightMapTransformer#DEFAULT_MAXIMUM_DEPTH}.</li>
+ * <li><code>textureSizes</code> - the texture sizes in pixels. Defaults to {@value #DEFAULT_TEXTURE_SIZE}.</li>
+ * <li><code>invert</code> - whether to invert the depth. Defaults to <code>false</code>.</li>
+ * <li><code>offsets</code> - the texture offsets, <code>zero</code> or <code>centre</code>. Defaults to <code>zero</code>.</li>
+ * <li><code>output</code> - the directory in which to write the stereograms, relative to the manifest. Defaults to the
+ * directory of the manifest.</li>
+ * </ul>
+ * <p>
+ * Each stereogram is written to a file named after its map, texture and parameters. Maps and textures that are files are named by
+ * their path as written in the manifest, so files with the same name in different directories do not overwrite each other. A
+ * manifest in which two jobs would still write the same file, e.g. because it lists a map twice, is rejected.
+ * </p>
+ * <p>
+ * The jobs are spread across a pool of threads that share one {@link StereogramRenderer}, so height maps and textures are
+ * loaded once and shared between threads through its result cache. The jobs are queued map by map and texture by texture, so
+ * the artefacts they share are usually still cached when they are needed.
+ * </p>
+ *
+ * @author erodri02
+ */
+@SuppressWarnings( "nls" )
+public class BatchRenderer
+{
+   /** The texture size used when the manifest does not specify one. */
+   public static final int DEFAULT_TEXTURE_SIZE = 128;
+
+   private static final String PNG = "png";
+
+   private static final String ZERO_OFFSET = "zero";
+
+   private static final String CENTRE_OFFSET = "centre";
+
+   private static final TextureOffsetFactory ZERO_OFFSET_FACTORY = new ZeroTextureOffsetFactory();
+
+   private static final TextureOffsetFactory CENTRE_OFFSET_FACTORY = new CentreAlignTextureOffsetFactory();
+
+   private static final Logger LOGGER = Logger.getLogger( BatchRenderer.class.getName() );
+
+   private final int threads;
+
+   /**
+    * Initializes a new BatchRenderer object that uses one thread per processor.
+    */
+   public BatchRenderer()
+   {
+      this( Runtime.getRuntime().availableProcessors() );
+   }
+
+   /**
+    * Initializes a new BatchRenderer object.
+    *
+    * @param threads the number of stereograms to render at the same time.
+    */
+   public BatchRenderer( final int threads )
+   {
+      if( threads < 1 )
+      {
+         throw new IllegalArgumentException( "threads must be at least 1" );
+      }
+      this.threads = threads;
+   }
+
+   /**
+    * Main entry point.
+    *
+    * @param args the path of the manifest, optionally followed by the number of threads.
+    */
+   public static void main( final String[] args )
+   {
+      configureLogging();
+      if( ( args.length < 1 ) || ( args.length > 2 ) )
+      {
+         System.err.println( "Usage: BatchRenderer <manifest> [threads]" );
+         System.exit( 2 );
+      }
+
+      try
+      {
+         final List< Job > jobs = readManifest( Paths.get( args[ 0 ] ) );
+         final BatchRenderer renderer = args.length > 1 ? new BatchRenderer( Integer.parseInt( args[ 1 ] ) ) : new BatchRenderer();
+         final int failures = renderer.render( jobs );
+         LOGGER.info( "Image cache: " + ImageUtilities.getCache().getStatistics() );
+         System.exit( failures == 0 ? 0 : 1 );
+      }
+      catch( final IOException | IllegalArgumentException exception )
+      {
+         LOGGER.log( Level.SEVERE, exception.getMessage(), exception );
+         System.exit( 2 );
+      }
+   }
+
+   /**
+    * Reads the jobs from a manifest.
+    *
+    * @param manifest the path of the manifest.
+    * @return the jobs, one per combination of map, texture and parameters, ordered by map and then by texture.
+    * @throws IOException if the manifest cannot be read or the output directory cannot be created.
+    * @throws IllegalArgumentException if the manifest is invalid, e.g. if it lists a map or texture twice so that two jobs would
+    *            write the same file.
+    */
+   public static List< Job > readManifest( final Path manifest ) throws IOException
+   {
+      final Properties properties = new Properties();
+      try( InputStream stream = Files.newInputStream( manifest ) )
+      {
+         properties.load( stream );
+      }
+
+      final Path base = manifest.toAbsolutePath().getParent();
+      final Path output = base.resolve( properties.getProperty( "output", "." ) );
+      Files.createDirectories( output );
+
+      final List< String > mapNames = getList( properties, "maps", null );
+      final List< StreamSource > maps = new ArrayList<>();
+      for( final String map : mapNames )
+      {
+         maps.add( getSource( map, MapResources.class, base ) );
+      }
+      final List< String > textureNames = getList( properties, "textures", null );
+      final List< StreamSource > textures = new ArrayList<>();
+      for( final String texture : textureNames )
+      {
+         textures.add( getSource( texture, TextureResources.class, base ) );
+      }
+      final List< String > depths = getList( properties,
+                                             "depths",
+                                             Integer.toString( MaximumDepthHeightMapTransformer.DEFAULT_MAXIMUM_DEPTH ) );
+      final List< String > textureSizes = getList( properties, "textureSizes", Integer.toString( DEFAULT_TEXTURE_SIZE ) );
+      final List< String > inverts = getList( properties, "invert", Boolean.FALSE.toString() );
+      final List< String > offsets = getList( properties, "offsets", ZERO_OFFSET );
+
+      final List< Job > jobs = new ArrayList<>();
+      final Set< Path > outputPaths = new HashSet<>();
+      for( int m = 0; m < maps.size(); m++ )
+      {
+         final StreamSource map = maps.get( m );
+         for( int t = 0; t < textures.size(); t++ )
+         {
+            final StreamSource texture = textures.get( t );
+            for( final String depth : depths )
+            {
+               for( final String textureSize : textureSizes )
+               {
+                  for( final String invert : inverts )
+                  {
+                     for( final String offset : offsets )
+                     {
+                        final Job job = new Job( map,
+                                                 getName( map, mapNames.get( m ) ),
+                                                 texture,
+                                                 getName( texture, textureNames.get( t ) ),
+                                                 Integer.parseInt( depth ),
+                                                 Integer.parseInt( textureSize ),
+                                                 Boolean.parseBoolean( invert ),
+                                                 offset.toLowerCase( Locale.ROOT ),
+                                                 output );
+                        // Jobs run concurrently, so two jobs writing the same file would corrupt it.
+                        if( !outputPaths.add( job.getOutputPath() ) )
+                        {
+                           throw new IllegalArgumentException( "More than one job would write " + job.getOutputPath() );
+                        }
+                        jobs.add( job );
+                     }
+                  }
+               }
+            }
+         }
+      }
+      return jobs;
+   }
+
+   /**
+    * Renders the jobs and writes the stereograms to disk. Returns once every job has finished.
+    *
+    * @param jobs the jobs to render.
+    * @return the number of jobs that failed.
+    */
+   public int render( final List< Job > jobs )
+   {
+      final StereogramRenderer renderer = new StereogramRenderer();
+      final AtomicInteger completed = new AtomicInteger();
+      final ExecutorService executor = Executors.newFixedThreadPool( this.threads, runnable -> {
+         final Thread thread = new Thread( runnable, "stereogram-batch" );
+         thread.setDaemon( true );
+         return thread;
+      } );
+
+      try
+      {
+         final List< Future< ? > > futures = new ArrayList<>( jobs.size() );
+         for( final Job job : jobs )
+         {
+            futures.add( executor.submit( () -> {
+               job.render( renderer );
+               final int done = completed.incrementAndGet();
+               if( LOGGER.isLoggable( Level.FINE ) )
+               {
+                  LOGGER.fine( done + "/" + jobs.size() + ": " + job.getOutputPath() );
+               }
+               return null;
+            } ) );
+         }
+
+         int failures = 0;
+         for( int i = 0; i < futures.size(); i++ )
+         {
+            try
+            {
+               futures.get( i ).get();
+            }
+            catch( final ExecutionException exception )
+            {
+               failures++;
+               LOGGER.log( Level.SEVERE, "Failed to render " + jobs.get( i ).getOutputPath(), exception.getCause() );
+            }
+         }
+         LOGGER.info( "Rendered " + ( jobs.size() - failures ) + " of " + jobs.size() + " stereograms" );
+         LOGGER.info( "Result cache: " + renderer.getResultCache().getStatistics() );
+         return failures;
+      }
+      catch( final InterruptedException exception )
+      {
+         Thread.currentThread().interrupt();
+         return jobs.size() - completed.get();
+      }
+      finally
+      {
+         executor.shutdownNow();
+      }
+   }
+
+   private static List< String > getList( final Properties properties, final String key, final String defaultValue )
+   {
+      final String value = properties.getProperty( key, defaultValue );
+      if( value == null )
+      {
+         throw new IllegalArgumentException( "The manifest does not define " + key );
+      }
+
+      final List< String > list = new ArrayList<>();
+      for( final String item : value.split( "," ) )
+      {
+         if( !item.trim().isEmpty() )
+         {
+            list.add( item.trim() );
+         }
+      }
+      if( list.isEmpty() )
+      {
+         throw new IllegalArgumentException( "The manifest defines no values for " + key );
+      }
+      return Collections.unmodifiableList( list );
+   }
+
+   private static < E extends Enum< E > & StreamSource > StreamSource getSource( final String name,
+                                                                                  final Class< E > resources,
+                                                                                  final Path base )
+   {
+      for( final E resource : resources.getEnumConstants() )
+      {
+         if( resource.name().equalsIgnoreCase( name ) )
+         {
+            return resource;
+         }
+      }
+
+      final Path path = base.resolve( name );
+      if( !Files.isRegularFile( path ) )
+      {
+         throw new IllegalArgumentException( "No such resource or file: " + name );
+      }
+      return new PathStreamSource( path );
+   }
+
+   /**
+    * Gets the name of a source for use in output file names. Files are named by their path as written in the manifest, including
+    * the directory and extension, so that files with the same name in different directories or with different extensions get
+    * different output files.
+    */
+   private static String getName( final StreamSource source, final String manifestName )
+   {
+      return source instanceof PathStreamSource ? sanitize( manifestName ) : baseName( source );
+   }
+
+   private static String baseName( final StreamSource source )
+   {
+      String name = source.toString();
+      final int dot = name.lastIndexOf( '.' );
+      if( dot > 0 )
+      {
+         name = name.substring( 0, dot );
+      }
+      return sanitize( name );
+   }
+
+   private static String sanitize( final String name )
+   {
+      return name.replaceAll( "[^A-Za-z0-9_-]", "_" );
+   }
+
+   private static TextureOffsetFactory getOffsetFactory( final String name )
+   {
+      switch( name )
+      {
+         case ZERO_OFFSET:
+            return ZERO_OFFSET_FACTORY;
+         case CENTRE_OFFSET:
+            return CENTRE_OFFSET_FACTORY;
+         default:
+            throw new IllegalArgumentException( "Unknown texture offset: " + name );
+      }
+   }
+
+   private static void configureLogging()
+   {
+      try
+      {
+         final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+         LogManager.getLogManager().readConfiguration( classLoader.getResourceAsStream( "logging.properties" ) );
+      }
+      catch( final IOException exception )
+      {
+         // Ignore and use default logger
+      }
+   }
+
+   /**
+    * A single stereogram to render.
+    *
+    * @author erodri02
+    */
+   public static final class Job
+   {
+      private final StreamSource map;
+
+      private final String mapName;
+
+      private final StreamSource texture;
+
+      private final String textureName;
+
+      private final int depth;
+
+      private final int textureSize;
+
+      private final boolean invert;
+
+      private final String offset;
+
+      private final TextureOffsetFactory offsetFactory;
+
+      private final Path outputPath;
+
+      /**
+       * Initializes a new Job object.
+       *
+       * @param map the source of the height map.
+       * @param texture the source of the texture.
+       * @param depth the maximum depth.
+       * @param textureSize the texture size in pixels.
+       * @param invert whether to invert the depth.
+       * @param offset the name of the texture offset, <code>zero</code> or <code>centre</code>.
+       * @param outputDirectory the directory in which to write the stereogram.
+       */
+      public Job( final StreamSource map,
+                  final StreamSource texture,
+                  final int depth,
+                  final int textureSize,
+                  final boolean invert,
+                  final String offset,
+                  final Path outputDirectory )
+      {
+         this( map, baseName( map ), texture, baseName( texture ), depth, textureSize, invert, offset, outputDirectory );
+      }
+
+      private Job( final StreamSource map,
+                   final String mapName,
+                   final StreamSource texture,
+                   final String textureName,
+                   final int depth,
+                   final int textureSize,
+                   final boolean invert,
+                   final String offset,
+                   final Path outputDirectory )
+      {
+         this.map = map;
+         this.mapName = mapName;
+         this.texture = texture;
+         this.textureName = textureName;
+         this.depth = depth;
+         this.textureSize = textureSize;
+         this.invert = invert;
+         this.offset = offset;
+         this.offsetFactory = getOffsetFactory( offset );
+         this.outputPath = outputDirectory.resolve( getFileName() );
+      }
+
+      /**
+       * Gets the path to which the stereogram is written.
+       *
+       * @return the output path.
+       */
+      public Path getOutputPath()
+      {
+         return this.outputPath;
+      }
+
+      /**
+       * Gets the parameters of the stereogram.
+       *
+       * @return the render request.
+       */
+      public RenderRequest getRequest()
+      {
+         return new RenderRequest( this.map, this.texture, this.depth, this.textureSize, this.invert, this.offsetFactory );
+      }
+
+      /**
+       * Renders the stereogram and writes it to the output path.
+       *
+       * @param renderer the renderer with which to render. May be shared with other threads.
+       * @throws IOException if the stereogram cannot be written.
+       */
+      public void render( final StereogramRenderer renderer ) throws IOException
+      {
+         final RenderRequest request = getRequest();
+
+         // Stream the rows straight into the file rather than holding the whole stereogram and its encoding in memory.
+         try( OutputStream stream = new BufferedOutputStream( Files.newOutputStream( this.outputPath ) );
+              PngRowWriter writer = new PngRowWriter( stream ) )
+         {
+            renderer.render( request, writer );
+         }
+      }
+
+      private String getFileName()
+      {
+         return this.mapName +
+                '_' +
+                this.textureName +
+                "_d" +
+                this.depth +
+                "_t" +
+                this.textureSize +
+                ( this.invert ? "_inverted" : "" ) +
+                '_' +
+                this.offset +
+                '.' +
+                PNG;
+      }
+   }
+}
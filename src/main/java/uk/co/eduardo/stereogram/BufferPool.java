@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread safe pool of buffers that are no longer in use, grouped by a key such as their dimensions, and bounded by the number
+ * of bytes they hold.
+ * <p>
+ * A buffer taken from the pool must be treated as uninitialized. A buffer must only be released once, and only when nothing will
+ * use it again. Buffers released when the pool is full are discarded and left to the garbage collector.
+ * </p>
+ *
+ * @author erodri02
+ * @param <K> the type of key that identifies interchangeable buffers.
+ * @param <B> the type of buffer.
+ */
+public abstract class BufferPool< K, B >
+{
+   private final Map< K, Deque< B > > buffers = new HashMap<>();
+
+   private final LongAdder hitCount = new LongAdder();
+
+   private final LongAdder missCount = new LongAdder();
+
+   private final LongAdder discardCount = new LongAdder();
+
+   private long maximumWeight;
+
+   private long weight;
+
+   private int size;
+
+   /**
+    * Initializes a new BufferPool object.
+    *
+    * @param maximumWeight the maximum number of bytes of buffers to hold.
+    */
+   protected BufferPool( final long maximumWeight )
+   {
+      this.maximumWeight = maximumWeight;
+   }
+
+   /**
+    * Takes a buffer out of the pool.
+    *
+    * @param key the key of the buffer.
+    * @return a pooled buffer, or <code>null</code> if there is no buffer for the key, in which case the caller should allocate one.
+    */
+   protected B poll( final K key )
+   {
+      final B buffer;
+      synchronized( this )
+      {
+         final Deque< B > free = this.buffers.get( key );
+         buffer = free == null ? null : free.pollFirst();
+         if( buffer != null )
+         {
+            this.weight -= getWeight( buffer );
+            this.size--;
+         }
+      }
+      if( buffer == null )
+      {
+         this.missCount.increment();
+      }
+      else
+      {
+         this.hitCount.increment();
+      }
+      return buffer;
+   }
+
+   /**
+    * Returns a buffer to the pool, so that it can be reused. The caller must not use the buffer again.
+    *
+    * @param buffer the buffer to release. Ignored if <code>null</code>.
+    */
+   public void release( final B buffer )
+   {
+      if( buffer == null )
+      {
+         return;
+      }
+
+      final K key = getKey( buffer );
+      final long bufferWeight = getWeight( buffer );
+      synchronized( this )
+      {
+         if( ( key != null ) && ( ( this.weight + bufferWeight ) <= this.maximumWeight ) )
+         {
+            this.buffers.computeIfAbsent( key, k -> new ArrayDeque<>() ).addFirst( buffer );
+            this.weight += bufferWeight;
+            this.size++;
+            return;
+         }
+      }
+      this.discardCount.increment();
+   }
+
+   /**
+    * Removes all buffers from the pool. Does not reset the statistics.
+    */
+   public synchronized void clear()
+   {
+      this.buffers.clear();
+      this.weight = 0;
+      this.size = 0;
+   }
+
+   /**
+    * Sets the maximum number of bytes of buffers to hold, discarding buffers if necessary.
+    *
+    * @param maximumWeight the maximum number of bytes.
+    */
+   public synchronized void setMaximumWeight( final long maximumWeight )
+   {
+      this.maximumWeight = maximumWeight;
+
+      final Iterator< Deque< B > > lists = this.buffers.values().iterator();
+      while( ( this.weight > this.maximumWeight ) && lists.hasNext() )
+      {
+         final Deque< B > free = lists.next();
+         while( ( this.weight > this.maximumWeight ) && !free.isEmpty() )
+         {
+            this.weight -= getWeight( free.pollLast() );
+            this.size--;
+            this.discardCount.increment();
+         }
+      }
+   }
+
+   /**
+    * Gets a snapshot of the pool statistics. Buffers discarded because the pool was full count as evictions.
+    *
+    * @return the statistics.
+    */
+   public synchronized CacheStatistics getStatistics()
+   {
+      return new CacheStatistics( this.hitCount.sum(),
+                                  this.missCount.sum(),
+                                  this.discardCount.sum(),
+                                  this.size,
+                                  this.weight,
+                                  this.maximumWeight );
+   }
+
+   /**
+    * Checks whether a buffer is in the pool, e.g. to guard against releasing it twice.
+    *
+    * @param buffer the buffer.
+    * @return whether the buffer is in the pool.
+    */
+   protected synchronized boolean isPooled( final B buffer )
+   {
+      final Deque< B > free = this.buffers.get( getKey( buffer ) );
+      if( free != null )
+      {
+         for( final B pooled : free )
+         {
+            if( pooled == buffer )
+            {
+               return true;
+            }
+         }
+      }
+      return false;
+   }
+
+   /**
+    * Gets the key of a buffer. Buffers with equal keys are interchangeable.
+    *
+    * @param buffer the buffer.
+    * @return the key, or <code>null</code> if the buffer cannot be pooled.
+    */
+   protected abstract K getKey( B buffer );
+
+   /**
+    * Gets the number of bytes held by a buffer.
+    *
+    * @param buffer the buffer.
+    * @return the size of the buffer in bytes.
+    */
+   protected abstract long getWeight( B buffer );
+}
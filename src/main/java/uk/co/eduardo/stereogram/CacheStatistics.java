@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram;
+
+/**
+ * A snapshot of the statistics of a cache or pool that is bounded by the number of bytes it holds.
+ *
+ * @author erodri02
+ * @see WeightedCache
+ * @see BufferPool
+ */
+public final class CacheStatistics
+{
+   private final long hitCount;
+
+   private final long missCount;
+
+   private final long evictionCount;
+
+   private final int size;
+
+   private final long weight;
+
+   private final long maximumWeight;
+
+   /**
+    * Initializes a new CacheStatistics object.
+    *
+    * @param hitCount the number of requests that were given a held entry.
+    * @param missCount the number of requests that found no entry.
+    * @param evictionCount the number of entries dropped to stay within the maximum weight.
+    * @param size the number of entries held.
+    * @param weight the number of bytes held.
+    * @param maximumWeight the maximum number of bytes that may be held.
+    */
+   CacheStatistics( final long hitCount,
+                    final long missCount,
+                    final long evictionCount,
+                    final int size,
+                    final long weight,
+                    final long maximumWeight )
+   {
+      this.hitCount = hitCount;
+      this.missCount = missCount;
+      this.evictionCount = evictionCount;
+      this.size = size;
+      this.weight = weight;
+      this.maximumWeight = maximumWeight;
+   }
+
+   /**
+    * Gets the number of requests that were given a held entry: a cached value, or a pooled buffer.
+    *
+    * @return the hit count.
+    */
+   public long getHitCount()
+   {
+      return this.hitCount;
+   }
+
+   /**
+    * Gets the number of requests that found no entry, and so computed a value or allocated a buffer.
+    *
+    * @return the miss count.
+    */
+   public long getMissCount()
+   {
+      return this.missCount;
+   }
+
+   /**
+    * Gets the fraction of requests that were given a held entry.
+    *
+    * @return the hit rate between 0 and 1, or 0 if there have been no requests.
+    */
+   public double getHitRate()
+   {
+      final long requests = this.hitCount + this.missCount;
+      return requests == 0 ? 0 : (double) this.hitCount / requests;
+   }
+
+   /**
+    * Gets the number of entries dropped to stay within the maximum weight: evicted from a cache, or discarded by a pool that was
+    * full when they were released to it.
+    *
+    * @return the eviction count.
+    */
+   public long getEvictionCount()
+   {
+      return this.evictionCount;
+   }
+
+   /**
+    * Gets the number of entries held.
+    *
+    * @return the number of entries.
+    */
+   public int getSize()
+   {
+      return this.size;
+   }
+
+   /**
+    * Gets the number of bytes held by the entries.
+    *
+    * @return the weight in bytes.
+    */
+   public long getWeight()
+   {
+      return this.weight;
+   }
+
+   /**
+    * Gets the maximum number of bytes that may be held.
+    *
+    * @return the maximum weight in bytes.
+    */
+   public long getMaximumWeight()
+   {
+      return this.maximumWeight;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @SuppressWarnings( "nls" )
+   @Override
+   public String toString()
+   {
+      return String.format( "hits=%d misses=%d evictions=%d size=%d weight=%d/%d",
+                            this.hitCount,
+                            this.missCount,
+                            this.evictionCount,
+                            this.size,
+                            this.weight,
+                            this.maximumWeight );
+   }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * A thread safe cache of decoded images, bounded by the number of bytes held in their rasters.
+ * <p>
+ * Images are keyed on the {@link StreamSource#getContentKey() contents} of their source and on the type and padding they were
+ * loaded with, so an image is loaded again once its file has changed. When the cache is full the least recently used images are
+ * evicted. Concurrent requests for the same missing image load it once; the other requests wait for that load.
+ * </p>
+ * <p>
+ * Cached images are shared, so they must not be modified.
+ * </p>
+ *
+ * @author erodri02
+ */
+public class ImageCache extends WeightedCache< ImageCache.Key, BufferedImage >
+{
+   /**
+    * Initializes a new ImageCache object.
+    *
+    * @param maximumWeight the maximum number of bytes of image data to hold.
+    */
+   public ImageCache( final long maximumWeight )
+   {
+      super( maximumWeight );
+   }
+
+   /**
+    * Gets an image from the cache, loading it if it is not present.
+    *
+    * @param key the key of the image.
+    * @param loader loads the image if it is not in the cache. May return <code>null</code>, in which case nothing is cached.
+    * @return the cached or loaded image. May be <code>null</code> if the loader returned <code>null</code>.
+    */
+   public BufferedImage get( final Key key, final Function< Key, BufferedImage > loader )
+   {
+      return get( key, loader, ImageCache::getWeight );
+   }
+
+   /**
+    * Adds an image to the cache. Images larger than the maximum weight are not cached.
+    *
+    * @param key the key of the image.
+    * @param image the image to cache.
+    */
+   public void put( final Key key, final BufferedImage image )
+   {
+      put( key, image, getWeight( image ) );
+   }
+
+   /**
+    * Gets the number of bytes held by the raster of an image.
+    *
+    * @param image the image.
+    * @return the size of the image data in bytes.
+    */
+   public static long getWeight( final BufferedImage image )
+   {
+      final DataBuffer buffer = image.getRaster().getDataBuffer();
+      final long bytesPerElement = DataBuffer.getDataTypeSize( buffer.getDataType() ) / 8;
+      return (long) buffer.getSize() * buffer.getNumBanks() * bytesPerElement;
+   }
+
+   /**
+    * Identifies an image loaded from a source with a given type and padding. The current contents of the source are read when the
+    * key is created.
+    *
+    * @author erodri02
+    */
+   public static final class Key
+   {
+      private final StreamSource source;
+
+      private final Object contentKey;
+
+      private final int type;
+
+      private final int padLeft;
+
+      private final int padRight;
+
+      private final int padTop;
+
+      private final int padBottom;
+
+      /**
+       * Initializes a new Key object.
+       *
+       * @param source the source from which the image is loaded.
+       * @param type the image type.
+       * @param padLeft padding added to the left of the image.
+       * @param padRight padding added to the right of the image.
+       * @param padTop padding added to the top of the image.
+       * @param padBottom padding added to the bottom of the image.
+       */
+      public Key( final StreamSource source,
+                  final int type,
+                  final int padLeft,
+                  final int padRight,
+                  final int padTop,
+                  final int padBottom )
+      {
+         this.source = source;
+         this.contentKey = source.getContentKey();
+         this.type = type;
+         this.padLeft = padLeft;
+         this.padRight = padRight;
+         this.padTop = padTop;
+         this.padBottom = padBottom;
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public boolean equals( final Object obj )
+      {
+         if( obj instanceof Key )
+         {
+            final Key other = (Key) obj;
+            return Objects.equals( this.contentKey, other.contentKey ) &&
+                   ( this.type == other.type ) &&
+                   ( this.padLeft == other.padLeft ) &&
+                   ( this.padRight == other.padRight ) &&
+                   ( this.padTop == other.padTop ) &&
+                   ( this.padBottom == other.padBottom );
+         }
+         return false;
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public int hashCode()
+      {
+         return Objects.hash( this.contentKey, this.type, this.padLeft, this.padRight, this.padTop, this.padBottom );
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public String toString()
+      {
+         return String.valueOf( this.source );
+      }
+   }
+}
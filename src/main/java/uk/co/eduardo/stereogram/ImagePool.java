@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * A pool of images that are no longer in use, keyed by their width, height and type.
+ * <p>
+ * An image taken from the pool holds the pixels it was released with, so it must be completely overwritten. Images released twice
+ * are only pooled once.
+ * </p>
+ *
+ * @author erodri02
+ */
+public class ImagePool extends BufferPool< ImagePool.Key, BufferedImage >
+{
+   /**
+    * Initializes a new ImagePool object.
+    *
+    * @param maximumWeight the maximum number of bytes of image data to hold. Zero disables pooling.
+    */
+   public ImagePool( final long maximumWeight )
+   {
+      super( maximumWeight );
+   }
+
+   /**
+    * Takes an image out of the pool, or creates one if there is none of the right size and type.
+    *
+    * @param width the width of the image.
+    * @param height the height of the image.
+    * @param type the type of the image, one of the <code>BufferedImage.TYPE_</code> constants other than
+    *           {@link BufferedImage#TYPE_CUSTOM}.
+    * @return an image whose pixels are undefined.
+    */
+   public BufferedImage take( final int width, final int height, final int type )
+   {
+      final BufferedImage image = poll( new Key( width, height, type ) );
+      return image == null ? new BufferedImage( width, height, type ) : image;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void release( final BufferedImage image )
+   {
+      if( ( image != null ) && !isPooled( image ) )
+      {
+         super.release( image );
+      }
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   protected Key getKey( final BufferedImage image )
+   {
+      // Custom images cannot be recreated from their type, so they are not interchangeable.
+      return image.getType() == BufferedImage.TYPE_CUSTOM ? null : new Key( image.getWidth(), image.getHeight(), image.getType() );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   protected long getWeight( final BufferedImage image )
+   {
+      return ImageCache.getWeight( image );
+   }
+
+   /**
+    * Identifies interchangeable images.
+    */
+   static final class Key
+   {
+      private final int width;
+
+      private final int height;
+
+      private final int type;
+
+      private Key( final int width, final int height, final int type )
+      {
+         this.width = width;
+         this.height = height;
+         this.type = type;
+      }
+
+      @Override
+      public boolean equals( final Object obj )
+      {
+         if( obj instanceof Key )
+         {
+            final Key other = (Key) obj;
+            return ( this.width == other.width ) && ( this.height == other.height ) && ( this.type == other.type );
+         }
+         return false;
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return ( ( ( this.width * 31 ) + this.height ) * 31 ) + this.type;
+      }
+   }
+}
@@ -12,9 +12,6 @@ import java.awt.image.DataBuffer;
 import java.awt.image.DataBufferByte;
 import java.awt.image.DataBufferInt;
 import java.io.IOException;
-import java.lang.ref.WeakReference;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -29,7 +26,10 @@ public class ImageUtilities
 {
    private static final Logger LOGGER = Logger.getLogger( ImageUtilities.class.getName() );
 
-   private static final Map< StreamSource, WeakReference< BufferedImage > > CACHE = new HashMap<>();
+   /** The default maximum number of bytes of decoded images to cache. */
+   public static final long DEFAULT_CACHE_SIZE = 256L * 1024 * 1024;
+
+   private static final ImageCache CACHE = new ImageCache( DEFAULT_CACHE_SIZE );
 
    private ImageUtilities()
    {
@@ -39,6 +39,10 @@ public class ImageUtilities
 
    /**
     * Loads an image from a source.
+    * <p>
+    * Loaded images are cached, keyed on the contents of the source, type and padding. The returned image is shared and must not be
+    * modified.
+    * </p>
     *
     * @param source the source from which to load the image.
     * @param type the requested image type (e.g. {@link BufferedImage#TYPE_INT_ARGB}, {@link BufferedImage#TYPE_BYTE_GRAY} etc)
@@ -55,35 +59,39 @@ public class ImageUtilities
                                      final int padTop,
                                      final int padBottom )
    {
-      final BufferedImage cached = tryCache( source );
-      if( cached != null )
-      {
-         return cached;
-      }
-
-      try
-      {
-         final BufferedImage raw = ImageIO.read( source.getStream() );
-
-         final int width = raw.getWidth() + padLeft + padRight;
-         final int height = raw.getHeight() + padTop + padBottom;
+      final ImageCache.Key key = new ImageCache.Key( source, type, padLeft, padRight, padTop, padBottom );
+      return CACHE.get( key, k -> read( source, type, padLeft, padRight, padTop, padBottom ) );
+   }
 
-         // Blit the image into a greyscale image just in case.
-         final BufferedImage correctType = new BufferedImage( width, height, type );
-         final Graphics2D g2d = correctType.createGraphics();
-         g2d.setColor( Color.BLACK );
-         g2d.fillRect( 0, 0, width, height );
-         g2d.drawImage( raw, padLeft, padTop, null );
-         g2d.dispose();
+   /**
+    * Loads an image from a source without caching it, e.g. for images that are only used once such as the frames of an animation.
+    *
+    * @param source the source from which to load the image.
+    * @param type the requested image type (e.g. {@link BufferedImage#TYPE_INT_ARGB}, {@link BufferedImage#TYPE_BYTE_GRAY} etc)
+    * @param padLeft padding to add to the left of the image. Zero if no padding is required.
+    * @param padRight padding to add to the right of the image. Zero if no padding is required.
+    * @param padTop padding to add to the top of the image. Zero if no padding is required.
+    * @param padBottom padding to add to the bottom of the image. Zero if no padding is required.
+    * @return the image read from the source or <code>null</code> if the image could not be read.
+    */
+   public static BufferedImage loadUncached( final StreamSource source,
+                                             final int type,
+                                             final int padLeft,
+                                             final int padRight,
+                                             final int padTop,
+                                             final int padBottom )
+   {
+      return read( source, type, padLeft, padRight, padTop, padBottom );
+   }
 
-         CACHE.put( source, new WeakReference<>( correctType ) );
-         return correctType;
-      }
-      catch( final IOException exception )
-      {
-         LOGGER.log( Level.SEVERE, exception.getMessage(), exception );
-      }
-      return null;
+   /**
+    * Gets the cache of loaded images, e.g. to read its statistics or change its size.
+    *
+    * @return the image cache.
+    */
+   public static ImageCache getCache()
+   {
+      return CACHE;
    }
 
    /**
@@ -153,6 +161,35 @@ public class ImageUtilities
       return map;
    }
 
+   /**
+    * Gets the image as a contiguous array of shorts, stored row by row.
+    * <p>
+    * The image must be backed by raster of bytes. E.g. {@link BufferedImage#TYPE_BYTE_GRAY}. Additionally, this assumes that the
+    * raster is flattened row-wise.
+    * </p>
+    *
+    * @param image the image to process.
+    * @return an array of <code>width * height</code> values read from the underlying raster.
+    */
+   public static short[] getRasterAsShortArray( final BufferedImage image )
+   {
+      // Get the underlying int array for the data in the raster
+      final DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+      if( !( dataBuffer instanceof DataBufferByte ) )
+      {
+         throw new IllegalStateException( "the image is not backed by a byte array" ); //$NON-NLS-1$
+      }
+      final DataBufferByte byteBuffer = (DataBufferByte) dataBuffer;
+      final byte[] data = byteBuffer.getData();
+
+      final short[] map = new short[ image.getWidth() * image.getHeight() ];
+      for( int i = 0; i < map.length; i++ )
+      {
+         map[ i ] = (short) ( data[ i ] & 0xFF );
+      }
+      return map;
+   }
+
    /**
     * Gets the image as a rectangular array of ints.
     * <p>
@@ -188,12 +225,33 @@ public class ImageUtilities
       return t2d;
    }
 
-   private static BufferedImage tryCache( final StreamSource streamSource )
+   private static BufferedImage read( final StreamSource source,
+                                      final int type,
+                                      final int padLeft,
+                                      final int padRight,
+                                      final int padTop,
+                                      final int padBottom )
    {
-      final WeakReference< BufferedImage > weakReference = CACHE.get( streamSource );
-      if( weakReference != null )
+      try
       {
-         return weakReference.get();
+         final BufferedImage raw = ImageIO.read( source.getStream() );
+
+         final int width = raw.getWidth() + padLeft + padRight;
+         final int height = raw.getHeight() + padTop + padBottom;
+
+         // Blit the image into a greyscale image just in case.
+         final BufferedImage correctType = new BufferedImage( width, height, type );
+         final Graphics2D g2d = correctType.createGraphics();
+         g2d.setColor( Color.BLACK );
+         g2d.fillRect( 0, 0, width, height );
+         g2d.drawImage( raw, padLeft, padTop, null );
+         g2d.dispose();
+
+         return correctType;
+      }
+      catch( final IOException exception )
+      {
+         LOGGER.log( Level.SEVERE, exception.getMessage(), exception );
       }
       return null;
    }
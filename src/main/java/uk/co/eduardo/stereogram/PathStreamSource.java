@@ -9,6 +9,8 @@ import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -34,6 +36,16 @@ public class PathStreamSource implements StreamSource
       this.path = path;
    }
 
+   /**
+    * Gets the path to the file.
+    *
+    * @return the path.
+    */
+   public Path getPath()
+   {
+      return this.path;
+   }
+
    /**
     * {@inheritDoc}
     */
@@ -51,6 +63,27 @@ public class PathStreamSource implements StreamSource
       return null;
    }
 
+   /**
+    * {@inheritDoc}
+    * <p>
+    * The key includes the last modified time and size of the file, so that a file that has been rewritten is read again.
+    * </p>
+    */
+   @Override
+   public Object getContentKey()
+   {
+      try
+      {
+         final BasicFileAttributes attributes = Files.readAttributes( this.path, BasicFileAttributes.class );
+         return Arrays.asList( this.path, attributes.lastModifiedTime(), attributes.size() );
+      }
+      catch( final IOException exception )
+      {
+         // Cannot be read either, so nothing will be cached under this key.
+         return this.path;
+      }
+   }
+
    /**
     * {@inheritDoc}
     */
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram;
+
+import java.awt.AlphaComposite;
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+
+import uk.co.eduardo.stereogram.io.PngRowWriter;
+import uk.co.eduardo.stereogram.pipeline.AsyncStereogramPipeline;
+import uk.co.eduardo.stereogram.pipeline.StereogramPipeline;
+
+/**
+ * Displays the stereograms rendered by an {@link AsyncStereogramPipeline}.
+ * <p>
+ * Painting never touches the pipeline. Changes are queued with {@link #update(Consumer)} and rendered in the background, where
+ * requests that arrive during a render are coalesced into one. A low resolution preview of each change is shown first, scaled up
+ * to full size, and then replaced by the full stereogram unless another change has arrived in the meantime. Each frame is
+ * copied, on the render thread, into an image compatible with the screen so that it can be drawn through the accelerated path.
+ * The last completed frame stays on screen until the next one is ready. Once a stereogram or preview has been copied it is
+ * recycled, so that the next render, e.g. of the rows changed by an edit, can reuse it in place.
+ * </p>
+ *
+ * @author erodri02
+ */
+class StereogramView extends JPanel
+{
+   private static final long serialVersionUID = 1L;
+
+   private final transient AsyncStereogramPipeline pipeline;
+
+   /** The frame on screen. Only accessed on the event dispatch thread. */
+   private transient BufferedImage frame;
+
+   /** A frame that is no longer on screen, which the render thread may reuse. */
+   private final transient AtomicReference< BufferedImage > spareFrame = new AtomicReference<>();
+
+   /**
+    * Initializes a new StereogramView object.
+    *
+    * @param pipeline the pipeline that renders the stereograms.
+    */
+   StereogramView( final AsyncStereogramPipeline pipeline )
+   {
+      super( new BorderLayout() );
+      this.pipeline = pipeline;
+   }
+
+   /**
+    * Applies a change to the pipeline in the background and displays a preview of the result followed by the result itself. May be
+    * called on any thread.
+    *
+    * @param change the change to apply to the pipeline.
+    */
+   void update( final Consumer< StereogramPipeline > change )
+   {
+      // Both run on the render thread, where the pipeline is confined, the change first.
+      final int[] previewFactor = new int[ 1 ];
+      this.pipeline.update( change.andThen( p -> previewFactor[ 0 ] = p.getPreviewFactor() ),
+                            preview -> showLater( toFrame( preview, previewFactor[ 0 ] ) ) )
+                   .thenApply( image -> toFrame( image, 1 ) )
+                   .thenAccept( this::showLater );
+   }
+
+   /**
+    * Streams the stereogram to a PNG file once the changes already requested have been rendered, without superseding them. The
+    * rows are encoded on the render thread as they are rendered, so the stereogram is neither copied nor held in memory as a
+    * whole.
+    *
+    * @param path the file to write.
+    * @return a future that completes once the file has been written, or exceptionally if it could not be.
+    */
+   CompletableFuture< Void > save( final Path path )
+   {
+      return this.pipeline.submit( p -> {
+         try( OutputStream stream = new BufferedOutputStream( Files.newOutputStream( path ) );
+              PngRowWriter writer = new PngRowWriter( stream ) )
+         {
+            p.writeOutput( writer );
+            return null;
+         }
+         catch( final IOException exception )
+         {
+            throw new UncheckedIOException( exception );
+         }
+      } );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void paintComponent( final Graphics g )
+   {
+      super.paintComponent( g );
+
+      g.setColor( Color.BLACK );
+      g.fillRect( 0, 0, getWidth(), getHeight() );
+
+      final BufferedImage image = this.frame;
+      if( image != null )
+      {
+         // Draw the image in the centre
+         final int x = ( getWidth() - image.getWidth() ) / 2;
+         final int y = ( getHeight() - image.getHeight() ) / 2;
+
+         g.drawImage( image, x, y, null );
+      }
+   }
+
+   /**
+    * Copies a rendered stereogram into a screen compatible frame, reusing the spare frame if it is the right size, and then
+    * recycles the stereogram. Runs on the render thread.
+    *
+    * @param image the rendered stereogram.
+    * @param scale the factor by which to enlarge the stereogram, e.g. to show a preview at full size.
+    * @return the frame to display.
+    */
+   private BufferedImage toFrame( final BufferedImage image, final int scale )
+   {
+      final int width = image.getWidth() * scale;
+      final int height = image.getHeight() * scale;
+      BufferedImage target = this.spareFrame.getAndSet( null );
+      if( ( target == null ) || ( target.getWidth() != width ) || ( target.getHeight() != height ) )
+      {
+         target = getScreenConfiguration().createCompatibleImage( width, height, Transparency.OPAQUE );
+      }
+
+      final Graphics2D graphics = target.createGraphics();
+      try
+      {
+         graphics.setComposite( AlphaComposite.Src );
+         graphics.drawImage( image, 0, 0, width, height, null );
+      }
+      finally
+      {
+         graphics.dispose();
+      }
+
+      this.pipeline.recycle( image );
+      return target;
+   }
+
+   private void showLater( final BufferedImage image )
+   {
+      SwingUtilities.invokeLater( () -> show( image ) );
+   }
+
+   private void show( final BufferedImage image )
+   {
+      final BufferedImage previous = this.frame;
+      this.frame = image;
+      if( previous != null )
+      {
+         this.spareFrame.set( previous );
+      }
+      repaint();
+   }
+
+   private static GraphicsConfiguration getScreenConfiguration()
+   {
+      return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+   }
+}
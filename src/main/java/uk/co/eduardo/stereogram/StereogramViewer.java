@@ -4,14 +4,10 @@
  */
 package uk.co.eduardo.stereogram;
 
-import java.awt.BorderLayout;
-import java.awt.Color;
-import java.awt.Graphics;
-import java.awt.image.BufferedImage;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.File;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.logging.Level;
 import java.util.logging.LogManager;
@@ -30,7 +26,6 @@ import javax.swing.JList;
 import javax.swing.JMenu;
 import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
-import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JSlider;
 import javax.swing.ListSelectionModel;
@@ -46,6 +41,7 @@ import com.jgoodies.forms.builder.DefaultFormBuilder;
 import com.jgoodies.forms.factories.ButtonBarFactory;
 import com.jgoodies.forms.layout.FormLayout;
 
+import uk.co.eduardo.stereogram.pipeline.AsyncStereogramPipeline;
 import uk.co.eduardo.stereogram.pipeline.StereogramPipeline;
 import uk.co.eduardo.stereogram.texture.CentreAlignTextureOffsetFactory;
 import uk.co.eduardo.stereogram.texture.TextureOffsetFactory;
@@ -101,13 +97,35 @@ public class StereogramViewer
       pipeline.setHeightMapSource( MapResources.TEST_OFFSET );
       pipeline.setTextureOffsetFactory( new ZeroTextureOffsetFactory() );
 
+      // From here on the pipeline is only touched by the background renderer
+      final AsyncStereogramPipeline asyncPipeline = new AsyncStereogramPipeline( pipeline );
+      frame.addWindowListener( new WindowAdapter()
+      {
+         @Override
+         public void windowClosed( final WindowEvent e )
+         {
+            asyncPipeline.close();
+         }
+      } );
+
+      // Create the screen controls
+      final StereogramView viewer = createViewerComponent( asyncPipeline );
+      final JSlider depthSlider = createDepthSliderComponent( viewer );
+      final JSlider textureSlider = createTextureSliderComponent( viewer );
+      final JList< StreamSource > maps = createMapsComponent( viewer );
+      final JComponent loadMap = createLoadMapComponent( frame, maps );
+      final JList< StreamSource > textures = createResourcesComponent( viewer );
+      final JComponent loadTexture = createLoadTextureomponent( frame, textures );
+      final JComponent offset = createOffsetComponent( viewer );
+      final JComponent invert = createInvertComponent( viewer );
+
       // Create the menu
       final JMenuBar menubar = new JMenuBar();
       final JMenu fileMenu = new JMenu( Resources.VIEWER_MENU_FILE );
       menubar.add( fileMenu );
 
       final JMenuItem saveItem = new JMenuItem( Resources.VIEWER_MENU_FILE_SAVE );
-      saveItem.addActionListener( e -> save( frame, pipeline ) );
+      saveItem.addActionListener( e -> save( frame, viewer, maps.getSelectedValue() ) );
       fileMenu.add( saveItem );
       final JMenuItem exitItem = new JMenuItem( Resources.VIEWER_MENU_FILE_EXIT );
       exitItem.addActionListener( e -> frame.dispose() );
@@ -115,17 +133,6 @@ public class StereogramViewer
 
       frame.setJMenuBar( menubar );
 
-      // Create the screen controls
-      final JComponent viewer = createViewerComponent( pipeline );
-      final JSlider depthSlider = createDepthSliderComponent( viewer, pipeline );
-      final JSlider textureSlider = createTextureSliderComponent( viewer, pipeline );
-      final JList< StreamSource > maps = createMapsComponent( viewer, pipeline );
-      final JComponent loadMap = createLoadMapComponent( frame, maps );
-      final JList< StreamSource > textures = createResourcesComponent( viewer, pipeline );
-      final JComponent loadTexture = createLoadTextureomponent( frame, textures );
-      final JComponent offset = createOffsetComponent( viewer, pipeline );
-      final JComponent invert = createInvertComponent( viewer, pipeline );
-
       // Hidden image area
       final DefaultFormBuilder imageBuilder = new DefaultFormBuilder( new FormLayout( "fill:p:grow", "fill:p:grow, $rg, p" ) ); //$NON-NLS-1$ //$NON-NLS-2$
       imageBuilder.append( new JScrollPane( maps ) );
@@ -174,10 +181,9 @@ public class StereogramViewer
       frame.setVisible( true );
    }
 
-   private static void save( final JFrame frame, final StereogramPipeline pipeline )
+   private static void save( final JFrame frame, final StereogramView viewer, final StreamSource heightMapSource )
    {
-      final BufferedImage output = pipeline.getOutput();
-      String initialName = Resources.VIEWER_SAVE_FILE_PREFIX + pipeline.getHeightMapSource().toString();
+      String initialName = Resources.VIEWER_SAVE_FILE_PREFIX + heightMapSource.toString();
       if( !initialName.toLowerCase().endsWith( PNG_EXT ) )
       {
          initialName = initialName + PNG_EXT;
@@ -195,72 +201,46 @@ public class StereogramViewer
             path = path.resolveSibling( path.getFileName().toString() + PNG_EXT );
          }
 
-         try( OutputStream stream = Files.newOutputStream( path ) )
-         {
-            ImageIO.write( output, PNG, stream );
-         }
-         catch( final IOException exception )
-         {
-            LOGGER.log( Level.SEVERE, exception.getMessage(), exception );
-         }
+         // Written in the background, after any changes that are still queued, so a large stereogram does not freeze the UI.
+         // The pipeline logs a failure.
+         viewer.save( path );
       }
    }
 
-   private static JComponent createViewerComponent( final StereogramPipeline pipeline )
+   private static StereogramView createViewerComponent( final AsyncStereogramPipeline pipeline )
    {
-      final JPanel viewer = new JPanel( new BorderLayout() )
-      {
-         @Override
-         public void paintComponent( final Graphics g )
-         {
-            super.paintComponent( g );
-
-            final BufferedImage image = pipeline.getOutput();
-
-            g.setColor( Color.BLACK );
-            g.fillRect( 0, 0, getWidth(), getHeight() );
-
-            // Draw the image in the centre
-            final int x = ( getWidth() - image.getWidth() ) / 2;
-            final int y = ( getHeight() - image.getHeight() ) / 2;
-
-            g.drawImage( image, x, y, null );
-            // g.setColor( new Color( 0, 0, 0, 220 ) );
-            // g.fillRect( 0, 0, getWidth(), getHeight() );
-         }
-      };
-
+      final StereogramView viewer = new StereogramView( pipeline );
       viewer.setBorder( BorderFactory.createEtchedBorder( EtchedBorder.LOWERED ) );
       return viewer;
    }
 
-   private static JSlider createDepthSliderComponent( final JComponent viewer, final StereogramPipeline pipeline )
+   private static JSlider createDepthSliderComponent( final StereogramView viewer )
    {
       final JSlider slider = new JSlider( new DefaultBoundedRangeModel( 20, 0, 5, 40 ) );
       slider.getModel().addChangeListener( e -> {
 
-         pipeline.setMaximumDepth( slider.getModel().getValue() );
-         viewer.repaint();
+         final int depth = slider.getModel().getValue();
+         viewer.update( p -> p.setMaximumDepth( depth ) );
       } );
 
       slider.setToolTipText( Resources.VIEWER_DEPTH_SLIDER_TOOLTIP );
       return slider;
    }
 
-   private static JSlider createTextureSliderComponent( final JComponent viewer, final StereogramPipeline pipeline )
+   private static JSlider createTextureSliderComponent( final StereogramView viewer )
    {
       final JSlider slider = new JSlider( new DefaultBoundedRangeModel( 128, 0, 72, 256 ) );
       slider.getModel().addChangeListener( e -> {
 
-         pipeline.setTextureSize( slider.getModel().getValue() );
-         viewer.repaint();
+         final int size = slider.getModel().getValue();
+         viewer.update( p -> p.setTextureSize( size ) );
       } );
 
       slider.setToolTipText( Resources.VIEWER_TEXTURE_SLIDER_TOOLTIP );
       return slider;
    }
 
-   private static JList< StreamSource > createMapsComponent( final JComponent viewer, final StereogramPipeline pipeline )
+   private static JList< StreamSource > createMapsComponent( final StereogramView viewer )
    {
       final DefaultListModel< StreamSource > listModel = new DefaultListModel<>();
       for( final StreamSource mapResource : MapResources.values() )
@@ -269,18 +249,21 @@ public class StereogramViewer
       }
       final JList< StreamSource > list = new JList<>( listModel );
       list.setSelectionMode( ListSelectionModel.SINGLE_SELECTION );
+
+      // The pipeline belongs to the background renderer, so remember the selection here
+      final StreamSource[] current = new StreamSource[ 1 ];
       list.addListSelectionListener( e -> {
 
          final StreamSource selected = list.getSelectedValue();
          if( selected == null )
          {
             // Reset selection from our old value.
-            list.setSelectedValue( pipeline.getHeightMapSource(), false );
+            list.setSelectedValue( current[ 0 ], false );
          }
          else
          {
-            pipeline.setHeightMapSource( selected );
-            viewer.repaint();
+            current[ 0 ] = selected;
+            viewer.update( p -> p.setHeightMapSource( selected ) );
          }
       } );
       list.setSelectedValue( MapResources.SHARK, true );
@@ -295,7 +278,7 @@ public class StereogramViewer
       return ButtonBarFactory.buildLeftAlignedBar( loadButton );
    }
 
-   private static JList< StreamSource > createResourcesComponent( final JComponent viewer, final StereogramPipeline pipeline )
+   private static JList< StreamSource > createResourcesComponent( final StereogramView viewer )
    {
       final DefaultListModel< StreamSource > listModel = new DefaultListModel<>();
       for( final StreamSource textureResource : TextureResources.values() )
@@ -304,18 +287,21 @@ public class StereogramViewer
       }
       final JList< StreamSource > list = new JList<>( listModel );
       list.setSelectionMode( ListSelectionModel.SINGLE_SELECTION );
+
+      // The pipeline belongs to the background renderer, so remember the selection here
+      final StreamSource[] current = new StreamSource[ 1 ];
       list.addListSelectionListener( e -> {
 
          final StreamSource selected = list.getSelectedValue();
          if( selected == null )
          {
             // Reset selection from our old value.
-            list.setSelectedValue( pipeline.getTextureSource(), false );
+            list.setSelectedValue( current[ 0 ], false );
          }
          else
          {
-            pipeline.setTextureSouce( selected );
-            viewer.repaint();
+            current[ 0 ] = selected;
+            viewer.update( p -> p.setTextureSouce( selected ) );
          }
       } );
       list.setSelectedValue( TextureResources.TEXTURE_1, true );
@@ -330,26 +316,25 @@ public class StereogramViewer
       return ButtonBarFactory.buildLeftAlignedBar( loadButton );
    }
 
-   private static JComponent createOffsetComponent( final JComponent viewer, final StereogramPipeline pipeline )
+   private static JComponent createOffsetComponent( final StereogramView viewer )
    {
       final JCheckBox checkbox = new JCheckBox( Resources.VIEWER_TEXTURE_ALIGN );
       checkbox.addItemListener( e -> {
 
          final TextureOffsetFactory factory = checkbox.isSelected() ? new CentreAlignTextureOffsetFactory() : new ZeroTextureOffsetFactory();
-         pipeline.setTextureOffsetFactory( factory );
-         viewer.repaint();
+         viewer.update( p -> p.setTextureOffsetFactory( factory ) );
       } );
       checkbox.setSelected( false );
       return checkbox;
    }
 
-   private static JComponent createInvertComponent( final JComponent viewer, final StereogramPipeline pipeline )
+   private static JComponent createInvertComponent( final StereogramView viewer )
    {
       final JCheckBox checkbox = new JCheckBox( Resources.VIEWER_INVERT );
       checkbox.addItemListener( e -> {
 
-         pipeline.setInvertDepth( checkbox.isSelected() );
-         viewer.repaint();
+         final boolean invert = checkbox.isSelected();
+         viewer.update( p -> p.setInvertDepth( invert ) );
       } );
       checkbox.setSelected( false );
       return checkbox;
@@ -19,4 +19,15 @@ public interface StreamSource
     * @return an input stream.
     */
    InputStream getStream();
+
+   /**
+    * Gets a key that identifies the current contents of the source, for caches of what has been read from it. Sources whose
+    * contents can change, such as files, must return a different key once they have changed.
+    *
+    * @return the content key. By default the source itself, for sources whose contents never change.
+    */
+   default Object getContentKey()
+   {
+      return this;
+   }
 }
@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * A thread safe cache bounded by the number of bytes held by its values.
+ * <p>
+ * When the cache is full the least recently used values are evicted. Concurrent requests for the same missing value compute it
+ * once; the other requests wait for that computation. Values larger than the whole cache are not cached, and a maximum weight of
+ * 0 disables the cache.
+ * </p>
+ * <p>
+ * Cached values are shared, so they must not be modified.
+ * </p>
+ *
+ * @author erodri02
+ * @param <K> the type of key.
+ * @param <V> the type of value.
+ */
+public class WeightedCache< K, V >
+{
+   private final Map< K, Entry< V > > entries = new LinkedHashMap<>( 16, 0.75f, true );
+
+   /** The number of entries that hold each value, compared by identity, so that values can be looked up without a scan. */
+   private final Map< V, Integer > heldValues = new IdentityHashMap<>();
+
+   private final ConcurrentMap< K, CompletableFuture< V > > computing = new ConcurrentHashMap<>();
+
+   private final LongAdder hitCount = new LongAdder();
+
+   private final LongAdder missCount = new LongAdder();
+
+   private final LongAdder evictionCount = new LongAdder();
+
+   private long maximumWeight;
+
+   private long weight;
+
+   /**
+    * Initializes a new WeightedCache object.
+    *
+    * @param maximumWeight the maximum number of bytes of values to hold.
+    */
+   public WeightedCache( final long maximumWeight )
+   {
+      this.maximumWeight = maximumWeight;
+   }
+
+   /**
+    * Gets a value from the cache, computing it if it is not present. Concurrent requests for the same missing value compute it
+    * once; the other requests wait for that computation.
+    *
+    * @param key the key of the value.
+    * @param compute computes the value if it is not in the cache. May return <code>null</code>, in which case nothing is cached.
+    * @param weigher gets the number of bytes held by a computed value.
+    * @return the cached or computed value. May be <code>null</code> if the computation returned <code>null</code>.
+    * @throws RuntimeException or {@link Error} if the computation, in this or a concurrent request, threw it.
+    */
+   public V get( final K key, final Function< ? super K, ? extends V > compute, final ToLongFunction< ? super V > weigher )
+   {
+      final V cached = getIfPresent( key );
+      if( cached != null )
+      {
+         return cached;
+      }
+
+      final CompletableFuture< V > computation = new CompletableFuture<>();
+      final CompletableFuture< V > existingComputation = this.computing.putIfAbsent( key, computation );
+      if( existingComputation != null )
+      {
+         // Somebody else is already computing this value.
+         return join( existingComputation );
+      }
+
+      try
+      {
+         // Another computation may have completed between the lookup and registering this one.
+         final V raced = peek( key );
+         final V value = raced != null ? raced : compute.apply( key );
+         if( ( value != null ) && ( raced == null ) )
+         {
+            put( key, value, weigher.applyAsLong( value ) );
+         }
+         computation.complete( value );
+         return value;
+      }
+      catch( final Throwable throwable )
+      {
+         // Release the requests waiting for this computation, e.g. after an OutOfMemoryError, which would otherwise wait forever.
+         computation.completeExceptionally( throwable );
+         throw throwable;
+      }
+      finally
+      {
+         this.computing.remove( key, computation );
+      }
+   }
+
+   /**
+    * Gets a value from the cache.
+    *
+    * @param key the key of the value.
+    * @return the cached value, or <code>null</code> if it is not in the cache.
+    */
+   public V getIfPresent( final K key )
+   {
+      final V value = peek( key );
+      if( value == null )
+      {
+         this.missCount.increment();
+      }
+      else
+      {
+         this.hitCount.increment();
+      }
+      return value;
+   }
+
+   /**
+    * Adds a value to the cache. Values larger than the maximum weight are not cached.
+    *
+    * @param key the key of the value.
+    * @param value the value to cache.
+    * @param valueWeight the number of bytes held by the value.
+    */
+   public synchronized void put( final K key, final V value, final long valueWeight )
+   {
+      if( valueWeight > this.maximumWeight )
+      {
+         return;
+      }
+
+      final Entry< V > previous = this.entries.put( key, new Entry<>( value, valueWeight ) );
+      if( previous != null )
+      {
+         removed( previous );
+      }
+      this.heldValues.merge( value, 1, Integer::sum );
+      this.weight += valueWeight;
+      evict();
+   }
+
+   /**
+    * Checks whether a value is held by the cache, e.g. before recycling its memory. Takes constant time.
+    *
+    * @param value the value.
+    * @return whether the cache holds that very object.
+    */
+   public synchronized boolean containsValue( final Object value )
+   {
+      return this.heldValues.containsKey( value );
+   }
+
+   /**
+    * Removes the values whose keys match a condition, e.g. those that can never be requested again. Does not count as eviction.
+    *
+    * @param condition the condition.
+    */
+   public synchronized void removeIf( final Predicate< ? super K > condition )
+   {
+      final Iterator< Map.Entry< K, Entry< V > > > iterator = this.entries.entrySet().iterator();
+      while( iterator.hasNext() )
+      {
+         final Map.Entry< K, Entry< V > > entry = iterator.next();
+         if( condition.test( entry.getKey() ) )
+         {
+            iterator.remove();
+            removed( entry.getValue() );
+         }
+      }
+   }
+
+   /**
+    * Removes all values from the cache. Does not reset the statistics.
+    */
+   public synchronized void clear()
+   {
+      this.entries.clear();
+      this.heldValues.clear();
+      this.weight = 0;
+   }
+
+   /**
+    * Sets the maximum number of bytes of values to hold, evicting values if necessary. A maximum of 0 disables the cache.
+    *
+    * @param maximumWeight the maximum number of bytes.
+    */
+   public synchronized void setMaximumWeight( final long maximumWeight )
+   {
+      this.maximumWeight = maximumWeight;
+      evict();
+   }
+
+   /**
+    * Gets a snapshot of the cache statistics.
+    *
+    * @return the statistics.
+    */
+   public synchronized CacheStatistics getStatistics()
+   {
+      return new CacheStatistics( this.hitCount.sum(),
+                                  this.missCount.sum(),
+                                  this.evictionCount.sum(),
+                                  this.entries.size(),
+                                  this.weight,
+                                  this.maximumWeight );
+   }
+
+   /**
+    * Waits for a computation started by another request, rethrowing what it threw rather than wrapping it.
+    */
+   private static < V > V join( final CompletableFuture< V > computation )
+   {
+      try
+      {
+         return computation.join();
+      }
+      catch( final CompletionException exception )
+      {
+         final Throwable cause = exception.getCause();
+         if( cause instanceof RuntimeException )
+         {
+            throw (RuntimeException) cause;
+         }
+         if( cause instanceof Error )
+         {
+            throw (Error) cause;
+         }
+         throw exception;
+      }
+   }
+
+   private synchronized V peek( final K key )
+   {
+      final Entry< V > entry = this.entries.get( key );
+      return entry == null ? null : entry.value;
+   }
+
+   private void evict()
+   {
+      final Iterator< Entry< V > > iterator = this.entries.values().iterator();
+      while( ( this.weight > this.maximumWeight ) && iterator.hasNext() )
+      {
+         final Entry< V > eldest = iterator.next();
+         iterator.remove();
+         removed( eldest );
+         this.evictionCount.increment();
+      }
+   }
+
+   /**
+    * Accounts for an entry that is no longer in the map.
+    */
+   private void removed( final Entry< V > entry )
+   {
+      this.heldValues.computeIfPresent( entry.value, ( value, count ) -> count == 1 ? null : count - 1 );
+      this.weight -= entry.weight;
+   }
+
+   private static final class Entry< V >
+   {
+      private final V value;
+
+      private final long weight;
+
+      private Entry( final V value, final long weight )
+      {
+         this.value = value;
+         this.weight = weight;
+      }
+   }
+}
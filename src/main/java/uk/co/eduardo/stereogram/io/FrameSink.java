@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.io;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * Receives the frames of an animated stereogram, in order.
+ *
+ * @author erodri02
+ */
+public interface FrameSink
+{
+   /**
+    * Called once for each frame, in order.
+    *
+    * @param index the index of the frame, starting at 0.
+    * @param frame the frame. The image is reused for later frames, so it must not be held on to after this call returns.
+    * @throws IOException if the sink fails.
+    */
+   void writeFrame( int index, BufferedImage frame ) throws IOException;
+
+   /**
+    * Called once after the last frame.
+    *
+    * @throws IOException if the sink fails.
+    */
+   void finish() throws IOException;
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.io;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Iterator;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Writes the frames of an animated stereogram to an animated GIF.
+ * <p>
+ * Each frame is reduced to a palette of at most 256 colours by the GIF writer.
+ * </p>
+ *
+ * @author erodri02
+ */
+@SuppressWarnings( "nls" )
+public class GifSequenceWriter implements FrameSink
+{
+   private static final String METADATA_FORMAT = "javax_imageio_gif_image_1.0";
+
+   private final ImageOutputStream output;
+
+   private final int delayMillis;
+
+   private final boolean loop;
+
+   private ImageWriter writer;
+
+   /**
+    * Initializes a new GifSequenceWriter object.
+    *
+    * @param output the stream to which to write the GIF. Not closed when the GIF is finished.
+    * @param delayMillis the time for which each frame is shown, in milliseconds. Rounded to hundredths of a second.
+    * @param loop whether the animation repeats forever.
+    */
+   public GifSequenceWriter( final ImageOutputStream output, final int delayMillis, final boolean loop )
+   {
+      this.output = output;
+      this.delayMillis = delayMillis;
+      this.loop = loop;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void writeFrame( final int index, final BufferedImage frame ) throws IOException
+   {
+      if( this.writer == null )
+      {
+         final Iterator< ImageWriter > writers = ImageIO.getImageWritersBySuffix( "gif" );
+         if( !writers.hasNext() )
+         {
+            throw new IOException( "No GIF writer available" );
+         }
+         this.writer = writers.next();
+         this.writer.setOutput( this.output );
+         this.writer.prepareWriteSequence( null );
+      }
+
+      final ImageWriteParam param = this.writer.getDefaultWriteParam();
+      final IIOMetadata metadata = this.writer.getDefaultImageMetadata( new ImageTypeSpecifier( frame ), param );
+      final IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree( METADATA_FORMAT );
+
+      final IIOMetadataNode control = getChild( root, "GraphicControlExtension" );
+      control.setAttribute( "disposalMethod", "none" );
+      control.setAttribute( "userInputFlag", "FALSE" );
+      control.setAttribute( "transparentColorFlag", "FALSE" );
+      control.setAttribute( "delayTime", Integer.toString( this.delayMillis / 10 ) );
+      control.setAttribute( "transparentColorIndex", "0" );
+
+      if( ( index == 0 ) && this.loop )
+      {
+         // The NETSCAPE2.0 extension with a loop count of 0 repeats forever.
+         final IIOMetadataNode extension = new IIOMetadataNode( "ApplicationExtension" );
+         extension.setAttribute( "applicationID", "NETSCAPE" );
+         extension.setAttribute( "authenticationCode", "2.0" );
+         extension.setUserObject( new byte[] { 1, 0, 0 } );
+         getChild( root, "ApplicationExtensions" ).appendChild( extension );
+      }
+
+      metadata.setFromTree( METADATA_FORMAT, root );
+      this.writer.writeToSequence( new IIOImage( frame, null, metadata ), param );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void finish() throws IOException
+   {
+      if( this.writer != null )
+      {
+         this.writer.endWriteSequence();
+         this.writer.dispose();
+         this.writer = null;
+      }
+      this.output.flush();
+   }
+
+   private static IIOMetadataNode getChild( final IIOMetadataNode root, final String name )
+   {
+      for( int i = 0; i < root.getLength(); i++ )
+      {
+         if( root.item( i ).getNodeName().equalsIgnoreCase( name ) )
+         {
+            return (IIOMetadataNode) root.item( i );
+         }
+      }
+      final IIOMetadataNode node = new IIOMetadataNode( name );
+      root.appendChild( node );
+      return node;
+   }
+}
@@ -0,0 +1,430 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.io;
+
+import java.awt.image.WritableRaster;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Decodes the rows of a PNG one after another, from top to bottom.
+ * <p>
+ * The compressed data is inflated as the rows are read, so memory use is bounded by two rows and the inflate window, however large
+ * the image. Each row is decoded exactly once; unlike a region read through {@link javax.imageio.ImageReader}, reading the rows
+ * further down does not inflate the rows above them again. Rows are read as the samples stored in the file: palette indices for
+ * palette images, and gray, gray and alpha, RGB or RGBA samples otherwise, at the bit depth of the file. Interlaced images cannot
+ * be read row by row in order, and are rejected.
+ * </p>
+ * <p>
+ * The reader owns the input stream and closes it when it is closed.
+ * </p>
+ *
+ * @author erodri02
+ * @see PngRowWriter
+ */
+public class PngRowReader implements Closeable
+{
+   private static final byte[] SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+
+   private static final int IHDR = chunkType( "IHDR" ); //$NON-NLS-1$
+
+   private static final int IDAT = chunkType( "IDAT" ); //$NON-NLS-1$
+
+   private static final int COLOUR_TYPE_PALETTE = 3;
+
+   private static final int[] SAMPLES_PER_COLOUR_TYPE = { 1, 0, 3, 1, 2, 0, 4 };
+
+   private static final int FILTER_NONE = 0;
+
+   private static final int FILTER_SUB = 1;
+
+   private static final int FILTER_UP = 2;
+
+   private static final int FILTER_AVERAGE = 3;
+
+   private static final int FILTER_PAETH = 4;
+
+   private final DataInputStream input;
+
+   private final Inflater inflater = new Inflater();
+
+   private final InflaterInputStream compressedInput;
+
+   private final int width;
+
+   private final int height;
+
+   private final int bitDepth;
+
+   private final int samplesPerPixel;
+
+   /** The number of bytes between a byte and the corresponding byte of the previous pixel, for filtering. */
+   private final int filterOffset;
+
+   private byte[] row;
+
+   private byte[] previousRow;
+
+   private int[] samples;
+
+   private int nextRow;
+
+   /**
+    * Initializes a new PngRowReader object, reading the header of the PNG.
+    *
+    * @param input the stream from which to read the PNG. Closed when this reader is closed, or if the header cannot be read.
+    * @throws IOException if the stream is not a PNG that can be read row by row.
+    */
+   public PngRowReader( final InputStream input ) throws IOException
+   {
+      this.input = new DataInputStream( input );
+      try
+      {
+         final byte[] signature = new byte[ SIGNATURE.length ];
+         this.input.readFully( signature );
+         if( !Arrays.equals( signature, SIGNATURE ) )
+         {
+            throw new IOException( "Not a PNG" ); //$NON-NLS-1$
+         }
+         if( ( this.input.readInt() != 13 ) || ( this.input.readInt() != IHDR ) )
+         {
+            throw new IOException( "The PNG does not start with a header" ); //$NON-NLS-1$
+         }
+         this.width = this.input.readInt();
+         this.height = this.input.readInt();
+         this.bitDepth = this.input.readUnsignedByte();
+         final int colourType = this.input.readUnsignedByte();
+         final int compressionMethod = this.input.readUnsignedByte();
+         final int filterMethod = this.input.readUnsignedByte();
+         final int interlaceMethod = this.input.readUnsignedByte();
+         this.input.readInt(); // CRC
+
+         this.samplesPerPixel = colourType < SAMPLES_PER_COLOUR_TYPE.length ? SAMPLES_PER_COLOUR_TYPE[ colourType ] : 0;
+         if( ( this.width <= 0 ) ||
+             ( this.height <= 0 ) ||
+             ( this.samplesPerPixel == 0 ) ||
+             ( Integer.bitCount( this.bitDepth ) != 1 ) ||
+             ( this.bitDepth > ( colourType == COLOUR_TYPE_PALETTE ? 8 : 16 ) ) ||
+             ( compressionMethod != 0 ) ||
+             ( filterMethod != 0 ) )
+         {
+            throw new IOException( "Unsupported PNG header" ); //$NON-NLS-1$
+         }
+         if( interlaceMethod != 0 )
+         {
+            throw new IOException( "Interlaced PNGs cannot be read row by row" ); //$NON-NLS-1$
+         }
+         this.filterOffset = Math.max( 1, ( this.samplesPerPixel * this.bitDepth ) / 8 );
+      }
+      catch( final IOException | RuntimeException exception )
+      {
+         this.inflater.end();
+         input.close();
+         throw exception;
+      }
+      this.compressedInput = new InflaterInputStream( new IdatInputStream(), this.inflater );
+   }
+
+   /**
+    * Gets the width of the image.
+    *
+    * @return the width in pixels.
+    */
+   public int getWidth()
+   {
+      return this.width;
+   }
+
+   /**
+    * Gets the height of the image.
+    *
+    * @return the height in pixels.
+    */
+   public int getHeight()
+   {
+      return this.height;
+   }
+
+   /**
+    * Gets the number of bits in each sample.
+    *
+    * @return the bit depth: 1, 2, 4, 8 or 16.
+    */
+   public int getBitDepth()
+   {
+      return this.bitDepth;
+   }
+
+   /**
+    * Gets the number of samples in each pixel, e.g. 1 for gray or palette images and 4 for RGBA images.
+    *
+    * @return the number of samples per pixel.
+    */
+   public int getSamplesPerPixel()
+   {
+      return this.samplesPerPixel;
+   }
+
+   /**
+    * Reads the next rows of the image into the first rows of a raster, one band per sample.
+    *
+    * @param destination the raster, which must be at least as wide as the image and have {@link #getSamplesPerPixel()} bands.
+    * @param rows the number of rows to read.
+    * @throws IOException if the rows cannot be read, e.g. because they are beyond the bottom of the image.
+    */
+   public void readRows( final WritableRaster destination, final int rows ) throws IOException
+   {
+      if( ( rows < 0 ) || ( ( this.nextRow + rows ) > this.height ) )
+      {
+         throw new IOException( "Cannot read " + rows + " rows from row " + this.nextRow ); //$NON-NLS-1$ //$NON-NLS-2$
+      }
+      if( this.row == null )
+      {
+         final int rowBytes = (int) ( ( ( (long) this.width * this.samplesPerPixel * this.bitDepth ) + 7 ) / 8 );
+         this.row = new byte[ rowBytes ];
+         this.previousRow = new byte[ rowBytes ];
+         this.samples = new int[ this.width * this.samplesPerPixel ];
+      }
+
+      for( int y = 0; y < rows; y++ )
+      {
+         readRow();
+         unpack( this.row, this.samples );
+         destination.setPixels( 0, y, this.width, 1, this.samples );
+      }
+   }
+
+   /**
+    * Releases the inflater and closes the input stream.
+    *
+    * @throws IOException if the stream cannot be closed.
+    */
+   @Override
+   public void close() throws IOException
+   {
+      this.inflater.end();
+      this.input.close();
+   }
+
+   /**
+    * Inflates and unfilters the next row into {@link #row}, keeping the row before it in {@link #previousRow}.
+    */
+   private void readRow() throws IOException
+   {
+      // The row above the first row is all zero, as the rows start out.
+      final byte[] above = this.row;
+      this.row = this.previousRow;
+      this.previousRow = above;
+
+      final int filter = this.compressedInput.read();
+      if( filter < 0 )
+      {
+         throw new EOFException( "The PNG ends before row " + this.nextRow ); //$NON-NLS-1$
+      }
+      final byte[] current = this.row;
+      int read = 0;
+      while( read < current.length )
+      {
+         final int n = this.compressedInput.read( current, read, current.length - read );
+         if( n < 0 )
+         {
+            throw new EOFException( "The PNG ends in row " + this.nextRow ); //$NON-NLS-1$
+         }
+         read += n;
+      }
+
+      final int bpp = this.filterOffset;
+      switch( filter )
+      {
+         case FILTER_NONE:
+            break;
+         case FILTER_SUB:
+            for( int i = bpp; i < current.length; i++ )
+            {
+               current[ i ] += current[ i - bpp ];
+            }
+            break;
+         case FILTER_UP:
+            for( int i = 0; i < current.length; i++ )
+            {
+               current[ i ] += above[ i ];
+            }
+            break;
+         case FILTER_AVERAGE:
+            for( int i = 0; i < current.length; i++ )
+            {
+               final int left = i < bpp ? 0 : current[ i - bpp ] & 0xFF;
+               current[ i ] += ( left + ( above[ i ] & 0xFF ) ) >>> 1;
+            }
+            break;
+         case FILTER_PAETH:
+            for( int i = 0; i < current.length; i++ )
+            {
+               final int left = i < bpp ? 0 : current[ i - bpp ] & 0xFF;
+               final int upperLeft = i < bpp ? 0 : above[ i - bpp ] & 0xFF;
+               current[ i ] += paeth( left, above[ i ] & 0xFF, upperLeft );
+            }
+            break;
+         default:
+            throw new IOException( "Unknown filter " + filter + " in row " + this.nextRow ); //$NON-NLS-1$ //$NON-NLS-2$
+      }
+      this.nextRow++;
+   }
+
+   /**
+    * Splits a row of bytes into samples.
+    */
+   private void unpack( final byte[] bytes, final int[] destination )
+   {
+      switch( this.bitDepth )
+      {
+         case 8:
+            for( int i = 0; i < destination.length; i++ )
+            {
+               destination[ i ] = bytes[ i ] & 0xFF;
+            }
+            break;
+         case 16:
+            for( int i = 0; i < destination.length; i++ )
+            {
+               destination[ i ] = ( ( bytes[ 2 * i ] & 0xFF ) << 8 ) | ( bytes[ ( 2 * i ) + 1 ] & 0xFF );
+            }
+            break;
+         default:
+            unpackBits( bytes, destination );
+            break;
+      }
+   }
+
+   /**
+    * Splits a row of bytes into samples of less than 8 bits, packed from the most significant bit of each byte.
+    */
+   private void unpackBits( final byte[] bytes, final int[] destination )
+   {
+      final int samplesPerByte = 8 / this.bitDepth;
+      final int mask = ( 1 << this.bitDepth ) - 1;
+      for( int i = 0; i < destination.length; i++ )
+      {
+         final int shift = 8 - ( ( ( i % samplesPerByte ) + 1 ) * this.bitDepth );
+         destination[ i ] = ( bytes[ i / samplesPerByte ] >> shift ) & mask;
+      }
+   }
+
+   private static int paeth( final int left, final int above, final int upperLeft )
+   {
+      final int estimate = ( left + above ) - upperLeft;
+      final int distanceLeft = Math.abs( estimate - left );
+      final int distanceAbove = Math.abs( estimate - above );
+      final int distanceUpperLeft = Math.abs( estimate - upperLeft );
+      if( ( distanceLeft <= distanceAbove ) && ( distanceLeft <= distanceUpperLeft ) )
+      {
+         return left;
+      }
+      return distanceAbove <= distanceUpperLeft ? above : upperLeft;
+   }
+
+   private static int chunkType( final String name )
+   {
+      final byte[] bytes = name.getBytes( StandardCharsets.US_ASCII );
+      return ( ( bytes[ 0 ] & 0xFF ) << 24 ) | ( ( bytes[ 1 ] & 0xFF ) << 16 ) | ( ( bytes[ 2 ] & 0xFF ) << 8 ) | ( bytes[ 3 ] & 0xFF );
+   }
+
+   /**
+    * Reads the compressed data of consecutive IDAT chunks as one stream, skipping the chunks before them.
+    */
+   private final class IdatInputStream extends InputStream
+   {
+      /** The number of bytes left in the current IDAT chunk. */
+      private int remaining;
+
+      /** Whether an IDAT chunk has been reached, so the CRC of the current chunk is still to be read. */
+      private boolean started;
+
+      /** Whether the chunk after the last IDAT chunk has been reached. */
+      private boolean ended;
+
+      @Override
+      public int read() throws IOException
+      {
+         final byte[] b = new byte[ 1 ];
+         return read( b, 0, 1 ) < 0 ? -1 : b[ 0 ] & 0xFF;
+      }
+
+      @Override
+      public int read( final byte[] b, final int off, final int len ) throws IOException
+      {
+         while( ( this.remaining == 0 ) && !this.ended )
+         {
+            nextChunk();
+         }
+         if( this.ended )
+         {
+            return -1;
+         }
+         final int n = PngRowReader.this.input.read( b, off, Math.min( len, this.remaining ) );
+         if( n < 0 )
+         {
+            throw new EOFException( "The PNG ends inside an IDAT chunk" ); //$NON-NLS-1$
+         }
+         this.remaining -= n;
+         return n;
+      }
+
+      private void nextChunk() throws IOException
+      {
+         final DataInputStream data = PngRowReader.this.input;
+         if( this.started )
+         {
+            data.readInt(); // CRC of the previous IDAT chunk
+         }
+         while( true )
+         {
+            final int length = data.readInt();
+            final int type = data.readInt();
+            if( type == IDAT )
+            {
+               this.started = true;
+               this.remaining = length;
+               return;
+            }
+            if( this.started )
+            {
+               this.ended = true;
+               return;
+            }
+            // A chunk before the image data, e.g. the palette, which is not needed for the samples. Skips the CRC too.
+            skipFully( data, length + 4L );
+         }
+      }
+   }
+
+   private static void skipFully( final InputStream input, final long count ) throws IOException
+   {
+      long remaining = count;
+      while( remaining > 0 )
+      {
+         final long skipped = input.skip( remaining );
+         if( skipped <= 0 )
+         {
+            if( input.read() < 0 )
+            {
+               throw new EOFException( "The PNG ends inside a chunk" ); //$NON-NLS-1$
+            }
+            remaining--;
+         }
+         else
+         {
+            remaining -= skipped;
+         }
+      }
+   }
+}
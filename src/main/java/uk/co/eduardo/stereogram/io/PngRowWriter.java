@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import uk.co.eduardo.stereogram.map.StereogramRowSink;
+
+/**
+ * Encodes the rows of a stereogram into a PNG as they are rendered.
+ * <p>
+ * Each row is compressed as soon as it arrives, so memory use is bounded by the deflate window and a single chunk of compressed
+ * data, however large the stereogram. The image is written as 8 bit RGBA with no row filtering.
+ * </p>
+ * <p>
+ * The output stream is not closed when the image is finished. The deflater holds native memory until the image is finished or the
+ * writer is closed, so a writer should be closed once it is no longer needed, whether or not the image was finished.
+ * </p>
+ *
+ * @author erodri02
+ */
+public class PngRowWriter implements StereogramRowSink, Closeable
+{
+   private static final byte[] SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+
+   private static final byte[] IHDR = "IHDR".getBytes( StandardCharsets.US_ASCII ); //$NON-NLS-1$
+
+   private static final byte[] IDAT = "IDAT".getBytes( StandardCharsets.US_ASCII ); //$NON-NLS-1$
+
+   private static final byte[] IEND = "IEND".getBytes( StandardCharsets.US_ASCII ); //$NON-NLS-1$
+
+   private static final int BIT_DEPTH = 8;
+
+   private static final int COLOUR_TYPE_RGBA = 6;
+
+   private static final int FILTER_NONE = 0;
+
+   /** The largest amount of compressed data held before it is written out as an IDAT chunk. */
+   private static final int CHUNK_SIZE = 64 * 1024;
+
+   private final OutputStream output;
+
+   private final int compressionLevel;
+
+   private final CRC32 crc = new CRC32();
+
+   private Deflater deflater;
+
+   private DeflaterOutputStream compressedOutput;
+
+   private byte[] rowBytes;
+
+   private int width;
+
+   private int height;
+
+   private int nextRow;
+
+   /**
+    * Initializes a new PngRowWriter object that uses the default compression level.
+    *
+    * @param output the stream to which to write the PNG.
+    */
+   public PngRowWriter( final OutputStream output )
+   {
+      this( output, Deflater.DEFAULT_COMPRESSION );
+   }
+
+   /**
+    * Initializes a new PngRowWriter object.
+    *
+    * @param output the stream to which to write the PNG.
+    * @param compressionLevel the deflate compression level, from 0 to 9, or {@link Deflater#DEFAULT_COMPRESSION}.
+    */
+   public PngRowWriter( final OutputStream output, final int compressionLevel )
+   {
+      this.output = output;
+      this.compressionLevel = compressionLevel;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void start( final int width, final int height ) throws IOException
+   {
+      if( ( width <= 0 ) || ( height <= 0 ) )
+      {
+         throw new IOException( "A PNG must be at least one pixel wide and high" ); //$NON-NLS-1$
+      }
+      // Restarting a writer abandons any image it was part way through.
+      releaseDeflater();
+      this.width = width;
+      this.height = height;
+      this.nextRow = 0;
+      this.rowBytes = new byte[ 1 + ( width * 4 ) ];
+      this.rowBytes[ 0 ] = FILTER_NONE;
+
+      final byte[] header = new byte[ 13 ];
+      putInt( header, 0, width );
+      putInt( header, 4, height );
+      header[ 8 ] = BIT_DEPTH;
+      header[ 9 ] = COLOUR_TYPE_RGBA;
+      // Compression, filter and interlace methods are all zero.
+
+      this.output.write( SIGNATURE );
+      writeChunk( IHDR, header, header.length );
+
+      this.deflater = new Deflater( this.compressionLevel );
+      this.compressedOutput = new DeflaterOutputStream( new IdatOutputStream(), this.deflater, CHUNK_SIZE );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void writeRow( final int y, final int[] pixels ) throws IOException
+   {
+      if( y != this.nextRow )
+      {
+         throw new IOException( "Expected row " + this.nextRow + " but got row " + y ); //$NON-NLS-1$ //$NON-NLS-2$
+      }
+
+      final byte[] bytes = this.rowBytes;
+      int index = 1;
+      for( int x = 0; x < this.width; x++ )
+      {
+         final int argb = pixels[ x ];
+         bytes[ index++ ] = (byte) ( argb >> 16 );
+         bytes[ index++ ] = (byte) ( argb >> 8 );
+         bytes[ index++ ] = (byte) argb;
+         bytes[ index++ ] = (byte) ( argb >>> 24 );
+      }
+      this.compressedOutput.write( bytes );
+      this.nextRow++;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void finish() throws IOException
+   {
+      if( this.nextRow != this.height )
+      {
+         throw new IOException( "Only " + this.nextRow + " of " + this.height + " rows were written" ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+      }
+
+      try
+      {
+         // Flushes the remaining compressed data as a final IDAT chunk.
+         this.compressedOutput.close();
+      }
+      finally
+      {
+         releaseDeflater();
+      }
+
+      writeChunk( IEND, new byte[ 0 ], 0 );
+      this.output.flush();
+   }
+
+   /**
+    * Releases the deflater of an image that was not finished. The output stream is not closed. Closing a writer that has finished
+    * its image, or has already been closed, has no effect.
+    */
+   @Override
+   public void close()
+   {
+      releaseDeflater();
+   }
+
+   private void releaseDeflater()
+   {
+      if( this.deflater != null )
+      {
+         this.deflater.end();
+         this.deflater = null;
+      }
+      this.compressedOutput = null;
+      this.rowBytes = null;
+   }
+
+   private void writeChunk( final byte[] type, final byte[] data, final int length ) throws IOException
+   {
+      final byte[] lengthBytes = new byte[ 4 ];
+      putInt( lengthBytes, 0, length );
+      this.output.write( lengthBytes );
+      this.output.write( type );
+      this.output.write( data, 0, length );
+
+      this.crc.reset();
+      this.crc.update( type );
+      this.crc.update( data, 0, length );
+      final byte[] crcBytes = new byte[ 4 ];
+      putInt( crcBytes, 0, (int) this.crc.getValue() );
+      this.output.write( crcBytes );
+   }
+
+   private static void putInt( final byte[] bytes, final int index, final int value )
+   {
+      bytes[ index ] = (byte) ( value >>> 24 );
+      bytes[ index + 1 ] = (byte) ( value >>> 16 );
+      bytes[ index + 2 ] = (byte) ( value >>> 8 );
+      bytes[ index + 3 ] = (byte) value;
+   }
+
+   /**
+    * Collects compressed data and writes it out in IDAT chunks of up to {@link #CHUNK_SIZE} bytes.
+    */
+   private final class IdatOutputStream extends OutputStream
+   {
+      private final byte[] buffer = new byte[ CHUNK_SIZE ];
+
+      private int count;
+
+      @Override
+      public void write( final int b ) throws IOException
+      {
+         if( this.count == this.buffer.length )
+         {
+            flushChunk();
+         }
+         this.buffer[ this.count++ ] = (byte) b;
+      }
+
+      @Override
+      public void write( final byte[] b, final int off, final int len ) throws IOException
+      {
+         int offset = off;
+         int remaining = len;
+         while( remaining > 0 )
+         {
+            if( this.count == this.buffer.length )
+            {
+               flushChunk();
+            }
+            final int n = Math.min( remaining, this.buffer.length - this.count );
+            System.arraycopy( b, offset, this.buffer, this.count, n );
+            this.count += n;
+            offset += n;
+            remaining -= n;
+         }
+      }
+
+      @Override
+      public void close() throws IOException
+      {
+         flushChunk();
+      }
+
+      private void flushChunk() throws IOException
+      {
+         if( this.count > 0 )
+         {
+            writeChunk( IDAT, this.buffer, this.count );
+            this.count = 0;
+         }
+      }
+   }
+}
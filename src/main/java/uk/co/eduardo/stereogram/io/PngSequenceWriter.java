@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.io;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Writes each frame of an animated stereogram to its own numbered PNG file.
+ *
+ * @author erodri02
+ */
+public class PngSequenceWriter implements FrameSink
+{
+   private final Path directory;
+
+   private final String fileNameFormat;
+
+   /**
+    * Initializes a new PngSequenceWriter object.
+    *
+    * @param directory the directory in which to write the frames. Created if it does not exist.
+    * @param fileNameFormat the {@link String#format(String, Object...) format} of the file names, given the index of the frame,
+    *           e.g. <code>frame_%04d.png</code>.
+    */
+   public PngSequenceWriter( final Path directory, final String fileNameFormat )
+   {
+      this.directory = directory;
+      this.fileNameFormat = fileNameFormat;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void writeFrame( final int index, final BufferedImage frame ) throws IOException
+   {
+      Files.createDirectories( this.directory );
+      final Path path = this.directory.resolve( String.format( this.fileNameFormat, index ) );
+      try( OutputStream stream = Files.newOutputStream( path ) )
+      {
+         if( !ImageIO.write( frame, "png", stream ) ) //$NON-NLS-1$
+         {
+            throw new IOException( "No PNG writer available" ); //$NON-NLS-1$
+         }
+      }
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void finish()
+   {
+      // Every frame is complete once written.
+   }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.io;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import uk.co.eduardo.stereogram.ImageUtilities;
+import uk.co.eduardo.stereogram.MapResources;
+import uk.co.eduardo.stereogram.PathStreamSource;
+import uk.co.eduardo.stereogram.StreamSource;
+import uk.co.eduardo.stereogram.map.HeightMap;
+import uk.co.eduardo.stereogram.map.ShortBufferHeightMap;
+import uk.co.eduardo.stereogram.pipeline.HeightMapPipelineElement;
+
+/**
+ * Reads and writes height maps in a raw binary format that can be memory-mapped.
+ * <p>
+ * A file is a {@value #HEADER_SIZE} byte header followed by the values of the map, row by row, as little-endian 16-bit integers.
+ * The header holds, as little-endian 32-bit integers, the magic number <code>HMAP</code>, the format version, the width, the
+ * height and the largest value of the map; the rest of the header is zero. As the maximum is stored, reading a file neither
+ * copies nor scans the values: it maps the file and wraps it as a {@link HeightMap}.
+ * </p>
+ * <p>
+ * Files are limited to 2 GB, i.e. about a billion values.
+ * </p>
+ *
+ * @author erodri02
+ */
+public final class RawHeightMapFormat
+{
+   /** The size of the header in bytes. */
+   public static final int HEADER_SIZE = 32;
+
+   /** The extension of raw height map files. */
+   public static final String EXTENSION = ".hmap"; //$NON-NLS-1$
+
+   /** "HMAP" as read as a little-endian integer. */
+   private static final int MAGIC = 'H' | ( 'M' << 8 ) | ( 'A' << 16 ) | ( 'P' << 24 );
+
+   private static final int VERSION = 1;
+
+   private static final int ROWS_PER_WRITE = 64;
+
+   private RawHeightMapFormat()
+   {
+      // Utility class
+   }
+
+   /**
+    * Converts height map images into raw height maps.
+    *
+    * @param args the directory in which to write the raw height maps, followed by the paths of the images to convert. If no images
+    *           are given every {@link MapResources map resource} is converted.
+    * @throws IOException if an image cannot be read or a raw height map cannot be written.
+    */
+   @SuppressWarnings( "nls" )
+   public static void main( final String[] args ) throws IOException
+   {
+      if( args.length < 1 )
+      {
+         System.err.println( "Usage: RawHeightMapFormat <output directory> [image...]" );
+         System.exit( 2 );
+      }
+
+      final Path directory = Paths.get( args[ 0 ] );
+      Files.createDirectories( directory );
+      if( args.length == 1 )
+      {
+         for( final MapResources map : MapResources.values() )
+         {
+            convert( map, directory.resolve( replaceExtension( map.getResourceName() ) ) );
+         }
+      }
+      else
+      {
+         for( int i = 1; i < args.length; i++ )
+         {
+            final Path image = Paths.get( args[ i ] );
+            convert( new PathStreamSource( image ), directory.resolve( replaceExtension( image.getFileName().toString() ) ) );
+         }
+      }
+   }
+
+   /**
+    * Converts a height map image into a raw height map.
+    * <p>
+    * The image is padded as by {@link HeightMapPipelineElement}, so the raw height map can be used by the pipeline as it is.
+    * </p>
+    *
+    * @param source the source of the image.
+    * @param destination the path of the raw height map to write.
+    * @throws IOException if the image cannot be read or the raw height map cannot be written.
+    */
+   public static void convert( final StreamSource source, final Path destination ) throws IOException
+   {
+      final BufferedImage image = ImageUtilities.load( source,
+                                                       BufferedImage.TYPE_BYTE_GRAY,
+                                                       HeightMapPipelineElement.PADDING_LEFT,
+                                                       HeightMapPipelineElement.PADDING_RIGHT,
+                                                       HeightMapPipelineElement.PADDING_TOP,
+                                                       HeightMapPipelineElement.PADDING_BOTTOM );
+      if( image == null )
+      {
+         throw new IOException( "Cannot read height map " + source ); //$NON-NLS-1$
+      }
+      write( new HeightMap( ImageUtilities.getRasterAsShortArray( image ), image.getWidth(), image.getHeight() ), destination );
+   }
+
+   /**
+    * Writes a height map as a raw height map.
+    *
+    * @param map the height map to write.
+    * @param destination the path of the file to write.
+    * @throws IOException if the file cannot be written.
+    */
+   public static void write( final HeightMap map, final Path destination ) throws IOException
+   {
+      final int width = map.getWidth();
+      final int height = map.getHeight();
+      if( ( HEADER_SIZE + ( 2L * width * height ) ) > Integer.MAX_VALUE )
+      {
+         throw new IOException( "The height map is too large for the raw format" ); //$NON-NLS-1$
+      }
+
+      try( FileChannel channel = FileChannel.open( destination,
+                                                   StandardOpenOption.WRITE,
+                                                   StandardOpenOption.CREATE,
+                                                   StandardOpenOption.TRUNCATE_EXISTING ) )
+      {
+         final ByteBuffer header = ByteBuffer.allocate( HEADER_SIZE ).order( ByteOrder.LITTLE_ENDIAN );
+         header.putInt( MAGIC ).putInt( VERSION ).putInt( width ).putInt( height ).putInt( map.getMaximumValue() );
+         ( (Buffer) header ).clear();
+         writeFully( channel, header );
+
+         final short[] row = new short[ width ];
+         final ByteBuffer rows = ByteBuffer.allocate( 2 * width * Math.min( ROWS_PER_WRITE, Math.max( height, 1 ) ) )
+                                           .order( ByteOrder.LITTLE_ENDIAN );
+         for( int y = 0; y < height; y++ )
+         {
+            map.getRow( y, row, 0 );
+            rows.asShortBuffer().put( row );
+            ( (Buffer) rows ).position( rows.position() + ( 2 * width ) );
+            if( !rows.hasRemaining() || ( y == ( height - 1 ) ) )
+            {
+               ( (Buffer) rows ).flip();
+               writeFully( channel, rows );
+               ( (Buffer) rows ).clear();
+            }
+         }
+      }
+   }
+
+   /**
+    * Maps a raw height map into memory.
+    * <p>
+    * The values are not copied: the returned height map reads them straight from the mapped file, which must not be modified while
+    * the map is in use.
+    * </p>
+    *
+    * @param path the path of the raw height map.
+    * @return the height map.
+    * @throws IOException if the file cannot be read or is not a raw height map.
+    */
+   public static HeightMap read( final Path path ) throws IOException
+   {
+      try( FileChannel channel = FileChannel.open( path, StandardOpenOption.READ ) )
+      {
+         final long size = channel.size();
+         if( ( size < HEADER_SIZE ) || ( size > Integer.MAX_VALUE ) )
+         {
+            throw new IOException( "Not a raw height map: " + path ); //$NON-NLS-1$
+         }
+
+         // The mapping stays valid once the channel is closed.
+         final MappedByteBuffer mapped = channel.map( MapMode.READ_ONLY, 0, size );
+         mapped.order( ByteOrder.LITTLE_ENDIAN );
+         if( ( mapped.getInt( 0 ) != MAGIC ) || ( mapped.getInt( 4 ) != VERSION ) )
+         {
+            throw new IOException( "Not a raw height map: " + path ); //$NON-NLS-1$
+         }
+         final int width = mapped.getInt( 8 );
+         final int height = mapped.getInt( 12 );
+         final int maximum = mapped.getInt( 16 );
+         if( ( width < 0 ) || ( height < 0 ) || ( ( HEADER_SIZE + ( 2L * width * height ) ) > size ) )
+         {
+            throw new IOException( "Truncated raw height map: " + path ); //$NON-NLS-1$
+         }
+
+         ( (Buffer) mapped ).position( HEADER_SIZE );
+         final ByteBuffer values = mapped.slice().order( ByteOrder.LITTLE_ENDIAN );
+         return new ShortBufferHeightMap( values.asShortBuffer(), width, height, maximum );
+      }
+   }
+
+   /**
+    * Checks whether a file is a raw height map by reading its magic number.
+    *
+    * @param path the path of the file.
+    * @return whether the file is a raw height map.
+    */
+   public static boolean isRawHeightMap( final Path path )
+   {
+      if( !Files.isRegularFile( path ) )
+      {
+         return false;
+      }
+      try( FileChannel channel = FileChannel.open( path, StandardOpenOption.READ ) )
+      {
+         final ByteBuffer magic = ByteBuffer.allocate( 4 ).order( ByteOrder.LITTLE_ENDIAN );
+         while( magic.hasRemaining() && ( channel.read( magic ) >= 0 ) )
+         {
+            // Keep reading until the magic number is complete or the file ends.
+         }
+         return !magic.hasRemaining() && ( magic.getInt( 0 ) == MAGIC );
+      }
+      catch( final IOException exception )
+      {
+         return false;
+      }
+   }
+
+   private static void writeFully( final FileChannel channel, final ByteBuffer buffer ) throws IOException
+   {
+      while( buffer.hasRemaining() )
+      {
+         channel.write( buffer );
+      }
+   }
+
+   private static String replaceExtension( final String fileName )
+   {
+      final int dot = fileName.lastIndexOf( '.' );
+      final String baseName = dot > 0 ? fileName.substring( 0, dot ) : fileName;
+      return baseName + EXTENSION;
+   }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.map;
+
+/**
+ * Reduces the resolution of a height map by a whole factor, e.g. for a quick preview.
+ * <p>
+ * The map is point sampled: the top left value of each block of <code>factor</code> by <code>factor</code> values is kept, so
+ * that the edges between depths stay sharp. The values themselves are not changed. Only every <code>factor</code>th row of the
+ * input is read.
+ * </p>
+ *
+ * @author erodri02
+ */
+public class DownsampleHeightMapTransformer implements HeightMapTransformer
+{
+   private final int factor;
+
+   /**
+    * Initializes a new DownsampleHeightMapTransformer object.
+    *
+    * @param factor the factor by which to divide the width and height of the map, rounding up. Must be at least 1.
+    */
+   public DownsampleHeightMapTransformer( final int factor )
+   {
+      if( factor < 1 )
+      {
+         throw new IllegalArgumentException( "factor must be at least 1" ); //$NON-NLS-1$
+      }
+      this.factor = factor;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public HeightMap transform( final HeightMap input )
+   {
+      final int width = ( ( input.getWidth() + this.factor ) - 1 ) / this.factor;
+      final int height = ( ( input.getHeight() + this.factor ) - 1 ) / this.factor;
+      final short[] values = new short[ width * height ];
+
+      short[] row = null;
+      for( int y = 0; y < height; y++ )
+      {
+         row = input.getRow( y * this.factor, row );
+         final int rowStart = y * width;
+         for( int x = 0; x < width; x++ )
+         {
+            values[ rowStart + x ] = row[ x * this.factor ];
+         }
+      }
+      return new HeightMap( values, width, height );
+   }
+}
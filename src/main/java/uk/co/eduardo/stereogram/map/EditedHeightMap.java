@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.map;
+
+/**
+ * A height map with some of the rows of another map replaced.
+ * <p>
+ * Created by {@link HeightMap#withValues(int, int, int, int, short[])}. Editing it again creates another map over the same base
+ * map that shares the rows of this one, so edits never chain: every row is read either from the base map or from a single array.
+ * Once a map has been created its rows are never modified.
+ * </p>
+ *
+ * @author erodri02
+ */
+final class EditedHeightMap extends HeightMap
+{
+   /** Marks the maximum value as unknown, e.g. after the only values that reached it were overwritten. */
+   private static final int UNKNOWN_MAXIMUM = Integer.MIN_VALUE;
+
+   private final HeightMap base;
+
+   /** The replaced rows indexed by their y position, or <code>null</code> for the rows read from the base map. */
+   private final short[][] rows;
+
+   private final int knownMaximum;
+
+   /**
+    * Initializes a new EditedHeightMap object.
+    *
+    * @param base the map from which the rows that have not been replaced are read.
+    * @param rows the replaced rows indexed by their y position, or <code>null</code> for the rows read from the base map.
+    * @param maximum the maximum value of the map, or {@link #UNKNOWN_MAXIMUM} if it has to be computed.
+    */
+   EditedHeightMap( final HeightMap base, final short[][] rows, final int maximum )
+   {
+      super( base.getWidth(), base.getHeight() );
+      this.base = base;
+      this.rows = rows;
+      this.knownMaximum = maximum;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public short getValue( final int x, final int y )
+   {
+      checkPosition( x, y );
+      final short[] row = this.rows[ y ];
+      return row == null ? this.base.getValue( x, y ) : row[ x ];
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void getRow( final int y, final short[] destination, final int destinationOffset, final int length )
+   {
+      checkRow( y, length );
+      final short[] row = this.rows[ y ];
+      if( row == null )
+      {
+         this.base.getRow( y, destination, destinationOffset, length );
+      }
+      else
+      {
+         System.arraycopy( row, 0, destination, destinationOffset, length );
+      }
+   }
+
+   /**
+    * {@inheritDoc}
+    * <p>
+    * The new map shares the base map and the rows of this one, and copies only the rows of the region.
+    * </p>
+    */
+   @Override
+   public HeightMap withValues( final int x, final int y, final int regionWidth, final int regionHeight, final short[] values )
+   {
+      checkRegion( x, y, regionWidth, regionHeight, values );
+
+      final short[][] editedRows = this.rows.clone();
+      final int oldMaximum = getMaximumValue();
+      int regionMaximum = Integer.MIN_VALUE;
+      boolean maximumOverwritten = false;
+      for( int row = 0; row < regionHeight; row++ )
+      {
+         final short[] edited = getRow( y + row, null );
+         for( int i = 0; i < regionWidth; i++ )
+         {
+            final short value = values[ ( row * regionWidth ) + i ];
+            maximumOverwritten |= edited[ x + i ] == oldMaximum;
+            regionMaximum = Math.max( regionMaximum, value );
+            edited[ x + i ] = value;
+         }
+         editedRows[ y + row ] = edited;
+      }
+
+      final int maximum;
+      if( regionMaximum >= oldMaximum )
+      {
+         maximum = regionMaximum;
+      }
+      else
+      {
+         maximum = maximumOverwritten ? UNKNOWN_MAXIMUM : oldMaximum;
+      }
+      return new EditedHeightMap( this.base, editedRows, maximum );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   protected int computeMaximumValue()
+   {
+      if( this.knownMaximum != UNKNOWN_MAXIMUM )
+      {
+         return this.knownMaximum;
+      }
+
+      int max = Short.MIN_VALUE;
+      short[] row = null;
+      for( int y = 0; y < getHeight(); y++ )
+      {
+         row = getRow( y, row );
+         for( int x = 0; x < getWidth(); x++ )
+         {
+            max = Math.max( max, row[ x ] );
+         }
+      }
+      return max;
+   }
+}
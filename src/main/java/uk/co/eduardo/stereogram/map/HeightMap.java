@@ -6,11 +6,18 @@ package uk.co.eduardo.stereogram.map;
 
 /**
  * Defines the height map for the image.
+ * <p>
+ * The values are held in a single contiguous array, row by row. Row <code>y</code> starts at index
+ * <code>offset + y * stride</code> of the array and contains <code>width</code> values.
+ * </p>
  *
  * @author erodri02
  */
 public class HeightMap
 {
+   /** Marks the maximum value as not yet computed. Cannot clash with a real value as all values are shorts. */
+   private static final int UNKNOWN_MAXIMUM = Integer.MIN_VALUE;
+
    private final int width;
 
    private final int height;
@@ -18,18 +25,92 @@ public class HeightMap
    /**
     * The height hap data.
     */
-   protected final short[][] map;
+   protected final short[] data;
+
+   /**
+    * The index in {@link #data} of the first value of the first row.
+    */
+   protected final int offset;
+
+   /**
+    * The distance in {@link #data} between the first values of two consecutive rows.
+    */
+   protected final int stride;
+
+   private volatile int maximumValue = UNKNOWN_MAXIMUM;
+
+   /**
+    * Initializes a new HeightMap object that has no backing array.
+    * <p>
+    * Subclasses that use this constructor compute their values on demand and must override {@link #getValue(int, int)},
+    * {@link #getRow(int, short[], int)} and {@link #computeMaximumValue()}.
+    * </p>
+    *
+    * @param width the width of the map.
+    * @param height the height of the map.
+    */
+   protected HeightMap( final int width, final int height )
+   {
+      this.data = null;
+      this.offset = 0;
+      this.width = width;
+      this.height = height;
+      this.stride = width;
+   }
 
    /**
     * Initializes a new HeightMap object.
+    * <p>
+    * The values are copied into a contiguous array.
+    * </p>
     *
     * @param map the height map.
     */
    public HeightMap( final short[][] map )
    {
-      this.width = map[ 0 ].length;
-      this.height = map.length;
-      this.map = map;
+      this( flatten( map ), map.length == 0 ? 0 : map[ 0 ].length, map.length );
+   }
+
+   /**
+    * Initializes a new HeightMap object that wraps an array of values stored row by row.
+    *
+    * @param data the height map values. Not copied.
+    * @param width the width of the map.
+    * @param height the height of the map.
+    */
+   public HeightMap( final short[] data, final int width, final int height )
+   {
+      this( data, 0, width, height, width );
+   }
+
+   /**
+    * Initializes a new HeightMap object that wraps part of an array of values.
+    *
+    * @param data the height map values. Not copied.
+    * @param offset the index of the first value of the first row.
+    * @param width the width of the map.
+    * @param height the height of the map.
+    * @param stride the distance between the first values of two consecutive rows.
+    */
+   public HeightMap( final short[] data, final int offset, final int width, final int height, final int stride )
+   {
+      if( ( width < 0 ) || ( height < 0 ) || ( stride < width ) || ( offset < 0 ) )
+      {
+         throw new IllegalArgumentException( String.format( "invalid map: offset=%d width=%d height=%d stride=%d", //$NON-NLS-1$
+                                                            offset,
+                                                            width,
+                                                            height,
+                                                            stride ) );
+      }
+      if( ( height > 0 ) && ( ( offset + ( ( height - 1 ) * (long) stride ) + width ) > data.length ) )
+      {
+         throw new IllegalArgumentException( "the data array is too small for the map" ); //$NON-NLS-1$
+      }
+      this.data = data;
+      this.offset = offset;
+      this.width = width;
+      this.height = height;
+      this.stride = stride;
    }
 
    /**
@@ -58,9 +139,289 @@ public class HeightMap
     * @param x the x position.
     * @param y the y position.
     * @return the height of the map at the given location.
+    * @throws IndexOutOfBoundsException if the position is outside the map.
     */
    public short getValue( final int x, final int y )
    {
-      return this.map[ y ][ x ];
+      checkPosition( x, y );
+      return this.data[ this.offset + ( y * this.stride ) + x ];
+   }
+
+   /**
+    * Gets the largest value in the height map.
+    * <p>
+    * The value is computed on first use and then cached alongside the map.
+    * </p>
+    *
+    * @return the largest value in the height map, or {@link Short#MIN_VALUE} if the map has no values.
+    */
+   public int getMaximumValue()
+   {
+      int max = this.maximumValue;
+      if( max == UNKNOWN_MAXIMUM )
+      {
+         max = computeMaximumValue();
+         this.maximumValue = max;
+      }
+      return max;
+   }
+
+   /**
+    * Checks whether the values of this map can be changed with {@link #setValues(int, int, int, int, short[])}.
+    *
+    * @return whether the map is backed by an array.
+    */
+   public boolean isEditable()
+   {
+      return this.data != null;
+   }
+
+   /**
+    * Overwrites a rectangular region of the map.
+    * <p>
+    * The cached maximum value is kept up to date: it is only recomputed if the region held the maximum and the new values are
+    * lower. Only maps backed by an array can be edited.
+    * </p>
+    *
+    * @param x the x position of the left of the region.
+    * @param y the y position of the top of the region.
+    * @param regionWidth the width of the region.
+    * @param regionHeight the height of the region.
+    * @param values the new values of the region, row by row, <code>regionWidth</code> values per row.
+    * @return whether the maximum value of the map changed.
+    * @throws UnsupportedOperationException if the map is not backed by an array.
+    */
+   public boolean setValues( final int x, final int y, final int regionWidth, final int regionHeight, final short[] values )
+   {
+      if( this.data == null )
+      {
+         throw new UnsupportedOperationException( "the map is not backed by an array" ); //$NON-NLS-1$
+      }
+      checkRegion( x, y, regionWidth, regionHeight, values );
+
+      final int oldMaximum = getMaximumValue();
+      int regionMaximum = Integer.MIN_VALUE;
+      boolean maximumOverwritten = false;
+      for( int row = 0; row < regionHeight; row++ )
+      {
+         final int start = this.offset + ( ( y + row ) * this.stride ) + x;
+         for( int i = 0; i < regionWidth; i++ )
+         {
+            final short value = values[ ( row * regionWidth ) + i ];
+            maximumOverwritten |= this.data[ start + i ] == oldMaximum;
+            regionMaximum = Math.max( regionMaximum, value );
+            this.data[ start + i ] = value;
+         }
+      }
+
+      if( regionMaximum >= oldMaximum )
+      {
+         this.maximumValue = regionMaximum;
+         return regionMaximum != oldMaximum;
+      }
+      if( maximumOverwritten )
+      {
+         valuesChanged();
+         return getMaximumValue() != oldMaximum;
+      }
+      return false;
+   }
+
+   /**
+    * Creates a copy of this map with a rectangular region overwritten, leaving this map unchanged.
+    * <p>
+    * Only the rows of the region are copied. The other rows are read from this map, or from the map this one was itself created
+    * from, so an edit costs time and memory in proportion to the rows it touches rather than to the whole map. The maximum value of
+    * the copy is kept up to date as in {@link #setValues(int, int, int, int, short[])}. Any map can be edited this way, but the
+    * values of the maps the copy reads from must not change.
+    * </p>
+    *
+    * @param x the x position of the left of the region.
+    * @param y the y position of the top of the region.
+    * @param regionWidth the width of the region.
+    * @param regionHeight the height of the region.
+    * @param values the new values of the region, row by row, <code>regionWidth</code> values per row.
+    * @return the edited copy.
+    */
+   public HeightMap withValues( final int x, final int y, final int regionWidth, final int regionHeight, final short[] values )
+   {
+      final HeightMap unedited = new EditedHeightMap( this, new short[ this.height ][], getMaximumValue() );
+      return unedited.withValues( x, y, regionWidth, regionHeight, values );
+   }
+
+   /**
+    * Checks that a rectangular region is inside the map and that there are enough values to fill it.
+    *
+    * @param x the x position of the left of the region.
+    * @param y the y position of the top of the region.
+    * @param regionWidth the width of the region.
+    * @param regionHeight the height of the region.
+    * @param values the new values of the region.
+    * @throws IllegalArgumentException if the region is outside the map.
+    */
+   protected void checkRegion( final int x, final int y, final int regionWidth, final int regionHeight, final short[] values )
+   {
+      if( ( x < 0 ) ||
+          ( y < 0 ) ||
+          ( regionWidth < 0 ) ||
+          ( regionHeight < 0 ) ||
+          ( ( x + regionWidth ) > this.width ) ||
+          ( ( y + regionHeight ) > this.height ) ||
+          ( values.length < ( regionWidth * regionHeight ) ) )
+      {
+         throw new IllegalArgumentException( "the region is outside the map" ); //$NON-NLS-1$
+      }
+   }
+
+   /**
+    * Checks that a position is inside the map. Rows are laid out one after another in a flat array, so a position outside the map
+    * would otherwise read a value from a neighbouring row, or from outside a map that views part of a larger array, rather than
+    * fail.
+    *
+    * @param x the x position.
+    * @param y the y position.
+    * @throws IndexOutOfBoundsException if the position is outside the map.
+    */
+   protected void checkPosition( final int x, final int y )
+   {
+      if( ( x < 0 ) || ( x >= this.width ) || ( y < 0 ) || ( y >= this.height ) )
+      {
+         throw new IndexOutOfBoundsException( "(" + x + ", " + y + ") is outside the map" ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+      }
+   }
+
+   /**
+    * Checks that a row is inside the map.
+    *
+    * @param y the y position of the row.
+    * @throws IndexOutOfBoundsException if the row is outside the map.
+    */
+   protected void checkRow( final int y )
+   {
+      if( ( y < 0 ) || ( y >= this.height ) )
+      {
+         throw new IndexOutOfBoundsException( "row " + y + " is outside the map" ); //$NON-NLS-1$ //$NON-NLS-2$
+      }
+   }
+
+   /**
+    * Checks that a row is inside the map and that the number of values to read from it is between 0 and the width of the map.
+    *
+    * @param y the y position of the row.
+    * @param length the number of values to read from the start of the row.
+    * @throws IndexOutOfBoundsException if the row is outside the map or the row has fewer values.
+    */
+   protected void checkRow( final int y, final int length )
+   {
+      checkRow( y );
+      if( ( length < 0 ) || ( length > this.width ) )
+      {
+         throw new IndexOutOfBoundsException( "cannot read " + length + " values from a row of " + //$NON-NLS-1$ //$NON-NLS-2$
+                                              this.width );
+      }
+   }
+
+   /**
+    * Discards the cached maximum value. Must be called whenever the underlying values are modified.
+    */
+   void valuesChanged()
+   {
+      this.maximumValue = UNKNOWN_MAXIMUM;
+   }
+
+   /**
+    * Copies a row of the height map.
+    *
+    * @param y the y position of the row.
+    * @param destination the array into which to copy the row. If <code>null</code> or shorter than the width of the map a new array
+    *           is allocated.
+    * @return the array containing the row. Only the first {@link #getWidth()} values are written.
+    */
+   public short[] getRow( final int y, final short[] destination )
+   {
+      final short[] row = ( ( destination == null ) || ( destination.length < this.width ) ) ? new short[ this.width ] : destination;
+      getRow( y, row, 0 );
+      return row;
+   }
+
+   /**
+    * Copies a row of the height map into part of an array.
+    *
+    * @param y the y position of the row.
+    * @param destination the array into which to copy the row.
+    * @param destinationOffset the index in the destination array at which to write the first value.
+    * @throws IndexOutOfBoundsException if the row is outside the map.
+    */
+   public void getRow( final int y, final short[] destination, final int destinationOffset )
+   {
+      getRow( y, destination, destinationOffset, this.width );
+   }
+
+   /**
+    * Copies the start of a row of the height map into part of an array.
+    *
+    * @param y the y position of the row.
+    * @param destination the array into which to copy the values.
+    * @param destinationOffset the index in the destination array at which to write the first value.
+    * @param length the number of values to copy from the start of the row.
+    * @throws IndexOutOfBoundsException if the row is outside the map or has fewer than <code>length</code> values.
+    */
+   public void getRow( final int y, final short[] destination, final int destinationOffset, final int length )
+   {
+      checkRow( y, length );
+      System.arraycopy( this.data, this.offset + ( y * this.stride ), destination, destinationOffset, length );
+   }
+
+   /**
+    * Creates a copy of this height map backed by a new, tightly packed, array.
+    *
+    * @return a copy of this height map.
+    */
+   public HeightMap copy()
+   {
+      final short[] copy = new short[ this.width * this.height ];
+      if( ( this.data != null ) && ( this.stride == this.width ) )
+      {
+         System.arraycopy( this.data, this.offset, copy, 0, copy.length );
+      }
+      else
+      {
+         for( int y = 0; y < this.height; y++ )
+         {
+            getRow( y, copy, y * this.width );
+         }
+      }
+      return new HeightMap( copy, this.width, this.height );
+   }
+
+   /**
+    * Computes the largest value in the height map.
+    *
+    * @return the largest value in the height map.
+    */
+   protected int computeMaximumValue()
+   {
+      int max = Short.MIN_VALUE;
+      for( int y = 0; y < this.height; y++ )
+      {
+         final int rowStart = this.offset + ( y * this.stride );
+         final int rowEnd = rowStart + this.width;
+         for( int i = rowStart; i < rowEnd; i++ )
+         {
+            max = Math.max( max, this.data[ i ] );
+         }
+      }
+      return max;
+   }
+
+   private static short[] flatten( final short[][] map )
+   {
+      final int width = map.length == 0 ? 0 : map[ 0 ].length;
+      final short[] data = new short[ map.length * width ];
+      for( int y = 0; y < map.length; y++ )
+      {
+         System.arraycopy( map[ y ], 0, data, y * width, width );
+      }
+      return data;
    }
 }
@@ -18,4 +18,19 @@ public interface HeightMapTransformer
     * @return a transformed height map.
     */
    HeightMap transform( HeightMap input );
+
+   /**
+    * Transforms an input height map, writing the result into an existing map where possible.
+    * <p>
+    * The default implementation ignores the destination and returns a new map.
+    * </p>
+    *
+    * @param input the height map to transform.
+    * @param destination a map that may be overwritten with the result. May be <code>null</code>. Must not be the input.
+    * @return a transformed height map. Either the destination or a new map.
+    */
+   default HeightMap transform( final HeightMap input, final HeightMap destination )
+   {
+      return transform( input );
+   }
 }
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.map;
+
+/**
+ * Rescales a height map so that all values are at most the max value specified in the constructor.
+ * <p>
+ * Unlike {@link MaximumDepthHeightMapTransformer} no new map is created. The result is a {@link ScaledHeightMap} view that scales
+ * the values of the input as they are read, so changing the maximum depth costs no memory.
+ * </p>
+ *
+ * @author erodri02
+ */
+public class LazyMaximumDepthHeightMapTransformer implements HeightMapTransformer
+{
+   private final int maxValue;
+
+   /**
+    * Initializes a new LazyMaximumDepthHeightMapTransformer object.
+    *
+    * @param maxValue The maximum allowable value in the height map.
+    */
+   public LazyMaximumDepthHeightMapTransformer( final int maxValue )
+   {
+      this.maxValue = maxValue;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public HeightMap transform( final HeightMap input )
+   {
+      final float scale = this.maxValue / (float) input.getMaximumValue();
+      return new ScaledHeightMap( input, scale );
+   }
+}
@@ -32,15 +32,16 @@ public class MaximumDepthHeightMapTransformer implements HeightMapTransformer
    @Override
    public HeightMap transform( final HeightMap input )
    {
-      int max = input.map[ 0 ][ 0 ];
-      for( int y = 0; y < input.getHeight(); y++ )
-      {
-         for( int x = 0; x < input.getWidth(); x++ )
-         {
-            max = Math.max( max, input.map[ y ][ x ] );
-         }
-      }
-      final float scale = this.maxValue / (float) max;
-      return ScaleHeightMapTransformer.rescale( input, scale );
+      return transform( input, null );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public HeightMap transform( final HeightMap input, final HeightMap destination )
+   {
+      final float scale = this.maxValue / (float) input.getMaximumValue();
+      return ScaleHeightMapTransformer.rescale( input, scale, destination );
    }
 }
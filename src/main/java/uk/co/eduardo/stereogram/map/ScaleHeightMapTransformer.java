@@ -29,7 +29,16 @@ public class ScaleHeightMapTransformer implements HeightMapTransformer
    @Override
    public HeightMap transform( final HeightMap input )
    {
-      return rescale( input, this.scale );
+      return rescale( input, this.scale, null );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public HeightMap transform( final HeightMap input, final HeightMap destination )
+   {
+      return rescale( input, this.scale, destination );
    }
 
    /**
@@ -41,16 +50,88 @@ public class ScaleHeightMapTransformer implements HeightMapTransformer
     */
    protected static HeightMap rescale( final HeightMap input, final float scaleFactor )
    {
-      final short[][] newData = new short[ input.getHeight() ][ input.getWidth() ];
+      return rescale( input, scaleFactor, null );
+   }
+
+   /**
+    * Multiplies all underlying values of a height map by the scale factor.
+    * <p>
+    * Height maps are normally read from 8-bit greyscale images so values between 0 and 255 are rescaled through a lookup table
+    * computed once per call. Any other values are rescaled directly. Both give exactly the same result.
+    * </p>
+    *
+    * @param input the input map to rescale.
+    * @param scaleFactor the scale factor.
+    * @param destination a map with the same dimensions as the input into which to write the result. If <code>null</code>, not backed
+    *           by an array or the dimensions differ, a new map is created.
+    * @return the height map that has had its values rescaled.
+    */
+   protected static HeightMap rescale( final HeightMap input, final float scaleFactor, final HeightMap destination )
+   {
+      final int width = input.getWidth();
+      final int height = input.getHeight();
+      final HeightMap target;
+      if( ( destination != null ) &&
+          ( destination.data != null ) &&
+          ( destination.getWidth() == width ) &&
+          ( destination.getHeight() == height ) )
+      {
+         target = destination;
+      }
+      else
+      {
+         target = new HeightMap( new short[ width * height ], width, height );
+      }
 
-      for( int y = 0; y < input.getHeight(); y++ )
+      final short[] lookup = createLookupTable( scaleFactor );
+      for( int y = 0; y < height; y++ )
       {
-         for( int x = 0; x < input.getWidth(); x++ )
+         // Copy the row straight into the target and rescale it in place. This also works when the input is a view.
+         final int rowStart = target.offset + ( y * target.stride );
+         final int rowEnd = rowStart + width;
+         input.getRow( y, target.data, rowStart );
+         for( int i = rowStart; i < rowEnd; i++ )
          {
-            final float val = input.map[ y ][ x ] * scaleFactor;
-            newData[ y ][ x ] = (short) val;
+            final int value = target.data[ i ];
+            target.data[ i ] = lookup( lookup, value, scaleFactor );
          }
       }
-      return new HeightMap( newData );
+      target.valuesChanged();
+      return target;
+   }
+
+   /**
+    * Creates a table that maps every 8-bit value to its rescaled value.
+    *
+    * @param scaleFactor the scale factor.
+    * @return a table of 256 rescaled values.
+    */
+   static short[] createLookupTable( final float scaleFactor )
+   {
+      final short[] lookup = new short[ 256 ];
+      for( int value = 0; value < lookup.length; value++ )
+      {
+         lookup[ value ] = scale( value, scaleFactor );
+      }
+      return lookup;
+   }
+
+   /**
+    * Rescales a single value, using the lookup table if the value is in range.
+    *
+    * @param lookup a table created with {@link #createLookupTable(float)}.
+    * @param value the value to rescale.
+    * @param scaleFactor the scale factor used to create the table.
+    * @return the rescaled value.
+    */
+   static short lookup( final short[] lookup, final int value, final float scaleFactor )
+   {
+      return ( value & ~0xFF ) == 0 ? lookup[ value ] : scale( value, scaleFactor );
+   }
+
+   private static short scale( final int value, final float scaleFactor )
+   {
+      final float val = value * scaleFactor;
+      return (short) val;
    }
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.map;
+
+/**
+ * A view of a height map whose values are multiplied by a scale factor as they are read.
+ * <p>
+ * No rescaled copy of the source is made. Values are scaled a row at a time through a lookup table so creating a view costs
+ * nothing but the table, and reading a row costs one copy of the source row plus one table lookup per value.
+ * </p>
+ *
+ * @author erodri02
+ */
+public class ScaledHeightMap extends HeightMap
+{
+   private final HeightMap source;
+
+   private final float scaleFactor;
+
+   private final short[] lookup;
+
+   /**
+    * Initializes a new ScaledHeightMap object.
+    *
+    * @param source the height map to scale.
+    * @param scaleFactor the scale factor to apply to the values of the source.
+    */
+   public ScaledHeightMap( final HeightMap source, final float scaleFactor )
+   {
+      super( source.getWidth(), source.getHeight() );
+      this.source = source;
+      this.scaleFactor = scaleFactor;
+      this.lookup = ScaleHeightMapTransformer.createLookupTable( scaleFactor );
+   }
+
+   /**
+    * Gets the height map this is a view of.
+    *
+    * @return the unscaled height map.
+    */
+   public HeightMap getSource()
+   {
+      return this.source;
+   }
+
+   /**
+    * Gets the scale factor applied to the values of the source.
+    *
+    * @return the scale factor.
+    */
+   public float getScaleFactor()
+   {
+      return this.scaleFactor;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public short getValue( final int x, final int y )
+   {
+      return ScaleHeightMapTransformer.lookup( this.lookup, this.source.getValue( x, y ), this.scaleFactor );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void getRow( final int y, final short[] destination, final int destinationOffset, final int length )
+   {
+      this.source.getRow( y, destination, destinationOffset, length );
+      final int end = destinationOffset + length;
+      for( int i = destinationOffset; i < end; i++ )
+      {
+         destination[ i ] = ScaleHeightMapTransformer.lookup( this.lookup, destination[ i ], this.scaleFactor );
+      }
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   protected int computeMaximumValue()
+   {
+      final short[] row = new short[ getWidth() ];
+      int max = Short.MIN_VALUE;
+      for( int y = 0; y < getHeight(); y++ )
+      {
+         getRow( y, row, 0 );
+         for( final short value : row )
+         {
+            max = Math.max( max, value );
+         }
+      }
+      return max;
+   }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.map;
+
+import java.nio.Buffer;
+import java.nio.ShortBuffer;
+
+/**
+ * A height map whose values are held in a {@link ShortBuffer}, row by row, rather than in an array.
+ * <p>
+ * The buffer is wrapped, not copied, so a buffer over a memory-mapped file gives a height map that costs nothing to create. The
+ * values must not change while the map is in use.
+ * </p>
+ *
+ * @author erodri02
+ */
+public class ShortBufferHeightMap extends HeightMap
+{
+   private final ShortBuffer buffer;
+
+   private final int maximum;
+
+   /**
+    * Initializes a new ShortBufferHeightMap object.
+    *
+    * @param buffer the height map values, row by row, starting at index 0 of the buffer. Not copied.
+    * @param width the width of the map.
+    * @param height the height of the map.
+    * @param maximum the largest value in the buffer, known in advance so the values need not be scanned.
+    */
+   public ShortBufferHeightMap( final ShortBuffer buffer, final int width, final int height, final int maximum )
+   {
+      super( width, height );
+      if( ( (long) width * height ) > buffer.limit() )
+      {
+         throw new IllegalArgumentException( "the buffer is too small for the map" ); //$NON-NLS-1$
+      }
+      this.buffer = buffer;
+      this.maximum = maximum;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public short getValue( final int x, final int y )
+   {
+      checkPosition( x, y );
+      return this.buffer.get( ( y * getWidth() ) + x );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void getRow( final int y, final short[] destination, final int destinationOffset, final int length )
+   {
+      checkRow( y, length );
+      // Absolute bulk gets need Java 13, so read through a duplicate to leave the shared buffer's position alone.
+      final ShortBuffer row = this.buffer.duplicate();
+      ( (Buffer) row ).position( y * getWidth() );
+      row.get( destination, destinationOffset, length );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   protected int computeMaximumValue()
+   {
+      return this.maximum;
+   }
+}
@@ -6,17 +6,56 @@ package uk.co.eduardo.stereogram.map;
 
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import uk.co.eduardo.stereogram.texture.Texture1D;
 import uk.co.eduardo.stereogram.texture.Texture2D;
 
 /**
  * Fills a bvuffered image with a generated stereogram.
+ * <p>
+ * Each row of the stereogram only depends on its own row of the height map and its own {@link Texture1D}, so rows may be
+ * rendered in parallel. A processor created with a {@link ForkJoinPool} splits the rows across the pool; the output is identical
+ * to the serial processor.
+ * </p>
+ * <p>
+ * Rendering a row consumes its {@link Texture1D}, which is {@link Texture1D#release() released} as soon as the row is done so
+ * that any pooled memory can be reused by the rows still to be rendered.
+ * </p>
+ * <p>
+ * A stereogram may also be rendered into a {@link StereogramRowSink} rather than an image. Rows are then rendered a band at a time
+ * and handed to the sink in order, so only one band of pixels is held in memory.
+ * </p>
  *
  * @author erodri02
  */
 public class StereogramProcessor
 {
+   /** The smallest number of rows rendered by a single parallel task. */
+   private static final int ROWS_PER_TASK = 16;
+
+   private final ForkJoinPool pool;
+
+   /**
+    * Initializes a new StereogramProcessor object that renders all rows on the calling thread.
+    */
+   public StereogramProcessor()
+   {
+      this( null );
+   }
+
+   /**
+    * Initializes a new StereogramProcessor object that renders rows in parallel.
+    *
+    * @param pool the pool in which to render rows. If <code>null</code> all rows are rendered on the calling thread.
+    */
+   public StereogramProcessor( final ForkJoinPool pool )
+   {
+      this.pool = pool;
+   }
+
    /**
     * Processes the height mpa and fills in the supplied image with the generated stereogram.
     * <p>
@@ -28,19 +67,107 @@ public class StereogramProcessor
     * @param image the image to fill.
     */
    public void process( final HeightMap heightMap, final Texture2D texture, final BufferedImage image )
+   {
+      process( heightMap, texture, image, 0, image.getHeight() );
+   }
+
+   /**
+    * Processes a range of rows of the height map and fills in the same rows of the supplied image. The other rows of the image
+    * are left untouched.
+    * <p>
+    * The image must have the same dimensions as the height map.
+    * </p>
+    *
+    * @param heightMap the height map to process.
+    * @param texture the texture for the image.
+    * @param image the image to fill.
+    * @param startRow the first row to render, inclusive.
+    * @param endRow the last row to render, exclusive.
+    */
+   public void process( final HeightMap heightMap,
+                        final Texture2D texture,
+                        final BufferedImage image,
+                        final int startRow,
+                        final int endRow )
    {
       final DataBufferInt buffer = (DataBufferInt) image.getRaster().getDataBuffer();
       final int[] data = buffer.getData();
+      final int width = image.getWidth();
 
-      int offset = 0;
-      for( int y = 0; y < image.getHeight(); y++ )
+      if( ( this.pool == null ) || ( ( endRow - startRow ) <= ROWS_PER_TASK ) )
+      {
+         processRows( heightMap, texture, data, width, 0, startRow, endRow );
+      }
+      else
+      {
+         this.pool.invoke( new RowsTask( heightMap, texture, data, width, 0, startRow, endRow ) );
+      }
+   }
+
+   /**
+    * Processes the height map and passes the rows of the generated stereogram to a sink, from top to bottom.
+    * <p>
+    * The stereogram has the same dimensions as the height map. The sink is started before the first row and finished after the last
+    * one.
+    * </p>
+    *
+    * @param heightMap the height map to process.
+    * @param texture the texture for the image.
+    * @param sink the sink that receives the rows.
+    * @throws IOException if the sink fails.
+    */
+   public void process( final HeightMap heightMap, final Texture2D texture, final StereogramRowSink sink ) throws IOException
+   {
+      final int width = heightMap.getWidth();
+      final int height = heightMap.getHeight();
+      final int bandHeight = this.pool == null ? 1 : ROWS_PER_TASK * this.pool.getParallelism();
+      final int[] band = new int[ width * Math.min( bandHeight, Math.max( height, 1 ) ) ];
+      final int[] row = bandHeight == 1 ? band : new int[ width ];
+
+      sink.start( width, height );
+      for( int bandStart = 0; bandStart < height; bandStart += bandHeight )
+      {
+         final int bandEnd = Math.min( height, bandStart + bandHeight );
+         if( ( this.pool == null ) || ( ( bandEnd - bandStart ) <= ROWS_PER_TASK ) )
+         {
+            processRows( heightMap, texture, band, width, bandStart, bandStart, bandEnd );
+         }
+         else
+         {
+            this.pool.invoke( new RowsTask( heightMap, texture, band, width, bandStart, bandStart, bandEnd ) );
+         }
+
+         for( int y = bandStart; y < bandEnd; y++ )
+         {
+            if( row != band )
+            {
+               System.arraycopy( band, ( y - bandStart ) * width, row, 0, width );
+            }
+            sink.writeRow( y, row );
+         }
+      }
+      sink.finish();
+   }
+
+   private static void processRows( final HeightMap heightMap,
+                                    final Texture2D texture,
+                                    final int[] data,
+                                    final int width,
+                                    final int firstDataRow,
+                                    final int startRow,
+                                    final int endRow )
+   {
+      final short[] row = new short[ width ];
+      int offset = ( startRow - firstDataRow ) * width;
+      for( int y = startRow; y < endRow; y++ )
       {
          final Texture1D rowTexture = texture.getTexture1D( y );
-         int last = heightMap.map[ y ][ 0 ];
+         heightMap.getRow( y, row );
+         int last = row[ 0 ];
 
-         for( int x = 0; x < image.getWidth(); x++ )
+         for( int x = 0; x < width; x++ )
          {
-            final int current = heightMap.map[ y ][ x ];
+            final int current = row[ x ];
             final int delta = current - last;
             if( delta != 0 )
             {
@@ -49,6 +176,63 @@ public class StereogramProcessor
             }
             data[ offset++ ] = rowTexture.getAndIncrement();
          }
+         rowTexture.release();
+      }
+   }
+
+   /**
+    * Renders a range of rows, splitting the range in half until it is small enough to render directly.
+    */
+   private static final class RowsTask extends RecursiveAction
+   {
+      private static final long serialVersionUID = 1L;
+
+      private final HeightMap heightMap;
+
+      private final Texture2D texture;
+
+      private final int[] data;
+
+      private final int width;
+
+      /** The row of the stereogram held at the start of {@link #data}. */
+      private final int firstDataRow;
+
+      private final int startRow;
+
+      private final int endRow;
+
+      private RowsTask( final HeightMap heightMap,
+                        final Texture2D texture,
+                        final int[] data,
+                        final int width,
+                        final int firstDataRow,
+                        final int startRow,
+                        final int endRow )
+      {
+         this.heightMap = heightMap;
+         this.texture = texture;
+         this.data = data;
+         this.width = width;
+         this.firstDataRow = firstDataRow;
+         this.startRow = startRow;
+         this.endRow = endRow;
+      }
+
+      @Override
+      protected void compute()
+      {
+         final int rows = this.endRow - this.startRow;
+         if( rows <= ROWS_PER_TASK )
+         {
+            processRows( this.heightMap, this.texture, this.data, this.width, this.firstDataRow, this.startRow, this.endRow );
+         }
+         else
+         {
+            final int middle = this.startRow + ( rows / 2 );
+            invokeAll( new RowsTask( this.heightMap, this.texture, this.data, this.width, this.firstDataRow, this.startRow, middle ),
+                       new RowsTask( this.heightMap, this.texture, this.data, this.width, this.firstDataRow, middle, this.endRow ) );
+         }
       }
    }
 }
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.map;
+
+import java.io.IOException;
+
+/**
+ * Receives the rows of a stereogram as they are rendered, from top to bottom.
+ *
+ * @author erodri02
+ */
+public interface StereogramRowSink
+{
+   /**
+    * Called once before the first row.
+    *
+    * @param width the width of the stereogram in pixels.
+    * @param height the height of the stereogram in pixels.
+    * @throws IOException if the sink fails.
+    */
+   void start( int width, int height ) throws IOException;
+
+   /**
+    * Called once for each row, in order.
+    *
+    * @param y the y position of the row.
+    * @param pixels the ARGB pixels of the row. Only the first <code>width</code> values are part of the row. The array is reused for
+    *           later rows, so it must not be held on to after this call returns.
+    * @throws IOException if the sink fails.
+    */
+   void writeRow( int y, int[] pixels ) throws IOException;
+
+   /**
+    * Called once after the last row.
+    *
+    * @throws IOException if the sink fails.
+    */
+   void finish() throws IOException;
+}
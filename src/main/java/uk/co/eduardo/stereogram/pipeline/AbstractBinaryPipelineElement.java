@@ -15,7 +15,7 @@ package uk.co.eduardo.stereogram.pipeline;
 public abstract class AbstractBinaryPipelineElement< S1, S2, T > extends AbstractUnaryPipelineElement< S1, T >
       implements BinaryPipelineElement< S1, S2, T >
 {
-   private PipelineElement< S2 > secondInputPipelineElement;
+   private volatile PipelineElement< S2 > secondInputPipelineElement;
 
    /**
     * {@inheritDoc}
@@ -40,7 +40,25 @@ public abstract class AbstractBinaryPipelineElement< S1, S2, T > extends Abstrac
    @Override
    public boolean isValid()
    {
-      return super.isValid() && ( this.secondInputPipelineElement != null ) && this.secondInputPipelineElement.isValid();
+      return super.isValid() && ( this.secondInputPipelineElement != null );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   int getInputCount()
+   {
+      return 2;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   PipelineElement< ? > getInput( final int index )
+   {
+      return index == 1 ? this.secondInputPipelineElement : super.getInput( index );
    }
 
    /**
@@ -6,21 +6,58 @@ package uk.co.eduardo.stereogram.pipeline;
 
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 
 /**
  * Abstract implemenetation that has listener support.
+ * <p>
+ * Dirtiness is tracked with a modification count rather than a flag. Marking the element dirty increments the count and an
+ * output is only considered valid for the count that was current when its computation started. If the element is marked dirty
+ * again while an output is being computed on another thread, that invalidation is not lost.
+ * </p>
+ * <p>
+ * Every output is stamped with a {@link #getGeneration() generation}, drawn from a counter shared by all elements, so that an
+ * element can tell whether its inputs have actually changed since its output was computed.
+ * </p>
+ * <p>
+ * Elements keep {@link #getStatistics() statistics} of how often their output is recomputed and how long that takes.
+ * </p>
  *
  * @author erodri02
  * @param <T> the type of output the element generates.
  */
 public abstract class AbstractPipelineElement< T > implements PipelineElement< T >
 {
-   private boolean dirty = true;
+   /** Source of generations, shared so that outputs of different elements never have the same generation. */
+   private static final AtomicLong GENERATIONS = new AtomicLong();
+
+   /** Incremented every time this element is marked as dirty. */
+   private final AtomicLong modificationCount = new AtomicLong( 1 );
+
+   /** The modification count for which the cached output is valid. */
+   private volatile long validModificationCount = 0;
+
+   /** The generation of the current output. */
+   private volatile long generation = GENERATIONS.incrementAndGet();
 
    private final List< PipelineElementListener > listeners = new CopyOnWriteArrayList<>();
 
    private final String name;
 
+   private final LongAdder recomputeCount = new LongAdder();
+
+   private final LongAdder hitCount = new LongAdder();
+
+   private final LongAdder totalComputeNanos = new LongAdder();
+
+   private final LongAdder totalAllocatedBytes = new LongAdder();
+
+   private volatile long lastComputeNanos = 0;
+
+   private volatile long lastAllocatedBytes = 0;
+
    /**
     * Initializes a new AbstractPipelineElement object.
     *
@@ -50,21 +87,68 @@ public abstract class AbstractPipelineElement< T > implements PipelineElement< T
     */
    protected boolean isDirty()
    {
-      return this.dirty;
+      return this.modificationCount.get() != this.validModificationCount;
    }
 
    /**
     * Mark this element as either dirty (<code>true</code>) or not (<code>false</code>).
+    * <p>
+    * Marking the element as not dirty is only safe if it cannot be invalidated concurrently. Otherwise capture
+    * {@link #getModificationCount()} before computing and pass it to {@link #setClean(long)} afterwards.
+    * </p>
     *
     * @param isDirty whether the element is dirty.
     */
    protected void setDirty( final boolean isDirty )
    {
-      this.dirty = isDirty;
       if( isDirty )
       {
+         this.modificationCount.incrementAndGet();
          notifyListeners();
       }
+      else
+      {
+         this.validModificationCount = this.modificationCount.get();
+      }
+   }
+
+   /**
+    * Gets the number of times this element has been marked as dirty.
+    *
+    * @return the modification count.
+    */
+   protected long getModificationCount()
+   {
+      return this.modificationCount.get();
+   }
+
+   /**
+    * Marks this element as clean for the given modification count. If the element has been marked dirty since the count was
+    * read it remains dirty.
+    *
+    * @param computedModificationCount the modification count read before the output was computed.
+    */
+   protected void setClean( final long computedModificationCount )
+   {
+      this.validModificationCount = computedModificationCount;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public long getGeneration()
+   {
+      return this.generation;
+   }
+
+   /**
+    * Stamps the output of this element with a new generation. Must be called whenever the output changes, before the listeners
+    * are notified.
+    */
+   protected void newGeneration()
+   {
+      this.generation = GENERATIONS.incrementAndGet();
    }
 
    /**
@@ -97,6 +181,108 @@ public abstract class AbstractPipelineElement< T > implements PipelineElement< T
       return this.name;
    }
 
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public PipelineElementStatistics getStatistics()
+   {
+      final boolean allocationMeasured = ComputeTimer.isAllocationMeasured();
+      return new PipelineElementStatistics( this.name,
+                                            this.recomputeCount.sum(),
+                                            this.hitCount.sum(),
+                                            this.totalComputeNanos.sum(),
+                                            this.lastComputeNanos,
+                                            allocationMeasured ? this.totalAllocatedBytes.sum() : -1,
+                                            allocationMeasured ? this.lastAllocatedBytes : -1 );
+   }
+
+   /**
+    * Resets the statistics of this element to zero.
+    */
+   public void resetStatistics()
+   {
+      this.recomputeCount.reset();
+      this.hitCount.reset();
+      this.totalComputeNanos.reset();
+      this.totalAllocatedBytes.reset();
+      this.lastComputeNanos = 0;
+      this.lastAllocatedBytes = 0;
+   }
+
+   /**
+    * Records that the cached output was returned without being recomputed.
+    */
+   protected void recordHit()
+   {
+      this.hitCount.increment();
+   }
+
+   /**
+    * Computes an output, recording the time taken and the memory allocated in the statistics of this element. Nested computations
+    * of other elements, e.g. of the inputs, are recorded against those elements only.
+    *
+    * @param compute computes the output.
+    * @return the output.
+    */
+   protected T measureCompute( final Supplier< T > compute )
+   {
+      final ComputeTimer timer = ComputeTimer.start();
+      try
+      {
+         return compute.get();
+      }
+      finally
+      {
+         timer.stop( this );
+      }
+   }
+
+   /**
+    * Records a computation in the statistics of this element.
+    *
+    * @param nanos the time taken, excluding nested computations.
+    * @param bytes the memory allocated, excluding nested computations.
+    */
+   void recordCompute( final long nanos, final long bytes )
+   {
+      this.recomputeCount.increment();
+      this.totalComputeNanos.add( nanos );
+      this.totalAllocatedBytes.add( bytes );
+      this.lastComputeNanos = nanos;
+      this.lastAllocatedBytes = bytes;
+   }
+
+   /**
+    * Reads the output of an <code>Integer</code> input without boxing it if the input is an {@link IntPipelineElement}.
+    *
+    * @param input the input pipeline element.
+    * @return the output of the input.
+    */
+   protected static int getIntOutput( final PipelineElement< Integer > input )
+   {
+      if( input instanceof IntPipelineElement )
+      {
+         return ( (IntPipelineElement) input ).getIntOutput();
+      }
+      return input.getOutput().intValue();
+   }
+
+   /**
+    * Reads the output of a <code>Boolean</code> input without boxing it if the input is a {@link BooleanPipelineElement}.
+    *
+    * @param input the input pipeline element.
+    * @return the output of the input.
+    */
+   protected static boolean getBooleanOutput( final PipelineElement< Boolean > input )
+   {
+      if( input instanceof BooleanPipelineElement )
+      {
+         return ( (BooleanPipelineElement) input ).getBooleanOutput();
+      }
+      return input.getOutput().booleanValue();
+   }
+
    /**
     * Notifies all registered listeners that this element has been marked as invalid.
     */
@@ -17,7 +17,7 @@ package uk.co.eduardo.stereogram.pipeline;
 public abstract class AbstractQuaternaryPipelineElement< S1, S2, S3, S4, T > extends AbstractTernaryPipelineElement< S1, S2, S3, T >
       implements QuaternaryPipelineElement< S1, S2, S3, S4, T >
 {
-   private PipelineElement< S4 > fourthInputPipelineElement;
+   private volatile PipelineElement< S4 > fourthInputPipelineElement;
 
    /**
     * {@inheritDoc}
@@ -41,7 +41,25 @@ public abstract class AbstractQuaternaryPipelineElement< S1, S2, S3, S4, T > ext
    @Override
    public boolean isValid()
    {
-      return super.isValid() && ( this.fourthInputPipelineElement != null ) && this.fourthInputPipelineElement.isValid();
+      return super.isValid() && ( this.fourthInputPipelineElement != null );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   int getInputCount()
+   {
+      return 4;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   PipelineElement< ? > getInput( final int index )
+   {
+      return index == 3 ? this.fourthInputPipelineElement : super.getInput( index );
    }
 
    /**
@@ -16,7 +16,7 @@ package uk.co.eduardo.stereogram.pipeline;
 public abstract class AbstractTernaryPipelineElement< S1, S2, S3, T > extends AbstractBinaryPipelineElement< S1, S2, T >
       implements TernaryPipelineElement< S1, S2, S3, T >
 {
-   private PipelineElement< S3 > thirdInputPipelineElement;
+   private volatile PipelineElement< S3 > thirdInputPipelineElement;
 
    /**
     * {@inheritDoc}
@@ -40,7 +40,25 @@ public abstract class AbstractTernaryPipelineElement< S1, S2, S3, T > extends Ab
    @Override
    public boolean isValid()
    {
-      return super.isValid() && ( this.thirdInputPipelineElement != null ) && this.thirdInputPipelineElement.isValid();
+      return super.isValid() && ( this.thirdInputPipelineElement != null );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   int getInputCount()
+   {
+      return 3;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   PipelineElement< ? > getInput( final int index )
+   {
+      return index == 2 ? this.thirdInputPipelineElement : super.getInput( index );
    }
 
    /**
@@ -4,11 +4,24 @@
  */
 package uk.co.eduardo.stereogram.pipeline;
 
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Base implementation of a pipeline element.
+ * <p>
+ * Outputs are computed under a per-element lock, so concurrent callers of {@link #getOutput()} compute a stale element once and
+ * then share the result. Valid outputs are published through a volatile field and are returned without locking. Locks are always
+ * taken from an element towards its inputs, so they cannot deadlock.
+ * </p>
+ * <p>
+ * Checking validity is O(1): invalidation is pushed to every element downstream when it happens, so an element does not need to
+ * ask its inputs. A dirty element brings its inputs up to date, recomputing each stale one once, and compares their
+ * {@link #getGeneration() generations} with those its output was computed from. It only recomputes if one of them has changed.
+ * </p>
  *
  * @author erodri02
  * @param <S> the input, source, type.
@@ -19,10 +32,17 @@ public abstract class AbstractUnaryPipelineElement< S, T > extends AbstractPipel
 {
    private static final Logger LOGGER = Logger.getLogger( AbstractUnaryPipelineElement.class.getName() );
 
-   private PipelineElement< S > inputPipelineElement;
+   private volatile PipelineElement< S > inputPipelineElement;
+
+   private final Object computeLock = new Object();
 
    /** Direct access to the cached output. This value is only valid if {@link #isValid()} is <code>true</code> */
-   protected T cachedOutput = null;
+   protected volatile T cachedOutput = null;
+
+   /** The generations of the inputs from which the cached output was computed. Guarded by the compute lock. */
+   private long[] inputGenerations = null;
+
+   private volatile ResultCache resultCache = null;
 
    /**
     * {@inheritDoc}
@@ -46,26 +66,207 @@ public abstract class AbstractUnaryPipelineElement< S, T > extends AbstractPipel
    @Override
    public boolean isValid()
    {
-      if( this.inputPipelineElement == null )
+      // Invalidation is pushed downstream as soon as it happens, so an input can only be dirty if this element is too.
+      return ( this.inputPipelineElement != null ) && !isDirty();
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public T getOutput()
+   {
+      if( isValid() )
+      {
+         recordHit();
+         return this.cachedOutput;
+      }
+
+      synchronized( this.computeLock )
+      {
+         // Another thread may have computed the output while we were waiting for the lock.
+         if( isValid() )
+         {
+            recordHit();
+         }
+         else
+         {
+            final long modificationCount = getModificationCount();
+            final ResultCache cache = this.resultCache;
+            final Object key = cache == null ? null : getKey();
+            final T memoized = cache == null ? null : cache.get( this, key );
+            if( memoized != null )
+            {
+               // Computed before from the same parameters. The inputs are left to be brought up to date when they are needed.
+               recordHit();
+               if( memoized != this.cachedOutput )
+               {
+                  this.cachedOutput = memoized;
+                  this.inputGenerations = null;
+                  newGeneration();
+               }
+            }
+            else
+            {
+               final long[] generations = getInputGenerations();
+               if( Arrays.equals( generations, this.inputGenerations ) )
+               {
+                  // Marked dirty, but none of the inputs have actually changed since the output was computed.
+                  recordHit();
+               }
+               else
+               {
+                  if( LOGGER.isLoggable( Level.FINE ) )
+                  {
+                     LOGGER.log( Level.FINE, "Recomputing " + getName() ); //$NON-NLS-1$
+                  }
+                  this.cachedOutput = measureCompute( () -> internalComputeOutput( this.inputPipelineElement ) );
+                  this.inputGenerations = generations;
+                  newGeneration();
+
+                  // Only cache the output under the key if no parameter changed while it was being computed.
+                  if( ( cache != null ) && ( getModificationCount() == modificationCount ) )
+                  {
+                     cache.put( this, key, this.cachedOutput, getOutputWeight( this.cachedOutput ) );
+                  }
+               }
+            }
+            setClean( modificationCount );
+         }
+         return this.cachedOutput;
+      }
+   }
+
+   /**
+    * Replaces the cached output with an updated one, without recomputing it from the inputs. Does nothing if the cached output is
+    * not valid, as it will be recomputed from the inputs anyway.
+    * <p>
+    * For changes that can be applied to the output more cheaply than recomputing it, e.g. re-rendering a few rows. The update runs
+    * under the same lock as a recompute.
+    * </p>
+    *
+    * @param update computes the updated output from the cached one. May return the same object if it was modified in place.
+    * @return whether the update was applied.
+    */
+   protected boolean updateCachedOutput( final UnaryOperator< T > update )
+   {
+      synchronized( this.computeLock )
+      {
+         if( !isValid() )
+         {
+            return false;
+         }
+         if( LOGGER.isLoggable( Level.FINE ) )
+         {
+            LOGGER.log( Level.FINE, "Updating " + getName() ); //$NON-NLS-1$
+         }
+         this.cachedOutput = measureCompute( () -> update.apply( this.cachedOutput ) );
+         newGeneration();
+         return true;
+      }
+   }
+
+   /**
+    * Runs an action on the cached output under the same lock as a recompute, without recomputing, updating or counting it, e.g. to
+    * check that an object is not the cached output before releasing it. The cached output may be out of date.
+    *
+    * @param action the action, which receives the cached output, or <code>null</code> if nothing has been computed yet.
+    */
+   protected void withCachedOutput( final Consumer< T > action )
+   {
+      synchronized( this.computeLock )
       {
-         return false;
+         action.accept( this.cachedOutput );
       }
-      return this.inputPipelineElement.isValid() && !isDirty();
    }
 
    /**
     * {@inheritDoc}
     */
    @Override
-   public T getOutput()
+   public long getGeneration()
+   {
+      getOutput();
+      return super.getGeneration();
+   }
+
+   /**
+    * {@inheritDoc}
+    * <p>
+    * The key of a computed element is the list of the keys of its inputs.
+    * </p>
+    */
+   @Override
+   public Object getKey()
+   {
+      final Object[] keys = new Object[ getInputCount() ];
+      for( int i = 0; i < keys.length; i++ )
+      {
+         keys[ i ] = getInput( i ).getKey();
+      }
+      return Arrays.asList( keys );
+   }
+
+   /**
+    * Memoizes the outputs of this element in a result cache, so that an output computed before from the same parameters is reused
+    * rather than recomputed. Only outputs whose {@link #getOutputWeight(Object) weight} is known are cached.
+    *
+    * @param cache the cache, or <code>null</code> to stop memoizing.
+    */
+   public void setResultCache( final ResultCache cache )
+   {
+      this.resultCache = cache;
+   }
+
+   /**
+    * Gets the number of bytes held by an output of this element, with which it is charged to the {@link ResultCache}.
+    * <p>
+    * The default implementation does not know, so the output is never cached. Elements whose outputs are worth memoizing override
+    * this.
+    * </p>
+    *
+    * @param output the output.
+    * @return the number of bytes held by the output.
+    */
+   protected long getOutputWeight( final T output )
+   {
+      return Long.MAX_VALUE;
+   }
+
+   /**
+    * Gets the number of inputs of this element.
+    *
+    * @return the number of inputs.
+    */
+   int getInputCount()
+   {
+      return 1;
+   }
+
+   /**
+    * Gets an input of this element.
+    *
+    * @param index the index of the input, from 0.
+    * @return the input pipeline element.
+    */
+   PipelineElement< ? > getInput( final int index )
+   {
+      return this.inputPipelineElement;
+   }
+
+   /**
+    * Brings every input up to date, recomputing each one at most once, and gets the generations of their outputs.
+    *
+    * @return the generations of the inputs.
+    */
+   private long[] getInputGenerations()
    {
-      if( !isValid() )
+      final long[] generations = new long[ getInputCount() ];
+      for( int i = 0; i < generations.length; i++ )
       {
-         LOGGER.log( Level.FINE, "Recomputing " + getName() ); //$NON-NLS-1$
-         this.cachedOutput = internalComputeOutput( this.inputPipelineElement );
-         setDirty( false );
+         generations[ i ] = getInput( i ).getGeneration();
       }
-      return this.cachedOutput;
+      return generations;
    }
 
    /**
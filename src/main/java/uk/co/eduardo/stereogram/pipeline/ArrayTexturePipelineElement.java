@@ -23,4 +23,18 @@ public class ArrayTexturePipelineElement extends AbstractUnaryPipelineElement< B
    {
       return ImageUtilities.getRasterAsInts( input.getOutput() );
    }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   protected long getOutputWeight( final int[][] output )
+   {
+      long weight = 0;
+      for( final int[] row : output )
+      {
+         weight += (long) row.length * Integer.BYTES;
+      }
+      return weight;
+   }
 }
@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.pipeline;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Evaluates a {@link StereogramPipeline} asynchronously.
+ * <p>
+ * The pipeline is confined to a background task: every change and every render runs on the executor, one at a time and in the
+ * order it was requested, so the pipeline itself need not be thread safe. Callers must not touch the pipeline directly once it
+ * has been handed to this class.
+ * </p>
+ * <p>
+ * Each call to {@link #update(Consumer)} applies its change and requests a render. Changes are always applied, but a render that
+ * has not started by the time a newer request arrives is superseded: its future is cancelled and no work is done for it. A render
+ * that is already running is left to finish. Dragging a slider therefore renders the value in force when the previous render
+ * finished rather than every intermediate value.
+ * </p>
+ * <p>
+ * A change may also ask for a {@link StereogramPipeline#getPreview() preview}, which is rendered and handed over before the full
+ * stereogram. If a newer request arrives while the preview renders, the full render is superseded, so a slider that is being
+ * dragged only renders previews and the full stereogram is rendered once it stops.
+ * </p>
+ *
+ * @author erodri02
+ */
+public class AsyncStereogramPipeline implements AutoCloseable
+{
+   private static final Logger LOGGER = Logger.getLogger( AsyncStereogramPipeline.class.getName() );
+
+   private final StereogramPipeline pipeline;
+
+   private final ExecutorService ownedExecutor;
+
+   private final SerialExecutor serialExecutor;
+
+   private final AtomicLong latestRequest = new AtomicLong();
+
+   /**
+    * Initializes a new AsyncStereogramPipeline object that renders on its own background thread.
+    *
+    * @param pipeline the pipeline to evaluate.
+    */
+   public AsyncStereogramPipeline( final StereogramPipeline pipeline )
+   {
+      this( pipeline, Executors.newSingleThreadExecutor( runnable -> {
+         final Thread thread = new Thread( runnable, "stereogram-render" ); //$NON-NLS-1$
+         thread.setDaemon( true );
+         return thread;
+      } ), true );
+   }
+
+   /**
+    * Initializes a new AsyncStereogramPipeline object that renders on the given executor.
+    * <p>
+    * Tasks are submitted to the executor one at a time, so any executor may be used, including a shared pool.
+    * </p>
+    *
+    * @param pipeline the pipeline to evaluate.
+    * @param executor the executor on which to run changes and renders. Not shut down by {@link #close()}.
+    */
+   public AsyncStereogramPipeline( final StereogramPipeline pipeline, final Executor executor )
+   {
+      this( pipeline, executor, false );
+   }
+
+   private AsyncStereogramPipeline( final StereogramPipeline pipeline, final Executor executor, final boolean ownsExecutor )
+   {
+      this.pipeline = pipeline;
+      this.ownedExecutor = ownsExecutor ? (ExecutorService) executor : null;
+      this.serialExecutor = new SerialExecutor( executor );
+   }
+
+   /**
+    * Applies a change to the pipeline and renders the result in the background.
+    *
+    * @param change the change to apply to the pipeline, e.g. <code>p -&gt; p.setMaximumDepth( 30 )</code>. Runs on the background
+    *           executor.
+    * @return a future that completes with the rendered stereogram, or is cancelled if a newer request supersedes it before it
+    *         starts. Completes exceptionally if the change or render fails, or with a {@link RejectedExecutionException} once this
+    *         object has been {@link #close() closed}.
+    */
+   public CompletableFuture< BufferedImage > update( final Consumer< StereogramPipeline > change )
+   {
+      return update( change, null );
+   }
+
+   /**
+    * Applies a change to the pipeline, renders a preview of the result and then renders the result in full, in the background.
+    *
+    * @param change the change to apply to the pipeline, e.g. <code>p -&gt; p.setMaximumDepth( 30 )</code>. Runs on the background
+    *           executor.
+    * @param preview receives the preview on the background executor, before the full render starts. Not called if a newer request
+    *           supersedes this one before the preview starts. May be <code>null</code> for no preview.
+    * @return a future that completes with the rendered stereogram, or is cancelled if a newer request supersedes it before it
+    *         starts. Completes exceptionally if the change or render fails, or with a {@link RejectedExecutionException} once this
+    *         object has been {@link #close() closed}.
+    */
+   public CompletableFuture< BufferedImage > update( final Consumer< StereogramPipeline > change,
+                                                     final Consumer< BufferedImage > preview )
+   {
+      final long request = this.latestRequest.incrementAndGet();
+      final CompletableFuture< BufferedImage > future = new CompletableFuture<>();
+      this.serialExecutor.execute( () -> {
+         try
+         {
+            change.accept( this.pipeline );
+            if( ( preview != null ) && !isSuperseded( request, future ) )
+            {
+               preview.accept( this.pipeline.getPreview() );
+            }
+            if( isSuperseded( request, future ) )
+            {
+               // Superseded by a newer request, or cancelled by the caller, before the render started.
+               future.cancel( false );
+               return;
+            }
+            future.complete( this.pipeline.getOutput() );
+         }
+         catch( final Throwable throwable )
+         {
+            LOGGER.log( Level.SEVERE, throwable.getMessage(), throwable );
+            future.completeExceptionally( throwable );
+         }
+      }, future );
+      return future;
+   }
+
+   /**
+    * Renders the pipeline in the background without changing it.
+    *
+    * @return a future that completes with the rendered stereogram, or is cancelled if a newer request supersedes it before it
+    *         starts.
+    */
+   public CompletableFuture< BufferedImage > render()
+   {
+      return update( p -> {
+         // No change
+      } );
+   }
+
+   /**
+    * Runs a task on the pipeline in the background, after the changes and renders already requested, without superseding them,
+    * e.g. to read the stereogram of the latest change.
+    *
+    * @param task the task, which receives the pipeline. Runs on the background executor.
+    * @param <T> the type of the result of the task.
+    * @return a future that completes with the result of the task. Completes exceptionally if the task fails, or with a
+    *         {@link RejectedExecutionException} once this object has been {@link #close() closed}.
+    */
+   public < T > CompletableFuture< T > submit( final Function< StereogramPipeline, T > task )
+   {
+      final CompletableFuture< T > future = new CompletableFuture<>();
+      this.serialExecutor.execute( () -> {
+         try
+         {
+            future.complete( task.apply( this.pipeline ) );
+         }
+         catch( final Throwable throwable )
+         {
+            LOGGER.log( Level.SEVERE, throwable.getMessage(), throwable );
+            future.completeExceptionally( throwable );
+         }
+      }, future );
+      return future;
+   }
+
+   /**
+    * Recycles a stereogram or preview returned by this object, so that a later render can reuse its memory. May be called on any
+    * thread.
+    *
+    * @param image the image to recycle. The caller must no longer use it.
+    * @see StereogramPipeline#recycle(BufferedImage)
+    */
+   public void recycle( final BufferedImage image )
+   {
+      this.pipeline.recycle( image );
+   }
+
+   private boolean isSuperseded( final long request, final CompletableFuture< BufferedImage > future )
+   {
+      return ( request != this.latestRequest.get() ) || future.isDone();
+   }
+
+   /**
+    * Shuts down the background thread if this object created it. Changes and renders that are already running still finish. Those
+    * that are queued, and any requested later, complete exceptionally with a {@link RejectedExecutionException}.
+    */
+   @Override
+   public void close()
+   {
+      if( this.ownedExecutor != null )
+      {
+         this.ownedExecutor.shutdown();
+      }
+   }
+
+   /**
+    * Runs tasks one at a time, in submission order, on an underlying executor. If the executor rejects a task, e.g. because it has
+    * been shut down, the futures of that task and of every task queued after it are completed with the rejection.
+    */
+   private static final class SerialExecutor
+   {
+      private final Queue< Task > tasks = new ArrayDeque<>();
+
+      private final Executor executor;
+
+      private Task active;
+
+      private SerialExecutor( final Executor executor )
+      {
+         this.executor = executor;
+      }
+
+      private synchronized void execute( final Runnable task, final CompletableFuture< ? > future )
+      {
+         this.tasks.add( new Task( task, future ) );
+         if( this.active == null )
+         {
+            scheduleNext();
+         }
+      }
+
+      private synchronized void scheduleNext()
+      {
+         this.active = this.tasks.poll();
+         if( this.active != null )
+         {
+            try
+            {
+               this.executor.execute( this.active );
+            }
+            catch( final RejectedExecutionException exception )
+            {
+               this.active.future.completeExceptionally( exception );
+               for( final Task task : this.tasks )
+               {
+                  task.future.completeExceptionally( exception );
+               }
+               this.tasks.clear();
+               this.active = null;
+            }
+         }
+      }
+
+      /**
+       * A task and the future it completes, which schedules the next task once it has run.
+       */
+      private final class Task implements Runnable
+      {
+         private final Runnable task;
+
+         private final CompletableFuture< ? > future;
+
+         private Task( final Runnable task, final CompletableFuture< ? > future )
+         {
+            this.task = task;
+            this.future = future;
+         }
+
+         @Override
+         public void run()
+         {
+            try
+            {
+               this.task.run();
+            }
+            finally
+            {
+               scheduleNext();
+            }
+         }
+      }
+   }
+}
@@ -0,0 +1,547 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.pipeline;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.SampleModel;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+
+import uk.co.eduardo.stereogram.ImageUtilities;
+import uk.co.eduardo.stereogram.StreamSource;
+import uk.co.eduardo.stereogram.TextureResources;
+import uk.co.eduardo.stereogram.io.PngRowReader;
+import uk.co.eduardo.stereogram.map.HeightMap;
+import uk.co.eduardo.stereogram.map.MaximumDepthHeightMapTransformer;
+import uk.co.eduardo.stereogram.map.ScaleHeightMapTransformer;
+import uk.co.eduardo.stereogram.map.StereogramProcessor;
+import uk.co.eduardo.stereogram.map.StereogramRowSink;
+import uk.co.eduardo.stereogram.texture.ArrayTexture1DFactory;
+import uk.co.eduardo.stereogram.texture.IntArrayPool;
+import uk.co.eduardo.stereogram.texture.Texture1DFactory;
+import uk.co.eduardo.stereogram.texture.Texture2D;
+import uk.co.eduardo.stereogram.texture.TextureOffsetFactory;
+import uk.co.eduardo.stereogram.texture.ZeroTextureOffsetFactory;
+
+/**
+ * Renders stereograms that are too large to hold in memory, one horizontal band at a time.
+ * <p>
+ * Each row of a stereogram only depends on its own row of the height map, so the height map can be read, rescaled and rendered a
+ * band of rows at a time and each finished band passed on to a {@link StereogramRowSink}. Peak memory is proportional to the band
+ * height rather than the height of the image. The output is identical to that of a {@link StereogramPipeline} with the same
+ * settings.
+ * </p>
+ * <p>
+ * The height map is read twice: once to find its maximum value, which sets the scale for every band, and once to render. Each
+ * read decodes the image once, from top to bottom. PNGs are decoded a row at a time with a {@link PngRowReader}, so only the rows
+ * of the current band are held in memory. Formats that the image reader can read regions of without decoding the rows above them,
+ * such as tiled or stripped TIFF, are read a band at a time. Other formats, e.g. JPEG, have no way to stop part way through the
+ * image and come back, so they are decoded in full for each read, and memory is proportional to the size of the image.
+ * </p>
+ * <p>
+ * A renderer is not thread safe.
+ * </p>
+ *
+ * @author erodri02
+ */
+public class BandedStereogramRenderer
+{
+   /** The default number of rows in a band. */
+   public static final int DEFAULT_BAND_HEIGHT = 256;
+
+   private static final String PNG_FORMAT = "png"; //$NON-NLS-1$
+
+   private final Texture1DFactory texture1DFactory;
+
+   private final StereogramProcessor processor;
+
+   private final int bandHeight;
+
+   private int maxDepth = MaximumDepthHeightMapTransformer.DEFAULT_MAXIMUM_DEPTH;
+
+   private StreamSource textureSource = TextureResources.TEXTURE_1;
+
+   private int textureSize = 128;
+
+   private TextureOffsetFactory textureOffsetFactory = new ZeroTextureOffsetFactory();
+
+   private boolean invert = false;
+
+   /**
+    * Initializes a new BandedStereogramRenderer object that renders bands of {@value #DEFAULT_BAND_HEIGHT} rows on the calling
+    * thread.
+    */
+   public BandedStereogramRenderer()
+   {
+      this( new ArrayTexture1DFactory( new IntArrayPool( StereogramPipeline.DEFAULT_TEXTURE_POOL_SIZE ) ),
+            new StereogramProcessor(),
+            DEFAULT_BAND_HEIGHT );
+   }
+
+   /**
+    * Initializes a new BandedStereogramRenderer object.
+    *
+    * @param texture1DFactory the factory that creates the 1D texture for each row of the stereogram.
+    * @param processor the processor that renders each band.
+    * @param bandHeight the number of rows in a band.
+    */
+   public BandedStereogramRenderer( final Texture1DFactory texture1DFactory,
+                                    final StereogramProcessor processor,
+                                    final int bandHeight )
+   {
+      if( bandHeight < 1 )
+      {
+         throw new IllegalArgumentException( "bandHeight must be at least 1" ); //$NON-NLS-1$
+      }
+      this.texture1DFactory = texture1DFactory;
+      this.processor = processor;
+      this.bandHeight = bandHeight;
+   }
+
+   /**
+    * Sets the maximum apparent depth for the image.
+    *
+    * @param maxDepth the maximum apparent depth.
+    */
+   public void setMaximumDepth( final int maxDepth )
+   {
+      this.maxDepth = maxDepth;
+   }
+
+   /**
+    * Sets the resource of the texture.
+    *
+    * @param source the source of the texture.
+    */
+   public void setTextureSource( final StreamSource source )
+   {
+      this.textureSource = source;
+   }
+
+   /**
+    * Sets the size (width) of the texture in pixels.
+    *
+    * @param size the size (width) of the texture in pixels.
+    */
+   public void setTextureSize( final int size )
+   {
+      this.textureSize = size;
+   }
+
+   /**
+    * Sets the texture offset for texture correction.
+    *
+    * @param offsetFactory the texture offset factory.
+    */
+   public void setTextureOffsetFactory( final TextureOffsetFactory offsetFactory )
+   {
+      this.textureOffsetFactory = offsetFactory;
+   }
+
+   /**
+    * Sets whether to invert the depth.
+    *
+    * @param invert whether to invert the depth.
+    */
+   public void setInvertDepth( final boolean invert )
+   {
+      this.invert = invert;
+   }
+
+   /**
+    * Renders the stereogram for a height map, passing its rows to a sink from top to bottom.
+    * <p>
+    * The height map is padded in the same way as by {@link HeightMapPipelineElement}.
+    * </p>
+    *
+    * @param heightMapSource the source of the height map image.
+    * @param sink the sink that receives the rows of the stereogram.
+    * @throws IOException if the height map cannot be read or the sink fails.
+    */
+   public void render( final StreamSource heightMapSource, final StereogramRowSink sink ) throws IOException
+   {
+      final BufferedImage textureImage = ImageUtilities.load( this.textureSource, BufferedImage.TYPE_INT_ARGB, 0, 0, 0, 0 );
+      if( textureImage == null )
+      {
+         throw new IOException( "Cannot read texture " + this.textureSource ); //$NON-NLS-1$
+      }
+      final int[][] textureData = ImageUtilities.getRasterAsInts( ImageUtilities.resize( textureImage, this.textureSize ) );
+
+      // First pass: the scale depends on the maximum of the whole map.
+      final int width;
+      final int height;
+      int maximum = 0;
+      try( SourceRows source = openSourceRows( heightMapSource ) )
+      {
+         width = HeightMapPipelineElement.PADDING_LEFT + source.getWidth() + HeightMapPipelineElement.PADDING_RIGHT;
+         height = HeightMapPipelineElement.PADDING_TOP + source.getHeight() + HeightMapPipelineElement.PADDING_BOTTOM;
+         for( int bandStart = 0; bandStart < height; bandStart += this.bandHeight )
+         {
+            final int rows = Math.min( this.bandHeight, height - bandStart );
+            maximum = Math.max( maximum, readBand( source, bandStart, rows ).getMaximumValue() );
+         }
+      }
+      final ScaleHeightMapTransformer scaler = new ScaleHeightMapTransformer( this.maxDepth / (float) maximum );
+
+      // Second pass: rescale and render each band in turn.
+      try( SourceRows source = openSourceRows( heightMapSource ) )
+      {
+         sink.start( width, height );
+         HeightMap scaled = null;
+         for( int bandStart = 0; bandStart < height; bandStart += this.bandHeight )
+         {
+            final int rows = Math.min( this.bandHeight, height - bandStart );
+            scaled = scaler.transform( readBand( source, bandStart, rows ), scaled );
+            final Texture2D texture = new Texture2D( textureData, bandStart, rows, this.invert, this.texture1DFactory );
+            texture.setInitialOffsets( this.textureOffsetFactory.getOffsets( scaled, texture ) );
+            this.processor.process( scaled, texture, new BandSink( sink, bandStart ) );
+         }
+         sink.finish();
+      }
+   }
+
+   /**
+    * Reads a band of rows of the padded height map. Bands must be read in order, from the top.
+    */
+   private static HeightMap readBand( final SourceRows source, final int bandStart, final int rows ) throws IOException
+   {
+      final int width = HeightMapPipelineElement.PADDING_LEFT + source.getWidth() + HeightMapPipelineElement.PADDING_RIGHT;
+
+      // Blit into a greyscale image, as ImageUtilities.load does for the whole map, so the values are identical.
+      final BufferedImage band = new BufferedImage( width, rows, BufferedImage.TYPE_BYTE_GRAY );
+      final Graphics2D g2d = band.createGraphics();
+      g2d.setColor( Color.BLACK );
+      g2d.fillRect( 0, 0, width, rows );
+
+      final int sourceStart = Math.max( 0, bandStart - HeightMapPipelineElement.PADDING_TOP );
+      final int sourceEnd = Math.min( source.getHeight(), ( bandStart + rows ) - HeightMapPipelineElement.PADDING_TOP );
+      if( sourceStart < sourceEnd )
+      {
+         g2d.drawImage( source.read( sourceStart, sourceEnd ),
+                        HeightMapPipelineElement.PADDING_LEFT,
+                        ( sourceStart + HeightMapPipelineElement.PADDING_TOP ) - bandStart,
+                        null );
+      }
+      g2d.dispose();
+
+      return new HeightMap( ImageUtilities.getRasterAsShortArray( band ), width, rows );
+   }
+
+   /**
+    * Opens the height map image for one pass from top to bottom, choosing how to read it from its format.
+    */
+   private static SourceRows openSourceRows( final StreamSource source ) throws IOException
+   {
+      final InputStream stream = openStream( source );
+      ImageInputStream input = null;
+      ImageReader reader = null;
+      boolean keepOpen = false;
+      try
+      {
+         input = ImageIO.createImageInputStream( stream );
+         reader = getReader( input, source );
+         reader.setInput( input, false, true );
+         if( reader.isRandomAccessEasy( 0 ) )
+         {
+            keepOpen = true;
+            return new RegionSourceRows( stream, input, reader );
+         }
+
+         if( PNG_FORMAT.equalsIgnoreCase( reader.getFormatName() ) )
+         {
+            final SourceRows rows = PngSourceRows.open( source, reader.getImageTypes( 0 ).next() );
+            if( rows != null )
+            {
+               return rows;
+            }
+         }
+         return new DecodedSourceRows( reader.read( 0 ) );
+      }
+      finally
+      {
+         if( !keepOpen )
+         {
+            if( reader != null )
+            {
+               reader.dispose();
+            }
+            if( input != null )
+            {
+               input.close();
+            }
+            stream.close();
+         }
+      }
+   }
+
+   private static InputStream openStream( final StreamSource source ) throws IOException
+   {
+      final InputStream stream = source.getStream();
+      if( stream == null )
+      {
+         throw new IOException( "Cannot open height map " + source ); //$NON-NLS-1$
+      }
+      return stream;
+   }
+
+   private static ImageReader getReader( final ImageInputStream input, final StreamSource source ) throws IOException
+   {
+      final Iterator< ImageReader > readers = input == null ? null : ImageIO.getImageReaders( input );
+      if( ( readers == null ) || !readers.hasNext() )
+      {
+         throw new IOException( "Cannot read height map " + source ); //$NON-NLS-1$
+      }
+      return readers.next();
+   }
+
+   /**
+    * Reads the rows of the source image for one pass over the height map, from top to bottom.
+    */
+   private interface SourceRows extends Closeable
+   {
+      /**
+       * Gets the width of the source image.
+       */
+      int getWidth();
+
+      /**
+       * Gets the height of the source image.
+       */
+      int getHeight();
+
+      /**
+       * Reads a range of rows of the source image. Each range starts where the previous one ended, or at the first row.
+       *
+       * @param start the first row, inclusive.
+       * @param end the last row, exclusive.
+       * @return an image of the rows, which may be reused by the next read.
+       */
+      BufferedImage read( int start, int end ) throws IOException;
+   }
+
+   /**
+    * Reads each range of rows as a region, for formats that do not have to decode the rows above it again to do so.
+    */
+   private static final class RegionSourceRows implements SourceRows
+   {
+      private final InputStream stream;
+
+      private final ImageInputStream input;
+
+      private final ImageReader reader;
+
+      private final int width;
+
+      private final int height;
+
+      private RegionSourceRows( final InputStream stream, final ImageInputStream input, final ImageReader reader )
+         throws IOException
+      {
+         this.stream = stream;
+         this.input = input;
+         this.reader = reader;
+         this.width = reader.getWidth( 0 );
+         this.height = reader.getHeight( 0 );
+      }
+
+      @Override
+      public int getWidth()
+      {
+         return this.width;
+      }
+
+      @Override
+      public int getHeight()
+      {
+         return this.height;
+      }
+
+      @Override
+      public BufferedImage read( final int start, final int end ) throws IOException
+      {
+         final ImageReadParam param = this.reader.getDefaultReadParam();
+         param.setSourceRegion( new Rectangle( 0, start, this.width, end - start ) );
+         return this.reader.read( 0, param );
+      }
+
+      @Override
+      public void close() throws IOException
+      {
+         this.reader.dispose();
+         try
+         {
+            this.input.close();
+         }
+         finally
+         {
+            this.stream.close();
+         }
+      }
+   }
+
+   /**
+    * Decodes the rows of a PNG in order, a range at a time, into an image of the type the image reader would decode it into.
+    */
+   private static final class PngSourceRows implements SourceRows
+   {
+      private final PngRowReader reader;
+
+      private final ImageTypeSpecifier type;
+
+      private BufferedImage rows;
+
+      private PngSourceRows( final PngRowReader reader, final ImageTypeSpecifier type )
+      {
+         this.reader = reader;
+         this.type = type;
+      }
+
+      /**
+       * Opens a PNG to read row by row.
+       *
+       * @param source the source of the PNG.
+       * @param type the type of image into which the image reader decodes the PNG.
+       * @return the rows, or <code>null</code> if the samples stored in the PNG do not match the type, e.g. if it is interlaced or
+       *         the reader adds an alpha channel for a transparent colour.
+       */
+      private static SourceRows open( final StreamSource source, final ImageTypeSpecifier type ) throws IOException
+      {
+         final PngRowReader reader;
+         try
+         {
+            reader = new PngRowReader( openStream( source ) );
+         }
+         catch( final IOException exception )
+         {
+            return null;
+         }
+
+         final SampleModel model = type.getSampleModel();
+         boolean matches = model.getNumBands() == reader.getSamplesPerPixel();
+         for( int band = 0; matches && ( band < model.getNumBands() ); band++ )
+         {
+            matches = model.getSampleSize( band ) == reader.getBitDepth();
+         }
+         if( !matches )
+         {
+            reader.close();
+            return null;
+         }
+         return new PngSourceRows( reader, type );
+      }
+
+      @Override
+      public int getWidth()
+      {
+         return this.reader.getWidth();
+      }
+
+      @Override
+      public int getHeight()
+      {
+         return this.reader.getHeight();
+      }
+
+      @Override
+      public BufferedImage read( final int start, final int end ) throws IOException
+      {
+         final int count = end - start;
+         if( ( this.rows == null ) || ( this.rows.getHeight() < count ) )
+         {
+            this.rows = this.type.createBufferedImage( getWidth(), count );
+         }
+         this.reader.readRows( this.rows.getRaster(), count );
+         return count == this.rows.getHeight() ? this.rows : this.rows.getSubimage( 0, 0, getWidth(), count );
+      }
+
+      @Override
+      public void close() throws IOException
+      {
+         this.reader.close();
+      }
+   }
+
+   /**
+    * Reads the ranges of rows of an image that has been decoded in full.
+    */
+   private static final class DecodedSourceRows implements SourceRows
+   {
+      private final BufferedImage image;
+
+      private DecodedSourceRows( final BufferedImage image )
+      {
+         this.image = image;
+      }
+
+      @Override
+      public int getWidth()
+      {
+         return this.image.getWidth();
+      }
+
+      @Override
+      public int getHeight()
+      {
+         return this.image.getHeight();
+      }
+
+      @Override
+      public BufferedImage read( final int start, final int end )
+      {
+         return this.image.getSubimage( 0, start, getWidth(), end - start );
+      }
+
+      @Override
+      public void close()
+      {
+         // Nothing to release
+      }
+   }
+
+   /**
+    * Passes the rows of one band on to the sink for the whole stereogram.
+    */
+   private static final class BandSink implements StereogramRowSink
+   {
+      private final StereogramRowSink sink;
+
+      private final int bandStart;
+
+      private BandSink( final StereogramRowSink sink, final int bandStart )
+      {
+         this.sink = sink;
+         this.bandStart = bandStart;
+      }
+
+      @Override
+      public void start( final int width, final int height )
+      {
+         // The whole stereogram has already been started.
+      }
+
+      @Override
+      public void writeRow( final int y, final int[] pixels ) throws IOException
+      {
+         this.sink.writeRow( this.bandStart + y, pixels );
+      }
+
+      @Override
+      public void finish()
+      {
+         // The whole stereogram is finished after the last band.
+      }
+   }
+}
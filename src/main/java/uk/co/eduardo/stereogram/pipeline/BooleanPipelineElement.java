@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.pipeline;
+
+/**
+ * A pipeline element whose output is a <code>boolean</code>.
+ * <p>
+ * The output can be read with {@link #getBooleanOutput()} without boxing it. Elements that take a <code>Boolean</code> input read
+ * it through {@link AbstractPipelineElement#getBooleanOutput(PipelineElement)}, which uses this method when the input provides it.
+ * </p>
+ *
+ * @author erodri02
+ */
+public interface BooleanPipelineElement extends PipelineElement< Boolean >
+{
+   /**
+    * Gets the output value without boxing it. Recomputes if necessary.
+    *
+    * @return the output value.
+    */
+   boolean getBooleanOutput();
+}
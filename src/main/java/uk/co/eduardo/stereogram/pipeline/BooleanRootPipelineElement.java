@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.pipeline;
+
+/**
+ * A root element that holds a <code>boolean</code>.
+ * <p>
+ * Behaves as a {@link RootPipelineElement} of <code>Boolean</code>, but holds the value unboxed and can be read through
+ * {@link #getBooleanOutput()}.
+ * </p>
+ *
+ * @author erodri02
+ */
+public class BooleanRootPipelineElement extends AbstractPipelineElement< Boolean > implements BooleanPipelineElement
+{
+   private volatile boolean value;
+
+   /**
+    * Initializes a new BooleanRootPipelineElement object.
+    *
+    * @param value the constant value to output from this element
+    */
+   public BooleanRootPipelineElement( final boolean value )
+   {
+      this.value = value;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public boolean isValid()
+   {
+      return true;
+   }
+
+   /**
+    * {@inheritDoc}
+    * <p>
+    * The key of a root element is its value.
+    * </p>
+    */
+   @Override
+   public Object getKey()
+   {
+      return Boolean.valueOf( this.value );
+   }
+
+   /**
+    * Sets the value.
+    *
+    * @param value the new value.
+    */
+   public void setValue( final boolean value )
+   {
+      this.value = value;
+      newGeneration();
+      setDirty( true );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public boolean getBooleanOutput()
+   {
+      return this.value;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public Boolean getOutput()
+   {
+      return Boolean.valueOf( this.value );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public String toString()
+   {
+      return Boolean.toString( this.value );
+   }
+}
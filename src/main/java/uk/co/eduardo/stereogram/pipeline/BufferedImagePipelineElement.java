@@ -6,6 +6,7 @@ package uk.co.eduardo.stereogram.pipeline;
 
 import java.awt.image.BufferedImage;
 
+import uk.co.eduardo.stereogram.ImagePool;
 import uk.co.eduardo.stereogram.map.HeightMap;
 
 /**
@@ -15,6 +16,26 @@ import uk.co.eduardo.stereogram.map.HeightMap;
  */
 public class BufferedImagePipelineElement extends AbstractUnaryPipelineElement< HeightMap, BufferedImage >
 {
+   private final ImagePool pool;
+
+   /**
+    * Initializes a new BufferedImagePipelineElement object that allocates a new image every time.
+    */
+   public BufferedImagePipelineElement()
+   {
+      this( new ImagePool( 0 ) );
+   }
+
+   /**
+    * Initializes a new BufferedImagePipelineElement object that takes its images from a pool.
+    *
+    * @param pool the pool of images.
+    */
+   public BufferedImagePipelineElement( final ImagePool pool )
+   {
+      this.pool = pool;
+   }
+
    /**
     * {@inheritDoc}
     */
@@ -22,6 +43,6 @@ public class BufferedImagePipelineElement extends AbstractUnaryPipelineElement<
    protected BufferedImage internalComputeOutput( final PipelineElement< HeightMap > input )
    {
       final HeightMap map = input.getOutput();
-      return new BufferedImage( map.getWidth(), map.getHeight(), BufferedImage.TYPE_INT_ARGB );
+      return this.pool.take( map.getWidth(), map.getHeight(), BufferedImage.TYPE_INT_ARGB );
    }
 }
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.pipeline;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the time taken and the memory allocated by the computation of pipeline elements.
+ * <p>
+ * An element computes its inputs from within its own computation, so measurements are kept on a per-thread stack and the time
+ * and memory of nested computations are subtracted from the enclosing one. Each element is charged only for its own work.
+ * </p>
+ * <p>
+ * Allocated memory is read from the JVM's per-thread allocation counter where it is supported. Memory allocated by other
+ * threads, e.g. by a parallel {@link uk.co.eduardo.stereogram.map.StereogramProcessor}, is not counted.
+ * </p>
+ *
+ * @author erodri02
+ */
+final class ComputeTimer
+{
+   private static final ThreadLocal< ComputeTimer > CURRENT = new ThreadLocal<>();
+
+   private static final com.sun.management.ThreadMXBean THREADS = getAllocationCounter();
+
+   private final ComputeTimer parent;
+
+   private final long startNanos;
+
+   private final long startBytes;
+
+   private long nestedNanos;
+
+   private long nestedBytes;
+
+   private ComputeTimer( final ComputeTimer parent )
+   {
+      this.parent = parent;
+      this.startBytes = getAllocatedBytes();
+      this.startNanos = System.nanoTime();
+   }
+
+   /**
+    * Starts measuring a computation on the current thread.
+    *
+    * @return the timer to stop once the computation is complete.
+    */
+   static ComputeTimer start()
+   {
+      final ComputeTimer timer = new ComputeTimer( CURRENT.get() );
+      CURRENT.set( timer );
+      return timer;
+   }
+
+   /**
+    * Checks whether allocated memory can be measured.
+    *
+    * @return whether allocated memory is measured.
+    */
+   static boolean isAllocationMeasured()
+   {
+      return THREADS != null;
+   }
+
+   /**
+    * Stops measuring the computation and records its time and allocation, less those of nested computations, with an element.
+    *
+    * @param element the element that was computed.
+    */
+   void stop( final AbstractPipelineElement< ? > element )
+   {
+      final long nanos = System.nanoTime() - this.startNanos;
+      final long bytes = isAllocationMeasured() ? getAllocatedBytes() - this.startBytes : 0;
+
+      CURRENT.set( this.parent );
+      if( this.parent != null )
+      {
+         this.parent.nestedNanos += nanos;
+         this.parent.nestedBytes += bytes;
+      }
+      element.recordCompute( nanos - this.nestedNanos, bytes - this.nestedBytes );
+   }
+
+   private static long getAllocatedBytes()
+   {
+      return THREADS == null ? 0 : THREADS.getThreadAllocatedBytes( Thread.currentThread().getId() );
+   }
+
+   private static com.sun.management.ThreadMXBean getAllocationCounter()
+   {
+      try
+      {
+         final java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+         if( threads instanceof com.sun.management.ThreadMXBean )
+         {
+            final com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threads;
+            if( counter.isThreadAllocatedMemorySupported() && counter.isThreadAllocatedMemoryEnabled() )
+            {
+               return counter;
+            }
+         }
+      }
+      catch( final LinkageError | SecurityException exception )
+      {
+         // Not a HotSpot JVM, or not allowed to read the counters. Allocation is not measured.
+      }
+      return null;
+   }
+}
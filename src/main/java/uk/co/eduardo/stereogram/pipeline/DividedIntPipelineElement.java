@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.pipeline;
+
+/**
+ * Divides one <code>int</code> by another, rounding to the nearest whole number but never below 1. E.g. to scale a size down to
+ * preview resolution.
+ *
+ * @author erodri02
+ */
+public class DividedIntPipelineElement extends AbstractBinaryPipelineElement< Integer, Integer, Integer > implements IntPipelineElement
+{
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public int getIntOutput()
+   {
+      return getOutput().intValue();
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   protected Integer internalComputeOutput( final PipelineElement< Integer > firstInput, final PipelineElement< Integer > secondInput )
+   {
+      final int quotient = Math.round( getIntOutput( firstInput ) / (float) getIntOutput( secondInput ) );
+      return Integer.valueOf( Math.max( 1, quotient ) );
+   }
+}
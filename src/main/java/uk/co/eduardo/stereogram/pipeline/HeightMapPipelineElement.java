@@ -5,26 +5,151 @@
 package uk.co.eduardo.stereogram.pipeline;
 
 import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import uk.co.eduardo.stereogram.ImageUtilities;
+import uk.co.eduardo.stereogram.PathStreamSource;
 import uk.co.eduardo.stereogram.StreamSource;
+import uk.co.eduardo.stereogram.io.RawHeightMapFormat;
 import uk.co.eduardo.stereogram.map.HeightMap;
 
 /**
  * Pipeline element that recomputes a depth map from a resource.
+ * <p>
+ * Images are decoded and padded. A file in the {@link RawHeightMapFormat raw height map format} is assumed to be padded already
+ * and is memory-mapped instead.
+ * </p>
  *
  * @author erodri02
  */
 public class HeightMapPipelineElement extends AbstractUnaryPipelineElement< StreamSource, HeightMap >
 {
+   private static final Logger LOGGER = Logger.getLogger( HeightMapPipelineElement.class.getName() );
+
+   /** The number of blank columns added to the left of the source image. */
+   public static final int PADDING_LEFT = 159;
+
+   /** The number of blank columns added to the right of the source image. */
+   public static final int PADDING_RIGHT = 159;
+
+   /** The number of blank rows added above the source image. */
+   public static final int PADDING_TOP = 40;
+
+   /** The number of blank rows added below the source image. */
+   public static final int PADDING_BOTTOM = 40;
+
+   /** Identifies the edited state of the current map, or <code>null</code> if it has not been edited since it was loaded. */
+   private volatile Object editKey = null;
+
    /**
     * {@inheritDoc}
     */
    @Override
    protected HeightMap internalComputeOutput( final PipelineElement< StreamSource > input )
    {
-      final BufferedImage image = ImageUtilities.load( input.getOutput(), BufferedImage.TYPE_BYTE_GRAY, 159, 159, 40, 40 );
-      final short[][] map = ImageUtilities.getRasterAsShorts( image );
-      return new HeightMap( map );
+      this.editKey = null;
+      return load( input.getOutput(), true );
+   }
+
+   /**
+    * {@inheritDoc}
+    * <p>
+    * Once the map has been edited its key also identifies the edit, as the map no longer matches its source.
+    * </p>
+    */
+   @Override
+   public Object getKey()
+   {
+      final Object edit = this.editKey;
+      return edit == null ? super.getKey() : Arrays.asList( super.getKey(), edit );
+   }
+
+   /**
+    * Loads a height map from a source, as this element does.
+    * <p>
+    * Images are decoded and padded. A file in the {@link RawHeightMapFormat raw height map format} is assumed to be padded already
+    * and is memory-mapped instead.
+    * </p>
+    *
+    * @param source the source of the height map.
+    * @param cache whether to keep the decoded image in the {@link ImageUtilities#getCache() image cache}. Not worth it for maps that
+    *           are only used once.
+    * @return the height map or <code>null</code> if it could not be read.
+    */
+   public static HeightMap load( final StreamSource source, final boolean cache )
+   {
+      if( ( source instanceof PathStreamSource ) && RawHeightMapFormat.isRawHeightMap( ( (PathStreamSource) source ).getPath() ) )
+      {
+         // Already padded. Mapped rather than decoded.
+         try
+         {
+            return RawHeightMapFormat.read( ( (PathStreamSource) source ).getPath() );
+         }
+         catch( final IOException exception )
+         {
+            LOGGER.log( Level.SEVERE, exception.getMessage(), exception );
+            return null;
+         }
+      }
+
+      final BufferedImage image = cache ? ImageUtilities.load( source,
+                                                              BufferedImage.TYPE_BYTE_GRAY,
+                                                              PADDING_LEFT,
+                                                              PADDING_RIGHT,
+                                                              PADDING_TOP,
+                                                              PADDING_BOTTOM )
+                                        : ImageUtilities.loadUncached( source,
+                                                                       BufferedImage.TYPE_BYTE_GRAY,
+                                                                       PADDING_LEFT,
+                                                                       PADDING_RIGHT,
+                                                                       PADDING_TOP,
+                                                                       PADDING_BOTTOM );
+      if( image == null )
+      {
+         return null;
+      }
+      final short[] map = ImageUtilities.getRasterAsShortArray( image );
+      return new HeightMap( map, image.getWidth(), image.getHeight() );
+   }
+
+   /**
+    * Overwrites a rectangular region of the height map.
+    * <p>
+    * The edit is made to a copy of the current output, loading it first if necessary, which then replaces the output. Only the
+    * edited rows are copied; the copy shares the others with the current output. A map that has already been returned, and may
+    * still be being rendered from, is never modified. The edit is lost when the source changes.
+    * Elements downstream are only invalidated if the maximum value of the map changes. Otherwise it is up to the caller to update
+    * the edited rows downstream, starting with the elements that still hold the previous map.
+    * </p>
+    *
+    * @param x the x position of the left of the region.
+    * @param y the y position of the top of the region.
+    * @param width the width of the region.
+    * @param height the height of the region.
+    * @param values the new values of the region, row by row.
+    * @return whether the elements downstream were invalidated.
+    */
+   public boolean edit( final int x, final int y, final int width, final int height, final short[] values )
+   {
+      final boolean[] invalidate = new boolean[ 1 ];
+      do
+      {
+         getOutput();
+      }
+      while( !updateCachedOutput( map -> {
+         final HeightMap edited = map.withValues( x, y, width, height, values );
+         invalidate[ 0 ] = edited.getMaximumValue() != map.getMaximumValue();
+         this.editKey = new Object();
+         return edited;
+      } ) );
+
+      if( invalidate[ 0 ] )
+      {
+         notifyListeners();
+      }
+      return invalidate[ 0 ];
    }
 }
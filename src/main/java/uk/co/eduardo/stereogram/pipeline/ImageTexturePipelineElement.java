@@ -6,6 +6,7 @@ package uk.co.eduardo.stereogram.pipeline;
 
 import java.awt.image.BufferedImage;
 
+import uk.co.eduardo.stereogram.ImageCache;
 import uk.co.eduardo.stereogram.ImageUtilities;
 import uk.co.eduardo.stereogram.StreamSource;
 
@@ -24,8 +25,17 @@ public class ImageTexturePipelineElement extends AbstractBinaryPipelineElement<
                                                   final PipelineElement< Integer > secondInput )
    {
       final BufferedImage image = ImageUtilities.load( firstInput.getOutput(), BufferedImage.TYPE_INT_ARGB, 0, 0, 0, 0 );
-      final BufferedImage resized = ImageUtilities.resize( image, secondInput.getOutput() );
+      final BufferedImage resized = ImageUtilities.resize( image, getIntOutput( secondInput ) );
 
       return resized;
    }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   protected long getOutputWeight( final BufferedImage output )
+   {
+      return ImageCache.getWeight( output );
+   }
 }
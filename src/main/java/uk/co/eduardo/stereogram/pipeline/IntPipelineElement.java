@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.pipeline;
+
+/**
+ * A pipeline element whose output is an <code>int</code>.
+ * <p>
+ * The output can be read with {@link #getIntOutput()} without boxing it. Elements that take an <code>Integer</code> input read it
+ * through {@link AbstractPipelineElement#getIntOutput(PipelineElement)}, which uses this method when the input provides it.
+ * </p>
+ *
+ * @author erodri02
+ */
+public interface IntPipelineElement extends PipelineElement< Integer >
+{
+   /**
+    * Gets the output value without boxing it. Recomputes if necessary.
+    *
+    * @return the output value.
+    */
+   int getIntOutput();
+}
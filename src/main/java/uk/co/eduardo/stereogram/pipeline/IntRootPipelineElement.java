@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.pipeline;
+
+/**
+ * A root element that holds an <code>int</code>.
+ * <p>
+ * Behaves as a {@link RootPipelineElement} of <code>Integer</code>, but holds the value unboxed so that setting and reading it
+ * through {@link #getIntOutput()} never allocates.
+ * </p>
+ *
+ * @author erodri02
+ */
+public class IntRootPipelineElement extends AbstractPipelineElement< Integer > implements IntPipelineElement
+{
+   private volatile int value;
+
+   /**
+    * Initializes a new IntRootPipelineElement object.
+    *
+    * @param value the constant value to output from this element
+    */
+   public IntRootPipelineElement( final int value )
+   {
+      this.value = value;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public boolean isValid()
+   {
+      return true;
+   }
+
+   /**
+    * {@inheritDoc}
+    * <p>
+    * The key of a root element is its value.
+    * </p>
+    */
+   @Override
+   public Object getKey()
+   {
+      return Integer.valueOf( this.value );
+   }
+
+   /**
+    * Sets the value.
+    *
+    * @param value the new value.
+    */
+   public void setValue( final int value )
+   {
+      this.value = value;
+      newGeneration();
+      setDirty( true );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public int getIntOutput()
+   {
+      return this.value;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public Integer getOutput()
+   {
+      return Integer.valueOf( this.value );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public String toString()
+   {
+      return Integer.toString( this.value );
+   }
+}
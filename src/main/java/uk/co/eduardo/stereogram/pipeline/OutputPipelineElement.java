@@ -5,18 +5,92 @@
 package uk.co.eduardo.stereogram.pipeline;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 
+import uk.co.eduardo.stereogram.ImageCache;
+import uk.co.eduardo.stereogram.ImagePool;
 import uk.co.eduardo.stereogram.map.HeightMap;
 import uk.co.eduardo.stereogram.map.StereogramProcessor;
 import uk.co.eduardo.stereogram.texture.Texture2D;
 
 /**
  * Generates the final output.
+ * <p>
+ * An image is never modified once it has been returned, unless it has been {@link #recycle(BufferedImage) recycled} since. The
+ * image supplied by the third input is rendered into once; every later render, until the input supplies a new image, renders into
+ * a new image of the same size and type. New images are taken from a pool, to which images that are no longer used can be
+ * recycled. If the output itself has been recycled since it was last returned, nobody is using it and the next render reuses it
+ * directly.
+ * </p>
  *
  * @author erodri02
  */
 public class OutputPipelineElement extends AbstractTernaryPipelineElement< HeightMap, Texture2D, BufferedImage, BufferedImage >
 {
+   private final StereogramProcessor processor;
+
+   private final ImagePool pool;
+
+   /** The last image from the third input that was rendered into and returned. Guarded by the compute lock. */
+   private BufferedImage publishedInputImage;
+
+   /**
+    * Guards handing out the output against rendering into it in place. Taken before the compute lock, never after it.
+    */
+   private final Object handOutLock = new Object();
+
+   /** The cached output if it has been recycled since it was last returned, otherwise <code>null</code>. Guarded by the lock. */
+   private BufferedImage reusableOutput;
+
+   /**
+    * Initializes a new OutputPipelineElement object that renders on the calling thread.
+    */
+   public OutputPipelineElement()
+   {
+      this( new StereogramProcessor() );
+   }
+
+   /**
+    * Initializes a new OutputPipelineElement object.
+    *
+    * @param processor the processor that renders the stereogram.
+    */
+   public OutputPipelineElement( final StereogramProcessor processor )
+   {
+      this( processor, new ImagePool( 0 ) );
+   }
+
+   /**
+    * Initializes a new OutputPipelineElement object that takes new images from a pool.
+    *
+    * @param processor the processor that renders the stereogram.
+    * @param pool the pool of images.
+    */
+   public OutputPipelineElement( final StereogramProcessor processor, final ImagePool pool )
+   {
+      this.processor = processor;
+      this.pool = pool;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public BufferedImage getOutput()
+   {
+      synchronized( this.handOutLock )
+      {
+         final BufferedImage output = super.getOutput();
+         if( ( this.reusableOutput != null ) && ( this.reusableOutput != output ) )
+         {
+            // Replaced, e.g. by an output from the result cache, without being reused.
+            this.pool.release( this.reusableOutput );
+         }
+         this.reusableOutput = null;
+         return output;
+      }
+   }
+
    /**
     * {@inheritDoc}
     */
@@ -27,9 +101,110 @@ public class OutputPipelineElement extends AbstractTernaryPipelineElement< Heigh
    {
       final HeightMap map = firstInput.getOutput();
       final Texture2D texture = secondInput.getOutput();
-      final BufferedImage image = thirdInput.getOutput();
+      final BufferedImage inputImage = thirdInput.getOutput();
+
+      final BufferedImage image;
+      if( ( inputImage == this.publishedInputImage ) && isReusable( this.reusableOutput, inputImage ) )
+      {
+         // The previous output, which nobody is using any more.
+         image = this.reusableOutput;
+         this.reusableOutput = null;
+      }
+      else if( inputImage == this.publishedInputImage )
+      {
+         // Already handed out. Somebody may still be using it.
+         image = this.pool.take( inputImage.getWidth(), inputImage.getHeight(), inputImage.getType() );
+      }
+      else
+      {
+         image = inputImage;
+         this.publishedInputImage = inputImage;
+      }
 
-      new StereogramProcessor().process( map, texture, image );
+      this.processor.process( map, texture, image );
       return image;
    }
+
+   /**
+    * Re-renders a range of rows of the cached output, e.g. after the rows of the height map have been edited.
+    * <p>
+    * If the cached output has been recycled since it was last returned the rows are rendered into it in place. Otherwise they are
+    * rendered into a copy, which is then cached in its place, so an image that somebody may still be using is never modified.
+    * </p>
+    *
+    * @param map the height map.
+    * @param texture the texture.
+    * @param startRow the first row, inclusive.
+    * @param endRow the last row, exclusive.
+    * @return whether the rows were rendered. <code>false</code> if the output is out of date and so will be recomputed anyway.
+    */
+   public boolean renderRows( final HeightMap map, final Texture2D texture, final int startRow, final int endRow )
+   {
+      synchronized( this.handOutLock )
+      {
+         return updateCachedOutput( previous -> {
+            final BufferedImage image;
+            if( previous == this.reusableOutput )
+            {
+               // Still not handed out after rendering, so it stays reusable.
+               image = previous;
+            }
+            else
+            {
+               image = this.pool.take( previous.getWidth(), previous.getHeight(), previous.getType() );
+               final int[] source = ( (DataBufferInt) previous.getRaster().getDataBuffer() ).getData();
+               final int[] destination = ( (DataBufferInt) image.getRaster().getDataBuffer() ).getData();
+               System.arraycopy( source, 0, destination, 0, destination.length );
+            }
+
+            this.processor.process( map, texture, image, startRow, endRow );
+            return image;
+         } );
+      }
+   }
+
+   /**
+    * Returns an image that was output by this element to the pool, so a later render can reuse its memory.
+    * <p>
+    * The caller must no longer use the image, nor share it with anybody who does. The cached output is not returned to the pool,
+    * as it may still be returned by {@link #getOutput()}, even once it is out of date if its inputs turn out not to have changed.
+    * Instead, until it is returned again, later renders reuse it in place. Recycling is not counted in the
+    * {@link #getStatistics() statistics}.
+    * </p>
+    *
+    * @param image the image to recycle.
+    */
+   public void recycle( final BufferedImage image )
+   {
+      synchronized( this.handOutLock )
+      {
+         withCachedOutput( current -> {
+            if( current == image )
+            {
+               this.reusableOutput = image;
+            }
+            else
+            {
+               this.pool.release( image );
+            }
+         } );
+      }
+   }
+
+   private static boolean isReusable( final BufferedImage output, final BufferedImage inputImage )
+   {
+      return ( output != null ) &&
+             ( output.getWidth() == inputImage.getWidth() ) &&
+             ( output.getHeight() == inputImage.getHeight() ) &&
+             ( output.getType() == inputImage.getType() );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   protected long getOutputWeight( final BufferedImage output )
+   {
+      return ImageCache.getWeight( output );
+   }
 }
@@ -27,6 +27,22 @@ public interface PipelineElement< T >
     */
    T getOutput();
 
+   /**
+    * Gets the generation of the output, recomputing the output first if necessary. The generation changes whenever the output
+    * changes and is never reused, by this or any other element. Two equal generations therefore mean the same output.
+    *
+    * @return the generation of the current output.
+    */
+   long getGeneration();
+
+   /**
+    * Gets a key that identifies the output by the parameters it is computed from, e.g. to memoize it in a {@link ResultCache}.
+    * Outputs of the same element that have equal keys are equal. Does not recompute the output.
+    *
+    * @return the key of the output.
+    */
+   Object getKey();
+
    /**
     * Adds a listener that is notified when this element becomes invalid.
     *
@@ -48,6 +64,13 @@ public interface PipelineElement< T >
     */
    String getName();
 
+   /**
+    * Gets a snapshot of the statistics of the pipeline element, e.g. how often and for how long it has been recomputed.
+    *
+    * @return the statistics.
+    */
+   PipelineElementStatistics getStatistics();
+
    /**
     * Receives notifications when an input becomes invalid.
     *
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.pipeline;
+
+/**
+ * Exposes the statistics of a pipeline element over JMX.
+ *
+ * @author erodri02
+ * @see StereogramPipeline#registerMBeans(javax.management.MBeanServer, String)
+ */
+public interface PipelineElementMXBean
+{
+   /**
+    * Gets the name of the pipeline element.
+    *
+    * @return the name of the element.
+    */
+   String getName();
+
+   /**
+    * Gets the number of times the output has been computed or updated.
+    *
+    * @return the recompute count.
+    */
+   long getRecomputeCount();
+
+   /**
+    * Gets the number of times the cached output was returned without being recomputed.
+    *
+    * @return the cache hit count.
+    */
+   long getHitCount();
+
+   /**
+    * Gets the total time spent computing the output.
+    *
+    * @return the cumulative compute time in nanoseconds.
+    */
+   long getTotalComputeNanos();
+
+   /**
+    * Gets the time spent by the most recent computation of the output.
+    *
+    * @return the last compute time in nanoseconds.
+    */
+   long getLastComputeNanos();
+
+   /**
+    * Gets the total number of bytes allocated on the computing thread while computing the output.
+    *
+    * @return the cumulative allocation in bytes, or -1 if allocation is not measured.
+    */
+   long getTotalAllocatedBytes();
+
+   /**
+    * Gets the number of bytes allocated on the computing thread by the most recent computation of the output.
+    *
+    * @return the last allocation in bytes, or -1 if allocation is not measured.
+    */
+   long getLastAllocatedBytes();
+
+   /**
+    * Resets the statistics of the pipeline element.
+    */
+   void resetStatistics();
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.pipeline;
+
+/**
+ * A snapshot of the statistics of a pipeline element.
+ * <p>
+ * Compute times and allocations are exclusive: the time an element spends waiting for its inputs to be recomputed, and the memory
+ * they allocate, are charged to the inputs.
+ * </p>
+ *
+ * @author erodri02
+ */
+public final class PipelineElementStatistics
+{
+   private final String name;
+
+   private final long recomputeCount;
+
+   private final long hitCount;
+
+   private final long totalComputeNanos;
+
+   private final long lastComputeNanos;
+
+   private final long totalAllocatedBytes;
+
+   private final long lastAllocatedBytes;
+
+   PipelineElementStatistics( final String name,
+                              final long recomputeCount,
+                              final long hitCount,
+                              final long totalComputeNanos,
+                              final long lastComputeNanos,
+                              final long totalAllocatedBytes,
+                              final long lastAllocatedBytes )
+   {
+      this.name = name;
+      this.recomputeCount = recomputeCount;
+      this.hitCount = hitCount;
+      this.totalComputeNanos = totalComputeNanos;
+      this.lastComputeNanos = lastComputeNanos;
+      this.totalAllocatedBytes = totalAllocatedBytes;
+      this.lastAllocatedBytes = lastAllocatedBytes;
+   }
+
+   /**
+    * Gets the name of the pipeline element.
+    *
+    * @return the name of the element.
+    */
+   public String getName()
+   {
+      return this.name;
+   }
+
+   /**
+    * Gets the number of times the output has been computed or updated.
+    *
+    * @return the recompute count.
+    */
+   public long getRecomputeCount()
+   {
+      return this.recomputeCount;
+   }
+
+   /**
+    * Gets the number of times the cached output was returned without being recomputed.
+    *
+    * @return the cache hit count.
+    */
+   public long getHitCount()
+   {
+      return this.hitCount;
+   }
+
+   /**
+    * Gets the total time spent computing the output.
+    *
+    * @return the cumulative compute time in nanoseconds.
+    */
+   public long getTotalComputeNanos()
+   {
+      return this.totalComputeNanos;
+   }
+
+   /**
+    * Gets the time spent by the most recent computation of the output.
+    *
+    * @return the last compute time in nanoseconds, or 0 if the output has never been computed.
+    */
+   public long getLastComputeNanos()
+   {
+      return this.lastComputeNanos;
+   }
+
+   /**
+    * Gets the total number of bytes allocated on the computing thread while computing the output.
+    *
+    * @return the cumulative allocation in bytes, or -1 if allocation is not measured by this JVM.
+    */
+   public long getTotalAllocatedBytes()
+   {
+      return this.totalAllocatedBytes;
+   }
+
+   /**
+    * Gets the number of bytes allocated on the computing thread by the most recent computation of the output.
+    *
+    * @return the last allocation in bytes, or -1 if allocation is not measured by this JVM.
+    */
+   public long getLastAllocatedBytes()
+   {
+      return this.lastAllocatedBytes;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @SuppressWarnings( "nls" )
+   @Override
+   public String toString()
+   {
+      return String.format( "%s: recomputes=%d hits=%d time=%.3f ms (last %.3f ms) allocated=%d bytes (last %d bytes)",
+                            this.name,
+                            this.recomputeCount,
+                            this.hitCount,
+                            this.totalComputeNanos / 1e6,
+                            this.lastComputeNanos / 1e6,
+                            this.totalAllocatedBytes,
+                            this.lastAllocatedBytes );
+   }
+}
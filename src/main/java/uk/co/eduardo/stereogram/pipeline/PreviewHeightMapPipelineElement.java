@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.pipeline;
+
+import uk.co.eduardo.stereogram.map.DownsampleHeightMapTransformer;
+import uk.co.eduardo.stereogram.map.HeightMap;
+import uk.co.eduardo.stereogram.map.ScaleHeightMapTransformer;
+
+/**
+ * Reduces a height map to preview resolution and rescales it to the maximum depth of the preview.
+ * <p>
+ * Separations shrink with the resolution, so the maximum depth is divided by the same factor as the width and height. The depth
+ * is scaled against the maximum value of the full resolution map, as in {@link RescaledHeightMapPipelineElement}, so that the
+ * preview has the same relative depths as the full stereogram.
+ * </p>
+ *
+ * @author erodri02
+ */
+public class PreviewHeightMapPipelineElement extends AbstractTernaryPipelineElement< HeightMap, Integer, Integer, HeightMap >
+{
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   protected HeightMap internalComputeOutput( final PipelineElement< HeightMap > firstInput,
+                                              final PipelineElement< Integer > secondInput,
+                                              final PipelineElement< Integer > thirdInput )
+   {
+      final HeightMap source = firstInput.getOutput();
+      final int factor = getIntOutput( thirdInput );
+      final float scale = getIntOutput( secondInput ) / ( (float) source.getMaximumValue() * factor );
+
+      final HeightMap downsampled = new DownsampleHeightMapTransformer( factor ).transform( source );
+      return new ScaleHeightMapTransformer( scale ).transform( downsampled );
+   }
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.pipeline;
+
+import java.util.Objects;
+
+import uk.co.eduardo.stereogram.StreamSource;
+import uk.co.eduardo.stereogram.map.MaximumDepthHeightMapTransformer;
+import uk.co.eduardo.stereogram.texture.TextureOffsetFactory;
+import uk.co.eduardo.stereogram.texture.ZeroTextureOffsetFactory;
+
+/**
+ * The parameters of a single stereogram, for rendering with a {@link StereogramRenderer}.
+ * <p>
+ * Requests are immutable and so may be shared between threads. Each <code>with</code> method returns a copy of the request with
+ * one parameter changed. Requests with equal parameters are equal, so they can be used as cache keys.
+ * </p>
+ *
+ * @author erodri02
+ */
+public final class RenderRequest
+{
+   /** The texture size of a new request. */
+   public static final int DEFAULT_TEXTURE_SIZE = 128;
+
+   private static final TextureOffsetFactory DEFAULT_TEXTURE_OFFSET_FACTORY = new ZeroTextureOffsetFactory();
+
+   private final StreamSource heightMapSource;
+
+   private final StreamSource textureSource;
+
+   private final int maximumDepth;
+
+   private final int textureSize;
+
+   private final boolean invertDepth;
+
+   private final TextureOffsetFactory textureOffsetFactory;
+
+   /**
+    * Initializes a new RenderRequest object with a maximum depth of
+    * {@value MaximumDepthHeightMapTransformer#DEFAULT_MAXIMUM_DEPTH}, a texture size of {@value #DEFAULT_TEXTURE_SIZE}, the depth
+    * not inverted and no texture offsets.
+    *
+    * @param heightMapSource the source of the height map.
+    * @param textureSource the source of the texture.
+    */
+   public RenderRequest( final StreamSource heightMapSource, final StreamSource textureSource )
+   {
+      this( heightMapSource,
+            textureSource,
+            MaximumDepthHeightMapTransformer.DEFAULT_MAXIMUM_DEPTH,
+            DEFAULT_TEXTURE_SIZE,
+            false,
+            DEFAULT_TEXTURE_OFFSET_FACTORY );
+   }
+
+   /**
+    * Initializes a new RenderRequest object.
+    *
+    * @param heightMapSource the source of the height map.
+    * @param textureSource the source of the texture.
+    * @param maximumDepth the maximum depth.
+    * @param textureSize the texture size in pixels.
+    * @param invertDepth whether to invert the depth.
+    * @param textureOffsetFactory the factory that creates the initial texture offsets.
+    */
+   @SuppressWarnings( "nls" )
+   public RenderRequest( final StreamSource heightMapSource,
+                         final StreamSource textureSource,
+                         final int maximumDepth,
+                         final int textureSize,
+                         final boolean invertDepth,
+                         final TextureOffsetFactory textureOffsetFactory )
+   {
+      if( maximumDepth < 0 )
+      {
+         throw new IllegalArgumentException( "maximumDepth must not be negative" );
+      }
+      if( textureSize < 1 )
+      {
+         throw new IllegalArgumentException( "textureSize must be at least 1" );
+      }
+      this.heightMapSource = Objects.requireNonNull( heightMapSource, "heightMapSource" );
+      this.textureSource = Objects.requireNonNull( textureSource, "textureSource" );
+      this.maximumDepth = maximumDepth;
+      this.textureSize = textureSize;
+      this.invertDepth = invertDepth;
+      this.textureOffsetFactory = Objects.requireNonNull( textureOffsetFactory, "textureOffsetFactory" );
+   }
+
+   /**
+    * Gets the source of the height map.
+    *
+    * @return the height map source.
+    */
+   public StreamSource getHeightMapSource()
+   {
+      return this.heightMapSource;
+   }
+
+   /**
+    * Gets the source of the texture.
+    *
+    * @return the texture source.
+    */
+   public StreamSource getTextureSource()
+   {
+      return this.textureSource;
+   }
+
+   /**
+    * Gets the maximum depth.
+    *
+    * @return the maximum depth.
+    */
+   public int getMaximumDepth()
+   {
+      return this.maximumDepth;
+   }
+
+   /**
+    * Gets the texture size.
+    *
+    * @return the texture size in pixels.
+    */
+   public int getTextureSize()
+   {
+      return this.textureSize;
+   }
+
+   /**
+    * Gets whether the depth is inverted.
+    *
+    * @return whether to invert the depth.
+    */
+   public boolean getInvertDepth()
+   {
+      return this.invertDepth;
+   }
+
+   /**
+    * Gets the factory that creates the initial texture offsets.
+    *
+    * @return the texture offset factory.
+    */
+   public TextureOffsetFactory getTextureOffsetFactory()
+   {
+      return this.textureOffsetFactory;
+   }
+
+   /**
+    * Gets a copy of this request with a different height map.
+    *
+    * @param source the source of the height map.
+    * @return the new request.
+    */
+   public RenderRequest withHeightMapSource( final StreamSource source )
+   {
+      return new RenderRequest( source,
+                                this.textureSource,
+                                this.maximumDepth,
+                                this.textureSize,
+                                this.invertDepth,
+                                this.textureOffsetFactory );
+   }
+
+   /**
+    * Gets a copy of this request with a different texture.
+    *
+    * @param source the source of the texture.
+    * @return the new request.
+    */
+   public RenderRequest withTextureSource( final StreamSource source )
+   {
+      return new RenderRequest( this.heightMapSource,
+                                source,
+                                this.maximumDepth,
+                                this.textureSize,
+                                this.invertDepth,
+                                this.textureOffsetFactory );
+   }
+
+   /**
+    * Gets a copy of this request with a different maximum depth.
+    *
+    * @param depth the maximum depth.
+    * @return the new request.
+    */
+   public RenderRequest withMaximumDepth( final int depth )
+   {
+      return new RenderRequest( this.heightMapSource,
+                                this.textureSource,
+                                depth,
+                                this.textureSize,
+                                this.invertDepth,
+                                this.textureOffsetFactory );
+   }
+
+   /**
+    * Gets a copy of this request with a different texture size.
+    *
+    * @param size the texture size in pixels.
+    * @return the new request.
+    */
+   public RenderRequest withTextureSize( final int size )
+   {
+      return new RenderRequest( this.heightMapSource,
+                                this.textureSource,
+                                this.maximumDepth,
+                                size,
+                                this.invertDepth,
+                                this.textureOffsetFactory );
+   }
+
+   /**
+    * Gets a copy of this request with the depth inverted or not.
+    *
+    * @param invert whether to invert the depth.
+    * @return the new request.
+    */
+   public RenderRequest withInvertDepth( final boolean invert )
+   {
+      return new RenderRequest( this.heightMapSource,
+                                this.textureSource,
+                                this.maximumDepth,
+                                this.textureSize,
+                                invert,
+                                this.textureOffsetFactory );
+   }
+
+   /**
+    * Gets a copy of this request with a different texture offset factory.
+    *
+    * @param factory the factory that creates the initial texture offsets.
+    * @return the new request.
+    */
+   public RenderRequest withTextureOffsetFactory( final TextureOffsetFactory factory )
+   {
+      return new RenderRequest( this.heightMapSource,
+                                this.textureSource,
+                                this.maximumDepth,
+                                this.textureSize,
+                                this.invertDepth,
+                                factory );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public boolean equals( final Object obj )
+   {
+      if( obj instanceof RenderRequest )
+      {
+         final RenderRequest other = (RenderRequest) obj;
+         return this.heightMapSource.equals( other.heightMapSource ) &&
+                this.textureSource.equals( other.textureSource ) &&
+                ( this.maximumDepth == other.maximumDepth ) &&
+                ( this.textureSize == other.textureSize ) &&
+                ( this.invertDepth == other.invertDepth ) &&
+                this.textureOffsetFactory.equals( other.textureOffsetFactory );
+      }
+      return false;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public int hashCode()
+   {
+      return Objects.hash( this.heightMapSource,
+                           this.textureSource,
+                           this.maximumDepth,
+                           this.textureSize,
+                           this.invertDepth,
+                           this.textureOffsetFactory );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @SuppressWarnings( "nls" )
+   @Override
+   public String toString()
+   {
+      return String.format( "map=%s texture=%s depth=%d textureSize=%d invert=%b offsets=%s",
+                            this.heightMapSource,
+                            this.textureSource,
+                            this.maximumDepth,
+                            this.textureSize,
+                            this.invertDepth,
+                            this.textureOffsetFactory.getClass().getSimpleName() );
+   }
+}
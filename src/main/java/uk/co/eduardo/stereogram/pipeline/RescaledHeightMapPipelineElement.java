@@ -5,10 +5,13 @@
 package uk.co.eduardo.stereogram.pipeline;
 
 import uk.co.eduardo.stereogram.map.HeightMap;
-import uk.co.eduardo.stereogram.map.MaximumDepthHeightMapTransformer;
+import uk.co.eduardo.stereogram.map.LazyMaximumDepthHeightMapTransformer;
 
 /**
  * Rescales the height map so the maximum value is as specified.
+ * <p>
+ * The output is a view of the input height map that is scaled as it is read, so no rescaled copy of the map is made.
+ * </p>
  *
  * @author erodri02
  */
@@ -22,6 +25,19 @@ public class RescaledHeightMapPipelineElement extends AbstractBinaryPipelineElem
                                               final PipelineElement< Integer > secondInput )
    {
       final HeightMap souce = firstInput.getOutput();
-      return new MaximumDepthHeightMapTransformer( secondInput.getOutput() ).transform( souce );
+      return new LazyMaximumDepthHeightMapTransformer( getIntOutput( secondInput ) ).transform( souce );
+   }
+
+   /**
+    * Replaces the cached output with a rescaled view of an edited copy of the height map, without recomputing it from the inputs.
+    * Used when the height map has been edited without invalidating the elements downstream.
+    *
+    * @param source the edited height map.
+    * @param maximumDepth the maximum depth.
+    * @return whether the output was replaced. <code>false</code> if the output is out of date and so will be recomputed anyway.
+    */
+   public boolean updateSource( final HeightMap source, final int maximumDepth )
+   {
+      return updateCachedOutput( previous -> new LazyMaximumDepthHeightMapTransformer( maximumDepth ).transform( source ) );
    }
 }
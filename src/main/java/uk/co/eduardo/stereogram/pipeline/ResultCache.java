@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.pipeline;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+import uk.co.eduardo.stereogram.CacheStatistics;
+import uk.co.eduardo.stereogram.WeightedCache;
+
+/**
+ * A thread safe cache of the outputs of pipeline elements, keyed on the parameters they were computed from and bounded by the
+ * number of bytes they hold.
+ * <p>
+ * An element only keeps its most recent output. With a result cache, an element whose inputs return to values it has seen before,
+ * e.g. when toggling between two textures, takes its earlier output from the cache instead of recomputing it. Outputs are keyed
+ * on the element and on its {@link PipelineElement#getKey() key}. When the cache is full the least recently used outputs are
+ * evicted. One cache may be shared by several elements so that they share a memory budget. It may also be shared by the stages
+ * of a {@link StereogramRenderer}, which compute their outputs through {@link #get(Object, Object, Supplier, ToLongFunction)}.
+ * The outputs are held in a {@link WeightedCache}.
+ * </p>
+ * <p>
+ * Cached outputs are shared, so they must not be modified.
+ * </p>
+ *
+ * @author erodri02
+ * @see AbstractUnaryPipelineElement#setResultCache(ResultCache)
+ */
+public class ResultCache
+{
+   private final WeightedCache< Key, Object > outputs;
+
+   /**
+    * Initializes a new ResultCache object.
+    *
+    * @param maximumWeight the maximum number of bytes of outputs to hold.
+    */
+   public ResultCache( final long maximumWeight )
+   {
+      this.outputs = new WeightedCache<>( maximumWeight );
+   }
+
+   /**
+    * Gets an output from the cache.
+    *
+    * @param element the element that computed the output.
+    * @param key the key of the output.
+    * @return the cached output, or <code>null</code> if it is not in the cache.
+    */
+   @SuppressWarnings( "unchecked" )
+   < T > T get( final PipelineElement< T > element, final Object key )
+   {
+      return (T) this.outputs.getIfPresent( new Key( element, key ) );
+   }
+
+   /**
+    * Gets an output from the cache, computing it if it is not present. Concurrent requests for the same missing output compute it
+    * once; the other requests wait for that computation.
+    *
+    * @param owner the stage that computes the output. Compared by identity.
+    * @param key the key of the output.
+    * @param compute computes the output if it is not in the cache. May return <code>null</code>, in which case nothing is cached.
+    * @param weigher gets the number of bytes held by a computed output.
+    * @return the cached or computed output. May be <code>null</code> if the computation returned <code>null</code>.
+    * @throws RuntimeException or {@link Error} if the computation, in this or a concurrent request, threw it.
+    */
+   @SuppressWarnings( "unchecked" )
+   < T > T get( final Object owner, final Object key, final Supplier< T > compute, final ToLongFunction< T > weigher )
+   {
+      return (T) this.outputs.get( new Key( owner, key ), k -> compute.get(), output -> weigher.applyAsLong( (T) output ) );
+   }
+
+   /**
+    * Adds an output to the cache. Outputs larger than the maximum weight are not cached.
+    *
+    * @param element the element that computed the output.
+    * @param key the key of the output.
+    * @param output the output to cache.
+    * @param outputWeight the number of bytes held by the output.
+    */
+   < T > void put( final PipelineElement< T > element, final Object key, final T output, final long outputWeight )
+   {
+      this.outputs.put( new Key( element, key ), output, outputWeight );
+   }
+
+   /**
+    * Checks whether an output is held by the cache, e.g. before recycling its memory. Takes constant time.
+    *
+    * @param output the output.
+    * @return whether the cache holds that very object.
+    */
+   public boolean contains( final Object output )
+   {
+      return this.outputs.containsValue( output );
+   }
+
+   /**
+    * Removes the outputs computed from an input whose output has changed without its key changing back, e.g. a height map that has
+    * been edited, so that they do not take up memory until they are evicted. An output is removed if its key is the key of that
+    * input or contains it, directly or in the lists of input keys it is made of. Other outputs, e.g. textures that do not depend
+    * on the input, stay in the cache. Does not count as eviction.
+    *
+    * @param inputKey the key of the input.
+    */
+   void removeDependents( final Object inputKey )
+   {
+      this.outputs.removeIf( key -> dependsOn( key.key, inputKey ) );
+   }
+
+   /**
+    * Removes all outputs from the cache. Does not reset the statistics.
+    */
+   public void clear()
+   {
+      this.outputs.clear();
+   }
+
+   /**
+    * Sets the maximum number of bytes of outputs to hold, evicting outputs if necessary. A maximum of 0 disables the cache.
+    *
+    * @param maximumWeight the maximum number of bytes.
+    */
+   public void setMaximumWeight( final long maximumWeight )
+   {
+      this.outputs.setMaximumWeight( maximumWeight );
+   }
+
+   /**
+    * Gets a snapshot of the cache statistics.
+    *
+    * @return the statistics.
+    */
+   public CacheStatistics getStatistics()
+   {
+      return this.outputs.getStatistics();
+   }
+
+   private static boolean dependsOn( final Object key, final Object inputKey )
+   {
+      if( Objects.equals( key, inputKey ) )
+      {
+         return true;
+      }
+      if( key instanceof List )
+      {
+         for( final Object part : (List< ? >) key )
+         {
+            if( dependsOn( part, inputKey ) )
+            {
+               return true;
+            }
+         }
+      }
+      return false;
+   }
+
+   /**
+    * Identifies an output by the element or stage that computed it and the parameters it was computed from.
+    */
+   private static final class Key
+   {
+      private final Object element;
+
+      private final Object key;
+
+      private Key( final Object element, final Object key )
+      {
+         this.element = element;
+         this.key = key;
+      }
+
+      @Override
+      public boolean equals( final Object obj )
+      {
+         if( obj instanceof Key )
+         {
+            final Key other = (Key) obj;
+            return ( this.element == other.element ) && Objects.equals( this.key, other.key );
+         }
+         return false;
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return ( 31 * System.identityHashCode( this.element ) ) + Objects.hashCode( this.key );
+      }
+   }
+}
@@ -7,8 +7,13 @@ package uk.co.eduardo.stereogram.pipeline;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import uk.co.eduardo.stereogram.StreamSource;
+
 /**
  * A root element that has no input.
+ * <p>
+ * A root element is always valid. Setting a new value notifies the elements connected to it, which become dirty.
+ * </p>
  *
  * @author erodri02
  * @param <T> the target type.
@@ -17,7 +22,7 @@ public class RootPipelineElement< T > extends AbstractPipelineElement< T > imple
 {
    private static final Logger LOGGER = Logger.getLogger( RootPipelineElement.class.getName() );
 
-   private T value;
+   private volatile T value;
 
    /**
     * Initializes a new RootPipelineElement object.
@@ -35,7 +40,21 @@ public class RootPipelineElement< T > extends AbstractPipelineElement< T > imple
    @Override
    public boolean isValid()
    {
-      return !isDirty();
+      return true;
+   }
+
+   /**
+    * {@inheritDoc}
+    * <p>
+    * The key of a root element is its value. For a {@link StreamSource} it is the key of the current contents of the source, so
+    * that outputs computed from a file are not reused once the file has changed.
+    * </p>
+    */
+   @Override
+   public Object getKey()
+   {
+      final T current = this.value;
+      return current instanceof StreamSource ? ( (StreamSource) current ).getContentKey() : current;
    }
 
    /**
@@ -46,6 +65,7 @@ public class RootPipelineElement< T > extends AbstractPipelineElement< T > imple
    public void setValue( final T value )
    {
       this.value = value;
+      newGeneration();
       setDirty( true );
    }
 
@@ -55,8 +75,10 @@ public class RootPipelineElement< T > extends AbstractPipelineElement< T > imple
    @Override
    public T getOutput()
    {
-      LOGGER.log( Level.FINE, "Recomputing " + getName() + " " + toString() ); //$NON-NLS-1$ //$NON-NLS-2$
-      setDirty( false );
+      if( LOGGER.isLoggable( Level.FINE ) )
+      {
+         LOGGER.log( Level.FINE, "Recomputing " + getName() + " " + toString() ); //$NON-NLS-1$ //$NON-NLS-2$
+      }
       return this.value;
    }
 
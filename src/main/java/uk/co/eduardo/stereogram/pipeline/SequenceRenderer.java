@@ -0,0 +1,325 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.pipeline;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import uk.co.eduardo.stereogram.ImageUtilities;
+import uk.co.eduardo.stereogram.StreamSource;
+import uk.co.eduardo.stereogram.TextureResources;
+import uk.co.eduardo.stereogram.io.FrameSink;
+import uk.co.eduardo.stereogram.map.HeightMap;
+import uk.co.eduardo.stereogram.map.MaximumDepthHeightMapTransformer;
+import uk.co.eduardo.stereogram.map.StereogramProcessor;
+import uk.co.eduardo.stereogram.texture.ArrayTexture1DFactory;
+import uk.co.eduardo.stereogram.texture.IntArrayPool;
+import uk.co.eduardo.stereogram.texture.Texture1DFactory;
+import uk.co.eduardo.stereogram.texture.Texture2D;
+import uk.co.eduardo.stereogram.texture.TextureOffsetFactory;
+import uk.co.eduardo.stereogram.texture.ZeroTextureOffsetFactory;
+
+/**
+ * Renders an animated stereogram from a sequence of height maps, one frame per height map.
+ * <p>
+ * Frames are rendered in parallel, each on a single thread, and passed to a {@link FrameSink} in order. At most a fixed number of
+ * frames are rendered ahead of the sink, which bounds memory whatever the length of the sequence. Nothing is rebuilt per frame
+ * that can be reused: the texture is decoded once, and each thread keeps its rescaled height map and 2D texture from one frame to
+ * the next, while output images are recycled once the sink has written them. Each frame is identical to the output of a
+ * {@link StereogramPipeline} with the same settings.
+ * </p>
+ * <p>
+ * Texture offsets normally follow each frame's height map, which can make the texture shimmer from frame to frame. With
+ * {@link #setCoherentOffsets(boolean) coherent offsets} the offsets of the first frame are used for every frame instead.
+ * </p>
+ * <p>
+ * A renderer is not thread safe.
+ * </p>
+ *
+ * @author erodri02
+ */
+public class SequenceRenderer
+{
+   private final Texture1DFactory texture1DFactory;
+
+   private final int threads;
+
+   private final int maxFramesInFlight;
+
+   private int maxDepth = MaximumDepthHeightMapTransformer.DEFAULT_MAXIMUM_DEPTH;
+
+   private StreamSource textureSource = TextureResources.TEXTURE_1;
+
+   private int textureSize = 128;
+
+   private TextureOffsetFactory textureOffsetFactory = new ZeroTextureOffsetFactory();
+
+   private boolean invert = false;
+
+   private boolean coherentOffsets = false;
+
+   /**
+    * Initializes a new SequenceRenderer object that renders one frame per processor, with up to twice that many frames in flight.
+    */
+   public SequenceRenderer()
+   {
+      this( new ArrayTexture1DFactory( new IntArrayPool( StereogramPipeline.DEFAULT_TEXTURE_POOL_SIZE ) ),
+            Runtime.getRuntime().availableProcessors(),
+            2 * Runtime.getRuntime().availableProcessors() );
+   }
+
+   /**
+    * Initializes a new SequenceRenderer object.
+    *
+    * @param texture1DFactory the factory that creates the 1D texture for each row of the stereogram.
+    * @param threads the number of frames to render at the same time.
+    * @param maxFramesInFlight the largest number of frames that may have been started but not yet passed to the sink. At least
+    *           <code>threads</code>.
+    */
+   public SequenceRenderer( final Texture1DFactory texture1DFactory, final int threads, final int maxFramesInFlight )
+   {
+      if( ( threads < 1 ) || ( maxFramesInFlight < threads ) )
+      {
+         throw new IllegalArgumentException( "need at least one thread and one frame in flight per thread" ); //$NON-NLS-1$
+      }
+      this.texture1DFactory = texture1DFactory;
+      this.threads = threads;
+      this.maxFramesInFlight = maxFramesInFlight;
+   }
+
+   /**
+    * Sets the maximum apparent depth for the image.
+    *
+    * @param maxDepth the maximum apparent depth.
+    */
+   public void setMaximumDepth( final int maxDepth )
+   {
+      this.maxDepth = maxDepth;
+   }
+
+   /**
+    * Sets the resource of the texture.
+    *
+    * @param source the source of the texture.
+    */
+   public void setTextureSource( final StreamSource source )
+   {
+      this.textureSource = source;
+   }
+
+   /**
+    * Sets the size (width) of the texture in pixels.
+    *
+    * @param size the size (width) of the texture in pixels.
+    */
+   public void setTextureSize( final int size )
+   {
+      this.textureSize = size;
+   }
+
+   /**
+    * Sets the texture offset for texture correction.
+    *
+    * @param offsetFactory the texture offset factory.
+    */
+   public void setTextureOffsetFactory( final TextureOffsetFactory offsetFactory )
+   {
+      this.textureOffsetFactory = offsetFactory;
+   }
+
+   /**
+    * Sets whether to invert the depth.
+    *
+    * @param invert whether to invert the depth.
+    */
+   public void setInvertDepth( final boolean invert )
+   {
+      this.invert = invert;
+   }
+
+   /**
+    * Sets whether every frame uses the texture offsets of the first frame, so the texture does not shimmer between frames. Frames
+    * whose height differs from the first frame use their own offsets.
+    *
+    * @param coherentOffsets whether the texture offsets are held coherent between frames.
+    */
+   public void setCoherentOffsets( final boolean coherentOffsets )
+   {
+      this.coherentOffsets = coherentOffsets;
+   }
+
+   /**
+    * Renders a frame for each height map and passes the frames to a sink in order.
+    *
+    * @param frames the sources of the height maps, one per frame.
+    * @param sink the sink that receives the frames.
+    * @throws IOException if a height map or the texture cannot be read, or the sink fails.
+    */
+   public void render( final List< ? extends StreamSource > frames, final FrameSink sink ) throws IOException
+   {
+      final BufferedImage textureImage = ImageUtilities.load( this.textureSource, BufferedImage.TYPE_INT_ARGB, 0, 0, 0, 0 );
+      if( textureImage == null )
+      {
+         throw new IOException( "Cannot read texture " + this.textureSource ); //$NON-NLS-1$
+      }
+      final int[][] textureData = ImageUtilities.getRasterAsInts( ImageUtilities.resize( textureImage, this.textureSize ) );
+
+      final int[] firstFrameOffsets;
+      if( this.coherentOffsets && !frames.isEmpty() )
+      {
+         final FrameRenderer renderer = new FrameRenderer( textureData, null, null );
+         renderer.prepare( frames.get( 0 ) );
+         firstFrameOffsets = this.textureOffsetFactory.getOffsets( renderer.scaled, renderer.texture );
+      }
+      else
+      {
+         firstFrameOffsets = null;
+      }
+
+      final Queue< BufferedImage > recycledImages = new ConcurrentLinkedQueue<>();
+      final ThreadLocal< FrameRenderer > renderers = ThreadLocal.withInitial( () -> new FrameRenderer( textureData,
+                                                                                                        firstFrameOffsets,
+                                                                                                        recycledImages ) );
+      final ExecutorService executor = Executors.newFixedThreadPool( this.threads, runnable -> {
+         final Thread thread = new Thread( runnable, "stereogram-sequence" ); //$NON-NLS-1$
+         thread.setDaemon( true );
+         return thread;
+      } );
+
+      try
+      {
+         final Queue< Future< BufferedImage > > inFlight = new ArrayDeque<>();
+         int next = 0;
+         for( int index = 0; index < frames.size(); index++ )
+         {
+            while( ( next < frames.size() ) && ( ( next - index ) < this.maxFramesInFlight ) )
+            {
+               final StreamSource frame = frames.get( next++ );
+               inFlight.add( executor.submit( () -> renderers.get().render( frame ) ) );
+            }
+
+            final BufferedImage image = getFrame( inFlight.remove() );
+            sink.writeFrame( index, image );
+            recycledImages.add( image );
+         }
+         sink.finish();
+      }
+      finally
+      {
+         executor.shutdownNow();
+      }
+   }
+
+   private static BufferedImage getFrame( final Future< BufferedImage > future ) throws IOException
+   {
+      try
+      {
+         return future.get();
+      }
+      catch( final InterruptedException exception )
+      {
+         Thread.currentThread().interrupt();
+         throw new IOException( "Interrupted while rendering a frame", exception ); //$NON-NLS-1$
+      }
+      catch( final ExecutionException exception )
+      {
+         if( exception.getCause() instanceof IOException )
+         {
+            throw (IOException) exception.getCause();
+         }
+         throw new IOException( exception.getCause() );
+      }
+   }
+
+   /**
+    * Renders frames on one thread, keeping its buffers from one frame to the next.
+    */
+   private final class FrameRenderer
+   {
+      private final int[][] textureData;
+
+      private final int[] firstFrameOffsets;
+
+      private final Queue< BufferedImage > recycledImages;
+
+      private final MaximumDepthHeightMapTransformer transformer = new MaximumDepthHeightMapTransformer( SequenceRenderer.this.maxDepth );
+
+      private final StereogramProcessor processor = new StereogramProcessor();
+
+      private HeightMap scaled;
+
+      private Texture2D texture;
+
+      private FrameRenderer( final int[][] textureData, final int[] firstFrameOffsets, final Queue< BufferedImage > recycledImages )
+      {
+         this.textureData = textureData;
+         this.firstFrameOffsets = firstFrameOffsets;
+         this.recycledImages = recycledImages;
+      }
+
+      private BufferedImage render( final StreamSource frame ) throws IOException
+      {
+         prepare( frame );
+         final int height = this.scaled.getHeight();
+         if( ( this.firstFrameOffsets != null ) && ( this.firstFrameOffsets.length == height ) )
+         {
+            this.texture.setInitialOffsets( this.firstFrameOffsets );
+         }
+         else
+         {
+            this.texture.setInitialOffsets( SequenceRenderer.this.textureOffsetFactory.getOffsets( this.scaled, this.texture ) );
+         }
+
+         final BufferedImage image = takeImage( this.scaled.getWidth(), height );
+         this.processor.process( this.scaled, this.texture, image );
+         return image;
+      }
+
+      /**
+       * Loads and rescales the height map of a frame and prepares a texture for it, whose offsets are yet to be set.
+       */
+      private void prepare( final StreamSource frame ) throws IOException
+      {
+         final HeightMap map = HeightMapPipelineElement.load( frame, false );
+         if( map == null )
+         {
+            throw new IOException( "Cannot read height map " + frame ); //$NON-NLS-1$
+         }
+         this.scaled = this.transformer.transform( map, this.scaled );
+
+         final int height = this.scaled.getHeight();
+         if( ( this.texture == null ) || ( this.texture.getHeight() != height ) )
+         {
+            this.texture = new Texture2D( this.textureData,
+                                          0,
+                                          height,
+                                          SequenceRenderer.this.invert,
+                                          SequenceRenderer.this.texture1DFactory );
+         }
+      }
+
+      private BufferedImage takeImage( final int width, final int height )
+      {
+         BufferedImage image;
+         while( ( image = this.recycledImages.poll() ) != null )
+         {
+            if( ( image.getWidth() == width ) && ( image.getHeight() == height ) )
+            {
+               return image;
+            }
+            // A frame of a different size. Let it go.
+         }
+         return new BufferedImage( width, height, BufferedImage.TYPE_INT_ARGB );
+      }
+   }
+}
@@ -5,32 +5,86 @@
 package uk.co.eduardo.stereogram.pipeline;
 
 import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import uk.co.eduardo.stereogram.ImagePool;
 import uk.co.eduardo.stereogram.MapResources;
 import uk.co.eduardo.stereogram.StreamSource;
 import uk.co.eduardo.stereogram.TextureResources;
+import uk.co.eduardo.stereogram.map.HeightMap;
 import uk.co.eduardo.stereogram.map.MaximumDepthHeightMapTransformer;
+import uk.co.eduardo.stereogram.map.StereogramProcessor;
+import uk.co.eduardo.stereogram.map.StereogramRowSink;
+import uk.co.eduardo.stereogram.texture.ArrayTexture1DFactory;
+import uk.co.eduardo.stereogram.texture.IntArrayPool;
+import uk.co.eduardo.stereogram.texture.Texture1DFactory;
+import uk.co.eduardo.stereogram.texture.Texture2D;
 import uk.co.eduardo.stereogram.texture.TextureOffsetFactory;
 import uk.co.eduardo.stereogram.texture.ZeroTextureOffsetFactory;
 
 /**
  * Defines a pipeline for creating stereograms.
+ * <p>
+ * A pipeline may be shared between threads. Concurrent calls to {@link #getOutput()} render a stale stereogram once, and an image
+ * returned by {@link #getOutput()} is never modified by a later render.
+ * </p>
+ * <p>
+ * Output images are taken from a pool. An image that is no longer needed can be {@link #recycle(BufferedImage) recycled} so that
+ * later renders of the same size reuse its memory rather than allocating a new image.
+ * </p>
+ * <p>
+ * Every element keeps its most recent output. In addition, textures and stereograms are kept in a {@link #getResultCache() result
+ * cache} keyed on the parameters they were computed from, so returning to recently used parameters, e.g. toggling between two
+ * textures, does not render again.
+ * </p>
+ * <p>
+ * For interactive use a low resolution {@link #getPreview() preview} can be shown while the full stereogram is rendered.
+ * </p>
+ * <p>
+ * The {@link #getStatistics() statistics} of each stage show which stages are recomputed by a change and how long they take. They
+ * can also be {@link #registerMBeans(MBeanServer, String) exported over JMX}.
+ * </p>
  *
  * @author erodri02
  */
 public class StereogramPipeline
 {
+   /** The default maximum number of bytes of recycled output images kept for reuse. */
+   public static final long DEFAULT_IMAGE_POOL_SIZE = 64L * 1024 * 1024;
+
+   /** The default maximum number of bytes of textures and stereograms kept for reuse when their parameters are revisited. */
+   public static final long DEFAULT_RESULT_CACHE_SIZE = 128L * 1024 * 1024;
+
+   /** The default factor by which a {@link #getPreview() preview} is smaller than the stereogram, in each direction. */
+   public static final int DEFAULT_PREVIEW_FACTOR = 4;
+
+   /** The default maximum number of bytes of 1D texture buffers kept for reuse by the default 1D texture factory. */
+   public static final long DEFAULT_TEXTURE_POOL_SIZE = 16L * 1024 * 1024;
+
    private final RootPipelineElement< StreamSource > heightMapSource = new RootPipelineElement<>( MapResources.SHARK );
 
-   private final RootPipelineElement< Integer > maxDepth = new RootPipelineElement<>( MaximumDepthHeightMapTransformer.DEFAULT_MAXIMUM_DEPTH );
+   private final IntRootPipelineElement maxDepth = new IntRootPipelineElement( MaximumDepthHeightMapTransformer.DEFAULT_MAXIMUM_DEPTH );
 
    private final RootPipelineElement< StreamSource > textureSource = new RootPipelineElement<>( TextureResources.TEXTURE_1 );
 
-   private final RootPipelineElement< Integer > textureSize = new RootPipelineElement<>( 128 );
+   private final IntRootPipelineElement textureSize = new IntRootPipelineElement( 128 );
 
    private final RootPipelineElement< TextureOffsetFactory > textureOffset = new RootPipelineElement<>( new ZeroTextureOffsetFactory() );
 
-   private final RootPipelineElement< Boolean > invert = new RootPipelineElement<>( false );
+   private final BooleanRootPipelineElement invert = new BooleanRootPipelineElement( false );
 
    private final HeightMapPipelineElement heightMap = new HeightMapPipelineElement();
 
@@ -40,17 +94,89 @@ public class StereogramPipeline
 
    private final ArrayTexturePipelineElement arrayTexture = new ArrayTexturePipelineElement();
 
-   private final Texture2DPipelineElement texture2D = new Texture2DPipelineElement();
+   private final Texture2DPipelineElement texture2D;
+
+   private final ImagePool imagePool = new ImagePool( DEFAULT_IMAGE_POOL_SIZE );
+
+   private final ResultCache resultCache = new ResultCache( DEFAULT_RESULT_CACHE_SIZE );
+
+   private final BufferedImagePipelineElement image = new BufferedImagePipelineElement( this.imagePool );
+
+   private final OutputPipelineElement output;
+
+   private final IntRootPipelineElement previewFactor = new IntRootPipelineElement( DEFAULT_PREVIEW_FACTOR );
+
+   private final PreviewHeightMapPipelineElement previewHeightMap = new PreviewHeightMapPipelineElement();
+
+   private final DividedIntPipelineElement previewTextureSize = new DividedIntPipelineElement();
+
+   private final ImageTexturePipelineElement previewImageTexture = new ImageTexturePipelineElement();
+
+   private final ArrayTexturePipelineElement previewArrayTexture = new ArrayTexturePipelineElement();
+
+   private final Texture2DPipelineElement previewTexture2D;
+
+   private final BufferedImagePipelineElement previewImage = new BufferedImagePipelineElement( this.imagePool );
+
+   private final OutputPipelineElement preview;
+
+   private final StereogramProcessor processor;
+
+   /** The elements of the pipeline, by stage name, in the order in which they are computed. */
+   private final Map< String, AbstractPipelineElement< ? > > stages = new LinkedHashMap<>();
 
-   private final BufferedImagePipelineElement image = new BufferedImagePipelineElement();
+   private final List< ObjectName > registeredMBeans = new ArrayList<>();
 
-   private final OutputPipelineElement output = new OutputPipelineElement();
+   private final Object editLock = new Object();
+
+   /** Recycled images that were still held by the result cache when they were recycled. Guarded by itself. */
+   private final Set< BufferedImage > deferredRecycles = Collections.newSetFromMap( new IdentityHashMap<>() );
+
+   /** Whether rows of the height map have been edited since the output was last brought up to date. */
+   private volatile boolean hasEditedRows = false;
+
+   /** The first edited row, inclusive. Guarded by the edit lock. */
+   private int editedStartRow = Integer.MAX_VALUE;
+
+   /** The last edited row, exclusive. Guarded by the edit lock. */
+   private int editedEndRow = Integer.MIN_VALUE;
 
    /**
-    * Initializes a new StereogramPipeline object.
+    * Initializes a new StereogramPipeline object whose 1D textures take their buffers from a pool of up to
+    * {@value #DEFAULT_TEXTURE_POOL_SIZE} bytes.
     */
    public StereogramPipeline()
    {
+      this( new ArrayTexture1DFactory( new IntArrayPool( DEFAULT_TEXTURE_POOL_SIZE ) ) );
+   }
+
+   /**
+    * Initializes a new StereogramPipeline object that uses a specific 1D texture implementation.
+    *
+    * @param texture1DFactory the factory that creates the 1D texture for each row of the stereogram.
+    */
+   public StereogramPipeline( final Texture1DFactory texture1DFactory )
+   {
+      this( texture1DFactory, new StereogramProcessor() );
+   }
+
+   /**
+    * Initializes a new StereogramPipeline object that uses a specific 1D texture implementation and processor.
+    * <p>
+    * Pass a processor created with a {@link java.util.concurrent.ForkJoinPool} to render the rows of the stereogram in parallel.
+    * </p>
+    *
+    * @param texture1DFactory the factory that creates the 1D texture for each row of the stereogram.
+    * @param processor the processor that renders the stereogram.
+    */
+   public StereogramPipeline( final Texture1DFactory texture1DFactory, final StereogramProcessor processor )
+   {
+      this.processor = processor;
+      this.texture2D = new Texture2DPipelineElement( texture1DFactory );
+      this.output = new OutputPipelineElement( processor, this.imagePool );
+      this.previewTexture2D = new Texture2DPipelineElement( texture1DFactory );
+      this.preview = new OutputPipelineElement( processor, this.imagePool );
+
       this.heightMap.connectFirstInput( this.heightMapSource );
       this.rescaleHeightMap.connectFirstInput( this.heightMap );
       this.rescaleHeightMap.connectSecondInput( this.maxDepth );
@@ -67,6 +193,61 @@ public class StereogramPipeline
       this.output.connectFirstInput( this.rescaleHeightMap );
       this.output.connectSecondInput( this.texture2D );
       this.output.connectThirdInput( this.image );
+
+      // The preview renders the same stereogram from a smaller height map and texture
+      this.previewHeightMap.connectFirstInput( this.heightMap );
+      this.previewHeightMap.connectSecondInput( this.maxDepth );
+      this.previewHeightMap.connectThirdInput( this.previewFactor );
+      this.previewImage.connectFirstInput( this.previewHeightMap );
+
+      this.previewTextureSize.connectFirstInput( this.textureSize );
+      this.previewTextureSize.connectSecondInput( this.previewFactor );
+      this.previewImageTexture.connectFirstInput( this.textureSource );
+      this.previewImageTexture.connectSecondInput( this.previewTextureSize );
+      this.previewArrayTexture.connectFirstInput( this.previewImageTexture );
+      this.previewTexture2D.connectFirstInput( this.previewArrayTexture );
+      this.previewTexture2D.connectSecondInput( this.previewHeightMap );
+      this.previewTexture2D.connectThirdInput( this.textureOffset );
+      this.previewTexture2D.connectFourthInput( this.invert );
+
+      this.preview.connectFirstInput( this.previewHeightMap );
+      this.preview.connectSecondInput( this.previewTexture2D );
+      this.preview.connectThirdInput( this.previewImage );
+
+      // Memoize the stages that are expensive to recompute and whose outputs are never modified
+      for( final AbstractUnaryPipelineElement< ?, ? > element : Arrays.asList( this.imageTexture,
+                                                                               this.arrayTexture,
+                                                                               this.texture2D,
+                                                                               this.output,
+                                                                               this.previewImageTexture,
+                                                                               this.previewArrayTexture,
+                                                                               this.previewTexture2D,
+                                                                               this.preview ) )
+      {
+         element.setResultCache( this.resultCache );
+      }
+
+      this.stages.put( "heightMapSource", this.heightMapSource ); //$NON-NLS-1$
+      this.stages.put( "maximumDepth", this.maxDepth ); //$NON-NLS-1$
+      this.stages.put( "textureSource", this.textureSource ); //$NON-NLS-1$
+      this.stages.put( "textureSize", this.textureSize ); //$NON-NLS-1$
+      this.stages.put( "textureOffset", this.textureOffset ); //$NON-NLS-1$
+      this.stages.put( "invertDepth", this.invert ); //$NON-NLS-1$
+      this.stages.put( "heightMap", this.heightMap ); //$NON-NLS-1$
+      this.stages.put( "rescaledHeightMap", this.rescaleHeightMap ); //$NON-NLS-1$
+      this.stages.put( "imageTexture", this.imageTexture ); //$NON-NLS-1$
+      this.stages.put( "arrayTexture", this.arrayTexture ); //$NON-NLS-1$
+      this.stages.put( "texture2D", this.texture2D ); //$NON-NLS-1$
+      this.stages.put( "image", this.image ); //$NON-NLS-1$
+      this.stages.put( "output", this.output ); //$NON-NLS-1$
+      this.stages.put( "previewFactor", this.previewFactor ); //$NON-NLS-1$
+      this.stages.put( "previewHeightMap", this.previewHeightMap ); //$NON-NLS-1$
+      this.stages.put( "previewTextureSize", this.previewTextureSize ); //$NON-NLS-1$
+      this.stages.put( "previewImageTexture", this.previewImageTexture ); //$NON-NLS-1$
+      this.stages.put( "previewArrayTexture", this.previewArrayTexture ); //$NON-NLS-1$
+      this.stages.put( "previewTexture2D", this.previewTexture2D ); //$NON-NLS-1$
+      this.stages.put( "previewImage", this.previewImage ); //$NON-NLS-1$
+      this.stages.put( "preview", this.preview ); //$NON-NLS-1$
    }
 
    /**
@@ -106,7 +287,7 @@ public class StereogramPipeline
     */
    public int getMaximumDepth()
    {
-      return this.maxDepth.getOutput();
+      return this.maxDepth.getIntOutput();
    }
 
    /**
@@ -146,7 +327,7 @@ public class StereogramPipeline
     */
    public int getTextureSize()
    {
-      return this.textureSize.getOutput();
+      return this.textureSize.getIntOutput();
    }
 
    /**
@@ -186,7 +367,7 @@ public class StereogramPipeline
     */
    public boolean getInvertDepth()
    {
-      return this.invert.getOutput();
+      return this.invert.getBooleanOutput();
    }
 
    /**
@@ -196,6 +377,380 @@ public class StereogramPipeline
     */
    public BufferedImage getOutput()
    {
-      return this.output.getOutput();
+      if( this.hasEditedRows )
+      {
+         renderEditedRows();
+      }
+      return handOut( this.output.getOutput() );
+   }
+
+   /**
+    * Sets the factor by which a {@link #getPreview() preview} is smaller than the stereogram, e.g. 2 for half resolution or 4 for
+    * quarter resolution.
+    *
+    * @param factor the preview factor. Must be at least 1.
+    */
+   public void setPreviewFactor( final int factor )
+   {
+      if( factor < 1 )
+      {
+         throw new IllegalArgumentException( "factor must be at least 1" ); //$NON-NLS-1$
+      }
+      this.previewFactor.setValue( factor );
+   }
+
+   /**
+    * Gets the factor by which a {@link #getPreview() preview} is smaller than the stereogram.
+    *
+    * @return the preview factor.
+    */
+   public int getPreviewFactor()
+   {
+      return this.previewFactor.getIntOutput();
+   }
+
+   /**
+    * Gets a low resolution preview of the stereogram, e.g. to show while the full stereogram is rendered.
+    * <p>
+    * The preview is rendered from the height map downsampled by the {@link #getPreviewFactor() preview factor}, with the maximum
+    * depth and the texture size divided by the same factor, so it looks like the stereogram scaled down. Its width and height are
+    * those of the stereogram divided by the factor, rounding up. Rendering it takes roughly the square of the factor less time than
+    * the stereogram. The height map itself is shared with the stereogram, so it is only loaded once.
+    * </p>
+    *
+    * @return the preview.
+    */
+   public BufferedImage getPreview()
+   {
+      return handOut( this.preview.getOutput() );
+   }
+
+   /**
+    * Recycles an image returned by {@link #getOutput()} or {@link #getPreview()}, so that a later render can reuse its memory.
+    * <p>
+    * The caller must no longer use the image, nor share it with anybody who does. The current output and the current preview are
+    * not returned to the pool, as later calls may still return them, but until they are returned again the next render reuses
+    * them in place instead of taking a new image. Images held by the {@link #getResultCache() result cache} are recycled once the
+    * cache evicts them, unless they are returned again in the meantime.
+    * </p>
+    *
+    * @param image the image to recycle.
+    */
+   public void recycle( final BufferedImage image )
+   {
+      synchronized( this.deferredRecycles )
+      {
+         if( this.resultCache.contains( image ) )
+         {
+            this.deferredRecycles.add( image );
+         }
+         else
+         {
+            release( image );
+         }
+
+         // Recycle the images that the cache has evicted since they were recycled.
+         final Iterator< BufferedImage > deferred = this.deferredRecycles.iterator();
+         while( deferred.hasNext() )
+         {
+            final BufferedImage evicted = deferred.next();
+            if( !this.resultCache.contains( evicted ) )
+            {
+               deferred.remove();
+               release( evicted );
+            }
+         }
+      }
+   }
+
+   /**
+    * Recycles an image through the element that output it, which keeps it if it is still the current output.
+    */
+   private void release( final BufferedImage image )
+   {
+      if( image == this.preview.cachedOutput )
+      {
+         this.preview.recycle( image );
+      }
+      else
+      {
+         this.output.recycle( image );
+      }
+   }
+
+   /**
+    * Returns an image to a caller, who may be using it again after recycling it when it was taken from the result cache.
+    */
+   private BufferedImage handOut( final BufferedImage image )
+   {
+      synchronized( this.deferredRecycles )
+      {
+         this.deferredRecycles.remove( image );
+      }
+      return image;
+   }
+
+   /**
+    * Gets the cache in which textures and stereograms are kept, keyed on the parameters they were computed from, e.g. to read its
+    * statistics or change its size.
+    *
+    * @return the result cache.
+    */
+   public ResultCache getResultCache()
+   {
+      return this.resultCache;
+   }
+
+   /**
+    * Gets the pool from which output images are taken, e.g. to read its statistics or change its size.
+    *
+    * @return the pool of output images.
+    */
+   public ImagePool getImagePool()
+   {
+      return this.imagePool;
+   }
+
+   /**
+    * Gets a snapshot of the statistics of every stage of the pipeline.
+    *
+    * @return the statistics of each stage, by stage name, in the order in which the stages are computed.
+    */
+   public Map< String, PipelineElementStatistics > getStatistics()
+   {
+      final Map< String, PipelineElementStatistics > statistics = new LinkedHashMap<>();
+      for( final Map.Entry< String, AbstractPipelineElement< ? > > stage : this.stages.entrySet() )
+      {
+         statistics.put( stage.getKey(), stage.getValue().getStatistics() );
+      }
+      return Collections.unmodifiableMap( statistics );
+   }
+
+   /**
+    * Resets the statistics of every stage of the pipeline, e.g. before measuring the effect of changing one parameter.
+    */
+   public void resetStatistics()
+   {
+      for( final AbstractPipelineElement< ? > element : this.stages.values() )
+      {
+         element.resetStatistics();
+      }
+   }
+
+   /**
+    * Registers an MXBean for each stage of the pipeline, named
+    * <code>uk.co.eduardo.stereogram:type=StereogramPipeline,name=&lt;name&gt;,stage=&lt;stage&gt;</code>.
+    *
+    * @param server the server with which to register the MXBeans, e.g.
+    *           {@link java.lang.management.ManagementFactory#getPlatformMBeanServer()}.
+    * @param name the name of this pipeline, which must be unique among the pipelines registered with the server.
+    * @throws JMException if an MXBean cannot be registered.
+    */
+   public synchronized void registerMBeans( final MBeanServer server, final String name ) throws JMException
+   {
+      for( final Map.Entry< String, AbstractPipelineElement< ? > > stage : this.stages.entrySet() )
+      {
+         final ObjectName objectName = new ObjectName( "uk.co.eduardo.stereogram:type=StereogramPipeline,name=" + //$NON-NLS-1$
+                                                       ObjectName.quote( name ) +
+                                                       ",stage=" + //$NON-NLS-1$
+                                                       stage.getKey() );
+         server.registerMBean( new StageMXBean( stage.getValue() ), objectName );
+         this.registeredMBeans.add( objectName );
+      }
+   }
+
+   /**
+    * Unregisters the MXBeans registered by {@link #registerMBeans(MBeanServer, String)}.
+    *
+    * @param server the server with which the MXBeans were registered.
+    * @throws JMException if an MXBean cannot be unregistered.
+    */
+   public synchronized void unregisterMBeans( final MBeanServer server ) throws JMException
+   {
+      while( !this.registeredMBeans.isEmpty() )
+      {
+         server.unregisterMBean( this.registeredMBeans.remove( this.registeredMBeans.size() - 1 ) );
+      }
+   }
+
+   /**
+    * Overwrites a rectangular region of the height map, e.g. to paint into it.
+    * <p>
+    * The coordinates are those of the height map that is rendered, which includes the padding around the source image (see
+    * {@link HeightMapPipelineElement#PADDING_LEFT} etc). The edit is lost when the height map source changes.
+    * </p>
+    * <p>
+    * Edited rows are tracked so that the next call to {@link #getOutput()} only re-renders them, recomputing just their texture
+    * offsets. If the previous output has been {@link #recycle(BufferedImage) recycled} since it was returned the rows are rendered
+    * into it in place; otherwise it is copied first. If the edit changes the maximum value of the height map, the scale of every
+    * row changes and the next call renders the whole stereogram. Textures in the {@link #getResultCache() result cache} are kept;
+    * only the outputs computed from the map before the edit are removed from it.
+    * </p>
+    * <p>
+    * The edit is made to a copy of the height map that only copies the edited rows, and the texture offsets are updated in a copy
+    * too, so renders that are already in progress on other threads, e.g. {@link #writeOutput(StereogramRowSink)}, are not
+    * affected.
+    * </p>
+    *
+    * @param x the x position of the left of the region.
+    * @param y the y position of the top of the region.
+    * @param width the width of the region.
+    * @param height the height of the region.
+    * @param values the new values of the region, row by row, <code>width</code> values per row.
+    */
+   public void editHeightMap( final int x, final int y, final int width, final int height, final short[] values )
+   {
+      synchronized( this.editLock )
+      {
+         final Object previousKey = this.heightMap.getKey();
+         final boolean invalidated = this.heightMap.edit( x, y, width, height, values );
+
+         // Texture offsets and stereograms keyed on the map before the edit. Textures do not depend on the map, so are kept.
+         this.resultCache.removeDependents( previousKey );
+         if( invalidated )
+         {
+            // Everything downstream is invalid and will be rendered in full.
+            clearEditedRows();
+         }
+         else if( height > 0 )
+         {
+            this.editedStartRow = Math.min( this.editedStartRow, y );
+            this.editedEndRow = Math.max( this.editedEndRow, y + height );
+            this.hasEditedRows = true;
+
+            // The preview is cheap enough to recompute in full
+            this.previewHeightMap.setDirty( true );
+         }
+      }
+   }
+
+   private void renderEditedRows()
+   {
+      synchronized( this.editLock )
+      {
+         if( !this.hasEditedRows )
+         {
+            return;
+         }
+         final int startRow = this.editedStartRow;
+         final int endRow = this.editedEndRow;
+         clearEditedRows();
+
+         // The rescaled map still views the map from before the edit. If it is out of date it is recomputed from the edited map.
+         this.rescaleHeightMap.updateSource( this.heightMap.getOutput(), this.maxDepth.getIntOutput() );
+
+         // If anything else has changed the whole stereogram is rendered anyway.
+         if( this.output.isValid() )
+         {
+            final HeightMap map = this.rescaleHeightMap.getOutput();
+
+            // If the output was taken from the result cache the texture has not been brought up to date yet.
+            this.texture2D.getOutput();
+            if( this.texture2D.updateOffsets( map, this.textureOffset.getOutput(), startRow, endRow ) )
+            {
+               this.output.renderRows( map, this.texture2D.getOutput(), startRow, endRow );
+            }
+         }
+         else
+         {
+            // The texture may still be valid, with the offsets of the map from before the edit.
+            this.texture2D.updateOffsets( this.rescaleHeightMap.getOutput(), this.textureOffset.getOutput(), startRow, endRow );
+         }
+      }
+   }
+
+   private void clearEditedRows()
+   {
+      this.editedStartRow = Integer.MAX_VALUE;
+      this.editedEndRow = Integer.MIN_VALUE;
+      this.hasEditedRows = false;
+   }
+
+   /**
+    * Renders the stereogram row by row into a sink instead of an image.
+    * <p>
+    * No output image is allocated, so a stereogram can be streamed to disk, e.g. with a
+    * {@link uk.co.eduardo.stereogram.io.PngRowWriter}, while holding only a few rows of pixels. The rendered rows are not cached.
+    * </p>
+    *
+    * @param sink the sink that receives the rows of the stereogram.
+    * @throws IOException if the sink fails.
+    */
+   public void writeOutput( final StereogramRowSink sink ) throws IOException
+   {
+      final HeightMap map;
+      final Texture2D texture;
+      synchronized( this.editLock )
+      {
+         // Take the map and texture offsets of the same edit.
+         if( this.hasEditedRows )
+         {
+            renderEditedRows();
+         }
+         map = this.rescaleHeightMap.getOutput();
+         texture = this.texture2D.getOutput();
+      }
+      this.processor.process( map, texture, sink );
+   }
+
+   /**
+    * Exposes the statistics of one stage of the pipeline.
+    */
+   private static final class StageMXBean implements PipelineElementMXBean
+   {
+      private final AbstractPipelineElement< ? > element;
+
+      private StageMXBean( final AbstractPipelineElement< ? > element )
+      {
+         this.element = element;
+      }
+
+      @Override
+      public String getName()
+      {
+         return this.element.getName();
+      }
+
+      @Override
+      public long getRecomputeCount()
+      {
+         return this.element.getStatistics().getRecomputeCount();
+      }
+
+      @Override
+      public long getHitCount()
+      {
+         return this.element.getStatistics().getHitCount();
+      }
+
+      @Override
+      public long getTotalComputeNanos()
+      {
+         return this.element.getStatistics().getTotalComputeNanos();
+      }
+
+      @Override
+      public long getLastComputeNanos()
+      {
+         return this.element.getStatistics().getLastComputeNanos();
+      }
+
+      @Override
+      public long getTotalAllocatedBytes()
+      {
+         return this.element.getStatistics().getTotalAllocatedBytes();
+      }
+
+      @Override
+      public long getLastAllocatedBytes()
+      {
+         return this.element.getStatistics().getLastAllocatedBytes();
+      }
+
+      @Override
+      public void resetStatistics()
+      {
+         this.element.resetStatistics();
+      }
    }
 }
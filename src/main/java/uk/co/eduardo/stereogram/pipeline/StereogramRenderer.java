@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.pipeline;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Arrays;
+
+import uk.co.eduardo.stereogram.ImagePool;
+import uk.co.eduardo.stereogram.ImageUtilities;
+import uk.co.eduardo.stereogram.StreamSource;
+import uk.co.eduardo.stereogram.map.HeightMap;
+import uk.co.eduardo.stereogram.map.LazyMaximumDepthHeightMapTransformer;
+import uk.co.eduardo.stereogram.map.StereogramProcessor;
+import uk.co.eduardo.stereogram.map.StereogramRowSink;
+import uk.co.eduardo.stereogram.texture.ArrayTexture1DFactory;
+import uk.co.eduardo.stereogram.texture.IntArrayPool;
+import uk.co.eduardo.stereogram.texture.Texture1DFactory;
+import uk.co.eduardo.stereogram.texture.Texture2D;
+
+/**
+ * Renders stereograms described by immutable {@link RenderRequest requests}.
+ * <p>
+ * Unlike a {@link StereogramPipeline} a renderer holds no parameters, so one renderer can serve any number of threads, each with
+ * its own requests, without one pipeline per thread. It computes the same stereogram as a pipeline with the same parameters.
+ * </p>
+ * <p>
+ * The height maps, textures and 2D textures that requests are rendered from are shared between requests through a thread safe
+ * {@link #getResultCache() result cache}, keyed on the parameters they were computed from and on the
+ * {@link StreamSource#getContentKey() contents} of the sources, so a file that has changed is read again. Concurrent requests that
+ * need the same missing artefact compute it once. The stereograms themselves are not cached: every request renders into its own
+ * image, taken from a {@link #getImagePool() pool}, or streams its rows to a sink without holding the whole image.
+ * </p>
+ *
+ * @author erodri02
+ */
+public class StereogramRenderer
+{
+   /** The stage that loads height maps, keyed on the contents of their source. */
+   private static final Object HEIGHT_MAP_STAGE = new Object();
+
+   /** The stage that loads and resizes textures, keyed on the contents of their source and their size. */
+   private static final Object TEXTURE_STAGE = new Object();
+
+   /** The stage that creates 2D textures, keyed on every parameter as they depend on all of them. */
+   private static final Object TEXTURE_2D_STAGE = new Object();
+
+   private final Texture1DFactory texture1DFactory;
+
+   private final StereogramProcessor processor;
+
+   private final ResultCache resultCache = new ResultCache( StereogramPipeline.DEFAULT_RESULT_CACHE_SIZE );
+
+   private final ImagePool imagePool = new ImagePool( StereogramPipeline.DEFAULT_IMAGE_POOL_SIZE );
+
+   /**
+    * Initializes a new StereogramRenderer object whose 1D textures take their buffers from a pool of up to
+    * {@value StereogramPipeline#DEFAULT_TEXTURE_POOL_SIZE} bytes.
+    */
+   public StereogramRenderer()
+   {
+      this( new ArrayTexture1DFactory( new IntArrayPool( StereogramPipeline.DEFAULT_TEXTURE_POOL_SIZE ) ), new StereogramProcessor() );
+   }
+
+   /**
+    * Initializes a new StereogramRenderer object that uses a specific 1D texture implementation and processor. Both are shared by
+    * concurrent requests.
+    * <p>
+    * Pass a processor created with a {@link java.util.concurrent.ForkJoinPool} to render the rows of each stereogram in parallel.
+    * </p>
+    *
+    * @param texture1DFactory the factory that creates the 1D texture for each row of a stereogram.
+    * @param processor the processor that renders the stereograms.
+    */
+   public StereogramRenderer( final Texture1DFactory texture1DFactory, final StereogramProcessor processor )
+   {
+      this.texture1DFactory = texture1DFactory;
+      this.processor = processor;
+   }
+
+   /**
+    * Renders a stereogram. May be called by any number of threads at the same time.
+    *
+    * @param request the parameters of the stereogram.
+    * @return a new image that belongs to the caller. It can be {@link #recycle(BufferedImage) recycled} once it is no longer
+    *         needed.
+    * @throws IllegalArgumentException if the height map or the texture cannot be read.
+    */
+   public BufferedImage render( final RenderRequest request )
+   {
+      final Object mapKey = request.getHeightMapSource().getContentKey();
+      final HeightMap map = getRescaledHeightMap( request, mapKey );
+      final Texture2D texture = getTexture2D( request, mapKey, map );
+
+      final BufferedImage image = this.imagePool.take( map.getWidth(), map.getHeight(), BufferedImage.TYPE_INT_ARGB );
+      this.processor.process( map, texture, image );
+      return image;
+   }
+
+   /**
+    * Renders a stereogram row by row into a sink, e.g. an encoder writing straight to a file or a response, without holding the
+    * whole stereogram in memory. May be called by any number of threads at the same time.
+    *
+    * @param request the parameters of the stereogram.
+    * @param sink the sink that receives the rows of the stereogram.
+    * @throws IOException if the sink fails.
+    * @throws IllegalArgumentException if the height map or the texture cannot be read.
+    */
+   public void render( final RenderRequest request, final StereogramRowSink sink ) throws IOException
+   {
+      final Object mapKey = request.getHeightMapSource().getContentKey();
+      final HeightMap map = getRescaledHeightMap( request, mapKey );
+      this.processor.process( map, getTexture2D( request, mapKey, map ), sink );
+   }
+
+   /**
+    * Recycles an image returned by {@link #render(RenderRequest)}, so that a later render can reuse its memory.
+    * <p>
+    * The caller must no longer use the image, nor share it with anybody who does.
+    * </p>
+    *
+    * @param image the image to recycle.
+    */
+   public void recycle( final BufferedImage image )
+   {
+      this.imagePool.release( image );
+   }
+
+   /**
+    * Gets the cache of height maps and textures shared by all requests, e.g. to inspect its statistics or change its size.
+    *
+    * @return the result cache.
+    */
+   public ResultCache getResultCache()
+   {
+      return this.resultCache;
+   }
+
+   /**
+    * Gets the pool from which stereograms are taken and to which they are recycled.
+    *
+    * @return the image pool.
+    */
+   public ImagePool getImagePool()
+   {
+      return this.imagePool;
+   }
+
+   @SuppressWarnings( "nls" )
+   private HeightMap getRescaledHeightMap( final RenderRequest request, final Object mapKey )
+   {
+      final StreamSource source = request.getHeightMapSource();
+      // The decoded image is not kept in the image cache as well, since the height map is cached in its place.
+      final HeightMap map = this.resultCache.get( HEIGHT_MAP_STAGE,
+                                                  mapKey,
+                                                  () -> HeightMapPipelineElement.load( source, false ),
+                                                  output -> (long) output.getWidth() * output.getHeight() * Short.BYTES );
+      if( map == null )
+      {
+         throw new IllegalArgumentException( "Cannot read height map " + source );
+      }
+
+      // A lazy view, so cheap enough to create for every request.
+      return new LazyMaximumDepthHeightMapTransformer( request.getMaximumDepth() ).transform( map );
+   }
+
+   private Texture2D getTexture2D( final RenderRequest request, final Object mapKey, final HeightMap map )
+   {
+      // Read the contents of the sources once, so that all the artefacts of a request are of the same contents.
+      final Object textureKey = request.getTextureSource().getContentKey();
+      final int[][] textureData = getTexture( request, textureKey );
+      final Object key = Arrays.asList( mapKey,
+                                        textureKey,
+                                        request.getMaximumDepth(),
+                                        request.getTextureSize(),
+                                        request.getInvertDepth(),
+                                        request.getTextureOffsetFactory() );
+      return this.resultCache.get( TEXTURE_2D_STAGE, key, () -> {
+         final Texture2D texture = new Texture2D( textureData, 0, map.getHeight(), request.getInvertDepth(), this.texture1DFactory );
+         texture.setInitialOffsets( request.getTextureOffsetFactory().getOffsets( map, texture ) );
+         return texture;
+      }, output -> (long) output.getHeight() * Integer.BYTES );
+   }
+
+   @SuppressWarnings( "nls" )
+   private int[][] getTexture( final RenderRequest request, final Object textureKey )
+   {
+      final StreamSource source = request.getTextureSource();
+      final int size = request.getTextureSize();
+      final int[][] texture = this.resultCache.get( TEXTURE_STAGE, Arrays.asList( textureKey, size ), () -> {
+         final BufferedImage image = ImageUtilities.load( source, BufferedImage.TYPE_INT_ARGB, 0, 0, 0, 0 );
+         return image == null ? null : ImageUtilities.getRasterAsInts( ImageUtilities.resize( image, size ) );
+      }, output -> (long) output.length * size * Integer.BYTES );
+      if( texture == null )
+      {
+         throw new IllegalArgumentException( "Cannot read texture " + source );
+      }
+      return texture;
+   }
+}
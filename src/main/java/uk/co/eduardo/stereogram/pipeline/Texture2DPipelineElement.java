@@ -5,17 +5,34 @@
 package uk.co.eduardo.stereogram.pipeline;
 
 import uk.co.eduardo.stereogram.map.HeightMap;
+import uk.co.eduardo.stereogram.texture.Texture1DFactory;
 import uk.co.eduardo.stereogram.texture.Texture2D;
 import uk.co.eduardo.stereogram.texture.TextureOffsetFactory;
 
 /**
  * Generates a 2D texture from a height map and texture name.
+ * <p>
+ * The texture shares the rows of the texture image rather than copying them for every row of the stereogram, and rendering does
+ * not modify it, so the cached texture is reused by every render until an input changes.
+ * </p>
  *
  * @author erodri02
  */
 public class Texture2DPipelineElement
       extends AbstractQuaternaryPipelineElement< int[][], HeightMap, TextureOffsetFactory, Boolean, Texture2D >
 {
+   private final Texture1DFactory texture1DFactory;
+
+   /**
+    * Initializes a new Texture2DPipelineElement object.
+    *
+    * @param texture1DFactory the factory that creates the 1D texture for each row.
+    */
+   public Texture2DPipelineElement( final Texture1DFactory texture1DFactory )
+   {
+      this.texture1DFactory = texture1DFactory;
+   }
+
    /**
     * {@inheritDoc}
     */
@@ -28,23 +45,44 @@ public class Texture2DPipelineElement
       final int[][] textureData = firstInput.getOutput();
       final HeightMap heightMap = secondInput.getOutput();
       final TextureOffsetFactory offsetFactory = thirdInput.getOutput();
-      final boolean invert = fourthInput.getOutput();
+      final boolean invert = getBooleanOutput( fourthInput );
 
-      final Texture2D texture = create( textureData, heightMap.getHeight(), invert );
+      final Texture2D texture = new Texture2D( textureData, 0, heightMap.getHeight(), invert, this.texture1DFactory );
       texture.setInitialOffsets( offsetFactory.getOffsets( heightMap, texture ) );
       return texture;
    }
 
-   private Texture2D create( final int[][] textureData, final int stereogramHeight, final boolean invert )
+   /**
+    * Recomputes the offsets of a range of rows of the cached texture for the given height map. Used to re-render rows of the
+    * height map that have been edited without recomputing the whole texture. The cached texture is replaced by a copy with the new
+    * offsets, so a texture that has already been returned, and may still be being rendered from, is never modified.
+    *
+    * @param heightMap the height map the texture is for.
+    * @param offsetFactory the texture offset factory.
+    * @param startRow the first row, inclusive.
+    * @param endRow the last row, exclusive.
+    * @return whether the offsets were updated. <code>false</code> if the texture is out of date and so will be recomputed anyway.
+    */
+   public boolean updateOffsets( final HeightMap heightMap,
+                                 final TextureOffsetFactory offsetFactory,
+                                 final int startRow,
+                                 final int endRow )
    {
-      final int textureHeight = textureData.length;
-
-      final int[][] fullTexture = new int[ stereogramHeight ][];
-      for( int y = 0; y < stereogramHeight; y++ )
-      {
-         fullTexture[ y ] = textureData[ y % textureHeight ];
-      }
+      return updateCachedOutput( texture -> {
+         final int[] offsets = offsetFactory.getOffsets( heightMap, texture, startRow, endRow );
+         return texture.withInitialOffsets( startRow, offsets );
+      } );
+   }
 
-      return new Texture2D( fullTexture, invert );
+   /**
+    * {@inheritDoc}
+    * <p>
+    * Only the offsets are counted. The rows are shared with the texture image, which is charged for them.
+    * </p>
+    */
+   @Override
+   protected long getOutputWeight( final Texture2D output )
+   {
+      return (long) output.getHeight() * Integer.BYTES;
    }
 }
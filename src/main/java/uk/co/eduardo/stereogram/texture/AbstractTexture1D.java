@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.texture;
+
+/**
+ * Base implementation of a 1D texture that handles depth inversion.
+ *
+ * @author erodri02
+ */
+public abstract class AbstractTexture1D implements Texture1D
+{
+   private final int size;
+
+   private final int invertMultiplier;
+
+   /**
+    * Initializes a new AbstractTexture1D object.
+    *
+    * @param size the number of pixels in the texture.
+    * @param invert whether depth should be inverted
+    */
+   protected AbstractTexture1D( final int size, final boolean invert )
+   {
+      this.size = size;
+      this.invertMultiplier = invert ? -1 : 1;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public int getSize()
+   {
+      return this.size;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void setLevelDelta( final int levelDelta )
+   {
+      final int value = levelDelta * this.invertMultiplier;
+      if( value > 0 )
+      {
+         increaseDepth( value );
+      }
+      else if( value < 0 )
+      {
+         decreaseDepth( -value );
+      }
+   }
+
+   /**
+    * Increases the pseudo 3D depth by the specified amount.
+    * <p>
+    * Modifies the underlying texture so that the pseudo 3D level is increased by the amount.
+    * </p>
+    *
+    * @param increaseAmount the amount (positive) by which to increase the pseudo 3D depth.
+    */
+   protected abstract void increaseDepth( final int increaseAmount );
+
+   /**
+    * Decreases the pseudo 3D depth by the specified amount.
+    * <p>
+    * Modifies the underlying texture so that the pseudo 3D level is decreased by the amount.
+    * </p>
+    *
+    * @param decreaseAmount the amount (positive) by which to decrease the pseudo 3D depth.
+    */
+   protected abstract void decreaseDepth( final int decreaseAmount );
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.texture;
+
+/**
+ * A 1D texture that stores its pixels in a flat ring buffer.
+ * <p>
+ * The pixels form a circular sequence starting at the current position. The sequence is held contiguously (modulo the capacity)
+ * in an array whose capacity is a power of two so that positions can be wrapped with a mask. Changing the depth moves the head of
+ * the sequence and so costs no allocation. The array is only ever grown if the depth is decreased by more than the spare capacity.
+ * </p>
+ * <p>
+ * Produces exactly the same sequence of pixels as {@link LinkedTexture1D}.
+ * </p>
+ * <p>
+ * The array may be taken from an {@link IntArrayPool}, in which case it is returned to the pool when the texture is
+ * {@link #release() released}.
+ * </p>
+ *
+ * @author erodri02
+ */
+public class ArrayTexture1D extends AbstractTexture1D
+{
+   private final IntArrayPool pool;
+
+   private int[] buffer;
+
+   private int mask;
+
+   private int head;
+
+   private int length;
+
+   /**
+    * Initializes a new ArrayTexture1D object.
+    *
+    * @param texture the texture. Must be rectangular and not a ragged array.
+    * @param invert whether depth should be inverted
+    */
+   public ArrayTexture1D( final int[] texture, final boolean invert )
+   {
+      this( texture, invert, null );
+   }
+
+   /**
+    * Initializes a new ArrayTexture1D object whose array is taken from a pool.
+    *
+    * @param texture the texture. Must be rectangular and not a ragged array.
+    * @param invert whether depth should be inverted
+    * @param pool the pool from which to take the array, or <code>null</code> to allocate it.
+    */
+   public ArrayTexture1D( final int[] texture, final boolean invert, final IntArrayPool pool )
+   {
+      super( texture.length, invert );
+      this.pool = pool;
+      this.buffer = allocate( capacityFor( texture.length * 2 ) );
+      this.mask = this.buffer.length - 1;
+      this.head = 0;
+      this.length = texture.length;
+      System.arraycopy( texture, 0, this.buffer, 0, texture.length );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void cycle( final int cycle )
+   {
+      if( cycle <= 0 )
+      {
+         return;
+      }
+      final int steps = cycle % this.length;
+      for( int i = 0; i < steps; i++ )
+      {
+         getAndIncrement();
+      }
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public int get()
+   {
+      return this.buffer[ this.head ];
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public int getAndIncrement()
+   {
+      // Move the current pixel from the front of the sequence to the back.
+      final int val = this.buffer[ this.head ];
+      this.buffer[ ( this.head + this.length ) & this.mask ] = val;
+      this.head = ( this.head + 1 ) & this.mask;
+      return val;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   protected void increaseDepth( final int increaseAmount )
+   {
+      // Drop the pixels that follow the current one. Skipping a whole number of turns of the ring removes nothing.
+      final int removed = increaseAmount % this.length;
+      if( removed == 0 )
+      {
+         return;
+      }
+      final int val = this.buffer[ this.head ];
+      this.head = ( this.head + removed ) & this.mask;
+      this.buffer[ this.head ] = val;
+      this.length -= removed;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   protected void decreaseDepth( final int decreaseAmount )
+   {
+      if( ( this.length + decreaseAmount ) > this.buffer.length )
+      {
+         grow( this.length + decreaseAmount );
+      }
+
+      // Repeat the current pixel in front of itself.
+      final int val = this.buffer[ this.head ];
+      this.head = ( this.head - decreaseAmount ) & this.mask;
+      for( int i = 0; i < decreaseAmount; i++ )
+      {
+         this.buffer[ ( this.head + i ) & this.mask ] = val;
+      }
+      this.length += decreaseAmount;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void release()
+   {
+      if( ( this.pool != null ) && ( this.buffer != null ) )
+      {
+         this.pool.release( this.buffer );
+      }
+      this.buffer = null;
+   }
+
+   private void grow( final int minimumCapacity )
+   {
+      final int[] newBuffer = allocate( capacityFor( minimumCapacity ) );
+      for( int i = 0; i < this.length; i++ )
+      {
+         newBuffer[ i ] = this.buffer[ ( this.head + i ) & this.mask ];
+      }
+      if( this.pool != null )
+      {
+         this.pool.release( this.buffer );
+      }
+      this.buffer = newBuffer;
+      this.mask = newBuffer.length - 1;
+      this.head = 0;
+   }
+
+   private int[] allocate( final int capacity )
+   {
+      return this.pool == null ? new int[ capacity ] : this.pool.take( capacity );
+   }
+
+   private static int capacityFor( final int minimumCapacity )
+   {
+      if( minimumCapacity <= 1 )
+      {
+         return 1;
+      }
+      return Integer.highestOneBit( minimumCapacity - 1 ) << 1;
+   }
+}
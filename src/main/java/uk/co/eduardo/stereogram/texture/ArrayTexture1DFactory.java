@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.texture;
+
+/**
+ * Creates 1D textures backed by a flat ring buffer.
+ *
+ * @author erodri02
+ * @see ArrayTexture1D
+ */
+public class ArrayTexture1DFactory implements Texture1DFactory
+{
+   private final IntArrayPool pool;
+
+   /**
+    * Initializes a new ArrayTexture1DFactory object that allocates a new array for every texture.
+    */
+   public ArrayTexture1DFactory()
+   {
+      this( null );
+   }
+
+   /**
+    * Initializes a new ArrayTexture1DFactory object that takes the arrays of its textures from a pool. The arrays are returned to
+    * the pool as each texture is released, i.e. as each row is rendered.
+    *
+    * @param pool the pool of arrays, or <code>null</code> to allocate a new array for every texture.
+    */
+   public ArrayTexture1DFactory( final IntArrayPool pool )
+   {
+      this.pool = pool;
+   }
+
+   /**
+    * Gets the pool from which the arrays of the textures are taken, e.g. to read its statistics.
+    *
+    * @return the pool, or <code>null</code> if the arrays are not pooled.
+    */
+   public IntArrayPool getPool()
+   {
+      return this.pool;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public Texture1D createTexture1D( final int[] texture, final boolean invert )
+   {
+      return new ArrayTexture1D( texture, invert, this.pool );
+   }
+}
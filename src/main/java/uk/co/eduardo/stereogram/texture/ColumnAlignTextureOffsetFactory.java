@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.texture;
+
+import uk.co.eduardo.stereogram.map.HeightMap;
+
+/**
+ * Offsets each row so that the texture looks normal around a chosen column of the stereogram rather than at its left-hand side.
+ * <p>
+ * The offset of a row is the position in the texture reached at the alignment column. The width of the texture at a pixel only
+ * depends on the depth of that pixel relative to the start of the row, so a run of pixels of equal depth is stepped over in one
+ * go. Stepping past the end of the texture subtracts its width; a remainder is only needed when the texture has narrowed below the
+ * current position or the run is longer than the texture. The width never falls below one pixel, however deep the row. Only the
+ * values up to the alignment column are read from each row.
+ * </p>
+ *
+ * @author erodri02
+ */
+public class ColumnAlignTextureOffsetFactory implements TextureOffsetFactory
+{
+   private final double fraction;
+
+   /**
+    * Initializes a new ColumnAlignTextureOffsetFactory object.
+    *
+    * @param fraction the position of the alignment column as a fraction of the width of the height map, from 0 (the left-hand
+    *           side, i.e. no offsets) to 1 (the right-hand side).
+    */
+   public ColumnAlignTextureOffsetFactory( final double fraction )
+   {
+      if( !( ( fraction >= 0 ) && ( fraction <= 1 ) ) )
+      {
+         throw new IllegalArgumentException( "fraction must be between 0 and 1" ); //$NON-NLS-1$
+      }
+      this.fraction = fraction;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public int[] getOffsets( final HeightMap heightMap, final Texture2D texture )
+   {
+      return getOffsets( heightMap, texture, 0, heightMap.getHeight() );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public int[] getOffsets( final HeightMap heightMap, final Texture2D texture, final int startRow, final int endRow )
+   {
+      final int[] offsets = new int[ endRow - startRow ];
+      final int column = Math.min( getAlignmentColumn( heightMap ), heightMap.getWidth() );
+      if( column <= 0 )
+      {
+         return offsets;
+      }
+
+      final short[] row = new short[ column ];
+      for( int y = startRow; y < endRow; y++ )
+      {
+         heightMap.getRow( y, row, 0, column );
+         offsets[ y - startRow ] = getOffset( row, column, texture.getRowSize( y ) );
+      }
+      return offsets;
+   }
+
+   /**
+    * Gets the column of the height map at which the texture is aligned.
+    *
+    * @param heightMap the height map.
+    * @return the alignment column.
+    */
+   protected int getAlignmentColumn( final HeightMap heightMap )
+   {
+      return (int) ( heightMap.getWidth() * this.fraction );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public boolean equals( final Object obj )
+   {
+      return ( obj != null ) &&
+             ( obj.getClass() == getClass() ) &&
+             ( Double.compare( this.fraction, ( (ColumnAlignTextureOffsetFactory) obj ).fraction ) == 0 );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public int hashCode()
+   {
+      return ( 31 * getClass().hashCode() ) + Double.hashCode( this.fraction );
+   }
+
+   private static int getOffset( final short[] row, final int column, final int textureWidth )
+   {
+      final int first = row[ 0 ];
+      int position = 0;
+      int x = 0;
+      while( x < column )
+      {
+         final int value = row[ x ];
+         int runEnd = x + 1;
+         while( ( runEnd < column ) && ( row[ runEnd ] == value ) )
+         {
+            runEnd++;
+         }
+
+         final int width = Math.max( 1, textureWidth - ( value - first ) );
+         position += runEnd - x;
+         if( position >= width )
+         {
+            position -= width;
+            if( position >= width )
+            {
+               position %= width;
+            }
+         }
+         x = runEnd;
+      }
+      return position;
+   }
+}
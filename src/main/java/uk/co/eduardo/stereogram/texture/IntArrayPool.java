@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.texture;
+
+import uk.co.eduardo.stereogram.BufferPool;
+
+/**
+ * A pool of <code>int</code> arrays that are no longer in use, keyed by their length. Used for the buffers of
+ * {@link ArrayTexture1D}.
+ * <p>
+ * An array taken from the pool holds the values it was released with.
+ * </p>
+ *
+ * @author erodri02
+ */
+public class IntArrayPool extends BufferPool< Integer, int[] >
+{
+   /**
+    * Initializes a new IntArrayPool object.
+    *
+    * @param maximumWeight the maximum number of bytes of arrays to hold. Zero disables pooling.
+    */
+   public IntArrayPool( final long maximumWeight )
+   {
+      super( maximumWeight );
+   }
+
+   /**
+    * Takes an array out of the pool, or creates one if there is none of the right length.
+    *
+    * @param length the length of the array.
+    * @return an array whose values are undefined.
+    */
+   public int[] take( final int length )
+   {
+      final int[] array = poll( Integer.valueOf( length ) );
+      return array == null ? new int[ length ] : array;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   protected Integer getKey( final int[] array )
+   {
+      return Integer.valueOf( array.length );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   protected long getWeight( final int[] array )
+   {
+      return 4L * array.length;
+   }
+}
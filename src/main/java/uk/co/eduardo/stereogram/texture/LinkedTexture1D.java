@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.texture;
+
+/**
+ * A 1D texture that stores its pixels as a circular linked list.
+ * <p>
+ * Increasing the depth unlinks pixels from the list and decreasing the depth inserts new copies of the current pixel.
+ * </p>
+ *
+ * @author erodri02
+ */
+public class LinkedTexture1D extends AbstractTexture1D
+{
+   private TextureItem position;
+
+   /**
+    * Initializes a new LinkedTexture1D object.
+    *
+    * @param texture the texture. Must be rectangular and not a ragged array.
+    * @param invert whether depth should be inverted
+    */
+   public LinkedTexture1D( final int[] texture, final boolean invert )
+   {
+      super( texture.length, invert );
+      this.position = createList( texture );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void cycle( final int cycle )
+   {
+      for( int i = 0; i < cycle; i++ )
+      {
+         this.position = this.position.next;
+      }
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public int get()
+   {
+      return this.position.val;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public int getAndIncrement()
+   {
+      final int val = this.position.val;
+      this.position = this.position.next;
+      return val;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   protected void increaseDepth( final int increaseAmount )
+   {
+      TextureItem newNext = this.position.next;
+      for( int i = 0; i < increaseAmount; i++ )
+      {
+         newNext = newNext.next;
+      }
+      this.position.next = newNext;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   protected void decreaseDepth( final int decreaseAmount )
+   {
+      final int val = this.position.val;
+      final TextureItem oldNext = this.position.next;
+
+      TextureItem current = this.position;
+      for( int i = 0; i < decreaseAmount; i++ )
+      {
+         final TextureItem item = new TextureItem( val );
+         current.next = item;
+         current = item;
+      }
+      current.next = oldNext;
+   }
+
+   private static TextureItem createList( final int[] input )
+   {
+      final TextureItem first = new TextureItem( input[ 0 ] );
+      TextureItem last = first;
+      for( int i = 1; i < input.length; i++ )
+      {
+         final TextureItem ti = new TextureItem( input[ i ] );
+         last.next = ti;
+         last = ti;
+      }
+      last.next = first;
+      return first;
+   }
+
+   private static final class TextureItem
+   {
+      private final int val;
+
+      private TextureItem next;
+
+      private TextureItem( final int val )
+      {
+         this.val = val;
+      }
+   }
+}
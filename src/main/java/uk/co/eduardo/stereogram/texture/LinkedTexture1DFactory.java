@@ -0,0 +1,23 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.texture;
+
+/**
+ * Creates 1D textures backed by a circular linked list.
+ *
+ * @author erodri02
+ * @see LinkedTexture1D
+ */
+public class LinkedTexture1DFactory implements Texture1DFactory
+{
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public Texture1D createTexture1D( final int[] texture, final boolean invert )
+   {
+      return new LinkedTexture1D( texture, invert );
+   }
+}
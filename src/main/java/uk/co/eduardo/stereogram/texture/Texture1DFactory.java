@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.texture;
+
+/**
+ * Creates the {@link Texture1D} implementation used for each row of a {@link Texture2D}.
+ *
+ * @author erodri02
+ */
+public interface Texture1DFactory
+{
+   /**
+    * Creates a 1D texture for a row of pixels.
+    * <p>
+    * Each pixel in the texture is represented as an integer. R, G, B and alpha components are packed into a single integer as
+    * AABBGGRR. I.e. the least significant byte contains the red component, the next byte is the green component, then blue and,
+    * finally, the alpha element is in the most significant byte.
+    * </p>
+    *
+    * @param texture the row of pixels. The array is not modified.
+    * @param invert whether depth should be inverted.
+    * @return a new 1D texture.
+    */
+   Texture1D createTexture1D( final int[] texture, boolean invert );
+}
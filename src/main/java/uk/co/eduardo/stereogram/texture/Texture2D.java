@@ -7,14 +7,26 @@ package uk.co.eduardo.stereogram.texture;
 /**
  * Represents a 2D texture.
  * <p>
- * The texture has the same height (rows) as the stereogram that will be generated. Each row is represented as a {@link Texture1D}.
+ * The texture has the same height (rows) as the stereogram that will be generated. The texture image is repeated down the
+ * stereogram, so the texture only holds the distinct rows of the image, which are shared and never modified, and an initial
+ * offset for each row of the stereogram. Each call to {@link #getTexture1D(int)} creates a new {@link Texture1D} that holds the
+ * state of one render of one row, so the texture can be rendered any number of times and setting it up costs nothing per row of
+ * the stereogram.
  * </p>
  *
  * @author erodri02
  */
 public class Texture2D
 {
-   private final Texture1D[] textures;
+   private final int[][] rows;
+
+   private final int startRow;
+
+   private final int[] offsets;
+
+   private final boolean invert;
+
+   private final Texture1DFactory factory;
 
    /**
     * Constrcuts a 2D texture from the two dimensional array. *
@@ -29,22 +41,91 @@ public class Texture2D
     */
    public Texture2D( final int[][] texture, final boolean invert )
    {
-      this.textures = new Texture1D[ texture.length ];
-      for( int y = 0; y < texture.length; y++ )
+      this( texture, invert, new ArrayTexture1DFactory() );
+   }
+
+   /**
+    * Constrcuts a 2D texture from the two dimensional array using the given factory to create each row.
+    *
+    * @param texture the pixel array from which to create the texture.
+    * @param invert whether depth should be inverted,
+    * @param factory the factory that creates the 1D texture for each row.
+    */
+   public Texture2D( final int[][] texture, final boolean invert, final Texture1DFactory factory )
+   {
+      this( texture, 0, texture.length, invert, factory );
+   }
+
+   /**
+    * Constructs a 2D texture by repeating the rows of a texture image down some rows of a stereogram.
+    * <p>
+    * Row <code>y</code> of the 2D texture is row <code>(startRow + y) % rows.length</code> of the texture image. The rows are
+    * shared, not copied, and must not be modified.
+    * </p>
+    *
+    * @param rows the rows of pixels of the texture image.
+    * @param startRow the row of the stereogram for the first row of the texture.
+    * @param height the number of rows in the texture.
+    * @param invert whether depth should be inverted,
+    * @param factory the factory that creates the 1D texture for each row.
+    */
+   public Texture2D( final int[][] rows,
+                     final int startRow,
+                     final int height,
+                     final boolean invert,
+                     final Texture1DFactory factory )
+   {
+      if( ( startRow < 0 ) || ( height < 0 ) || ( ( height > 0 ) && ( rows.length == 0 ) ) )
       {
-         this.textures[ y ] = new Texture1D( texture[ y ], invert );
+         throw new IllegalArgumentException();
       }
+      this.rows = rows;
+      this.startRow = startRow;
+      this.offsets = new int[ height ];
+      this.invert = invert;
+      this.factory = factory;
+   }
+
+   /**
+    * Gets the number of rows in the texture.
+    *
+    * @return the height of the texture.
+    */
+   public int getHeight()
+   {
+      return this.offsets.length;
+   }
+
+   /**
+    * Gets the number of pixels in a row of the texture, i.e. the size of its 1D textures.
+    *
+    * @param y the y offset.
+    * @return the number of pixels in the row.
+    */
+   public int getRowSize( final int y )
+   {
+      return getRow( y ).length;
    }
 
    /**
-    * Gets the 1D texture (row of pxiels) at the given Y offset.
+    * Creates a new 1D texture (row of pxiels) for the given Y offset, cycled by the initial offset of the row.
+    * <p>
+    * Every call returns a new texture, which is consumed by rendering and should be {@link Texture1D#release() released} once the
+    * row has been rendered.
+    * </p>
     *
     * @param y the y offset.
-    * @return the 1D texture at that position.
+    * @return a new 1D texture for that position.
     */
    public Texture1D getTexture1D( final int y )
    {
-      return this.textures[ y ];
+      final Texture1D texture = this.factory.createTexture1D( getRow( y ), this.invert );
+      final int offset = this.offsets[ y ];
+      if( offset != 0 )
+      {
+         texture.cycle( texture.getSize() - offset );
+      }
+      return texture;
    }
 
    /**
@@ -52,25 +133,59 @@ public class Texture2D
     * the height map so that the texture becomes more and more warped towards the right hand side of the image. To combat this, it
     * is possible to set initial offsets (an integer value for each row). This warps the texture on the left hand side such that it
     * should look normal again around the middle of the image.
+    * <p>
+    * The offsets replace any set before. They must not be changed while the texture is being rendered.
+    * </p>
     *
     * @param offsets one value for each row in the texture.
     */
    public void setInitialOffsets( final int[] offsets )
    {
       // Check they're the correct length
-      if( offsets.length != this.textures.length )
+      if( offsets.length != this.offsets.length )
       {
          throw new IllegalArgumentException();
       }
 
-      for( int y = 0; y < offsets.length; y++ )
+      setInitialOffsets( 0, offsets );
+   }
+
+   /**
+    * Sets the initial offsets of a range of rows.
+    *
+    * @param startRow the first row to which to apply an offset.
+    * @param offsets one value for each row from <code>startRow</code>.
+    * @see #setInitialOffsets(int[])
+    */
+   public void setInitialOffsets( final int startRow, final int[] offsets )
+   {
+      if( ( startRow < 0 ) || ( ( startRow + offsets.length ) > this.offsets.length ) )
       {
-         final int offset = offsets[ y ];
-         if( offset != 0 )
-         {
-            final int textureSize = this.textures[ y ].getSize();
-            this.textures[ y ].cycle( textureSize - offset );
-         }
+         throw new IllegalArgumentException();
       }
+
+      System.arraycopy( offsets, 0, this.offsets, startRow, offsets.length );
+   }
+
+   /**
+    * Creates a copy of this texture with the initial offsets of a range of rows replaced. This texture is not modified, so it can
+    * go on being rendered while the copy is made.
+    *
+    * @param startRow the first row to which to apply an offset.
+    * @param offsets one value for each row from <code>startRow</code>.
+    * @return the copy. It shares the rows of pixels of this texture.
+    * @see #setInitialOffsets(int, int[])
+    */
+   public Texture2D withInitialOffsets( final int startRow, final int[] offsets )
+   {
+      final Texture2D copy = new Texture2D( this.rows, this.startRow, this.offsets.length, this.invert, this.factory );
+      System.arraycopy( this.offsets, 0, copy.offsets, 0, this.offsets.length );
+      copy.setInitialOffsets( startRow, offsets );
+      return copy;
+   }
+
+   private int[] getRow( final int y )
+   {
+      return this.rows[ ( this.startRow + y ) % this.rows.length ];
    }
 }
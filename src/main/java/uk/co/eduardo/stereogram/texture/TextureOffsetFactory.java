@@ -4,6 +4,8 @@
  */
 package uk.co.eduardo.stereogram.texture;
 
+import java.util.Arrays;
+
 import uk.co.eduardo.stereogram.map.HeightMap;
 
 /**
@@ -27,4 +29,21 @@ public interface TextureOffsetFactory
     * @return an array of texture offsets.
     */
    int[] getOffsets( final HeightMap map, Texture2D texture );
+
+   /**
+    * Gets the texture offsets for a range of rows only, e.g. to update rows of the height map that have been edited.
+    * <p>
+    * The default implementation computes the offsets for every row and copies the requested range.
+    * </p>
+    *
+    * @param map the height map for which the texture offsets are to be calculated.
+    * @param texture the texture to apply to the height map.
+    * @param startRow the first row, inclusive.
+    * @param endRow the last row, exclusive.
+    * @return an array of <code>endRow - startRow</code> texture offsets, the first for <code>startRow</code>.
+    */
+   default int[] getOffsets( final HeightMap map, final Texture2D texture, final int startRow, final int endRow )
+   {
+      return Arrays.copyOfRange( getOffsets( map, texture ), startRow, endRow );
+   }
 }
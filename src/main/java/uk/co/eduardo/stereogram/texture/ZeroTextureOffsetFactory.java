@@ -25,4 +25,31 @@ public class ZeroTextureOffsetFactory implements TextureOffsetFactory
       Arrays.fill( offsets, 0 );
       return offsets;
    }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public int[] getOffsets( final HeightMap map, final Texture2D texture, final int startRow, final int endRow )
+   {
+      return new int[ endRow - startRow ];
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public boolean equals( final Object obj )
+   {
+      return ( obj != null ) && ( obj.getClass() == getClass() );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public int hashCode()
+   {
+      return getClass().hashCode();
+   }
 }
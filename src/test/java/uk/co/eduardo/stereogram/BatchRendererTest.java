@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import uk.co.eduardo.stereogram.BatchRenderer.Job;
+import uk.co.eduardo.stereogram.pipeline.RenderRequest;
+import uk.co.eduardo.stereogram.texture.CentreAlignTextureOffsetFactory;
+
+/**
+ * Tests for {@link BatchRenderer}.
+ *
+ * @author erodri02
+ */
+@SuppressWarnings( "nls" )
+public class BatchRendererTest
+{
+   /** Holds the manifests, maps and stereograms written by a test. */
+   @Rule
+   public final TemporaryFolder folder = new TemporaryFolder();
+
+   /**
+    * A manifest gives one job per combination, ordered by map and then by texture, each writing its own file in the output
+    * directory.
+    *
+    * @throws IOException if the manifest cannot be written or read.
+    */
+   @Test
+   public void readsEveryCombination() throws IOException
+   {
+      final List< Job > jobs = BatchRenderer.readManifest( writeManifest( "maps=SHARK, cube",
+                                                                          "textures=TEXTURE_1",
+                                                                          "depths=20,30",
+                                                                          "offsets=zero,Centre",
+                                                                          "output=out" ) );
+      assertEquals( 8, jobs.size() );
+      assertEquals( 8, jobs.stream().map( Job::getOutputPath ).distinct().count() );
+      for( final Job job : jobs )
+      {
+         assertEquals( this.folder.getRoot().toPath().resolve( "out" ), job.getOutputPath().getParent() );
+      }
+
+      final RenderRequest first = jobs.get( 0 ).getRequest();
+      assertSame( MapResources.SHARK, first.getHeightMapSource() );
+      assertSame( TextureResources.TEXTURE_1, first.getTextureSource() );
+      assertEquals( 20, first.getMaximumDepth() );
+      assertEquals( BatchRenderer.DEFAULT_TEXTURE_SIZE, first.getTextureSize() );
+      assertEquals( CentreAlignTextureOffsetFactory.class, jobs.get( 1 ).getRequest().getTextureOffsetFactory().getClass() );
+      assertSame( MapResources.CUBE, jobs.get( 4 ).getRequest().getHeightMapSource() );
+   }
+
+   /**
+    * Map files with the same name in different directories write different stereograms.
+    *
+    * @throws IOException if the files cannot be written or read.
+    */
+   @Test
+   public void namesFilesByManifestPath() throws IOException
+   {
+      copyResource( MapResources.SHARK, "a/map.png" );
+      copyResource( MapResources.SHARK, "b/map.png" );
+      final List< Job > jobs = BatchRenderer.readManifest( writeManifest( "maps=a/map.png,b/map.png", "textures=TEXTURE_1" ) );
+      assertEquals( 2, jobs.size() );
+      assertNotEquals( jobs.get( 0 ).getOutputPath(), jobs.get( 1 ).getOutputPath() );
+   }
+
+   /**
+    * A manifest in which two jobs would write the same file is rejected.
+    *
+    * @throws IOException if the manifest cannot be written or read.
+    */
+   @Test( expected = IllegalArgumentException.class )
+   public void rejectsOutputCollisions() throws IOException
+   {
+      BatchRenderer.readManifest( writeManifest( "maps=SHARK,shark", "textures=TEXTURE_1" ) );
+   }
+
+   /**
+    * Maps that are neither resources nor files, and unknown offsets, are rejected.
+    *
+    * @throws IOException if the manifest cannot be written or read.
+    */
+   @Test
+   public void rejectsUnknownValues() throws IOException
+   {
+      for( final String[] manifest : new String[][] { { "maps=missing.png", "textures=TEXTURE_1" },
+                                                      { "maps=SHARK", "textures=TEXTURE_1", "offsets=left" } } )
+      {
+         try
+         {
+            BatchRenderer.readManifest( writeManifest( manifest ) );
+            fail( "read " + Arrays.toString( manifest ) );
+         }
+         catch( final IllegalArgumentException expected )
+         {
+            // Expected
+         }
+      }
+   }
+
+   /**
+    * Rendering the jobs writes a PNG for each of them.
+    *
+    * @throws IOException if the manifest cannot be written or read, or a stereogram cannot be read back.
+    */
+   @Test
+   public void writesStereograms() throws IOException
+   {
+      final List< Job > jobs = BatchRenderer.readManifest( writeManifest( "maps=SHARK", "textures=TEXTURE_1", "depths=20,25" ) );
+      assertEquals( 0, new BatchRenderer( 2 ).render( jobs ) );
+      for( final Job job : jobs )
+      {
+         final BufferedImage stereogram = ImageIO.read( job.getOutputPath().toFile() );
+         assertNotNull( stereogram );
+         assertTrue( stereogram.getWidth() > 0 );
+      }
+   }
+
+   private Path writeManifest( final String... lines ) throws IOException
+   {
+      final Path manifest = this.folder.getRoot().toPath().resolve( "manifest.properties" );
+      Files.write( manifest, Arrays.asList( lines ), StandardCharsets.ISO_8859_1 );
+      return manifest;
+   }
+
+   private void copyResource( final StreamSource source, final String name ) throws IOException
+   {
+      final Path path = this.folder.getRoot().toPath().resolve( name );
+      Files.createDirectories( path.getParent() );
+      try( InputStream stream = source.getStream() )
+      {
+         Files.copy( stream, path );
+      }
+   }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link ImageCache}.
+ *
+ * @author erodri02
+ */
+@SuppressWarnings( "nls" )
+public class ImageCacheTest
+{
+   /** The number of bytes held by each of the test images. */
+   private static final long IMAGE_WEIGHT = 10 * 10 * Integer.BYTES;
+
+   /** Holds the files written by a test. */
+   @Rule
+   public final TemporaryFolder folder = new TemporaryFolder();
+
+   /**
+    * Once the cache is full the least recently used image is evicted.
+    */
+   @Test
+   public void evictsLeastRecentlyUsed()
+   {
+      final ImageCache cache = new ImageCache( 2 * IMAGE_WEIGHT );
+      final ImageCache.Key first = createKey( MapResources.BUNNY );
+      final ImageCache.Key second = createKey( MapResources.CUBE );
+      final ImageCache.Key third = createKey( MapResources.SHARK );
+
+      final BufferedImage firstImage = cache.get( first, key -> createImage() );
+      cache.get( second, key -> createImage() );
+      assertSame( firstImage, cache.get( first, ImageCacheTest::failToLoad ) );
+      cache.get( third, key -> createImage() );
+
+      assertSame( firstImage, cache.getIfPresent( first ) );
+      assertNull( cache.getIfPresent( second ) );
+      final CacheStatistics statistics = cache.getStatistics();
+      assertEquals( 2, statistics.getSize() );
+      assertEquals( 2 * IMAGE_WEIGHT, statistics.getWeight() );
+      assertEquals( 1, statistics.getEvictionCount() );
+   }
+
+   /**
+    * Images larger than the cache, and failed loads, are not cached.
+    */
+   @Test
+   public void doesNotCacheOversizedOrMissingImages()
+   {
+      final ImageCache cache = new ImageCache( IMAGE_WEIGHT - 1 );
+      final ImageCache.Key key = createKey( MapResources.BUNNY );
+      cache.get( key, k -> createImage() );
+      assertNull( cache.getIfPresent( key ) );
+
+      cache.setMaximumWeight( IMAGE_WEIGHT );
+      assertNull( cache.get( key, k -> null ) );
+      assertNull( cache.getIfPresent( key ) );
+      assertEquals( 0, cache.getStatistics().getSize() );
+   }
+
+   /**
+    * A load that throws does not leave anything behind, so a later request loads the image again.
+    */
+   @Test
+   public void loadsAgainAfterFailure()
+   {
+      final ImageCache cache = new ImageCache( IMAGE_WEIGHT );
+      final ImageCache.Key key = createKey( MapResources.BUNNY );
+      try
+      {
+         cache.get( key, k -> {
+            throw new IllegalStateException( "load failed" );
+         } );
+         fail( "the load did not fail" );
+      }
+      catch( final IllegalStateException expected )
+      {
+         // Expected
+      }
+
+      final BufferedImage image = createImage();
+      assertSame( image, cache.get( key, k -> image ) );
+   }
+
+   /**
+    * Images of the same source are keyed on the type and padding they were loaded with.
+    */
+   @Test
+   public void keysOnTypeAndPadding()
+   {
+      final ImageCache.Key key = new ImageCache.Key( MapResources.BUNNY, BufferedImage.TYPE_BYTE_GRAY, 1, 2, 3, 4 );
+      assertEquals( key, new ImageCache.Key( MapResources.BUNNY, BufferedImage.TYPE_BYTE_GRAY, 1, 2, 3, 4 ) );
+      assertEquals( key.hashCode(),
+                    new ImageCache.Key( MapResources.BUNNY, BufferedImage.TYPE_BYTE_GRAY, 1, 2, 3, 4 ).hashCode() );
+      assertNotEquals( key, new ImageCache.Key( MapResources.CUBE, BufferedImage.TYPE_BYTE_GRAY, 1, 2, 3, 4 ) );
+      assertNotEquals( key, new ImageCache.Key( MapResources.BUNNY, BufferedImage.TYPE_INT_ARGB, 1, 2, 3, 4 ) );
+      assertNotEquals( key, new ImageCache.Key( MapResources.BUNNY, BufferedImage.TYPE_BYTE_GRAY, 1, 2, 3, 5 ) );
+   }
+
+   /**
+    * A file that has been rewritten is loaded again rather than taken from the cache.
+    *
+    * @throws IOException if the file cannot be written.
+    */
+   @Test
+   public void loadsChangedFileAgain() throws IOException
+   {
+      final Path path = this.folder.newFile( "map.png" ).toPath();
+      Files.write( path, new byte[ 10 ] );
+      final PathStreamSource source = new PathStreamSource( path );
+      final ImageCache cache = new ImageCache( 4 * IMAGE_WEIGHT );
+      final AtomicInteger loads = new AtomicInteger();
+
+      final ImageCache.Key original = createKey( source );
+      cache.get( original, key -> {
+         loads.incrementAndGet();
+         return createImage();
+      } );
+      cache.get( createKey( new PathStreamSource( path ) ), ImageCacheTest::failToLoad );
+
+      Files.write( path, new byte[ 20 ] );
+      assertNotEquals( original, createKey( source ) );
+      cache.get( createKey( source ), key -> {
+         loads.incrementAndGet();
+         return createImage();
+      } );
+      assertEquals( 2, loads.get() );
+   }
+
+   private static ImageCache.Key createKey( final StreamSource source )
+   {
+      return new ImageCache.Key( source, BufferedImage.TYPE_INT_ARGB, 0, 0, 0, 0 );
+   }
+
+   private static BufferedImage failToLoad( final ImageCache.Key key )
+   {
+      throw new AssertionError( "loaded a cached image " + key );
+   }
+
+   private static BufferedImage createImage()
+   {
+      return new BufferedImage( 10, 10, BufferedImage.TYPE_INT_ARGB );
+   }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link PngRowReader}.
+ *
+ * @author erodri02
+ */
+@SuppressWarnings( "nls" )
+public class PngRowReaderTest
+{
+   private static final int WIDTH = 37;
+
+   private static final int HEIGHT = 23;
+
+   /**
+    * Reading a PNG a few rows at a time must give the same samples as decoding it with ImageIO, for each kind of PNG.
+    *
+    * @throws IOException if a PNG cannot be written or read.
+    */
+   @Test
+   public void readsSameSamplesAsImageIO() throws IOException
+   {
+      final int[] types = { BufferedImage.TYPE_BYTE_GRAY,
+                            BufferedImage.TYPE_USHORT_GRAY,
+                            BufferedImage.TYPE_BYTE_BINARY,
+                            BufferedImage.TYPE_BYTE_INDEXED,
+                            BufferedImage.TYPE_3BYTE_BGR,
+                            BufferedImage.TYPE_4BYTE_ABGR };
+      for( final int type : types )
+      {
+         final byte[] png = createPng( type );
+         final BufferedImage expected = ImageIO.read( new ByteArrayInputStream( png ) );
+         final WritableRaster expectedRaster = expected.getRaster();
+         final int bands = expectedRaster.getNumBands();
+
+         try( PngRowReader reader = new PngRowReader( new ByteArrayInputStream( png ) ) )
+         {
+            assertEquals( WIDTH, reader.getWidth() );
+            assertEquals( HEIGHT, reader.getHeight() );
+            assertEquals( bands, reader.getSamplesPerPixel() );
+
+            final WritableRaster rows = expectedRaster.createCompatibleWritableRaster( WIDTH, 5 );
+            for( int y = 0; y < HEIGHT; y += rows.getHeight() )
+            {
+               final int count = Math.min( rows.getHeight(), HEIGHT - y );
+               reader.readRows( rows, count );
+               assertArrayEquals( "type " + type + " row " + y,
+                                  expectedRaster.getPixels( 0, y, WIDTH, count, new int[ WIDTH * count * bands ] ),
+                                  rows.getPixels( 0, 0, WIDTH, count, new int[ WIDTH * count * bands ] ) );
+            }
+         }
+      }
+   }
+
+   /**
+    * Rows past the end of the image cannot be read.
+    *
+    * @throws IOException if the PNG cannot be written or read.
+    */
+   @Test
+   public void rejectsRowsPastEnd() throws IOException
+   {
+      try( PngRowReader reader = new PngRowReader( new ByteArrayInputStream( createPng( BufferedImage.TYPE_BYTE_GRAY ) ) ) )
+      {
+         final WritableRaster rows = new BufferedImage( WIDTH, HEIGHT + 1, BufferedImage.TYPE_BYTE_GRAY ).getRaster();
+         reader.readRows( rows, HEIGHT - 1 );
+         try
+         {
+            reader.readRows( rows, 2 );
+            fail( "read past the last row" );
+         }
+         catch( final IOException expected )
+         {
+            // Expected
+         }
+      }
+   }
+
+   /**
+    * A stream that is not a PNG is rejected.
+    */
+   @Test
+   public void rejectsOtherFormats()
+   {
+      try( PngRowReader reader = new PngRowReader( new ByteArrayInputStream( new byte[ 64 ] ) ) )
+      {
+         fail( "read a stream that is not a PNG" );
+      }
+      catch( final IOException expected )
+      {
+         // Expected
+      }
+   }
+
+   /**
+    * Creates a PNG of random pixels. ImageIO chooses the filter for each row, so the rows use a mix of filters.
+    */
+   private static byte[] createPng( final int type ) throws IOException
+   {
+      final Random random = new Random( type );
+      final BufferedImage image = new BufferedImage( WIDTH, HEIGHT, type );
+      final WritableRaster raster = image.getRaster();
+      for( int y = 0; y < HEIGHT; y++ )
+      {
+         for( int x = 0; x < WIDTH; x++ )
+         {
+            for( int band = 0; band < raster.getNumBands(); band++ )
+            {
+               // Smooth areas as well as noise, so that every filter is worth choosing for some rows.
+               final int range = 1 << raster.getSampleModel().getSampleSize( band );
+               final int value = y < ( HEIGHT / 2 ) ? ( x * y ) + band : random.nextInt();
+               raster.setSample( x, y, band, value & ( range - 1 ) );
+            }
+         }
+      }
+      final ByteArrayOutputStream png = new ByteArrayOutputStream();
+      ImageIO.write( image, "png", png );
+      return png.toByteArray();
+   }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link PngRowWriter}.
+ *
+ * @author erodri02
+ */
+@SuppressWarnings( "nls" )
+public class PngRowWriterTest
+{
+   /**
+    * A PNG written row by row must be read back by ImageIO with exactly the same pixels, alpha included. The image is large and
+    * random enough to need several IDAT chunks.
+    *
+    * @throws IOException if the PNG cannot be written or read.
+    */
+   @Test
+   public void roundTripsThroughImageIO() throws IOException
+   {
+      final int width = 301;
+      final int height = 257;
+      final int[] pixels = new int[ width * height ];
+      final Random random = new Random( 1 );
+      for( int i = 0; i < pixels.length; i++ )
+      {
+         pixels[ i ] = random.nextInt();
+      }
+
+      for( final int compressionLevel : new int[] { Deflater.NO_COMPRESSION, Deflater.DEFAULT_COMPRESSION } )
+      {
+         final BufferedImage image = ImageIO.read( new ByteArrayInputStream( write( pixels, width, height, compressionLevel ) ) );
+         assertNotNull( image );
+         assertEquals( width, image.getWidth() );
+         assertEquals( height, image.getHeight() );
+         assertArrayEquals( pixels, image.getRGB( 0, 0, width, height, null, 0, width ) );
+      }
+   }
+
+   /**
+    * Rows must arrive in order.
+    *
+    * @throws IOException always.
+    */
+   @Test( expected = IOException.class )
+   public void rejectsRowsOutOfOrder() throws IOException
+   {
+      try( PngRowWriter writer = new PngRowWriter( new ByteArrayOutputStream() ) )
+      {
+         writer.start( 2, 2 );
+         writer.writeRow( 1, new int[ 2 ] );
+      }
+   }
+
+   /**
+    * Every row must be written before the image is finished.
+    *
+    * @throws IOException always.
+    */
+   @Test( expected = IOException.class )
+   public void rejectsMissingRows() throws IOException
+   {
+      try( PngRowWriter writer = new PngRowWriter( new ByteArrayOutputStream() ) )
+      {
+         writer.start( 2, 2 );
+         writer.writeRow( 0, new int[ 2 ] );
+         writer.finish();
+      }
+   }
+
+   /**
+    * A writer closed after a failed image, however often, can still write a new image.
+    *
+    * @throws IOException if the new image cannot be written or read.
+    */
+   @Test
+   public void closesAbandonedImage() throws IOException
+   {
+      final ByteArrayOutputStream output = new ByteArrayOutputStream();
+      final PngRowWriter writer = new PngRowWriter( output );
+      writer.start( 2, 2 );
+      try
+      {
+         writer.writeRow( 1, new int[ 2 ] );
+         fail( "wrote a row out of order" );
+      }
+      catch( final IOException expected )
+      {
+         // Expected
+      }
+      writer.close();
+      writer.close();
+
+      output.reset();
+      writer.start( 1, 1 );
+      writer.writeRow( 0, new int[] { 0xFF123456 } );
+      writer.finish();
+      writer.close();
+      assertEquals( 0xFF123456, ImageIO.read( new ByteArrayInputStream( output.toByteArray() ) ).getRGB( 0, 0 ) );
+   }
+
+   private static byte[] write( final int[] pixels, final int width, final int height, final int level ) throws IOException
+   {
+      final ByteArrayOutputStream output = new ByteArrayOutputStream();
+      try( PngRowWriter writer = new PngRowWriter( output, level ) )
+      {
+         final int[] row = new int[ width ];
+         writer.start( width, height );
+         for( int y = 0; y < height; y++ )
+         {
+            System.arraycopy( pixels, y * width, row, 0, width );
+            writer.writeRow( y, row );
+         }
+         writer.finish();
+      }
+      return output.toByteArray();
+   }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import uk.co.eduardo.stereogram.map.HeightMap;
+
+/**
+ * Tests for {@link RawHeightMapFormat}.
+ *
+ * @author erodri02
+ */
+@SuppressWarnings( "nls" )
+public class RawHeightMapFormatTest
+{
+   /** Holds the files written by a test. */
+   @Rule
+   public final TemporaryFolder folder = new TemporaryFolder();
+
+   /**
+    * A height map read back from a raw file must have the same size, values and maximum as the one written. More rows are written
+    * than fit in one write, and the map written is a view into a larger array.
+    *
+    * @throws IOException if the file cannot be written or read.
+    */
+   @Test
+   public void roundTrips() throws IOException
+   {
+      final int width = 173;
+      final int height = 150;
+      final int stride = width + 7;
+      final short[] data = new short[ 5 + ( stride * height ) ];
+      final Random random = new Random( 1 );
+      for( int i = 0; i < data.length; i++ )
+      {
+         data[ i ] = (short) random.nextInt( 1000 );
+      }
+      final HeightMap map = new HeightMap( data, 5, width, height, stride );
+
+      final Path path = this.folder.getRoot().toPath().resolve( "map" + RawHeightMapFormat.EXTENSION );
+      RawHeightMapFormat.write( map, path );
+      assertTrue( RawHeightMapFormat.isRawHeightMap( path ) );
+
+      final HeightMap read = RawHeightMapFormat.read( path );
+      assertEquals( width, read.getWidth() );
+      assertEquals( height, read.getHeight() );
+      assertEquals( map.getMaximumValue(), read.getMaximumValue() );
+      for( int y = 0; y < height; y++ )
+      {
+         assertArrayEquals( "row " + y, map.getRow( y, null ), read.getRow( y, null ) );
+         assertEquals( map.getValue( width - 1, y ), read.getValue( width - 1, y ) );
+      }
+   }
+
+   /**
+    * Other files are not raw height maps, and reading one fails.
+    *
+    * @throws IOException if the file cannot be written.
+    */
+   @Test
+   public void rejectsOtherFiles() throws IOException
+   {
+      final Path path = this.folder.newFile( "map.png" ).toPath();
+      Files.write( path, new byte[ RawHeightMapFormat.HEADER_SIZE ] );
+      assertFalse( RawHeightMapFormat.isRawHeightMap( path ) );
+      assertFalse( RawHeightMapFormat.isRawHeightMap( this.folder.getRoot().toPath() ) );
+      try
+      {
+         RawHeightMapFormat.read( path );
+         fail( "read a file that is not a raw height map" );
+      }
+      catch( final IOException expected )
+      {
+         // Expected
+      }
+   }
+
+   /**
+    * A file that ends before its last value is rejected.
+    *
+    * @throws IOException if the file cannot be written.
+    */
+   @Test
+   public void rejectsTruncatedFiles() throws IOException
+   {
+      final Path path = this.folder.getRoot().toPath().resolve( "truncated" + RawHeightMapFormat.EXTENSION );
+      final short[] values = new short[ 20 * 10 ];
+      Arrays.fill( values, (short) 3 );
+      RawHeightMapFormat.write( new HeightMap( values, 20, 10 ), path );
+
+      final byte[] bytes = Files.readAllBytes( path );
+      Files.write( path, Arrays.copyOf( bytes, bytes.length - 1 ) );
+      assertTrue( RawHeightMapFormat.isRawHeightMap( path ) );
+      try
+      {
+         RawHeightMapFormat.read( path );
+         fail( "read a truncated raw height map" );
+      }
+      catch( final IOException expected )
+      {
+         // Expected
+      }
+   }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link HeightMap}.
+ *
+ * @author erodri02
+ */
+@SuppressWarnings( "nls" )
+public class HeightMapTest
+{
+   /**
+    * A map that views part of a larger array only reads its own values.
+    */
+   @Test
+   public void readsViewOfArray()
+   {
+      final HeightMap map = createView();
+      assertEquals( 2, map.getWidth() );
+      assertEquals( 2, map.getHeight() );
+      assertEquals( 5, map.getValue( 0, 0 ) );
+      assertEquals( 10, map.getValue( 1, 1 ) );
+      assertArrayEquals( new short[] { 9, 10 }, map.getRow( 1, null ) );
+      assertEquals( 10, map.getMaximumValue() );
+   }
+
+   /**
+    * Positions outside the map fail rather than read a neighbouring row or the rest of the array.
+    */
+   @Test
+   public void rejectsPositionsOutsideMap()
+   {
+      final HeightMap map = createView();
+      for( final int[] position : new int[][] { { 2, 0 }, { -1, 1 }, { 0, 2 }, { 0, -1 } } )
+      {
+         try
+         {
+            map.getValue( position[ 0 ], position[ 1 ] );
+            fail( "read (" + position[ 0 ] + ", " + position[ 1 ] + ")" );
+         }
+         catch( final IndexOutOfBoundsException expected )
+         {
+            // Expected
+         }
+      }
+      for( final int y : new int[] { -1, 2 } )
+      {
+         try
+         {
+            map.getRow( y, null );
+            fail( "read row " + y );
+         }
+         catch( final IndexOutOfBoundsException expected )
+         {
+            // Expected
+         }
+      }
+   }
+
+   /**
+    * Maps with no rows or no columns have no values, so their maximum is the smallest value rather than a failure.
+    */
+   @Test
+   public void findsMaximumOfEmptyMaps()
+   {
+      for( final HeightMap map : new HeightMap[] { new HeightMap( new short[ 0 ], 0, 3 ),
+                                                   new HeightMap( new short[ 0 ], 3, 0 ),
+                                                   new HeightMap( new short[ 0 ][] ) } )
+      {
+         assertEquals( Short.MIN_VALUE, map.getMaximumValue() );
+         assertEquals( Short.MIN_VALUE, new ScaledHeightMap( map, 0.5f ).getMaximumValue() );
+      }
+   }
+
+   /**
+    * Invalid dimensions are rejected with a message that gives them.
+    */
+   @Test
+   public void rejectsInvalidDimensions()
+   {
+      try
+      {
+         new HeightMap( new short[ 16 ], 0, 4, 2, 3 );
+         fail( "accepted a stride shorter than the width" );
+      }
+      catch( final IllegalArgumentException expected )
+      {
+         assertEquals( "invalid map: offset=0 width=4 height=2 stride=3", expected.getMessage() );
+      }
+   }
+
+   /**
+    * The start of a row can be read without the rest of it, from a map or an edited copy of it, but not more than the row holds.
+    */
+   @Test
+   public void readsStartOfRow()
+   {
+      final HeightMap map = createView();
+      final HeightMap edited = map.withValues( 0, 0, 1, 1, new short[] { 7 } );
+      final short[] row = { -1, -1, -1 };
+      map.getRow( 1, row, 1, 1 );
+      assertArrayEquals( new short[] { -1, 9, -1 }, row );
+      edited.getRow( 0, row, 0, 1 );
+      assertArrayEquals( new short[] { 7, 9, -1 }, row );
+      try
+      {
+         map.getRow( 0, new short[ 3 ], 0, 3 );
+         fail( "read past the end of the row" );
+      }
+      catch( final IndexOutOfBoundsException expected )
+      {
+         // Expected
+      }
+   }
+
+   /**
+    * An edited copy has the new values in the region and the old ones elsewhere, keeps its maximum up to date, and leaves the map
+    * it was copied from, and the earlier copies, unchanged.
+    */
+   @Test
+   public void editsCopyOfRows()
+   {
+      final HeightMap map = new HeightMap( new short[][] { { 1, 2, 3 }, { 4, 9, 6 }, { 7, 8, 5 } } );
+      final HeightMap raised = map.withValues( 0, 2, 2, 1, new short[] { 10, 11 } );
+      assertEquals( 11, raised.getMaximumValue() );
+      assertArrayEquals( new short[] { 10, 11, 5 }, raised.getRow( 2, null ) );
+      assertArrayEquals( new short[] { 4, 9, 6 }, raised.getRow( 1, null ) );
+
+      final HeightMap lowered = raised.withValues( 1, 1, 2, 2, new short[] { 0, 0, 0, 0 } );
+      assertEquals( 10, lowered.getMaximumValue() );
+      assertEquals( 0, lowered.getValue( 1, 2 ) );
+      assertEquals( 3, lowered.getValue( 2, 0 ) );
+
+      assertEquals( 11, raised.getValue( 1, 2 ) );
+      assertEquals( 8, map.getValue( 1, 2 ) );
+      assertEquals( 9, map.getMaximumValue() );
+   }
+
+   /**
+    * The 2x2 map in the middle of a 4x4 array.
+    */
+   private static HeightMap createView()
+   {
+      final short[] data = new short[ 16 ];
+      for( int i = 0; i < data.length; i++ )
+      {
+         data[ i ] = (short) i;
+      }
+      return new HeightMap( data, 5, 2, 2, 4 );
+   }
+}
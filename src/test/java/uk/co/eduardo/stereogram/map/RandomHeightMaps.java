@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.map;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Creates height maps of random runs of depths for tests.
+ *
+ * @author erodri02
+ */
+public final class RandomHeightMaps
+{
+   private RandomHeightMaps()
+   {
+      // Static methods only
+   }
+
+   /**
+    * Creates a height map of runs of random depths.
+    *
+    * @param random the source of the lengths and depths of the runs.
+    * @param width the width of the map.
+    * @param height the height of the map.
+    * @param maximumRun the maximum length of a run.
+    * @param maximumDepth the maximum depth, inclusive.
+    * @return the height map.
+    */
+   public static HeightMap create( final Random random,
+                                   final int width,
+                                   final int height,
+                                   final int maximumRun,
+                                   final int maximumDepth )
+   {
+      return create( random, width, height, maximumRun, maximumDepth, false );
+   }
+
+   /**
+    * Creates a height map of runs of random depths in which no pixel is shallower than the first of its row, so a texture never
+    * gets wider than at the start of the row.
+    *
+    * @param random the source of the lengths and depths of the runs.
+    * @param width the width of the map.
+    * @param height the height of the map.
+    * @param maximumRun the maximum length of a run.
+    * @param maximumDelta the maximum depth of a pixel relative to the first of its row, inclusive.
+    * @return the height map.
+    */
+   public static HeightMap createNoShallowerThanFirst( final Random random,
+                                                       final int width,
+                                                       final int height,
+                                                       final int maximumRun,
+                                                       final int maximumDelta )
+   {
+      return create( random, width, height, maximumRun, maximumDelta, true );
+   }
+
+   private static HeightMap create( final Random random,
+                                    final int width,
+                                    final int height,
+                                    final int maximumRun,
+                                    final int maximumDepth,
+                                    final boolean fromFirst )
+   {
+      final short[][] values = new short[ height ][ width ];
+      for( final short[] row : values )
+      {
+         final int first = fromFirst ? random.nextInt( 100 ) : 0;
+         int x = 0;
+         while( x < width )
+         {
+            final int runEnd = Math.min( width, x + 1 + random.nextInt( maximumRun ) );
+            final int depth = ( fromFirst && ( x == 0 ) ) ? first : first + random.nextInt( maximumDepth + 1 );
+            Arrays.fill( row, x, runEnd, (short) depth );
+            x = runEnd;
+         }
+      }
+      return new HeightMap( values );
+   }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link ScaleHeightMapTransformer}.
+ *
+ * @author erodri02
+ */
+@SuppressWarnings( "nls" )
+public class ScaleHeightMapTransformerTest
+{
+   private static final float[] SCALES = { 0.1f, 20 / 255f, 0.5f, 1, 1.7f, -0.3f };
+
+   /**
+    * Rescaling through the lookup table must give exactly the values of multiplying each one by the scale, both for the 8-bit
+    * values in the table and for values outside it.
+    */
+   @Test
+   public void lookupMatchesDirectScaling()
+   {
+      final short[] values = new short[ 2 * 1024 ];
+      for( int i = 0; i < values.length; i++ )
+      {
+         values[ i ] = (short) ( i - 768 );
+      }
+      final HeightMap map = new HeightMap( values, 64, values.length / 64 );
+
+      for( final float scale : SCALES )
+      {
+         final HeightMap scaled = new ScaleHeightMapTransformer( scale ).transform( map );
+         for( int y = 0; y < map.getHeight(); y++ )
+         {
+            for( int x = 0; x < map.getWidth(); x++ )
+            {
+               assertEquals( "scale " + scale, (short) ( map.getValue( x, y ) * scale ), scaled.getValue( x, y ) );
+            }
+         }
+      }
+   }
+
+   /**
+    * A destination of the right size is rescaled into, and its cached maximum is recomputed; one of another size is replaced.
+    */
+   @Test
+   public void reusesDestinationOfSameSize()
+   {
+      final HeightMap map = new HeightMap( new short[][] { { 0, 10 }, { 255, 40 } } );
+      final HeightMap destination = new HeightMap( new short[][] { { 1000, 1000 }, { 1000, 1000 } } );
+      assertEquals( 1000, destination.getMaximumValue() );
+
+      assertSame( destination, new ScaleHeightMapTransformer( 0.5f ).transform( map, destination ) );
+      assertEquals( 127, destination.getMaximumValue() );
+      assertEquals( 5, destination.getValue( 1, 0 ) );
+
+      final HeightMap other = new ScaleHeightMapTransformer( 0.5f ).transform( map, new HeightMap( new short[ 3 ], 3, 1 ) );
+      assertEquals( 2, other.getWidth() );
+      assertEquals( 20, other.getValue( 1, 1 ) );
+   }
+
+   /**
+    * The maximum depth transformer scales the largest value of the map to the maximum depth.
+    */
+   @Test
+   public void scalesMaximumToDepth()
+   {
+      final HeightMap map = new HeightMap( new short[][] { { 0, 51 }, { 255, 102 } } );
+      final HeightMap scaled = new MaximumDepthHeightMapTransformer( 20 ).transform( map );
+      assertEquals( 20, scaled.getMaximumValue() );
+      assertEquals( 4, scaled.getValue( 1, 0 ) );
+      assertEquals( 8, scaled.getValue( 1, 1 ) );
+   }
+}
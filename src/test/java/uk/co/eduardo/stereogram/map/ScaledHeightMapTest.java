@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link ScaledHeightMap}.
+ *
+ * @author erodri02
+ */
+@SuppressWarnings( "nls" )
+public class ScaledHeightMapTest
+{
+   /**
+    * Scaling values as they are read must give exactly the values, rows and maximum of the rescaled copy.
+    */
+   @Test
+   public void matchesRescaledCopy()
+   {
+      final Random random = new Random( 1 );
+      final HeightMap map = RandomHeightMaps.create( random, 123, 45, 10, 255 );
+      for( final int maximumDepth : new int[] { 1, 20, 40, 255, 300 } )
+      {
+         final HeightMap eager = new MaximumDepthHeightMapTransformer( maximumDepth ).transform( map );
+         final HeightMap lazy = new LazyMaximumDepthHeightMapTransformer( maximumDepth ).transform( map );
+         final String message = "maximumDepth " + maximumDepth;
+         assertEquals( message, eager.getMaximumValue(), lazy.getMaximumValue() );
+         for( int y = 0; y < map.getHeight(); y++ )
+         {
+            assertArrayEquals( message, eager.getRow( y, null ), lazy.getRow( y, null ) );
+            final int x = random.nextInt( map.getWidth() );
+            assertEquals( message, eager.getValue( x, y ), lazy.getValue( x, y ) );
+         }
+      }
+   }
+
+   /**
+    * The view reads through to its source rather than copying it.
+    */
+   @Test
+   public void readsThroughToSource()
+   {
+      final HeightMap map = new HeightMap( new short[][] { { 10, 20 }, { 30, 40 } } );
+      final ScaledHeightMap scaled = new ScaledHeightMap( map, 0.5f );
+      map.setValues( 1, 1, 1, 1, new short[] { 100 } );
+      assertEquals( 50, scaled.getValue( 1, 1 ) );
+      assertArrayEquals( new short[] { 15, 50 }, scaled.getRow( 1, null ) );
+   }
+}
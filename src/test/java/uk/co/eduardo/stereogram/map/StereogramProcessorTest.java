@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import uk.co.eduardo.stereogram.texture.ArrayTexture1DFactory;
+import uk.co.eduardo.stereogram.texture.Texture2D;
+
+/**
+ * Tests for {@link StereogramProcessor}.
+ *
+ * @author erodri02
+ */
+public class StereogramProcessorTest
+{
+   private static final ForkJoinPool POOL = new ForkJoinPool( 4 );
+
+   private static final int WIDTH = 300;
+
+   private static final int HEIGHT = 211;
+
+   private static final int TEXTURE_SIZE = 64;
+
+   /**
+    * Shuts down the pool used by the parallel processor.
+    */
+   @AfterClass
+   public static void shutdownPool()
+   {
+      POOL.shutdown();
+   }
+
+   /**
+    * Rendering rows in parallel must give exactly the same image as rendering them on the calling thread.
+    */
+   @Test
+   public void parallelRendersSameAsSerial()
+   {
+      final Random random = new Random( 1 );
+      final HeightMap map = createHeightMap( random );
+      final int[][] texture = createTexture( random );
+
+      for( final boolean invert : new boolean[] { false, true } )
+      {
+         final BufferedImage serial = render( new StereogramProcessor(), map, texture, invert );
+         final BufferedImage parallel = render( new StereogramProcessor( POOL ), map, texture, invert );
+         assertArrayEquals( getPixels( serial ), getPixels( parallel ) );
+      }
+   }
+
+   /**
+    * Rendering a range of rows must fill in the same rows as a full render and leave the others untouched.
+    */
+   @Test
+   public void rendersRangeOfRows()
+   {
+      final Random random = new Random( 2 );
+      final HeightMap map = createHeightMap( random );
+      final int[][] texture = createTexture( random );
+      final int[] full = getPixels( render( new StereogramProcessor(), map, texture, false ) );
+
+      final BufferedImage image = new BufferedImage( WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB );
+      new StereogramProcessor( POOL ).process( map, createTexture2D( texture, false ), image, 50, 180 );
+      final int[] pixels = getPixels( image );
+      for( int y = 0; y < HEIGHT; y++ )
+      {
+         final int[] expected = ( y >= 50 ) && ( y < 180 ) ? Arrays.copyOfRange( full, y * WIDTH, ( y + 1 ) * WIDTH )
+                                                           : new int[ WIDTH ];
+         assertArrayEquals( "row " + y, expected, Arrays.copyOfRange( pixels, y * WIDTH, ( y + 1 ) * WIDTH ) ); //$NON-NLS-1$
+      }
+   }
+
+   /**
+    * Streaming the rows to a sink, serially or in parallel, must give the same rows as rendering into an image.
+    *
+    * @throws IOException if the sink fails.
+    */
+   @Test
+   public void streamsSameRowsAsImage() throws IOException
+   {
+      final Random random = new Random( 3 );
+      final HeightMap map = createHeightMap( random );
+      final int[][] texture = createTexture( random );
+      final int[] expected = getPixels( render( new StereogramProcessor(), map, texture, true ) );
+
+      for( final StereogramProcessor processor : new StereogramProcessor[] { new StereogramProcessor(),
+                                                                             new StereogramProcessor( POOL ) } )
+      {
+         final int[] streamed = new int[ WIDTH * HEIGHT ];
+         final int[] nextRow = { 0 };
+         processor.process( map, createTexture2D( texture, true ), new StereogramRowSink()
+         {
+            @Override
+            public void start( final int width, final int height )
+            {
+               assertEquals( WIDTH, width );
+               assertEquals( HEIGHT, height );
+            }
+
+            @Override
+            public void writeRow( final int y, final int[] pixels )
+            {
+               assertEquals( nextRow[ 0 ]++, y );
+               System.arraycopy( pixels, 0, streamed, y * WIDTH, WIDTH );
+            }
+
+            @Override
+            public void finish()
+            {
+               assertEquals( HEIGHT, nextRow[ 0 ] );
+            }
+         } );
+         assertArrayEquals( expected, streamed );
+      }
+   }
+
+   private static BufferedImage render( final StereogramProcessor processor,
+                                        final HeightMap map,
+                                        final int[][] texture,
+                                        final boolean invert )
+   {
+      final BufferedImage image = new BufferedImage( WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB );
+      processor.process( map, createTexture2D( texture, invert ), image );
+      return image;
+   }
+
+   private static Texture2D createTexture2D( final int[][] texture, final boolean invert )
+   {
+      return new Texture2D( texture, 0, HEIGHT, invert, new ArrayTexture1DFactory() );
+   }
+
+   /**
+    * Creates a height map of random runs of depths, shallow enough that the texture never shrinks to nothing.
+    */
+   private static HeightMap createHeightMap( final Random random )
+   {
+      return RandomHeightMaps.create( random, WIDTH, HEIGHT, 20, ( TEXTURE_SIZE / 2 ) - 1 );
+   }
+
+   private static int[][] createTexture( final Random random )
+   {
+      final int[][] texture = new int[ 17 ][ TEXTURE_SIZE ];
+      for( final int[] row : texture )
+      {
+         for( int x = 0; x < row.length; x++ )
+         {
+            row[ x ] = random.nextInt();
+         }
+      }
+      return texture;
+   }
+
+   private static int[] getPixels( final BufferedImage image )
+   {
+      return ( (DataBufferInt) image.getRaster().getDataBuffer() ).getData();
+   }
+}
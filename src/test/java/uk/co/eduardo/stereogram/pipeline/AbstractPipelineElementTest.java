@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.pipeline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link AbstractPipelineElement} and the elements computed from inputs.
+ *
+ * @author erodri02
+ */
+public class AbstractPipelineElementTest
+{
+   private static final long SLOW_MILLIS = 50;
+
+   private static final int SLOW_ALLOCATION = 1 << 20;
+
+   /**
+    * Each computation and each cached output returned is counted, until the statistics are reset.
+    */
+   @Test
+   public void countsRecomputesAndHits()
+   {
+      final RootPipelineElement< Integer > root = new RootPipelineElement<>( Integer.valueOf( 1 ) );
+      final Increment increment = new Increment( root, 0, null );
+      assertEquals( 2, increment.getOutput().intValue() );
+      assertEquals( 2, increment.getOutput().intValue() );
+      root.setValue( Integer.valueOf( 5 ) );
+      assertEquals( 6, increment.getOutput().intValue() );
+
+      PipelineElementStatistics statistics = increment.getStatistics();
+      assertEquals( 2, statistics.getRecomputeCount() );
+      assertEquals( 1, statistics.getHitCount() );
+      assertTrue( statistics.getLastComputeNanos() > 0 );
+      assertTrue( statistics.getTotalComputeNanos() >= statistics.getLastComputeNanos() );
+
+      increment.resetStatistics();
+      statistics = increment.getStatistics();
+      assertEquals( 0, statistics.getRecomputeCount() );
+      assertEquals( 0, statistics.getHitCount() );
+      assertEquals( 0, statistics.getTotalComputeNanos() );
+   }
+
+   /**
+    * The time and memory of an element computed while another element computes are charged to the element that used them only.
+    */
+   @Test
+   public void recordsExclusiveTimeAndAllocation()
+   {
+      final RootPipelineElement< Integer > root = new RootPipelineElement<>( Integer.valueOf( 1 ) );
+      final Increment slow = new Increment( root, SLOW_MILLIS, null );
+      final Increment fast = new Increment( root, 0, slow );
+      assertEquals( 4, fast.getOutput().intValue() );
+
+      final PipelineElementStatistics slowStatistics = slow.getStatistics();
+      final PipelineElementStatistics fastStatistics = fast.getStatistics();
+      assertEquals( 1, slowStatistics.getRecomputeCount() );
+      assertTrue( slowStatistics.getLastComputeNanos() >= TimeUnit.MILLISECONDS.toNanos( SLOW_MILLIS ) );
+      assertTrue( fastStatistics.getLastComputeNanos() < TimeUnit.MILLISECONDS.toNanos( SLOW_MILLIS ) );
+      if( ComputeTimer.isAllocationMeasured() )
+      {
+         assertTrue( slowStatistics.getLastAllocatedBytes() >= SLOW_ALLOCATION );
+         assertTrue( fastStatistics.getLastAllocatedBytes() < SLOW_ALLOCATION );
+      }
+      else
+      {
+         assertEquals( -1, fastStatistics.getLastAllocatedBytes() );
+      }
+   }
+
+   /**
+    * A change above both sides of a diamond recomputes each element below it once. A change above one side leaves the other side
+    * alone.
+    */
+   @Test
+   public void recomputesDiamondOnce()
+   {
+      final RootPipelineElement< Integer > top = new RootPipelineElement<>( Integer.valueOf( 1 ) );
+      final RootPipelineElement< Integer > side = new RootPipelineElement<>( Integer.valueOf( 10 ) );
+      final Increment left = new Increment( top, 0, null );
+      final Sum right = new Sum( top, side );
+      final Sum bottom = new Sum( left, right );
+      assertEquals( 13, bottom.getOutput().intValue() );
+
+      top.setValue( Integer.valueOf( 2 ) );
+      assertEquals( 15, bottom.getOutput().intValue() );
+      assertEquals( 2, left.getStatistics().getRecomputeCount() );
+      assertEquals( 2, right.getStatistics().getRecomputeCount() );
+      assertEquals( 2, bottom.getStatistics().getRecomputeCount() );
+
+      side.setValue( Integer.valueOf( 20 ) );
+      assertEquals( 25, bottom.getOutput().intValue() );
+      assertEquals( 2, left.getStatistics().getRecomputeCount() );
+      assertEquals( 3, right.getStatistics().getRecomputeCount() );
+      assertEquals( 3, bottom.getStatistics().getRecomputeCount() );
+   }
+
+   /**
+    * An element marked dirty whose inputs still have the generations its output was computed from does not recompute.
+    */
+   @Test
+   public void keepsOutputWhenInputsUnchanged()
+   {
+      final RootPipelineElement< Integer > top = new RootPipelineElement<>( Integer.valueOf( 1 ) );
+      final Increment left = new Increment( top, 0, null );
+      final Sum bottom = new Sum( left, top );
+      assertEquals( 3, bottom.getOutput().intValue() );
+      final long generation = bottom.getGeneration();
+
+      bottom.connectFirstInput( left );
+      assertEquals( 3, bottom.getOutput().intValue() );
+      assertEquals( 1, bottom.getStatistics().getRecomputeCount() );
+      assertEquals( generation, bottom.getGeneration() );
+   }
+
+   /**
+    * Once computed, an output is returned without asking any element above it for its output or generation, however deep the
+    * graph.
+    */
+   @Test
+   public void returnsValidOutputWithoutVisitingInputs()
+   {
+      final int[] visits = { 0 };
+      final RootPipelineElement< Integer > top = new RootPipelineElement< Integer >( Integer.valueOf( 0 ) )
+      {
+         @Override
+         public Integer getOutput()
+         {
+            visits[ 0 ]++;
+            return super.getOutput();
+         }
+
+         @Override
+         public long getGeneration()
+         {
+            visits[ 0 ]++;
+            return super.getGeneration();
+         }
+      };
+      PipelineElement< Integer > bottom = top;
+      for( int depth = 0; depth < 20; depth++ )
+      {
+         bottom = new Sum( new Increment( bottom, 0, null ), bottom );
+      }
+      final Integer output = bottom.getOutput();
+
+      visits[ 0 ] = 0;
+      for( int i = 0; i < 100; i++ )
+      {
+         assertSame( output, bottom.getOutput() );
+         bottom.getGeneration();
+      }
+      assertEquals( 0, visits[ 0 ] );
+   }
+
+   /**
+    * Adds one to its input. A slow element sleeps and allocates while it computes. An element may also read another, nested,
+    * element while it computes, and adds its output too.
+    */
+   private static final class Increment extends AbstractUnaryPipelineElement< Integer, Integer >
+   {
+      private final long sleepMillis;
+
+      private final PipelineElement< Integer > nested;
+
+      /** Holds the memory allocated by the last computation, so that it cannot be optimized away. */
+      @SuppressWarnings( "unused" )
+      private byte[] allocation;
+
+      private Increment( final PipelineElement< Integer > input, final long sleepMillis, final PipelineElement< Integer > nested )
+      {
+         this.sleepMillis = sleepMillis;
+         this.nested = nested;
+         connectFirstInput( input );
+      }
+
+      @Override
+      protected Integer internalComputeOutput( final PipelineElement< Integer > input )
+      {
+         int output = input.getOutput().intValue() + 1;
+         if( this.nested != null )
+         {
+            output += this.nested.getOutput().intValue();
+         }
+         if( this.sleepMillis > 0 )
+         {
+            this.allocation = new byte[ SLOW_ALLOCATION ];
+            sleep( this.sleepMillis );
+         }
+         return Integer.valueOf( output );
+      }
+   }
+
+   /**
+    * Adds its two inputs.
+    */
+   private static final class Sum extends AbstractBinaryPipelineElement< Integer, Integer, Integer >
+   {
+      private Sum( final PipelineElement< Integer > firstInput, final PipelineElement< Integer > secondInput )
+      {
+         connectFirstInput( firstInput );
+         connectSecondInput( secondInput );
+      }
+
+      @Override
+      protected Integer internalComputeOutput( final PipelineElement< Integer > firstInput,
+                                               final PipelineElement< Integer > secondInput )
+      {
+         return Integer.valueOf( firstInput.getOutput().intValue() + secondInput.getOutput().intValue() );
+      }
+   }
+
+   private static void sleep( final long millis )
+   {
+      try
+      {
+         Thread.sleep( millis );
+      }
+      catch( final InterruptedException exception )
+      {
+         Thread.currentThread().interrupt();
+      }
+   }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.pipeline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import uk.co.eduardo.stereogram.MapResources;
+import uk.co.eduardo.stereogram.TextureResources;
+import uk.co.eduardo.stereogram.map.MaximumDepthHeightMapTransformer;
+
+/**
+ * Tests for {@link AsyncStereogramPipeline}.
+ *
+ * @author erodri02
+ */
+@SuppressWarnings( "nls" )
+public class AsyncStereogramPipelineTest
+{
+   /**
+    * Renders that have not started when a newer request arrives are cancelled, but their changes are still applied, in order.
+    *
+    * @throws Exception if a request fails other than as expected.
+    */
+   @Test
+   public void supersedesQueuedRenders() throws Exception
+   {
+      final Queue< Runnable > executor = new ArrayDeque<>();
+      final AsyncStereogramPipeline async = new AsyncStereogramPipeline( createPipeline(), executor::add );
+      final List< Integer > applied = new ArrayList<>();
+      final List< CompletableFuture< BufferedImage > > futures = new ArrayList<>();
+      for( int depth = 21; depth <= 23; depth++ )
+      {
+         final int maximumDepth = depth;
+         futures.add( async.update( p -> {
+            applied.add( Integer.valueOf( maximumDepth ) );
+            p.setMaximumDepth( maximumDepth );
+         } ) );
+      }
+      final CompletableFuture< Integer > depth = async.submit( p -> Integer.valueOf( p.getMaximumDepth() ) );
+      runAll( executor );
+
+      assertTrue( futures.get( 0 ).isCancelled() );
+      assertTrue( futures.get( 1 ).isCancelled() );
+      assertNotNull( futures.get( 2 ).get() );
+      assertEquals( 23, depth.get().intValue() );
+      assertEquals( 3, applied.size() );
+      assertEquals( 23, applied.get( 2 ).intValue() );
+   }
+
+   /**
+    * A task submitted between two updates runs after the first change and before the second, and does not supersede the first
+    * render.
+    *
+    * @throws Exception if a request fails other than as expected.
+    */
+   @Test
+   public void submitDoesNotSupersede() throws Exception
+   {
+      final Queue< Runnable > executor = new ArrayDeque<>();
+      final AsyncStereogramPipeline async = new AsyncStereogramPipeline( createPipeline(), executor::add );
+      final CompletableFuture< BufferedImage > first = async.update( p -> p.setMaximumDepth( 30 ) );
+      final CompletableFuture< Integer > depth = async.submit( p -> Integer.valueOf( p.getMaximumDepth() ) );
+      runAll( executor );
+
+      assertNotNull( first.get() );
+      assertEquals( 30, depth.get().intValue() );
+   }
+
+   /**
+    * A render cancelled by the caller before it starts is not done, but its change is still applied.
+    *
+    * @throws Exception if a request fails other than as expected.
+    */
+   @Test
+   public void cancelledRenderStillAppliesChange() throws Exception
+   {
+      final Queue< Runnable > executor = new ArrayDeque<>();
+      final AsyncStereogramPipeline async = new AsyncStereogramPipeline( createPipeline(), executor::add );
+      final boolean[] rendered = { false };
+      final CompletableFuture< BufferedImage > future = async.update( p -> p.setMaximumDepth( 31 ) );
+      future.thenRun( () -> rendered[ 0 ] = true );
+      assertTrue( future.cancel( false ) );
+      final CompletableFuture< Integer > depth = async.submit( p -> Integer.valueOf( p.getMaximumDepth() ) );
+      runAll( executor );
+
+      assertEquals( 31, depth.get().intValue() );
+      assertFalse( rendered[ 0 ] );
+   }
+
+   /**
+    * A failing change completes its future with the failure, and later requests still run.
+    *
+    * @throws Exception if a request fails other than as expected.
+    */
+   @Test
+   public void reportsFailedChange() throws Exception
+   {
+      final Queue< Runnable > executor = new ArrayDeque<>();
+      final AsyncStereogramPipeline async = new AsyncStereogramPipeline( createPipeline(), executor::add );
+      final CompletableFuture< BufferedImage > failed = async.update( p -> {
+         throw new IllegalStateException( "change failed" );
+      } );
+      final CompletableFuture< Integer > depth = async.submit( p -> Integer.valueOf( p.getMaximumDepth() ) );
+      runAll( executor );
+
+      try
+      {
+         failed.get();
+         fail( "the failed change completed normally" );
+      }
+      catch( final ExecutionException expected )
+      {
+         assertEquals( IllegalStateException.class, expected.getCause().getClass() );
+      }
+      assertEquals( MaximumDepthHeightMapTransformer.DEFAULT_MAXIMUM_DEPTH, depth.get().intValue() );
+   }
+
+   /**
+    * Closing lets the running task finish and rejects the queued ones and any requested later.
+    *
+    * @throws Exception if a request fails other than as expected.
+    */
+   @Test
+   public void closeRejectsQueuedRequests() throws Exception
+   {
+      final CountDownLatch running = new CountDownLatch( 1 );
+      final CountDownLatch release = new CountDownLatch( 1 );
+      final AsyncStereogramPipeline async = new AsyncStereogramPipeline( createPipeline() );
+      final CompletableFuture< Integer > first = async.submit( p -> {
+         running.countDown();
+         try
+         {
+            release.await();
+         }
+         catch( final InterruptedException exception )
+         {
+            Thread.currentThread().interrupt();
+         }
+         return Integer.valueOf( p.getMaximumDepth() );
+      } );
+      final CompletableFuture< BufferedImage > queued = async.update( p -> p.setMaximumDepth( 25 ) );
+      running.await();
+      async.close();
+      release.countDown();
+
+      assertNotNull( first.get( 10, TimeUnit.SECONDS ) );
+      assertRejected( queued );
+      assertRejected( async.render() );
+   }
+
+   private static void assertRejected( final CompletableFuture< ? > future ) throws Exception
+   {
+      try
+      {
+         future.get( 10, TimeUnit.SECONDS );
+         fail( "ran a request after close" );
+      }
+      catch( final ExecutionException expected )
+      {
+         assertEquals( RejectedExecutionException.class, expected.getCause().getClass() );
+      }
+   }
+
+   private static void runAll( final Queue< Runnable > executor )
+   {
+      while( !executor.isEmpty() )
+      {
+         executor.poll().run();
+      }
+   }
+
+   private static StereogramPipeline createPipeline()
+   {
+      final StereogramPipeline pipeline = new StereogramPipeline();
+      pipeline.setHeightMapSource( MapResources.SHARK );
+      pipeline.setTextureSouce( TextureResources.TEXTURE_13 );
+      return pipeline;
+   }
+}
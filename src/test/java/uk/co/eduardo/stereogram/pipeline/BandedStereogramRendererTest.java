@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.pipeline;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import uk.co.eduardo.stereogram.MapResources;
+import uk.co.eduardo.stereogram.TextureResources;
+import uk.co.eduardo.stereogram.map.StereogramProcessor;
+import uk.co.eduardo.stereogram.map.StereogramRowSink;
+import uk.co.eduardo.stereogram.texture.ArrayTexture1DFactory;
+import uk.co.eduardo.stereogram.texture.CentreAlignTextureOffsetFactory;
+import uk.co.eduardo.stereogram.texture.TextureOffsetFactory;
+import uk.co.eduardo.stereogram.texture.ZeroTextureOffsetFactory;
+
+/**
+ * Tests for {@link BandedStereogramRenderer}.
+ *
+ * @author erodri02
+ */
+@SuppressWarnings( "nls" )
+public class BandedStereogramRendererTest
+{
+   /**
+    * Rendering band by band must give exactly the same stereogram as the pipeline, whether or not the bands divide the height of
+    * the map.
+    *
+    * @throws IOException if a height map or texture cannot be read.
+    */
+   @Test
+   public void rendersSameAsPipeline() throws IOException
+   {
+      final StereogramPipeline pipeline = new StereogramPipeline();
+      for( final TextureOffsetFactory offsetFactory : new TextureOffsetFactory[] { new ZeroTextureOffsetFactory(),
+                                                                                   new CentreAlignTextureOffsetFactory() } )
+      {
+         for( final boolean invert : new boolean[] { false, true } )
+         {
+            pipeline.setHeightMapSource( MapResources.SHARK );
+            pipeline.setTextureSouce( TextureResources.TEXTURE_5 );
+            pipeline.setTextureSize( 100 );
+            pipeline.setMaximumDepth( 40 );
+            pipeline.setTextureOffsetFactory( offsetFactory );
+            pipeline.setInvertDepth( invert );
+            final BufferedImage expected = pipeline.getOutput();
+
+            for( final int bandHeight : new int[] { 1, 37, BandedStereogramRenderer.DEFAULT_BAND_HEIGHT, expected.getHeight() } )
+            {
+               final BandedStereogramRenderer renderer = new BandedStereogramRenderer( new ArrayTexture1DFactory(),
+                                                                                       new StereogramProcessor(),
+                                                                                       bandHeight );
+               renderer.setTextureSource( TextureResources.TEXTURE_5 );
+               renderer.setTextureSize( 100 );
+               renderer.setMaximumDepth( 40 );
+               renderer.setTextureOffsetFactory( offsetFactory );
+               renderer.setInvertDepth( invert );
+
+               final ImageSink sink = new ImageSink();
+               renderer.render( MapResources.SHARK, sink );
+               assertEquals( expected.getWidth(), sink.image.getWidth() );
+               assertEquals( expected.getHeight(), sink.image.getHeight() );
+               assertArrayEquals( String.format( "%s invert=%b bandHeight=%d",
+                                                 offsetFactory.getClass().getSimpleName(),
+                                                 invert,
+                                                 bandHeight ),
+                                  getPixels( expected ),
+                                  getPixels( sink.image ) );
+            }
+         }
+      }
+   }
+
+   private static int[] getPixels( final BufferedImage image )
+   {
+      return ( (DataBufferInt) image.getRaster().getDataBuffer() ).getData();
+   }
+
+   /**
+    * Collects the rows of a stereogram into an image.
+    */
+   private static final class ImageSink implements StereogramRowSink
+   {
+      private BufferedImage image;
+
+      private int rowCount;
+
+      @Override
+      public void start( final int width, final int height )
+      {
+         this.image = new BufferedImage( width, height, BufferedImage.TYPE_INT_ARGB );
+      }
+
+      @Override
+      public void writeRow( final int y, final int[] pixels )
+      {
+         assertEquals( this.rowCount++, y );
+         this.image.setRGB( 0, y, this.image.getWidth(), 1, pixels, 0, this.image.getWidth() );
+      }
+
+      @Override
+      public void finish()
+      {
+         assertEquals( this.image.getHeight(), this.rowCount );
+      }
+   }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.pipeline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import uk.co.eduardo.stereogram.MapResources;
+import uk.co.eduardo.stereogram.TextureResources;
+import uk.co.eduardo.stereogram.map.MaximumDepthHeightMapTransformer;
+import uk.co.eduardo.stereogram.texture.CentreAlignTextureOffsetFactory;
+import uk.co.eduardo.stereogram.texture.ColumnAlignTextureOffsetFactory;
+import uk.co.eduardo.stereogram.texture.ZeroTextureOffsetFactory;
+
+/**
+ * Tests for {@link RenderRequest}.
+ *
+ * @author erodri02
+ */
+@SuppressWarnings( "nls" )
+public class RenderRequestTest
+{
+   private static final RenderRequest REQUEST = new RenderRequest( MapResources.SHARK, TextureResources.TEXTURE_1 );
+
+   /**
+    * A new request has the default parameters, and each <code>with</code> method changes one parameter of a copy.
+    */
+   @Test
+   public void copiesWithOneParameterChanged()
+   {
+      assertEquals( MaximumDepthHeightMapTransformer.DEFAULT_MAXIMUM_DEPTH, REQUEST.getMaximumDepth() );
+      assertEquals( RenderRequest.DEFAULT_TEXTURE_SIZE, REQUEST.getTextureSize() );
+      assertFalse( REQUEST.getInvertDepth() );
+      assertEquals( ZeroTextureOffsetFactory.class, REQUEST.getTextureOffsetFactory().getClass() );
+
+      final RenderRequest deeper = REQUEST.withMaximumDepth( 35 );
+      assertEquals( 35, deeper.getMaximumDepth() );
+      assertEquals( MaximumDepthHeightMapTransformer.DEFAULT_MAXIMUM_DEPTH, REQUEST.getMaximumDepth() );
+      assertSame( MapResources.SHARK, deeper.getHeightMapSource() );
+      assertSame( TextureResources.TEXTURE_1, deeper.getTextureSource() );
+      assertEquals( REQUEST.getTextureSize(), deeper.getTextureSize() );
+   }
+
+   /**
+    * Requests with equal parameters are equal and have equal hash codes, including offset factories that are equal but not the
+    * same object; a change to any parameter makes them unequal.
+    */
+   @Test
+   public void comparesByParameters()
+   {
+      final RenderRequest request = REQUEST.withTextureOffsetFactory( new ColumnAlignTextureOffsetFactory( 0.25 ) );
+      final RenderRequest same = new RenderRequest( MapResources.SHARK,
+                                                    TextureResources.TEXTURE_1,
+                                                    MaximumDepthHeightMapTransformer.DEFAULT_MAXIMUM_DEPTH,
+                                                    RenderRequest.DEFAULT_TEXTURE_SIZE,
+                                                    false,
+                                                    new ColumnAlignTextureOffsetFactory( 0.25 ) );
+      assertEquals( request, same );
+      assertEquals( request.hashCode(), same.hashCode() );
+
+      final RenderRequest[] others = { request.withHeightMapSource( MapResources.CUBE ),
+                                       request.withTextureSource( TextureResources.TEXTURE_2 ),
+                                       request.withMaximumDepth( 21 ),
+                                       request.withTextureSize( 129 ),
+                                       request.withInvertDepth( true ),
+                                       request.withTextureOffsetFactory( new CentreAlignTextureOffsetFactory() ) };
+      for( final RenderRequest other : others )
+      {
+         assertNotEquals( request, other );
+      }
+      assertNotEquals( request, null );
+   }
+
+   /**
+    * Negative depths, empty textures and missing parameters are rejected.
+    */
+   @Test
+   public void rejectsInvalidParameters()
+   {
+      final Runnable[] invalid = { () -> REQUEST.withMaximumDepth( -1 ),
+                                   () -> REQUEST.withTextureSize( 0 ),
+                                   () -> REQUEST.withHeightMapSource( null ),
+                                   () -> REQUEST.withTextureSource( null ),
+                                   () -> REQUEST.withTextureOffsetFactory( null ) };
+      for( int i = 0; i < invalid.length; i++ )
+      {
+         try
+         {
+            invalid[ i ].run();
+            fail( "accepted invalid parameter " + i );
+         }
+         catch( final IllegalArgumentException | NullPointerException expected )
+         {
+            // Expected
+         }
+      }
+   }
+}
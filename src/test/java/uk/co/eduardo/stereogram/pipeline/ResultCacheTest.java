@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.pipeline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import uk.co.eduardo.stereogram.CacheStatistics;
+
+/**
+ * Tests for {@link ResultCache}.
+ *
+ * @author erodri02
+ */
+@SuppressWarnings( "nls" )
+public class ResultCacheTest
+{
+   private static final Object OWNER = new Object();
+
+   /**
+    * Once the cache is full the least recently used output is evicted.
+    */
+   @Test
+   public void evictsLeastRecentlyUsed()
+   {
+      final ResultCache cache = new ResultCache( 20 );
+      final int[] first = cache.get( OWNER, "first", () -> new int[ 1 ], output -> 10 );
+      final int[] second = cache.get( OWNER, "second", () -> new int[ 2 ], output -> 10 );
+      assertSame( first, cache.get( OWNER, "first", ResultCacheTest::failToCompute, output -> 10 ) );
+      final int[] third = cache.get( OWNER, "third", () -> new int[ 3 ], output -> 10 );
+
+      assertTrue( cache.contains( first ) );
+      assertFalse( cache.contains( second ) );
+      assertTrue( cache.contains( third ) );
+      final CacheStatistics statistics = cache.getStatistics();
+      assertEquals( 2, statistics.getSize() );
+      assertEquals( 20, statistics.getWeight() );
+      assertEquals( 1, statistics.getEvictionCount() );
+      assertEquals( 1, statistics.getHitCount() );
+   }
+
+   /**
+    * Outputs are keyed on their owner as well as their key, and keys are compared by value.
+    */
+   @Test
+   public void keysOnOwnerAndKey()
+   {
+      final ResultCache cache = new ResultCache( 100 );
+      final Object output = cache.get( OWNER, Arrays.asList( "map", 30 ), Object::new, o -> 1 );
+      assertSame( output, cache.get( OWNER, Arrays.asList( "map", 30 ), ResultCacheTest::failToCompute, o -> 1 ) );
+
+      final Object otherKey = cache.get( OWNER, Arrays.asList( "map", 31 ), Object::new, o -> 1 );
+      final Object otherOwner = cache.get( new Object(), Arrays.asList( "map", 30 ), Object::new, o -> 1 );
+      assertEquals( 3, cache.getStatistics().getSize() );
+      assertFalse( ( otherKey == output ) || ( otherOwner == output ) );
+   }
+
+   /**
+    * Outputs larger than the cache, or computed as <code>null</code>, are not cached; a maximum of 0 disables the cache.
+    */
+   @Test
+   public void doesNotCacheOversizedOrMissingOutputs()
+   {
+      final ResultCache cache = new ResultCache( 10 );
+      assertFalse( cache.contains( cache.get( OWNER, "large", Object::new, output -> 11 ) ) );
+      assertNull( cache.get( OWNER, "missing", () -> null, output -> 1 ) );
+      assertEquals( 0, cache.getStatistics().getSize() );
+
+      final Object output = cache.get( OWNER, "small", Object::new, o -> 1 );
+      cache.setMaximumWeight( 0 );
+      assertFalse( cache.contains( output ) );
+      assertFalse( cache.contains( cache.get( OWNER, "small", Object::new, o -> 1 ) ) );
+   }
+
+   /**
+    * An output held under several keys is held until the last of them is removed.
+    */
+   @Test
+   public void containsOutputUntilLastKeyRemoved()
+   {
+      final ResultCache cache = new ResultCache( 100 );
+      final Object output = new Object();
+      cache.get( OWNER, "first", () -> output, o -> 10 );
+      cache.get( OWNER, "second", () -> output, o -> 10 );
+      cache.setMaximumWeight( 10 );
+      assertTrue( cache.contains( output ) );
+      cache.setMaximumWeight( 0 );
+      assertFalse( cache.contains( output ) );
+   }
+
+   /**
+    * Only the outputs whose keys contain the key of an input are removed as dependents of it.
+    */
+   @Test
+   public void removesDependentsOfInput()
+   {
+      final ResultCache cache = new ResultCache( 100 );
+      final Object map = Arrays.asList( "map" );
+      final Object texture = cache.get( OWNER, Arrays.asList( Arrays.asList( "texture" ), 128 ), Object::new, o -> 1 );
+      final Object offsets = cache.get( OWNER, Arrays.asList( Arrays.asList( map, 30 ), texture ), Object::new, o -> 1 );
+      final Object stereogram = cache.get( new Object(), map, Object::new, o -> 1 );
+
+      cache.removeDependents( map );
+      assertTrue( cache.contains( texture ) );
+      assertFalse( cache.contains( offsets ) );
+      assertFalse( cache.contains( stereogram ) );
+      assertEquals( 1, cache.getStatistics().getSize() );
+      assertEquals( 1, cache.getStatistics().getWeight() );
+      assertEquals( 0, cache.getStatistics().getEvictionCount() );
+   }
+
+   /**
+    * Concurrent requests for the same missing output compute it once, and all of them get that output.
+    *
+    * @throws Exception if a request fails.
+    */
+   @Test
+   public void computesConcurrentRequestsOnce() throws Exception
+   {
+      final ResultCache cache = new ResultCache( 100 );
+      final AtomicInteger computations = new AtomicInteger();
+      final CountDownLatch computing = new CountDownLatch( 1 );
+      final CountDownLatch release = new CountDownLatch( 1 );
+      final ExecutorService executor = Executors.newFixedThreadPool( 4 );
+      try
+      {
+         final Future< Object > first = executor.submit( () -> cache.get( OWNER, "key", () -> {
+            computations.incrementAndGet();
+            computing.countDown();
+            await( release );
+            return new Object();
+         }, output -> 1 ) );
+         computing.await();
+
+         final Future< ? >[] others = new Future< ? >[ 3 ];
+         for( int i = 0; i < others.length; i++ )
+         {
+            others[ i ] = executor.submit( () -> cache.get( OWNER, "key", () -> {
+               computations.incrementAndGet();
+               return new Object();
+            }, output -> 1 ) );
+         }
+         release.countDown();
+
+         final Object output = first.get( 10, TimeUnit.SECONDS );
+         for( final Future< ? > other : others )
+         {
+            assertSame( output, other.get( 10, TimeUnit.SECONDS ) );
+         }
+         assertEquals( 1, computations.get() );
+      }
+      finally
+      {
+         executor.shutdownNow();
+      }
+   }
+
+   /**
+    * Requests waiting for a computation that throws get what it threw, not a wrapper.
+    *
+    * @throws Exception if a request fails other than as expected.
+    */
+   @Test
+   public void passesFailureToWaitingRequests() throws Exception
+   {
+      final ResultCache cache = new ResultCache( 100 );
+      final CountDownLatch computing = new CountDownLatch( 1 );
+      final CountDownLatch release = new CountDownLatch( 1 );
+      final ExecutorService executor = Executors.newFixedThreadPool( 2 );
+      try
+      {
+         final Future< Object > first = executor.submit( () -> cache.get( OWNER, "key", () -> {
+            computing.countDown();
+            await( release );
+            throw new OutOfMemoryError( "computation failed" );
+         }, output -> 1 ) );
+         computing.await();
+         final Future< Object > waiting = executor.submit( () -> cache.get( OWNER, "key", Object::new, output -> 1 ) );
+         release.countDown();
+
+         for( final Future< Object > request : Arrays.asList( first, waiting ) )
+         {
+            try
+            {
+               request.get( 10, TimeUnit.SECONDS );
+               // The waiting request may instead have started after the failed computation and computed the output itself.
+               assertSame( waiting, request );
+            }
+            catch( final ExecutionException exception )
+            {
+               assertEquals( OutOfMemoryError.class, exception.getCause().getClass() );
+            }
+         }
+      }
+      finally
+      {
+         executor.shutdownNow();
+      }
+   }
+
+   private static Object failToCompute()
+   {
+      fail( "computed a cached output" );
+      return null;
+   }
+
+   private static void await( final CountDownLatch latch )
+   {
+      try
+      {
+         latch.await();
+      }
+      catch( final InterruptedException exception )
+      {
+         Thread.currentThread().interrupt();
+      }
+   }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.pipeline;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Test;
+
+import uk.co.eduardo.stereogram.ImageUtilities;
+import uk.co.eduardo.stereogram.MapResources;
+import uk.co.eduardo.stereogram.StreamSource;
+import uk.co.eduardo.stereogram.TextureResources;
+import uk.co.eduardo.stereogram.io.FrameSink;
+import uk.co.eduardo.stereogram.map.HeightMap;
+import uk.co.eduardo.stereogram.map.MaximumDepthHeightMapTransformer;
+import uk.co.eduardo.stereogram.map.StereogramProcessor;
+import uk.co.eduardo.stereogram.texture.ArrayTexture1DFactory;
+import uk.co.eduardo.stereogram.texture.CentreAlignTextureOffsetFactory;
+import uk.co.eduardo.stereogram.texture.Texture2D;
+import uk.co.eduardo.stereogram.texture.TextureOffsetFactory;
+
+/**
+ * Tests for {@link SequenceRenderer}.
+ *
+ * @author erodri02
+ */
+@SuppressWarnings( "nls" )
+public class SequenceRendererTest
+{
+   private static final int DEPTH = 40;
+
+   private static final int TEXTURE_SIZE = 100;
+
+   /**
+    * Frames rendered in parallel, with their images recycled, reach the sink in order and are identical to the output of the
+    * pipeline for each height map, whatever their size.
+    *
+    * @throws IOException if a height map or texture cannot be read.
+    */
+   @Test
+   public void rendersSameAsPipeline() throws IOException
+   {
+      final List< MapResources > frames = Arrays.asList( MapResources.SHARK,
+                                                         MapResources.CUBE,
+                                                         MapResources.SHARK,
+                                                         MapResources.TURTLE,
+                                                         MapResources.SHARK,
+                                                         MapResources.CUBE );
+      final List< int[] > rendered = render( createRenderer( false ), frames );
+
+      final StereogramPipeline pipeline = createPipeline();
+      assertEquals( frames.size(), rendered.size() );
+      for( int i = 0; i < frames.size(); i++ )
+      {
+         pipeline.setHeightMapSource( frames.get( i ) );
+         assertArrayEquals( "frame " + i, getPixels( pipeline.getOutput() ), rendered.get( i ) );
+      }
+   }
+
+   /**
+    * With coherent offsets every frame of the same height as the first uses the texture offsets of the first frame.
+    *
+    * @throws IOException if a height map or texture cannot be read.
+    */
+   @Test
+   public void holdsOffsetsCoherent() throws IOException
+   {
+      final StreamSource edited = createEditedShark();
+      final List< StreamSource > frames = Arrays.asList( MapResources.SHARK, edited );
+      final List< int[] > coherent = render( createRenderer( true ), frames );
+      final List< int[] > independent = render( createRenderer( false ), frames );
+
+      assertArrayEquals( independent.get( 0 ), coherent.get( 0 ) );
+      assertFalse( Arrays.equals( independent.get( 1 ), coherent.get( 1 ) ) );
+
+      final TextureOffsetFactory offsetFactory = new CentreAlignTextureOffsetFactory();
+      final MaximumDepthHeightMapTransformer transformer = new MaximumDepthHeightMapTransformer( DEPTH );
+      final HeightMap first = transformer.transform( HeightMapPipelineElement.load( MapResources.SHARK, false ) );
+      final HeightMap second = transformer.transform( HeightMapPipelineElement.load( edited, false ) );
+      final Texture2D texture = new Texture2D( getTextureData(), 0, first.getHeight(), false, new ArrayTexture1DFactory() );
+      texture.setInitialOffsets( offsetFactory.getOffsets( first, texture ) );
+      final BufferedImage expected = new BufferedImage( second.getWidth(), second.getHeight(), BufferedImage.TYPE_INT_ARGB );
+      new StereogramProcessor().process( second, texture, expected );
+      assertArrayEquals( getPixels( expected ), coherent.get( 1 ) );
+   }
+
+   private static SequenceRenderer createRenderer( final boolean coherentOffsets )
+   {
+      final SequenceRenderer renderer = new SequenceRenderer( new ArrayTexture1DFactory(), 2, 3 );
+      renderer.setTextureSource( TextureResources.TEXTURE_5 );
+      renderer.setTextureSize( TEXTURE_SIZE );
+      renderer.setMaximumDepth( DEPTH );
+      renderer.setTextureOffsetFactory( new CentreAlignTextureOffsetFactory() );
+      renderer.setCoherentOffsets( coherentOffsets );
+      return renderer;
+   }
+
+   private static StereogramPipeline createPipeline()
+   {
+      final StereogramPipeline pipeline = new StereogramPipeline();
+      pipeline.setTextureSouce( TextureResources.TEXTURE_5 );
+      pipeline.setTextureSize( TEXTURE_SIZE );
+      pipeline.setMaximumDepth( DEPTH );
+      pipeline.setTextureOffsetFactory( new CentreAlignTextureOffsetFactory() );
+      return pipeline;
+   }
+
+   /**
+    * Renders a sequence and copies each frame, since the sink does not own the images it is given.
+    */
+   private static List< int[] > render( final SequenceRenderer renderer, final List< ? extends StreamSource > frames )
+      throws IOException
+   {
+      final List< int[] > rendered = new ArrayList<>();
+      renderer.render( frames, new FrameSink()
+      {
+         @Override
+         public void writeFrame( final int index, final BufferedImage frame )
+         {
+            assertEquals( rendered.size(), index );
+            rendered.add( getPixels( frame ).clone() );
+         }
+
+         @Override
+         public void finish()
+         {
+            assertEquals( frames.size(), rendered.size() );
+         }
+      } );
+      return rendered;
+   }
+
+   /**
+    * Gets the texture as rendered by the pipeline, resized to {@link #TEXTURE_SIZE}.
+    */
+   private static int[][] getTextureData()
+   {
+      final BufferedImage image = ImageUtilities.load( TextureResources.TEXTURE_5, BufferedImage.TYPE_INT_ARGB, 0, 0, 0, 0 );
+      return ImageUtilities.getRasterAsInts( ImageUtilities.resize( image, TEXTURE_SIZE ) );
+   }
+
+   /**
+    * Creates a height map the size of the shark with a raised block in the middle.
+    */
+   private static StreamSource createEditedShark() throws IOException
+   {
+      final BufferedImage image;
+      try( InputStream stream = MapResources.SHARK.getStream() )
+      {
+         image = ImageIO.read( stream );
+      }
+      final Graphics2D g2d = image.createGraphics();
+      g2d.setColor( Color.WHITE );
+      g2d.fillRect( image.getWidth() / 3, image.getHeight() / 3, image.getWidth() / 3, image.getHeight() / 3 );
+      g2d.dispose();
+
+      final ByteArrayOutputStream png = new ByteArrayOutputStream();
+      ImageIO.write( image, "png", png );
+      final byte[] bytes = png.toByteArray();
+      return () -> new ByteArrayInputStream( bytes );
+   }
+
+   private static int[] getPixels( final BufferedImage image )
+   {
+      return ( (DataBufferInt) image.getRaster().getDataBuffer() ).getData();
+   }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.pipeline;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+import uk.co.eduardo.stereogram.CacheStatistics;
+import uk.co.eduardo.stereogram.MapResources;
+import uk.co.eduardo.stereogram.TextureResources;
+import uk.co.eduardo.stereogram.map.StereogramRowSink;
+import uk.co.eduardo.stereogram.texture.CentreAlignTextureOffsetFactory;
+import uk.co.eduardo.stereogram.texture.TextureOffsetFactory;
+import uk.co.eduardo.stereogram.texture.ZeroTextureOffsetFactory;
+
+/**
+ * Tests for {@link StereogramPipeline}.
+ *
+ * @author erodri02
+ */
+@SuppressWarnings( "nls" )
+public class StereogramPipelineTest
+{
+   /**
+    * Re-rendering only the edited rows of the height map must give exactly the same stereogram as rendering it in full, whether
+    * into a copy of the previous stereogram or, once it has been recycled, into the previous stereogram itself. Stereograms that
+    * have been returned and not recycled must not change.
+    */
+   @Test
+   public void editRendersSameAsFullRender()
+   {
+      final Random random = new Random( 1 );
+      for( final TextureOffsetFactory offsetFactory : new TextureOffsetFactory[] { new ZeroTextureOffsetFactory(),
+                                                                                   new CentreAlignTextureOffsetFactory() } )
+      {
+         final StereogramPipeline pipeline = createPipeline( offsetFactory );
+         BufferedImage previous = pipeline.getOutput();
+         int[] previousPixels = getPixels( previous ).clone();
+         for( int edit = 0; edit < 15; edit++ )
+         {
+            final boolean recycled = ( edit % 2 ) == 1;
+            if( recycled )
+            {
+               pipeline.recycle( previous );
+            }
+
+            // Every fifth edit raises the maximum value of the map, which rescales every row.
+            final int width = 1 + random.nextInt( 40 );
+            final int height = 1 + random.nextInt( 30 );
+            final short[] values = new short[ width * height ];
+            for( int i = 0; i < values.length; i++ )
+            {
+               values[ i ] = (short) random.nextInt( ( edit % 5 ) == 4 ? 300 : 200 );
+            }
+            pipeline.editHeightMap( random.nextInt( previous.getWidth() - width ),
+                                    random.nextInt( previous.getHeight() - height ),
+                                    width,
+                                    height,
+                                    values );
+
+            final BufferedImage output = pipeline.getOutput();
+            final int[] edited = getPixels( output ).clone();
+            final String message = offsetFactory.getClass().getSimpleName() + " edit " + edit;
+            if( !recycled )
+            {
+               assertArrayEquals( message, previousPixels, getPixels( previous ) );
+               assertNotSame( message, previous, output );
+            }
+            assertArrayEquals( message, getFullRender( pipeline ), edited );
+
+            previous = pipeline.getOutput();
+            previousPixels = getPixels( previous ).clone();
+         }
+      }
+   }
+
+   /**
+    * Streaming the stereogram after an edit must give the same rows as the output image.
+    *
+    * @throws IOException if the sink fails.
+    */
+   @Test
+   public void writeOutputIncludesEdits() throws IOException
+   {
+      final StereogramPipeline pipeline = createPipeline( new CentreAlignTextureOffsetFactory() );
+      pipeline.getOutput();
+      pipeline.editHeightMap( 100, 80, 20, 10, new short[ 200 ] );
+
+      final int[][] streamed = new int[ 1 ][];
+      pipeline.writeOutput( new StereogramRowSink()
+      {
+         private int width;
+
+         @Override
+         public void start( final int imageWidth, final int imageHeight )
+         {
+            this.width = imageWidth;
+            streamed[ 0 ] = new int[ imageWidth * imageHeight ];
+         }
+
+         @Override
+         public void writeRow( final int y, final int[] pixels )
+         {
+            System.arraycopy( pixels, 0, streamed[ 0 ], y * this.width, this.width );
+         }
+
+         @Override
+         public void finish()
+         {
+            // Nothing to do
+         }
+      } );
+      assertArrayEquals( getPixels( pipeline.getOutput() ), streamed[ 0 ] );
+   }
+
+   /**
+    * A recycled image is reused by a later render. The current output is not put in the pool but, once recycled, is rendered into
+    * again by the next render.
+    */
+   @Test
+   public void recyclesReplacedOutputs()
+   {
+      final StereogramPipeline pipeline = createPipeline( new ZeroTextureOffsetFactory() );
+      final BufferedImage first = pipeline.getOutput();
+      pipeline.recycle( first );
+      assertEquals( 0, pipeline.getImagePool().getStatistics().getSize() );
+
+      pipeline.setMaximumDepth( pipeline.getMaximumDepth() + 1 );
+      assertSame( first, pipeline.getOutput() );
+
+      pipeline.setMaximumDepth( pipeline.getMaximumDepth() + 1 );
+      final BufferedImage second = pipeline.getOutput();
+      assertNotSame( first, second );
+      pipeline.recycle( first );
+      assertEquals( 1, pipeline.getImagePool().getStatistics().getSize() );
+      pipeline.setMaximumDepth( pipeline.getMaximumDepth() + 1 );
+      assertSame( first, pipeline.getOutput() );
+   }
+
+   /**
+    * An edit removes the outputs computed from the map before the edit from the result cache, but keeps the textures, which do not
+    * depend on the map.
+    */
+   @Test
+   public void editKeepsCachedTextures()
+   {
+      final StereogramPipeline pipeline = createPipeline( new CentreAlignTextureOffsetFactory() );
+      pipeline.getResultCache().setMaximumWeight( StereogramPipeline.DEFAULT_RESULT_CACHE_SIZE );
+      pipeline.getOutput();
+      final int cached = pipeline.getResultCache().getStatistics().getSize();
+
+      pipeline.editHeightMap( 100, 80, 20, 10, new short[ 200 ] );
+      final CacheStatistics statistics = pipeline.getResultCache().getStatistics();
+      assertTrue( statistics.getSize() > 0 );
+      assertTrue( statistics.getSize() < cached );
+      assertEquals( 0, statistics.getEvictionCount() );
+
+      // The texture size toggle takes the textures from the cache and renders the edited map in full.
+      final int[] edited = getPixels( pipeline.getOutput() ).clone();
+      assertArrayEquals( edited, getFullRender( pipeline ) );
+   }
+
+   private static StereogramPipeline createPipeline( final TextureOffsetFactory offsetFactory )
+   {
+      final StereogramPipeline pipeline = new StereogramPipeline();
+      // Without the cache every change of parameters renders the stereogram in full.
+      pipeline.getResultCache().setMaximumWeight( 0 );
+      pipeline.setHeightMapSource( MapResources.SHARK );
+      pipeline.setTextureSouce( TextureResources.TEXTURE_13 );
+      pipeline.setTextureOffsetFactory( offsetFactory );
+      return pipeline;
+   }
+
+   /**
+    * Renders the stereogram of the edited height map in full, by changing the texture size and changing it back.
+    */
+   private static int[] getFullRender( final StereogramPipeline pipeline )
+   {
+      final int textureSize = pipeline.getTextureSize();
+      pipeline.setTextureSize( textureSize + 1 );
+      pipeline.getOutput();
+      pipeline.setTextureSize( textureSize );
+      return getPixels( pipeline.getOutput() ).clone();
+   }
+
+   private static int[] getPixels( final BufferedImage image )
+   {
+      return ( (DataBufferInt) image.getRaster().getDataBuffer() ).getData();
+   }
+}
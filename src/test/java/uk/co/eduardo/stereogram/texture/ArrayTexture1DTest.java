@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.texture;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+import org.junit.Test;
+
+import uk.co.eduardo.stereogram.MapResources;
+import uk.co.eduardo.stereogram.TextureResources;
+import uk.co.eduardo.stereogram.pipeline.StereogramPipeline;
+
+/**
+ * Tests for {@link ArrayTexture1D}.
+ *
+ * @author erodri02
+ */
+@SuppressWarnings( "nls" )
+public class ArrayTexture1DTest
+{
+   private static final MapResources[] MAPS = { MapResources.TEST_OFFSET, MapResources.SHARK, MapResources.CHAIRS };
+
+   private static final TextureOffsetFactory[] OFFSET_FACTORIES = { new ZeroTextureOffsetFactory(),
+                                                                    new CentreAlignTextureOffsetFactory() };
+
+   /**
+    * The array engine must render exactly the same stereograms as the linked list engine it replaces.
+    */
+   @Test
+   public void rendersSameAsLinkedTexture()
+   {
+      final StereogramPipeline array = new StereogramPipeline( new ArrayTexture1DFactory() );
+      final StereogramPipeline linked = new StereogramPipeline( new LinkedTexture1DFactory() );
+      for( final MapResources map : MAPS )
+      {
+         for( final TextureOffsetFactory offsetFactory : OFFSET_FACTORIES )
+         {
+            for( final boolean invert : new boolean[] { false, true } )
+            {
+               for( final int depth : new int[] { 0, 30, 100 } )
+               {
+                  configure( array, map, offsetFactory, invert, depth );
+                  configure( linked, map, offsetFactory, invert, depth );
+
+                  final String message = String.format( "%s %s invert=%b depth=%d",
+                                                        map,
+                                                        offsetFactory.getClass().getSimpleName(),
+                                                        invert,
+                                                        depth );
+                  assertArrayEquals( message, getPixels( linked.getOutput() ), getPixels( array.getOutput() ) );
+               }
+            }
+         }
+      }
+   }
+
+   private static void configure( final StereogramPipeline pipeline,
+                                  final MapResources map,
+                                  final TextureOffsetFactory offsetFactory,
+                                  final boolean invert,
+                                  final int depth )
+   {
+      pipeline.setHeightMapSource( map );
+      pipeline.setTextureSouce( TextureResources.TEXTURE_13 );
+      pipeline.setTextureOffsetFactory( offsetFactory );
+      pipeline.setInvertDepth( invert );
+      pipeline.setMaximumDepth( depth );
+   }
+
+   private static int[] getPixels( final BufferedImage image )
+   {
+      return ( (DataBufferInt) image.getRaster().getDataBuffer() ).getData();
+   }
+}
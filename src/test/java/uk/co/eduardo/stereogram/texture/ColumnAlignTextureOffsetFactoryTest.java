@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) PRGX.
+ * All Rights Reserved.
+ */
+package uk.co.eduardo.stereogram.texture;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import uk.co.eduardo.stereogram.map.HeightMap;
+import uk.co.eduardo.stereogram.map.RandomHeightMaps;
+
+/**
+ * Tests for {@link ColumnAlignTextureOffsetFactory}.
+ *
+ * @author erodri02
+ */
+@SuppressWarnings( "nls" )
+public class ColumnAlignTextureOffsetFactoryTest
+{
+   private static final int TEXTURE_SIZE = 64;
+
+   /**
+    * Stepping over runs of equal depth must give the same offsets as stepping pixel by pixel, for any alignment column, whenever
+    * the texture stays at least one pixel wide.
+    */
+   @Test
+   public void matchesPixelByPixelOffsets()
+   {
+      final Random random = new Random( 1 );
+      for( int test = 0; test < 50; test++ )
+      {
+         // Some runs are longer than the texture is wide, some rows narrow the texture below the position reached in it.
+         final HeightMap map = RandomHeightMaps.createNoShallowerThanFirst( random,
+                                                                            1 + random.nextInt( 300 ),
+                                                                            1 + random.nextInt( 20 ),
+                                                                            1 + random.nextInt( 2 * TEXTURE_SIZE ),
+                                                                            TEXTURE_SIZE - 1 );
+         final Texture2D texture = createTexture( map.getHeight() );
+         for( final double fraction : new double[] { 0, 0.25, 0.5, random.nextDouble(), 1 } )
+         {
+            final ColumnAlignTextureOffsetFactory factory = new ColumnAlignTextureOffsetFactory( fraction );
+            final int column = (int) ( map.getWidth() * fraction );
+            final int[] expected = new int[ map.getHeight() ];
+            for( int y = 0; y < map.getHeight(); y++ )
+            {
+               expected[ y ] = getPixelByPixelOffset( map, y, column, texture.getRowSize( y ) );
+            }
+            assertArrayEquals( "fraction=" + fraction, expected, factory.getOffsets( map, texture ) );
+         }
+      }
+   }
+
+   /**
+    * The centre align factory must give the same offsets as the implementation it replaced, which aligned at the midpoint.
+    */
+   @Test
+   public void centreAlignMatchesMidpoint()
+   {
+      final Random random = new Random( 2 );
+      final HeightMap map = RandomHeightMaps.createNoShallowerThanFirst( random, 257, 40, 10, TEXTURE_SIZE - 1 );
+      final Texture2D texture = createTexture( map.getHeight() );
+      final int[] offsets = new CentreAlignTextureOffsetFactory().getOffsets( map, texture );
+      for( int y = 0; y < map.getHeight(); y++ )
+      {
+         assertEquals( "row " + y, getPixelByPixelOffset( map, y, map.getWidth() / 2, texture.getRowSize( y ) ), offsets[ y ] );
+      }
+   }
+
+   /**
+    * A range of rows gets the same offsets as those rows of the whole map.
+    */
+   @Test
+   public void offsetsRangeOfRows()
+   {
+      final Random random = new Random( 3 );
+      final HeightMap map = RandomHeightMaps.createNoShallowerThanFirst( random, 200, 30, 10, TEXTURE_SIZE - 1 );
+      final Texture2D texture = createTexture( map.getHeight() );
+      final ColumnAlignTextureOffsetFactory factory = new ColumnAlignTextureOffsetFactory( 0.7 );
+      final int[] all = factory.getOffsets( map, texture );
+      final int[] range = factory.getOffsets( map, texture, 11, 23 );
+      for( int y = 11; y < 23; y++ )
+      {
+         assertEquals( all[ y ], range[ y - 11 ] );
+      }
+   }
+
+   /**
+    * Rows deep enough to shrink the texture to nothing are clamped to a width of one pixel rather than failing.
+    */
+   @Test
+   public void clampsTextureWidth()
+   {
+      final Random random = new Random( 4 );
+      final HeightMap map = RandomHeightMaps.createNoShallowerThanFirst( random, 200, 30, 10, 4 * TEXTURE_SIZE );
+      final Texture2D texture = createTexture( map.getHeight() );
+      for( final int offset : new ColumnAlignTextureOffsetFactory( 1 ).getOffsets( map, texture ) )
+      {
+         assertTrue( offset >= 0 );
+         assertTrue( offset < TEXTURE_SIZE );
+      }
+   }
+
+   /**
+    * The offsets as they were computed before runs of equal depth were stepped over in one go: one pixel, and one remainder, at a
+    * time.
+    */
+   private static int getPixelByPixelOffset( final HeightMap map, final int y, final int column, final int rowSize )
+   {
+      int textureWidth = rowSize;
+      int texturePos = 0;
+      int last = map.getValue( 0, y );
+      for( int x = 0; x < column; x++ )
+      {
+         final int current = map.getValue( x, y );
+         final int delta = current - last;
+         textureWidth -= delta;
+         texturePos = ( texturePos + 1 ) % textureWidth;
+
+         last = current;
+      }
+      return texturePos;
+   }
+
+   private static Texture2D createTexture( final int height )
+   {
+      return new Texture2D( new int[ 7 ][ TEXTURE_SIZE ], 0, height, false, new ArrayTexture1DFactory() );
+   }
+}